@@ -0,0 +1,98 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+package org.apache.directory.fortress.web.common;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of one type-ahead keystroke, the names found by {@link PrefixIndex} compared with a scan of the names.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ * @version $Rev$
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PrefixIndexBenchmark
+{
+    private static final int MAX = 10;
+    @Param({ "1000", "100000" })
+    private int size;
+    private List<String> names;
+    private PrefixIndex index;
+    private String prefix;
+
+
+    @Setup
+    public void setUp()
+    {
+        names = new ArrayList<>( size );
+        for ( int i = 0; i < size; i++ )
+        {
+            names.add( "User" + i );
+        }
+        index = PrefixIndex.of( names );
+        prefix = "user" + ( size / 2 );
+    }
+
+
+    @Benchmark
+    public List<String> find()
+    {
+        return index.find( prefix, MAX );
+    }
+
+
+    @Benchmark
+    public List<String> scan()
+    {
+        List<String> found = new ArrayList<>();
+        for ( String name : names )
+        {
+            if ( name.toLowerCase( Locale.ENGLISH ).startsWith( prefix ) )
+            {
+                found.add( name );
+                if ( found.size() == MAX )
+                {
+                    break;
+                }
+            }
+        }
+        return found;
+    }
+}
@@ -0,0 +1,199 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+package org.apache.directory.fortress.web.control;
+
+import org.apache.directory.fortress.core.GlobalIds;
+import org.apache.directory.fortress.core.model.AuthZ;
+import org.apache.directory.fortress.core.util.time.TUtil;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.StringTokenizer;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of mapping an authorization result set, as {@link AuditRecordParser} does it compared with the per record
+ * parsing the audit list panels did before, kept below as the legacy benchmark.  Records are generated, 500 users
+ * checking 50 permissions, a few records per second.  Run with -prof gc for the allocation per result set.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ * @version $Rev$
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 10)
+@Measurement(iterations = 20)
+@Fork(1)
+public class AuditRecordParserBenchmark
+{
+    private static final String AUDIT_TIMESTAMP_FORMAT = "MM/dd/yyyy HH:mm:ss";
+    @Param({ "10000", "100000" })
+    private int size;
+    private String[] reqDNs;
+    private String[] reqAuthzIDs;
+    private String[] reqStarts;
+    private List<AuthZ> authZs;
+
+
+    @Setup(Level.Trial)
+    public void generate()
+    {
+        reqDNs = new String[size];
+        reqAuthzIDs = new String[size];
+        reqStarts = new String[size];
+        for ( int i = 0; i < size; i++ )
+        {
+            int perm = i % 50;
+            reqDNs[i] = "ftObjId=" + perm + "+ftOpNm=TOP" + perm + ",ftObjNm=TOB" + ( perm / 5 )
+                + ",ou=Permissions,ou=RBAC,dc=example,dc=com";
+            reqAuthzIDs[i] = "uid=user" + ( i * 7 % 500 ) + ",ou=People,dc=example,dc=com";
+            int second = i / 4;
+            reqStarts[i] = String.format( "201503%02d%02d%02d%02dZ", 10 + second / 86400 % 18, second / 3600 % 24,
+                second / 60 % 60, second % 60 );
+        }
+        authZs = new ArrayList<>( size );
+        for ( int i = 0; i < size; i++ )
+        {
+            authZs.add( new AuthZ() );
+        }
+    }
+
+
+    /**
+     * Put the raw values back, the records are mapped in place.
+     */
+    @Setup(Level.Invocation)
+    public void reset()
+    {
+        for ( int i = 0; i < size; i++ )
+        {
+            AuthZ authZ = authZs.get( i );
+            authZ.setReqDN( reqDNs[i] );
+            authZ.setReqAuthzID( reqAuthzIDs[i] );
+            authZ.setReqStart( reqStarts[i] );
+        }
+    }
+
+
+    @Benchmark
+    public List<AuthZ> parser()
+    {
+        AuditRecordParser.mapAuthZs( authZs );
+        return authZs;
+    }
+
+
+    @Benchmark
+    public List<AuthZ> legacy()
+    {
+        for ( AuthZ authZ : authZs )
+        {
+            Date start = null;
+            try
+            {
+                start = TUtil.decodeGeneralizedTime( authZ.getReqStart() );
+            }
+            catch ( ParseException pe )
+            {
+                // not in generated data
+            }
+            if ( start != null )
+            {
+                SimpleDateFormat formatter = new SimpleDateFormat( AUDIT_TIMESTAMP_FORMAT );
+                authZ.setReqStart( formatter.format( start ) );
+            }
+            authZ.setReqResult( "FAILURE" );
+            authZ.setReqAuthzID( getAuthZId( authZ.getReqAuthzID() ) );
+            mapAuthZPerm( authZ );
+        }
+        return authZs;
+    }
+
+
+    private static String getAuthZId( String inputString )
+    {
+        String userId = null;
+        if ( inputString != null && inputString.length() > 0 )
+        {
+            StringTokenizer maxTkn = new StringTokenizer( inputString, "," );
+            if ( maxTkn.countTokens() > 0 )
+            {
+                String val = maxTkn.nextToken();
+                int indx = val.indexOf( '=' );
+                if ( indx >= 1 )
+                {
+                    userId = val.substring( indx + 1 );
+                }
+            }
+        }
+        return userId;
+    }
+
+
+    private static void mapAuthZPerm( AuthZ authZ )
+    {
+        String raw = authZ.getReqDN();
+        int bindx = raw.indexOf( GlobalIds.POBJ_ID );
+        if ( bindx != -1 )
+        {
+            int eindx = raw.indexOf( '+' );
+            if ( eindx != -1 )
+            {
+                authZ.setReqDerefAliases( raw.substring( bindx + GlobalIds.POBJ_ID.length() + 1, eindx ) );
+            }
+        }
+        bindx = raw.indexOf( GlobalIds.POBJ_NAME );
+        if ( bindx != -1 )
+        {
+            int eindx = raw.substring( bindx ).indexOf( ',' );
+            if ( eindx != -1 )
+            {
+                eindx += bindx;
+                authZ.setReqAttr( raw.substring( bindx + GlobalIds.POBJ_NAME.length() + 1, eindx ) );
+            }
+        }
+        bindx = raw.indexOf( GlobalIds.POP_NAME );
+        if ( bindx != -1 )
+        {
+            int eindx = raw.substring( bindx ).indexOf( ',' );
+            if ( eindx != -1 )
+            {
+                eindx += bindx;
+                authZ.setReqAttrsOnly( raw.substring( bindx + GlobalIds.POP_NAME.length() + 1, eindx ) );
+            }
+        }
+    }
+}
@@ -0,0 +1,205 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+package org.apache.directory.fortress.web.control;
+
+import org.apache.directory.fortress.core.model.User;
+import org.apache.directory.fortress.core.model.UserRole;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Heap held by an export of a million users, written through {@link ExportResource} to a writer that discards the
+ * output.  The list benchmark holds every row of the search before writing, as the exports did, the pages benchmark
+ * holds one page of export.page.size rows at a time, as a search split by {@link ExportResource.Pages} does.  Each
+ * reports the peak heap used, in megabytes, as the peakMegabytes counter.  Rows are made up, so the time to read
+ * them from the directory is left out.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ * @version $Rev$
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+@Fork(value = 1, jvmArgsAppend = { "-Xmx2g" })
+public class ExportBenchmark
+{
+    @Param({ "1000000" })
+    private int size;
+    private ExportResource<User> export;
+
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Heap
+    {
+        public long peakMegabytes;
+
+
+        @Setup(Level.Invocation)
+        public void reset()
+        {
+            System.gc();
+            for ( MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans() )
+            {
+                pool.resetPeakUsage();
+            }
+        }
+
+
+        void record()
+        {
+            long peak = 0;
+            for ( MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans() )
+            {
+                if ( pool.getType() == MemoryType.HEAP )
+                {
+                    peak += pool.getPeakUsage().getUsed();
+                }
+            }
+            peakMegabytes = peak / ( 1024 * 1024 );
+        }
+    }
+
+
+    @Setup
+    public void setUp()
+    {
+        export = new ExportResource<User>( "users", ExportResource.Format.CSV, "userId", "ou", "description",
+            "roles" )
+        {
+            /** Default serialVersionUID */
+            private static final long serialVersionUID = 1L;
+
+
+            @Override
+            protected Iterable<? extends User> load()
+            {
+                return null;
+            }
+        };
+    }
+
+
+    @Benchmark
+    public long list( Heap heap ) throws IOException
+    {
+        List<User> users = newUsers( 0, size );
+        long count = export.write( users.iterator(), new NullWriter() );
+        heap.record();
+        return count;
+    }
+
+
+    @Benchmark
+    public long pages( Heap heap ) throws IOException
+    {
+        ExportResource.Pages<User> pages = new ExportResource.Pages<User>()
+        {
+            private int from;
+
+
+            @Override
+            protected List<User> next()
+            {
+                if ( from >= size )
+                {
+                    return null;
+                }
+                int to = Math.min( size, from + ExportResource.PAGE_SIZE );
+                List<User> page = newUsers( from, to );
+                from = to;
+                return page;
+            }
+        };
+        long count = export.write( pages.iterator(), new NullWriter() );
+        heap.record();
+        return count;
+    }
+
+
+    private static List<User> newUsers( int from, int to )
+    {
+        List<User> users = new ArrayList<>( to - from );
+        for ( int i = from; i < to; i++ )
+        {
+            User user = new User( "user" + i );
+            user.setOu( "dev" + ( i % 10 ) );
+            user.setDescription( "Test user " + i );
+            user.setRole( new UserRole( user.getUserId(), "role" + ( i % 20 ) ) );
+            users.add( user );
+        }
+        return users;
+    }
+
+
+    private static class NullWriter extends Writer
+    {
+        @Override
+        public void write( char[] buffer, int offset, int length )
+        {
+        }
+
+
+        @Override
+        public void write( int c )
+        {
+        }
+
+
+        @Override
+        public void write( String value )
+        {
+        }
+
+
+        @Override
+        public void flush()
+        {
+        }
+
+
+        @Override
+        public void close()
+        {
+        }
+    }
+}
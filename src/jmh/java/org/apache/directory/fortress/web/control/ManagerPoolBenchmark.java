@@ -0,0 +1,163 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+package org.apache.directory.fortress.web.control;
+
+import org.apache.directory.fortress.core.Manageable;
+import org.apache.directory.fortress.core.ReviewMgr;
+import org.apache.directory.fortress.core.SecurityException;
+import org.apache.directory.fortress.core.model.Role;
+import org.apache.directory.fortress.core.model.Session;
+import org.apache.directory.fortress.core.model.User;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import org.springframework.beans.factory.support.RootBeanDefinition;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Cost of the managers used to render one page, each of its components getting a manager from Spring, setting the
+ * admin session and making one call.  Compares a new prototype manager per component with the {@link ManagerPool}
+ * handles.  The beans are declared as in applicationContext.xml, with a stub in place of the fortress factory, which
+ * needs a directory, so the cost of building the real managers is left out and the gap measured is the least there
+ * is.  Run with -prof gc for the allocation per page.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ * @version $Rev$
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(4)
+public class ManagerPoolBenchmark
+{
+    @Param({ "10", "40" })
+    private int components;
+    private DefaultListableBeanFactory beanFactory;
+    private Session admin;
+
+
+    @Setup
+    public void setUp()
+    {
+        beanFactory = new DefaultListableBeanFactory();
+        RootBeanDefinition impl = new RootBeanDefinition( ReviewMgr.class, new Supplier<ReviewMgr>()
+        {
+            @Override
+            public ReviewMgr get()
+            {
+                return newStub();
+            }
+        } );
+        impl.setScope( BeanDefinition.SCOPE_PROTOTYPE );
+        impl.setAutowireCandidate( false );
+        beanFactory.registerBeanDefinition( "reviewMgrImpl", impl );
+        beanFactory.registerBeanDefinition( "managerPool", new RootBeanDefinition( ManagerPool.class ) );
+        RootBeanDefinition handle = new RootBeanDefinition();
+        handle.setFactoryBeanName( "managerPool" );
+        handle.setFactoryMethodName( "create" );
+        handle.setScope( BeanDefinition.SCOPE_PROTOTYPE );
+        handle.getConstructorArgumentValues().addIndexedArgumentValue( 0, ReviewMgr.class );
+        handle.getConstructorArgumentValues().addIndexedArgumentValue( 1, "reviewMgrImpl" );
+        beanFactory.registerBeanDefinition( "reviewMgr", handle );
+        admin = new Session();
+        admin.setUser( new User( "admin" ) );
+    }
+
+
+    @Benchmark
+    public List<Role> prototypes() throws SecurityException
+    {
+        return render( "reviewMgrImpl" );
+    }
+
+
+    @Benchmark
+    public List<Role> pooled() throws SecurityException
+    {
+        return render( "reviewMgr" );
+    }
+
+
+    private List<Role> render( String beanName ) throws SecurityException
+    {
+        List<Role> roles = null;
+        for ( int i = 0; i < components; i++ )
+        {
+            ReviewMgr reviewMgr = ( ReviewMgr ) beanFactory.getBean( beanName );
+            reviewMgr.setAdmin( admin );
+            roles = reviewMgr.findRoles( "" );
+        }
+        return roles;
+    }
+
+
+    /**
+     * @return manager that holds the admin session and contextId, as the fortress ones do, and finds nothing.
+     */
+    private static ReviewMgr newStub()
+    {
+        return ( ReviewMgr ) Proxy.newProxyInstance( ReviewMgr.class.getClassLoader(), new Class<?>[]
+            { ReviewMgr.class }, new InvocationHandler()
+            {
+                private Session adminSess;
+                private String contextId;
+
+
+                @Override
+                public Object invoke( Object proxy, Method method, Object[] args )
+                {
+                    if ( method.getDeclaringClass() == Manageable.class )
+                    {
+                        if ( "setAdmin".equals( method.getName() ) )
+                        {
+                            adminSess = ( Session ) args[0];
+                        }
+                        else
+                        {
+                            contextId = ( String ) args[0];
+                        }
+                        return null;
+                    }
+                    return method.getReturnType() == List.class ? new ArrayList<>() : null;
+                }
+            } );
+    }
+}
@@ -0,0 +1,107 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+package org.apache.directory.fortress.web.control;
+
+import org.apache.directory.fortress.core.model.Permission;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of the permission check every secure button and link makes when it is created, see
+ * {@link SecUtils#isFound}.  Compares the {@link PermissionIndex} held by the session with a scan of the permission
+ * list, which is what the check did before the index.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ * @version $Rev$
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PermissionIndexBenchmark
+{
+    @Param({ "50", "500", "5000" })
+    private int size;
+    private List<Permission> permissions;
+    private PermissionIndex index;
+    private Permission hit;
+    private Permission miss;
+
+
+    @Setup
+    public void setUp()
+    {
+        permissions = new ArrayList<>( size );
+        for ( int i = 0; i < size; i++ )
+        {
+            // admin perms look like this, a few operations on each manager:
+            permissions.add( new Permission( "org.apache.directory.fortress.core.impl.Mgr" + ( i / 10 ) + "Impl", "op"
+                + i ) );
+        }
+        index = PermissionIndex.of( permissions );
+        Permission last = permissions.get( size - 1 );
+        // a copy, in another case, as the panels pass it:
+        hit = new Permission( last.getObjName().toUpperCase(), last.getOpName() );
+        miss = new Permission( "org.apache.directory.fortress.core.impl.NoSuchMgrImpl", "noSuchOp" );
+    }
+
+
+    @Benchmark
+    public boolean indexHit()
+    {
+        return index.contains( hit );
+    }
+
+
+    @Benchmark
+    public boolean indexMiss()
+    {
+        return index.contains( miss );
+    }
+
+
+    @Benchmark
+    public boolean listHit()
+    {
+        return permissions.contains( hit );
+    }
+
+
+    @Benchmark
+    public boolean listMiss()
+    {
+        return permissions.contains( miss );
+    }
+}
@@ -0,0 +1,107 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+package org.apache.directory.fortress.web.control;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javax.imageio.ImageIO;
+import java.awt.Color;
+import java.awt.GradientPaint;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of the photo sent with each user row and detail panel, see {@link PhotoCache}.  The scale benchmark decodes
+ * and scales the photo on every call, which is what each repaint cost before the cache, the cached benchmark returns
+ * the thumbnail kept in memory.  The photo is a width by three quarters of width JPEG, as taken by a camera; the
+ * thumbnail is size pixels square.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ * @version $Rev$
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PhotoCacheBenchmark
+{
+    @Param({ "640", "2048" })
+    private int width;
+    @Param({ "64" })
+    private int size;
+    private byte[] photo;
+    private String hash;
+
+
+    @Setup
+    public void setUp() throws IOException
+    {
+        int height = width * 3 / 4;
+        BufferedImage image = new BufferedImage( width, height, BufferedImage.TYPE_INT_RGB );
+        Graphics2D graphics = image.createGraphics();
+        try
+        {
+            // something for the encoder to work on, a flat image compresses to nothing:
+            graphics.setPaint( new GradientPaint( 0, 0, Color.ORANGE, width, height, Color.BLUE ) );
+            graphics.fillRect( 0, 0, width, height );
+            graphics.setColor( Color.WHITE );
+            graphics.fillOval( width / 4, height / 4, width / 2, height / 2 );
+        }
+        finally
+        {
+            graphics.dispose();
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write( image, "jpeg", out );
+        photo = out.toByteArray();
+        hash = PhotoCache.hash( photo );
+        // the first call scales it and keeps the thumbnail:
+        PhotoCache.get( photo, hash, size );
+    }
+
+
+    @Benchmark
+    public int scale()
+    {
+        return PhotoCache.scale( photo, size ).length;
+    }
+
+
+    @Benchmark
+    public int cached()
+    {
+        return PhotoCache.get( photo, hash, size ).getData().length;
+    }
+}
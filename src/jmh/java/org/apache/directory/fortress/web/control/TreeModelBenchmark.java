@@ -0,0 +1,171 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+package org.apache.directory.fortress.web.control;
+
+import org.apache.directory.fortress.core.ReviewMgr;
+import org.apache.directory.fortress.core.SecurityException;
+import org.apache.directory.fortress.core.model.Role;
+import org.apache.directory.fortress.web.model.RoleRow;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javax.swing.tree.DefaultMutableTreeNode;
+import javax.swing.tree.DefaultTreeModel;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of building the role tree of the role list page and of the hierarchy lookups made by the role panels, over a
+ * generated hierarchy where each role has four children and every tenth role a second parent.  The graph is loaded
+ * from a stub {@link ReviewMgr}, so the directory itself is not measured.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ * @version $Rev$
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TreeModelBenchmark
+{
+    @Param({ "1000", "10000" })
+    private int size;
+    private ReviewMgr reviewMgr;
+    private RoleGraph graph;
+    private String root;
+    private String leaf;
+
+
+    @Setup
+    public void setUp() throws SecurityException
+    {
+        final List<Role> roles = new ArrayList<>( size );
+        for ( int i = 0; i < size; i++ )
+        {
+            Role role = new Role( "role" + i );
+            role.setDescription( "Test role " + i );
+            if ( i > 0 )
+            {
+                role.setParent( "role" + ( ( i - 1 ) / 4 ) );
+            }
+            if ( i > 10 && i % 10 == 0 )
+            {
+                role.setParent( "role" + ( i / 10 ) );
+            }
+            roles.add( role );
+        }
+        reviewMgr = ( ReviewMgr ) Proxy.newProxyInstance( ReviewMgr.class.getClassLoader(), new Class<?>[]
+            { ReviewMgr.class }, new InvocationHandler()
+            {
+                @Override
+                public Object invoke( Object proxy, Method method, Object[] args )
+                {
+                    if ( "findRoles".equals( method.getName() ) && args.length == 1 )
+                    {
+                        return new ArrayList<>( roles );
+                    }
+                    throw new UnsupportedOperationException( method.getName() );
+                }
+            } );
+        RoleGraph.clear();
+        graph = RoleGraph.get( reviewMgr, null );
+        root = "role0";
+        leaf = "role" + ( size - 1 );
+    }
+
+
+    @Benchmark
+    public RoleGraph loadGraph() throws SecurityException
+    {
+        RoleGraph.clear();
+        return RoleGraph.get( reviewMgr, null );
+    }
+
+
+    /**
+     * Every node up front, as the role tree was built before it loaded children on expand.
+     */
+    @Benchmark
+    public DefaultTreeModel buildFullTree()
+    {
+        DefaultMutableTreeNode rootNode = new DefaultMutableTreeNode();
+        addNode( rootNode, root );
+        return new DefaultTreeModel( rootNode, true );
+    }
+
+
+    /**
+     * The top level and one expanded node, as the role tree is first shown.
+     */
+    @Benchmark
+    public DefaultTreeModel buildTopLevel()
+    {
+        DefaultMutableTreeNode rootNode = new DefaultMutableTreeNode();
+        DefaultMutableTreeNode top = new DefaultMutableTreeNode( RoleRow.of( graph.getRole( root ) ) );
+        rootNode.add( top );
+        for ( Role child : graph.getChildren( root ) )
+        {
+            top.add( new DefaultMutableTreeNode( RoleRow.of( child ), graph.hasChildren( child.getName() ) ) );
+        }
+        return new DefaultTreeModel( rootNode, true );
+    }
+
+
+    @Benchmark
+    public Set<String> descendants()
+    {
+        return graph.getDescendants( root );
+    }
+
+
+    @Benchmark
+    public Set<String> ancestors()
+    {
+        return graph.getAncestors( leaf );
+    }
+
+
+    private void addNode( DefaultMutableTreeNode parentNode, String name )
+    {
+        DefaultMutableTreeNode node = new DefaultMutableTreeNode( RoleRow.of( graph.getRole( name ) ) );
+        parentNode.add( node );
+        for ( Role child : graph.getChildren( name ) )
+        {
+            // roles with a second parent show up under both, as in the tree:
+            addNode( node, child.getName() );
+        }
+    }
+}
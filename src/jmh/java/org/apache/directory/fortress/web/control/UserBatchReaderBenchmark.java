@@ -0,0 +1,119 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+package org.apache.directory.fortress.web.control;
+
+import org.apache.directory.fortress.core.ReviewMgr;
+import org.apache.directory.fortress.core.SecurityException;
+import org.apache.directory.fortress.core.model.User;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Time to read the users of a search that returns only userIds, e.g. {@link ReviewMgr#authorizedPermissionUsers}.
+ * The sequential benchmark reads them one at a time on the calling thread, as the user list did, the batched
+ * benchmark reads them through {@link UserBatchReader}.  The directory is replaced by a stub {@link ReviewMgr} that
+ * takes latencyMicros per read, the round trip to the directory, so the benchmark measures how well the batches
+ * overlap the round trips.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ * @version $Rev$
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class UserBatchReaderBenchmark
+{
+    @Param({ "100", "2000" })
+    private int users;
+    @Param({ "0", "500" })
+    private int latencyMicros;
+    private List<String> userIds;
+    private ReviewMgr reviewMgr;
+
+
+    @Setup
+    public void setUp()
+    {
+        userIds = new ArrayList<>( users );
+        for ( int i = 0; i < users; i++ )
+        {
+            userIds.add( "user" + i );
+        }
+        reviewMgr = ( ReviewMgr ) Proxy.newProxyInstance( ReviewMgr.class.getClassLoader(), new Class<?>[]
+            { ReviewMgr.class }, new InvocationHandler()
+            {
+                @Override
+                public Object invoke( Object proxy, Method method, Object[] args )
+                {
+                    if ( !method.getName().equals( "readUser" ) )
+                    {
+                        throw new UnsupportedOperationException( method.getName() );
+                    }
+                    if ( latencyMicros > 0 )
+                    {
+                        LockSupport.parkNanos( latencyMicros * 1000L );
+                    }
+                    User user = new User( ( ( User ) args[0] ).getUserId() );
+                    user.setOu( "dev0" );
+                    user.setDescription( "Test user " + user.getUserId() );
+                    return user;
+                }
+            } );
+    }
+
+
+    @Benchmark
+    public List<User> sequential() throws SecurityException
+    {
+        List<User> usersList = new ArrayList<>( userIds.size() );
+        for ( String userId : userIds )
+        {
+            usersList.add( reviewMgr.readUser( new User( userId ) ) );
+        }
+        return usersList;
+    }
+
+
+    @Benchmark
+    public List<User> batched() throws SecurityException
+    {
+        return UserBatchReader.readUsers( reviewMgr, userIds );
+    }
+}
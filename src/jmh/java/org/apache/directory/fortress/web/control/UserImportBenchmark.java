@@ -0,0 +1,129 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+package org.apache.directory.fortress.web.control;
+
+import org.apache.directory.fortress.core.AdminMgr;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Time to import a CSV file of users through {@link UserImport}, each user added and assigned two roles.  The
+ * directory is replaced by a stub {@link AdminMgr} that takes latencyMicros per call, the time a write to the
+ * directory would take, so the benchmark measures how well the writers overlap the writes, and the cost of reading
+ * the file and applying each user to the in-memory caches.  Divide the number of users by the score for users per
+ * second.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ * @version $Rev$
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class UserImportBenchmark
+{
+    private static final List<String> OUS = Arrays.asList( "dev0", "dev1", "dev2", "dev3" );
+    private static final List<String> ROLES = Arrays.asList( "role0", "role1", "role2", "role3", "role4" );
+    @Param({ "10000" })
+    private int users;
+    @Param({ "0", "500" })
+    private int latencyMicros;
+    private File csv;
+    private AdminMgr adminMgr;
+
+
+    @Setup
+    public void setUp() throws IOException
+    {
+        csv = File.createTempFile( "users", ".csv" );
+        csv.deleteOnExit();
+        try ( PrintWriter writer = new PrintWriter( csv, StandardCharsets.UTF_8.name() ) )
+        {
+            writer.print( "userId,password,ou,cn,sn,description,roles\r\n" );
+            for ( int i = 0; i < users; i++ )
+            {
+                writer.print( "user" + i + ",secret" + i + "," + OUS.get( i % OUS.size() ) + ",User " + i + ",Test,"
+                    + "\"Imported user, number " + i + "\"," + ROLES.get( i % ROLES.size() ) + ";" + ROLES.get( ( i
+                    + 1 ) % ROLES.size() ) + "\r\n" );
+            }
+        }
+        adminMgr = ( AdminMgr ) Proxy.newProxyInstance( AdminMgr.class.getClassLoader(), new Class<?>[]
+            { AdminMgr.class }, new InvocationHandler()
+            {
+                @Override
+                public Object invoke( Object proxy, Method method, Object[] args )
+                {
+                    if ( latencyMicros > 0 )
+                    {
+                        LockSupport.parkNanos( latencyMicros * 1000L );
+                    }
+                    // addUser returns the user added, assignUser returns nothing:
+                    return method.getReturnType().isInstance( args != null && args.length > 0 ? args[0] : null )
+                        ? args[0] : null;
+                }
+            } );
+    }
+
+
+    @Benchmark
+    public long importUsers() throws IOException, InterruptedException
+    {
+        // the import owns and deletes its file:
+        File file = File.createTempFile( "import", ".csv" );
+        Files.copy( csv.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING );
+        UserImport userImport = UserImport.start( file, file.getName(), adminMgr, OUS, ROLES,
+            Arrays.<String>asList() );
+        while ( userImport.isRunning() )
+        {
+            Thread.sleep( 1 );
+        }
+        if ( userImport.getAdded() != users )
+        {
+            throw new IllegalStateException( "added: " + userImport.getAdded() + " of: " + users + " errors: "
+                + userImport.getErrors() );
+        }
+        return userImport.getAdded();
+    }
+}
@@ -0,0 +1,109 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+package org.apache.directory.fortress.web.model;
+
+import org.apache.directory.fortress.core.model.User;
+import org.apache.directory.fortress.core.model.UserRole;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of what the user list model does to a search result before the grid shows it: sort by userId and project
+ * each user to a {@link UserRow}.  The copy benchmark is the baseline, each of the others copies the list first as
+ * the search result would otherwise be sorted only once.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ * @version $Rev$
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ListModelBenchmark
+{
+    @Param({ "1000", "10000" })
+    private int size;
+    private List<User> users;
+    private List<UserRow> rows;
+
+
+    @Setup
+    public void setUp()
+    {
+        users = new ArrayList<>( size );
+        for ( int i = 0; i < size; i++ )
+        {
+            User user = new User( ( i % 2 == 0 ? "User" : "user" ) + i );
+            user.setOu( "dev" + ( i % 10 ) );
+            user.setDescription( "Test user " + i );
+            user.setRole( new UserRole( user.getUserId(), "role" + ( i % 20 ) ) );
+            user.setRole( new UserRole( user.getUserId(), "role" + ( i % 7 ) ) );
+            users.add( user );
+        }
+        // search results arrive in directory order, not sorted:
+        Collections.shuffle( users, new Random( 42 ) );
+        rows = UserRow.of( users );
+    }
+
+
+    @Benchmark
+    public List<User> copy()
+    {
+        return new ArrayList<>( users );
+    }
+
+
+    @Benchmark
+    public List<User> sortUsers()
+    {
+        return UserListModel.sortByUserId( new ArrayList<>( users ) );
+    }
+
+
+    @Benchmark
+    public List<UserRow> sortRows()
+    {
+        return UserListModel.sortRowsByUserId( new ArrayList<>( rows ) );
+    }
+
+
+    @Benchmark
+    public List<UserRow> projectRows()
+    {
+        return UserRow.of( users );
+    }
+}
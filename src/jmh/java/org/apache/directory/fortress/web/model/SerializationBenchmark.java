@@ -0,0 +1,193 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+package org.apache.directory.fortress.web.model;
+
+import org.apache.directory.fortress.core.model.Permission;
+import org.apache.directory.fortress.core.model.Session;
+import org.apache.directory.fortress.core.model.User;
+import org.apache.directory.fortress.core.model.UserRole;
+import org.apache.directory.fortress.web.control.WicketSession;
+import org.apache.wicket.mock.MockApplication;
+import org.apache.wicket.util.tester.WicketTester;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time and size of the state Wicket serializes into the page store on every request: the list state of a search
+ * page and the session.  Building a real page needs a directory, so the page is represented by what it holds, the
+ * full users as the user list model kept them, the {@link UserRow}s the grid keeps now and the
+ * {@link UserDataProvider}, which keeps only the search criteria.  Sizes, in bytes, are reported as the bytes
+ * counter.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ * @version $Rev$
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SerializationBenchmark
+{
+    @Param({ "100", "1000" })
+    private int size;
+    private List<User> users;
+    private List<UserRow> rows;
+    private UserDataProvider provider;
+
+
+    /**
+     * Reports the serialized size of the last operation.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Size
+    {
+        public long bytes;
+    }
+
+
+    /**
+     * A session as it is after login, with the admin permissions loaded.
+     */
+    @State(Scope.Benchmark)
+    public static class SessionState
+    {
+        @Param({ "50", "500" })
+        private int permissions;
+        private WicketTester tester;
+        private WicketSession session;
+
+
+        @Setup(Level.Trial)
+        public void setUp()
+        {
+            tester = new WicketTester( new MockApplication() );
+            session = new WicketSession( tester.getRequest() );
+            List<Permission> permissionList = new ArrayList<>( permissions );
+            for ( int i = 0; i < permissions; i++ )
+            {
+                permissionList.add( new Permission( "org.apache.directory.fortress.core.impl.Mgr" + ( i / 10 )
+                    + "Impl", "op" + i ) );
+            }
+            session.setSession( newSession() );
+            session.setPermissions( permissionList );
+        }
+
+
+        @TearDown(Level.Trial)
+        public void tearDown()
+        {
+            tester.destroy();
+        }
+    }
+
+
+    @Setup
+    public void setUp()
+    {
+        users = new ArrayList<>( size );
+        // a small jpeg, most are larger:
+        byte[] photo = new byte[4096];
+        Arrays.fill( photo, ( byte ) 0x5a );
+        for ( int i = 0; i < size; i++ )
+        {
+            User user = new User( "user" + i );
+            user.setOu( "dev" + ( i % 10 ) );
+            user.setDescription( "Test user " + i );
+            user.setRole( new UserRole( user.getUserId(), "role" + ( i % 20 ) ) );
+            user.setJpegPhoto( photo );
+            users.add( user );
+        }
+        rows = UserRow.of( users );
+        provider = new UserDataProvider( newSession() );
+        provider.search( new User( "user" ) );
+    }
+
+
+    @Benchmark
+    public byte[] users( Size counter ) throws IOException
+    {
+        return serialize( new ArrayList<>( users ), counter );
+    }
+
+
+    @Benchmark
+    public byte[] rows( Size counter ) throws IOException
+    {
+        return serialize( new ArrayList<>( rows ), counter );
+    }
+
+
+    @Benchmark
+    public byte[] provider( Size counter ) throws IOException
+    {
+        return serialize( provider, counter );
+    }
+
+
+    @Benchmark
+    public byte[] session( SessionState state, Size counter ) throws IOException
+    {
+        return serialize( state.session, counter );
+    }
+
+
+    private static Session newSession()
+    {
+        Session session = new Session();
+        session.setUser( new User( "admin" ) );
+        return session;
+    }
+
+
+    private static byte[] serialize( Serializable object, Size counter ) throws IOException
+    {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try ( ObjectOutputStream out = new ObjectOutputStream( bytes ) )
+        {
+            out.writeObject( object );
+        }
+        counter.bytes = bytes.size();
+        return bytes.toByteArray();
+    }
+}
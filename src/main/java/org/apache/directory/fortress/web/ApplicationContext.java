@@ -20,7 +20,21 @@
 package org.apache.directory.fortress.web;
 
 
+import org.apache.directory.fortress.core.DelReviewMgr;
+import org.apache.directory.fortress.core.ReviewMgr;
+import org.apache.directory.fortress.core.model.FortEntity;
+import org.apache.directory.fortress.web.control.AsyncSearch;
+import org.apache.directory.fortress.web.control.IdIndex;
+import org.apache.directory.fortress.web.control.ManagerMetrics;
+import org.apache.directory.fortress.web.control.PermissionMatrix;
+import org.apache.directory.fortress.web.control.ReviewMgrCache;
+import org.apache.directory.fortress.web.control.RoleGraph;
+import org.apache.directory.fortress.web.control.SDSetIndex;
+import org.apache.directory.fortress.web.control.UserBatchReader;
+import org.apache.directory.fortress.web.control.UserImport;
+import org.apache.directory.fortress.web.control.UserRoleBulk;
 import org.apache.directory.fortress.web.control.WicketSession;
+import org.apache.directory.fortress.web.event.SaveModelEvent;
 import org.apache.wicket.Page;
 import org.apache.wicket.Session;
 import org.apache.wicket.core.request.handler.PageProvider;
@@ -32,6 +46,9 @@ import org.apache.wicket.request.Response;
 import org.apache.wicket.request.cycle.AbstractRequestCycleListener;
 import org.apache.wicket.request.cycle.RequestCycle;
 import org.apache.wicket.spring.injection.annot.SpringComponentInjector;
+import org.apache.log4j.Logger;
+import org.springframework.web.context.WebApplicationContext;
+import org.springframework.web.context.support.WebApplicationContextUtils;
 
 /**
  * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
@@ -39,6 +56,8 @@ import org.apache.wicket.spring.injection.annot.SpringComponentInjector;
  */
 public class ApplicationContext extends WebApplication
 {
+    private static final Logger LOG = Logger.getLogger( ApplicationContext.class.getName() );
+
     @Override
     public Session newSession( Request request, Response response )
     {
@@ -57,10 +76,111 @@ public class ApplicationContext extends WebApplication
             @Override
             public IRequestHandler onException( RequestCycle cycle, Exception e )
             {
+                ManagerMetrics.failRequest();
                 return new RenderPageRequestHandler( new PageProvider( new ErrorPage( e ) ) );
             }
         } );
+
+        // Time requests, and the fortress calls they make:
+        getRequestCycleListeners().add( new AbstractRequestCycleListener()
+        {
+            @Override
+            public void onBeginRequest( RequestCycle cycle )
+            {
+                ManagerMetrics.beginRequest();
+            }
+
+
+            @Override
+            public void onEndRequest( RequestCycle cycle )
+            {
+                ManagerMetrics.endRequest();
+            }
+        } );
         getMarkupSettings().setStripWicketTags( true );
+        addCacheListeners();
+        startIdIndex();
+    }
+
+
+    /**
+     * Have the in-memory caches and indexes follow each entity saved.
+     */
+    private void addCacheListeners()
+    {
+        SaveModelEvent.addListener( new SaveModelEvent.Listener()
+        {
+            @Override
+            public void saved( FortEntity entity, SaveModelEvent.Operations operation )
+            {
+                ReviewMgrCache.invalidate( entity, operation );
+            }
+        } );
+        SaveModelEvent.addListener( new SaveModelEvent.Listener()
+        {
+            @Override
+            public void saved( FortEntity entity, SaveModelEvent.Operations operation )
+            {
+                RoleGraph.update( entity, operation );
+            }
+        } );
+        SaveModelEvent.addListener( new SaveModelEvent.Listener()
+        {
+            @Override
+            public void saved( FortEntity entity, SaveModelEvent.Operations operation )
+            {
+                PermissionMatrix.update( entity, operation );
+            }
+        } );
+        SaveModelEvent.addListener( new SaveModelEvent.Listener()
+        {
+            @Override
+            public void saved( FortEntity entity, SaveModelEvent.Operations operation )
+            {
+                SDSetIndex.update( entity, operation );
+            }
+        } );
+        SaveModelEvent.addListener( new SaveModelEvent.Listener()
+        {
+            @Override
+            public void saved( FortEntity entity, SaveModelEvent.Operations operation )
+            {
+                IdIndex.update( entity, operation );
+            }
+        } );
+    }
+
+
+    /**
+     * Build the type-ahead indexes in the background.  The managers come straight from Spring, there is no Wicket
+     * request, or admin session, to get them through.
+     */
+    private void startIdIndex()
+    {
+        try
+        {
+            WebApplicationContext spring = WebApplicationContextUtils.getRequiredWebApplicationContext(
+                getServletContext() );
+            IdIndex.start( spring.getBean( "reviewMgr", ReviewMgr.class ), spring.getBean( "delReviewMgr",
+                DelReviewMgr.class ) );
+        }
+        catch ( RuntimeException re )
+        {
+            // the search fields still work, without suggestions:
+            LOG.warn( "startIdIndex caught RuntimeException=" + re );
+        }
+    }
+
+    @Override
+    protected void onDestroy()
+    {
+        UserBatchReader.shutdown();
+        UserImport.shutdown();
+        UserRoleBulk.shutdown();
+        AsyncSearch.shutdown();
+        IdIndex.shutdown();
+        ManagerMetrics.shutdown();
+        super.onDestroy();
     }
 
     public Class<? extends Page> getHomePage()
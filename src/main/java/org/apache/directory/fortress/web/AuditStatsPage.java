@@ -0,0 +1,221 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+package org.apache.directory.fortress.web;
+
+
+import org.apache.directory.fortress.core.AuditMgr;
+import org.apache.directory.fortress.web.common.ConfigUtils;
+import org.apache.directory.fortress.web.common.GlobalIds;
+import org.apache.directory.fortress.web.control.AuditStats;
+import org.apache.directory.fortress.web.control.SecUtils;
+import org.apache.wicket.markup.html.basic.Label;
+import org.apache.wicket.markup.html.link.Link;
+import org.apache.wicket.markup.html.list.ListItem;
+import org.apache.wicket.markup.html.list.ListView;
+import org.apache.wicket.model.AbstractReadOnlyModel;
+import org.apache.wicket.model.IModel;
+import org.apache.wicket.model.LoadableDetachableModel;
+import org.apache.wicket.spring.injection.annot.SpringBean;
+
+import java.text.SimpleDateFormat;
+import java.util.List;
+
+
+/**
+ * Shows the number of authorizations and authentications, and how many failed, per hour over the last day, week or
+ * month, with the users and permissions that failed the most, see {@link AuditStats}.  The number of users and
+ * permissions shown is audit.stats.top (default 10).
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ * @version $Rev$
+ */
+public class AuditStatsPage extends FortressWebBasePage
+{
+    /** Default serialVersionUID */
+    private static final long serialVersionUID = 1L;
+    private static final int TOP = Math.max( 1, ConfigUtils.getInt( "audit.stats.top", 10 ) );
+    @SpringBean
+    private AuditMgr auditMgr;
+    private int hours = 24;
+    private final IModel<AuditStats> stats = new LoadableDetachableModel<AuditStats>()
+    {
+        /** Default serialVersionUID */
+        private static final long serialVersionUID = 1L;
+
+
+        @Override
+        protected AuditStats load()
+        {
+            auditMgr.setAdmin( SecUtils.getSession( AuditStatsPage.this ) );
+            return AuditStats.get( auditMgr, hours );
+        }
+    };
+
+
+    public AuditStatsPage()
+    {
+        add( new Label( GlobalIds.PAGE_HEADER, "Audit Statistics Page" ) );
+        addRangeLink( "day", 24 );
+        addRangeLink( "week", 24 * 7 );
+        addRangeLink( "month", 24 * 30 );
+        add( new Label( "range", new AbstractReadOnlyModel<String>()
+        {
+            /** Default serialVersionUID */
+            private static final long serialVersionUID = 1L;
+
+
+            @Override
+            public String getObject()
+            {
+                return "Last " + hours + " hours";
+            }
+        } ) );
+        add( new ListView<AuditStats.Hour>( "hours", new AbstractReadOnlyModel<List<AuditStats.Hour>>()
+        {
+            /** Default serialVersionUID */
+            private static final long serialVersionUID = 1L;
+
+
+            @Override
+            public List<AuditStats.Hour> getObject()
+            {
+                return stats.getObject().getHours();
+            }
+        } )
+        {
+            /** Default serialVersionUID */
+            private static final long serialVersionUID = 1L;
+
+
+            @Override
+            protected void populateItem( ListItem<AuditStats.Hour> item )
+            {
+                AuditStats.Hour hour = item.getModelObject();
+                item.add( new Label( "start", new SimpleDateFormat( GlobalIds.AUDIT_TIMESTAMP_FORMAT ).format( hour
+                    .getStart() ) ) );
+                addCounts( item, "authZ", hour.getAuthZs() );
+                addCounts( item, "bind", hour.getBinds() );
+            }
+        } );
+        add( new CountsView( "topAuthZUsers", new AbstractReadOnlyModel<List<AuditStats.Count>>()
+        {
+            /** Default serialVersionUID */
+            private static final long serialVersionUID = 1L;
+
+
+            @Override
+            public List<AuditStats.Count> getObject()
+            {
+                return stats.getObject().getTopAuthZUsers( TOP );
+            }
+        } ) );
+        add( new CountsView( "topPermissions", new AbstractReadOnlyModel<List<AuditStats.Count>>()
+        {
+            /** Default serialVersionUID */
+            private static final long serialVersionUID = 1L;
+
+
+            @Override
+            public List<AuditStats.Count> getObject()
+            {
+                return stats.getObject().getTopPermissions( TOP );
+            }
+        } ) );
+        add( new CountsView( "topBindUsers", new AbstractReadOnlyModel<List<AuditStats.Count>>()
+        {
+            /** Default serialVersionUID */
+            private static final long serialVersionUID = 1L;
+
+
+            @Override
+            public List<AuditStats.Count> getObject()
+            {
+                return stats.getObject().getTopBindUsers( TOP );
+            }
+        } ) );
+    }
+
+
+    @Override
+    protected void onDetach()
+    {
+        // counted again on the next request:
+        stats.detach();
+        super.onDetach();
+    }
+
+
+    private void addRangeLink( String id, final int rangeHours )
+    {
+        add( new Link<Void>( id )
+        {
+            /** Default serialVersionUID */
+            private static final long serialVersionUID = 1L;
+
+
+            @Override
+            public void onClick()
+            {
+                hours = rangeHours;
+            }
+        } );
+    }
+
+
+    private static void addCounts( ListItem<?> item, String prefix, AuditStats.Count count )
+    {
+        item.add( new Label( prefix + "Total", count.getTotal() ) );
+        item.add( new Label( prefix + "Failed", count.getFailed() ) );
+        item.add( new Label( prefix + "FailedPercent", format( count.getFailedPercent() ) ) );
+    }
+
+
+    private static String format( double value )
+    {
+        return String.format( "%.1f", value );
+    }
+
+
+    /**
+     * Rows of name, total, failed and percent failed.
+     */
+    private static class CountsView extends ListView<AuditStats.Count>
+    {
+        /** Default serialVersionUID */
+        private static final long serialVersionUID = 1L;
+
+
+        private CountsView( String id, IModel<List<AuditStats.Count>> model )
+        {
+            super( id, model );
+        }
+
+
+        @Override
+        protected void populateItem( ListItem<AuditStats.Count> item )
+        {
+            AuditStats.Count count = item.getModelObject();
+            item.add( new Label( "name", count.getName() ) );
+            item.add( new Label( "total", count.getTotal() ) );
+            item.add( new Label( "failed", count.getFailed() ) );
+            item.add( new Label( "failedPercent", format( count.getFailedPercent() ) ) );
+        }
+    }
+}
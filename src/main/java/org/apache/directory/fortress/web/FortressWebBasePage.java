@@ -151,6 +151,9 @@ public abstract class FortressWebBasePage extends WebPage
 
             add( new SecureBookmarkablePageLink( org.apache.directory.fortress.web.common.GlobalIds.AUDIT_MODS_PAGE, AuditModPage.class,
                 org.apache.directory.fortress.web.common.GlobalIds.ROLE_AUDIT_MODS ) );
+
+            add( new SecureBookmarkablePageLink( org.apache.directory.fortress.web.common.GlobalIds.AUDIT_STATS_PAGE, AuditStatsPage.class,
+                org.apache.directory.fortress.web.common.GlobalIds.ROLE_AUDIT_AUTHZS ) );
         }
         else
         {
@@ -158,8 +161,15 @@ public abstract class FortressWebBasePage extends WebPage
             add( new Label( org.apache.directory.fortress.web.common.GlobalIds.AUDIT_BINDS_PAGE, "" ).setVisible( false ) );
             add( new Label( org.apache.directory.fortress.web.common.GlobalIds.AUDIT_AUTHZS_PAGE, "" ).setVisible( false ) );
             add( new Label( org.apache.directory.fortress.web.common.GlobalIds.AUDIT_MODS_PAGE, "" ).setVisible( false ) );
+            add( new Label( org.apache.directory.fortress.web.common.GlobalIds.AUDIT_STATS_PAGE, "" ).setVisible( false ) );
         }
 
+        add( new SecureBookmarkablePageLink( org.apache.directory.fortress.web.common.GlobalIds.MATRIX_PAGE, PermissionMatrixPage.class,
+            org.apache.directory.fortress.web.common.GlobalIds.ROLE_PERMS ) );
+
+        add( new SecureBookmarkablePageLink( org.apache.directory.fortress.web.common.GlobalIds.METRICS_PAGE, MetricsPage.class,
+            org.apache.directory.fortress.web.common.GlobalIds.ROLE_ADMIN ) );
+
         add( new Label( "footer", "Copyright (c) 2003-2018, The Apache Software Foundation. All Rights Reserved." ) );
 
         final Link actionLink = new Link( "logout" )
@@ -0,0 +1,206 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+package org.apache.directory.fortress.web;
+
+
+import org.apache.directory.fortress.web.common.BoundedCache;
+import org.apache.directory.fortress.web.common.GlobalIds;
+import org.apache.directory.fortress.web.control.AuditStats;
+import org.apache.directory.fortress.web.control.ManagerMetrics;
+import org.apache.directory.fortress.web.control.ManagerPool;
+import org.apache.directory.fortress.web.control.MethodMetrics;
+import org.apache.directory.fortress.web.control.PhotoCache;
+import org.apache.directory.fortress.web.control.ReviewMgrCache;
+import org.apache.directory.fortress.web.control.TenantMetrics;
+import org.apache.directory.fortress.web.control.Tenants;
+import org.apache.wicket.markup.html.basic.Label;
+import org.apache.wicket.markup.html.link.Link;
+import org.apache.wicket.markup.html.list.ListItem;
+import org.apache.wicket.markup.html.list.ListView;
+import org.apache.wicket.model.AbstractReadOnlyModel;
+import org.apache.wicket.model.LoadableDetachableModel;
+import org.apache.wicket.spring.injection.annot.SpringBean;
+
+import java.util.ArrayList;
+import java.util.List;
+
+
+/**
+ * Shows the latency, errors and result sizes of the fortress manager calls made by this app, and the hit rates of its
+ * caches, see {@link ManagerMetrics}.  The wicket rows time whole requests, with and without the manager calls they
+ * made.  The tenant rows break requests and calls down by tenant.  Restricted to ROLE_ADMIN.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ * @version $Rev$
+ */
+public class MetricsPage extends FortressWebBasePage
+{
+    /** Default serialVersionUID */
+    private static final long serialVersionUID = 1L;
+    @SpringBean
+    private ManagerPool managerPool;
+
+
+    public MetricsPage()
+    {
+        add( new Label( GlobalIds.PAGE_HEADER, "Metrics Page" ) );
+        add( new ListView<MethodMetrics>( "methods", new LoadableDetachableModel<List<MethodMetrics>>()
+        {
+            /** Default serialVersionUID */
+            private static final long serialVersionUID = 1L;
+
+
+            @Override
+            protected List<MethodMetrics> load()
+            {
+                return ManagerMetrics.getAll();
+            }
+        } )
+        {
+            /** Default serialVersionUID */
+            private static final long serialVersionUID = 1L;
+
+
+            @Override
+            protected void populateItem( ListItem<MethodMetrics> item )
+            {
+                MethodMetrics metrics = item.getModelObject();
+                item.add( new Label( "manager", metrics.getManager() ) );
+                item.add( new Label( "method", metrics.getMethod() ) );
+                item.add( new Label( "calls", metrics.getCalls() ) );
+                item.add( new Label( "callsPerSecond", format( metrics.getCallsPerSecond() ) ) );
+                item.add( new Label( "errors", metrics.getErrors() ) );
+                item.add( new Label( "inFlight", metrics.getInFlight() ) );
+                item.add( new Label( "mean", format( metrics.getMeanMillis() ) ) );
+                item.add( new Label( "p50", metrics.getP50Millis() ) );
+                item.add( new Label( "p95", metrics.getP95Millis() ) );
+                item.add( new Label( "p99", metrics.getP99Millis() ) );
+                item.add( new Label( "max", format( metrics.getMaxMillis() ) ) );
+                item.add( new Label( "meanResults", format( metrics.getMeanResultSize() ) ) );
+                item.add( new Label( "maxResults", metrics.getMaxResultSize() ) );
+            }
+        } );
+        add( new ListView<TenantMetrics>( "tenants", new LoadableDetachableModel<List<TenantMetrics>>()
+        {
+            /** Default serialVersionUID */
+            private static final long serialVersionUID = 1L;
+
+
+            @Override
+            protected List<TenantMetrics> load()
+            {
+                return ManagerMetrics.getTenants();
+            }
+        } )
+        {
+            /** Default serialVersionUID */
+            private static final long serialVersionUID = 1L;
+
+
+            @Override
+            protected void populateItem( ListItem<TenantMetrics> item )
+            {
+                TenantMetrics metrics = item.getModelObject();
+                Integer idle = managerPool.getIdleByTenant().get( metrics.getContextId() );
+                long lastUsed = Tenants.getLastUsed( metrics.getContextId() );
+                item.add( new Label( "contextId", metrics.getContextId() ) );
+                item.add( new Label( "requests", metrics.getRequests() ) );
+                item.add( new Label( "requestErrors", metrics.getRequestErrors() ) );
+                item.add( new Label( "requestMean", format( metrics.getRequestMeanMillis() ) ) );
+                item.add( new Label( "requestP95", metrics.getRequestP95Millis() ) );
+                item.add( new Label( "calls", metrics.getCalls() ) );
+                item.add( new Label( "callsPerSecond", format( metrics.getCallsPerSecond() ) ) );
+                item.add( new Label( "callErrors", metrics.getCallErrors() ) );
+                item.add( new Label( "callMean", format( metrics.getCallMeanMillis() ) ) );
+                item.add( new Label( "callP95", metrics.getCallP95Millis() ) );
+                item.add( new Label( "idleManagers", idle != null ? idle : 0 ) );
+                item.add( new Label( "idleSeconds", lastUsed > 0 ? String.valueOf( ( System.currentTimeMillis()
+                    - lastUsed ) / 1000 ) : "" ) );
+                item.add( new Label( "evictions", metrics.getEvictions() ) );
+            }
+        } );
+        add( new ListView<BoundedCache<String, ?>>( "caches", new LoadableDetachableModel<List<BoundedCache<String,
+            ?>>>()
+        {
+            /** Default serialVersionUID */
+            private static final long serialVersionUID = 1L;
+
+
+            @Override
+            protected List<BoundedCache<String, ?>> load()
+            {
+                List<BoundedCache<String, ?>> caches = new ArrayList<BoundedCache<String, ?>>( ReviewMgrCache
+                    .getCaches() );
+                caches.add( PhotoCache.getCache() );
+                caches.addAll( AuditStats.getCaches() );
+                return caches;
+            }
+        } )
+        {
+            /** Default serialVersionUID */
+            private static final long serialVersionUID = 1L;
+
+
+            @Override
+            protected void populateItem( ListItem<BoundedCache<String, ?>> item )
+            {
+                BoundedCache<String, ?> cache = item.getModelObject();
+                long hits = cache.getHits();
+                long lookups = hits + cache.getMisses();
+                item.add( new Label( "name", cache.getName() ) );
+                item.add( new Label( "size", cache.size() + " / " + cache.getMaxSize() ) );
+                item.add( new Label( "hits", hits ) );
+                item.add( new Label( "misses", cache.getMisses() ) );
+                item.add( new Label( "hitRate", lookups > 0 ? format( 100.0 * hits / lookups ) + "%" : "" ) );
+                item.add( new Label( "evictions", cache.getEvictions() ) );
+            }
+        } );
+        add( new Label( "idleManagers", new AbstractReadOnlyModel<Integer>()
+        {
+            /** Default serialVersionUID */
+            private static final long serialVersionUID = 1L;
+
+
+            @Override
+            public Integer getObject()
+            {
+                return managerPool.getIdle();
+            }
+        } ) );
+        add( new Link<Void>( "reset" )
+        {
+            /** Default serialVersionUID */
+            private static final long serialVersionUID = 1L;
+
+
+            @Override
+            public void onClick()
+            {
+                ManagerMetrics.reset();
+            }
+        } );
+    }
+
+
+    private static String format( double value )
+    {
+        return String.format( "%.1f", value );
+    }
+}
@@ -0,0 +1,422 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+package org.apache.directory.fortress.web;
+
+
+import org.apache.commons.lang.StringUtils;
+import org.apache.directory.fortress.core.ReviewMgr;
+import org.apache.directory.fortress.core.model.Permission;
+import org.apache.directory.fortress.web.common.ConfigUtils;
+import org.apache.directory.fortress.web.common.GlobalIds;
+import org.apache.directory.fortress.web.control.IdIndex;
+import org.apache.directory.fortress.web.control.PermissionMatrix;
+import org.apache.directory.fortress.web.control.SecUtils;
+import org.apache.directory.fortress.web.control.TypeAheadField;
+import org.apache.log4j.Logger;
+import org.apache.wicket.markup.html.basic.Label;
+import org.apache.wicket.markup.html.form.Button;
+import org.apache.wicket.markup.html.form.Form;
+import org.apache.wicket.markup.html.link.Link;
+import org.apache.wicket.markup.html.list.ListItem;
+import org.apache.wicket.markup.html.list.ListView;
+import org.apache.wicket.markup.html.panel.FeedbackPanel;
+import org.apache.wicket.model.AbstractReadOnlyModel;
+import org.apache.wicket.model.IModel;
+import org.apache.wicket.model.LoadableDetachableModel;
+import org.apache.wicket.model.PropertyModel;
+import org.apache.wicket.spring.injection.annot.SpringBean;
+
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+
+
+/**
+ * Shows the effective permissions of users, users down and permissions across, or those of one role along with the
+ * role each permission is inherited from.  Computed from the in-memory snapshot of {@link PermissionMatrix}, so no
+ * cell goes to the directory.  Shows permission.matrix.rows users (default 50) by permission.matrix.columns
+ * permissions (default 25) at a time.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ * @version $Rev$
+ */
+public class PermissionMatrixPage extends FortressWebBasePage
+{
+    /** Default serialVersionUID */
+    private static final long serialVersionUID = 1L;
+    private static final Logger LOG = Logger.getLogger( PermissionMatrixPage.class.getName() );
+    private static final int ROWS = Math.max( 1, ConfigUtils.getInt( "permission.matrix.rows", 50 ) );
+    private static final int COLUMNS = Math.max( 1, ConfigUtils.getInt( "permission.matrix.columns", 25 ) );
+    @SpringBean
+    private ReviewMgr reviewMgr;
+    private String userPrefix;
+    private String objPrefix;
+    private String roleName;
+    private int rowOffset;
+    private int columnOffset;
+    private final IModel<PermissionMatrix> matrix = new LoadableDetachableModel<PermissionMatrix>()
+    {
+        /** Default serialVersionUID */
+        private static final long serialVersionUID = 1L;
+
+
+        @Override
+        protected PermissionMatrix load()
+        {
+            reviewMgr.setAdmin( SecUtils.getSession( PermissionMatrixPage.this ) );
+            try
+            {
+                return PermissionMatrix.get( reviewMgr, SecUtils.getSession( PermissionMatrixPage.this ) );
+            }
+            catch ( org.apache.directory.fortress.core.SecurityException se )
+            {
+                String error = ".load caught SecurityException=" + se;
+                LOG.warn( error );
+                error( "Could not load the users, roles and permissions, error id: " + se.getErrorId() );
+                return null;
+            }
+        }
+    };
+    // the users and permissions that match the filters, all pages:
+    private final IModel<List<String>> userIds = new LoadableDetachableModel<List<String>>()
+    {
+        /** Default serialVersionUID */
+        private static final long serialVersionUID = 1L;
+
+
+        @Override
+        protected List<String> load()
+        {
+            return matrix.getObject() != null ? matrix.getObject().getUserIds( userPrefix )
+                : Collections.<String>emptyList();
+        }
+    };
+    private final IModel<List<Integer>> columns = new LoadableDetachableModel<List<Integer>>()
+    {
+        /** Default serialVersionUID */
+        private static final long serialVersionUID = 1L;
+
+
+        @Override
+        protected List<Integer> load()
+        {
+            return matrix.getObject() != null ? matrix.getObject().getColumns( objPrefix )
+                : Collections.<Integer>emptyList();
+        }
+    };
+
+
+    public PermissionMatrixPage()
+    {
+        add( new Label( GlobalIds.PAGE_HEADER, "Effective Permission Matrix Page" ) );
+        Form<Void> matrixForm = new Form<>( "matrixform" );
+        add( matrixForm );
+        matrixForm.add( new FeedbackPanel( "feedback" ) );
+        matrixForm.add( new TypeAheadField( "userPrefix", new PropertyModel<String>( this, "userPrefix" ),
+            IdIndex.Type.USER_IDS ) );
+        matrixForm.add( new TypeAheadField( "objPrefix", new PropertyModel<String>( this, "objPrefix" ),
+            IdIndex.Type.PERM_OBJS ) );
+        matrixForm.add( new TypeAheadField( "roleName", new PropertyModel<String>( this, "roleName" ),
+            IdIndex.Type.ROLES ) );
+        matrixForm.add( new Button( "show" )
+        {
+            /** Default serialVersionUID */
+            private static final long serialVersionUID = 1L;
+
+
+            @Override
+            public void onSubmit()
+            {
+                rowOffset = 0;
+                columnOffset = 0;
+            }
+        } );
+        add( new Link<Void>( "refresh" )
+        {
+            /** Default serialVersionUID */
+            private static final long serialVersionUID = 1L;
+
+
+            @Override
+            public void onClick()
+            {
+                reviewMgr.setAdmin( SecUtils.getSession( PermissionMatrixPage.this ) );
+                try
+                {
+                    PermissionMatrix.load( reviewMgr, SecUtils.getSession( PermissionMatrixPage.this ) );
+                }
+                catch ( org.apache.directory.fortress.core.SecurityException se )
+                {
+                    String error = ".refresh caught SecurityException=" + se;
+                    LOG.warn( error );
+                    error( "Could not load the users, roles and permissions, error id: " + se.getErrorId() );
+                }
+            }
+        } );
+        add( new Label( "summary", new AbstractReadOnlyModel<String>()
+        {
+            /** Default serialVersionUID */
+            private static final long serialVersionUID = 1L;
+
+
+            @Override
+            public String getObject()
+            {
+                PermissionMatrix snapshot = matrix.getObject();
+                if ( snapshot == null )
+                {
+                    return "";
+                }
+                int users = userIds.getObject().size();
+                int permissions = columns.getObject().size();
+                return "Users " + range( rowOffset, ROWS, users ) + " of " + users + ", permissions " + range(
+                    columnOffset, COLUMNS, permissions ) + " of " + permissions + ", loaded: " + new SimpleDateFormat(
+                    GlobalIds.AUDIT_TIMESTAMP_FORMAT ).format( new Date( snapshot.getLoaded() ) ) + ( snapshot
+                    .isTruncated() ? ", too many to load, some users or permissions are left out" : "" );
+            }
+        } ) );
+        addPageLink( "prevRows", true, -ROWS );
+        addPageLink( "nextRows", true, ROWS );
+        addPageLink( "prevColumns", false, -COLUMNS );
+        addPageLink( "nextColumns", false, COLUMNS );
+        addMatrix();
+        addRole();
+    }
+
+
+    @Override
+    protected void onDetach()
+    {
+        // the snapshot is shared, only the filters are kept in page state:
+        matrix.detach();
+        userIds.detach();
+        columns.detach();
+        super.onDetach();
+    }
+
+
+    private void addMatrix()
+    {
+        final IModel<List<Integer>> pageColumns = new AbstractReadOnlyModel<List<Integer>>()
+        {
+            /** Default serialVersionUID */
+            private static final long serialVersionUID = 1L;
+
+
+            @Override
+            public List<Integer> getObject()
+            {
+                return page( columns.getObject(), columnOffset, COLUMNS );
+            }
+        };
+        add( new ListView<Integer>( "columns", pageColumns )
+        {
+            /** Default serialVersionUID */
+            private static final long serialVersionUID = 1L;
+            private transient int[] counts;
+
+
+            @Override
+            protected void onBeforeRender()
+            {
+                counts = matrix.getObject() != null ? matrix.getObject().countUsers( pageColumns.getObject() )
+                    : null;
+                super.onBeforeRender();
+            }
+
+
+            @Override
+            protected void populateItem( ListItem<Integer> item )
+            {
+                item.add( new Label( "permission", format( matrix.getObject().getPermission( item.getModelObject()
+                ) ) ) );
+                item.add( new Label( "count", counts != null ? counts[item.getIndex()] : 0 ) );
+            }
+        } );
+        add( new ListView<String>( "rows", new AbstractReadOnlyModel<List<String>>()
+        {
+            /** Default serialVersionUID */
+            private static final long serialVersionUID = 1L;
+
+
+            @Override
+            public List<String> getObject()
+            {
+                return page( userIds.getObject(), rowOffset, ROWS );
+            }
+        } )
+        {
+            /** Default serialVersionUID */
+            private static final long serialVersionUID = 1L;
+
+
+            @Override
+            protected void populateItem( ListItem<String> item )
+            {
+                String userId = item.getModelObject();
+                item.add( new Label( "userId", userId ) );
+                // one bitset per user, each cell is a lookup:
+                BitSet granted = matrix.getObject().getUserPermissions( userId );
+                List<String> cells = new ArrayList<>();
+                for ( Integer column : pageColumns.getObject() )
+                {
+                    cells.add( granted.get( column ) ? "X" : "" );
+                }
+                item.add( new ListView<String>( "cells", cells )
+                {
+                    /** Default serialVersionUID */
+                    private static final long serialVersionUID = 1L;
+
+
+                    @Override
+                    protected void populateItem( ListItem<String> cell )
+                    {
+                        cell.add( new Label( "cell", cell.getModelObject() ) );
+                    }
+                } );
+            }
+        } );
+    }
+
+
+    private void addRole()
+    {
+        final IModel<List<Integer>> roleColumns = new LoadableDetachableModel<List<Integer>>()
+        {
+            /** Default serialVersionUID */
+            private static final long serialVersionUID = 1L;
+
+
+            @Override
+            protected List<Integer> load()
+            {
+                List<Integer> found = new ArrayList<>();
+                if ( matrix.getObject() != null && StringUtils.isNotBlank( roleName ) )
+                {
+                    BitSet granted = matrix.getObject().getRolePermissions( roleName.trim() );
+                    for ( Integer column : columns.getObject() )
+                    {
+                        if ( granted.get( column ) )
+                        {
+                            found.add( column );
+                        }
+                    }
+                }
+                return found;
+            }
+        };
+        add( new Label( "roleSummary", new AbstractReadOnlyModel<String>()
+        {
+            /** Default serialVersionUID */
+            private static final long serialVersionUID = 1L;
+
+
+            @Override
+            public String getObject()
+            {
+                return StringUtils.isNotBlank( roleName ) ? "Role " + roleName.trim() + " has " + roleColumns
+                    .getObject().size() + " effective permissions" : "";
+            }
+        } ) );
+        add( new ListView<Integer>( "rolePermissions", roleColumns )
+        {
+            /** Default serialVersionUID */
+            private static final long serialVersionUID = 1L;
+
+
+            @Override
+            protected void populateItem( ListItem<Integer> item )
+            {
+                Permission permission = matrix.getObject().getPermission( item.getModelObject() );
+                item.add( new Label( "objName", permission.getObjName() ) );
+                item.add( new Label( "opName", permission.getOpName() ) );
+                item.add( new Label( "objId", permission.getObjId() ) );
+                item.add( new Label( "grantedBy", matrix.getObject().getGrantedBy( roleName.trim(), item
+                    .getModelObject() ) ) );
+            }
+
+
+            @Override
+            protected void onDetach()
+            {
+                roleColumns.detach();
+                super.onDetach();
+            }
+        } );
+    }
+
+
+    private void addPageLink( String id, final boolean isRows, final int delta )
+    {
+        add( new Link<Void>( id )
+        {
+            /** Default serialVersionUID */
+            private static final long serialVersionUID = 1L;
+
+
+            @Override
+            public void onClick()
+            {
+                if ( isRows )
+                {
+                    rowOffset = next( rowOffset, delta, userIds.getObject().size() );
+                }
+                else
+                {
+                    columnOffset = next( columnOffset, delta, columns.getObject().size() );
+                }
+            }
+        } );
+    }
+
+
+    private static int next( int offset, int delta, int size )
+    {
+        int next = Math.max( 0, offset + delta );
+        return next >= size ? offset : next;
+    }
+
+
+    private static <T> List<T> page( List<T> list, int offset, int count )
+    {
+        int from = Math.min( offset, list.size() );
+        return new ArrayList<>( list.subList( from, Math.min( from + count, list.size() ) ) );
+    }
+
+
+    private static String range( int offset, int count, int size )
+    {
+        return size == 0 ? "0" : ( offset + 1 ) + "-" + Math.min( offset + count, size );
+    }
+
+
+    private static String format( Permission permission )
+    {
+        if ( permission == null )
+        {
+            return "";
+        }
+        return permission.getObjName() + "." + permission.getOpName() + ( permission.getObjId() != null ? ":"
+            + permission.getObjId() : "" );
+    }
+}
@@ -0,0 +1,277 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+package org.apache.directory.fortress.web.common;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Predicate;
+import java.util.function.ToLongFunction;
+
+/**
+ * Small, thread safe, in-memory LRU cache with an optional time to live.  Keeps hit, miss and eviction counts so
+ * callers can report on how well the cache is working.
+ * <p>
+ * A cache of values that vary a lot in size, e.g. search results, may also be bounded by weight: each value is
+ * weighed when it is put, and the least recently used entries are evicted until the total is back under the max.
+ * The entry just put is kept even if it alone weighs more than the max.  A value that grows after it was put is
+ * weighed again by putting it again.
+ *
+ * @param <K> type of key.
+ * @param <V> type of value.
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ * @version $Rev$
+ */
+public class BoundedCache<K, V>
+{
+    private final String name;
+    private final int maxSize;
+    private final long ttlMillis;
+    private final long maxWeight;
+    private final ToLongFunction<? super V> weigher;
+    private final Map<K, Entry<V>> map;
+    private long weight;
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    /**
+     * @param name used for reporting.
+     * @param maxSize max number of entries, least recently used are evicted first.
+     * @param ttlSeconds max age of an entry, 0 means entries never expire.
+     */
+    public BoundedCache( String name, int maxSize, long ttlSeconds )
+    {
+        this( name, maxSize, ttlSeconds, 0, null );
+    }
+
+    /**
+     * @param name used for reporting.
+     * @param maxSize max number of entries, least recently used are evicted first.
+     * @param ttlSeconds max age of an entry, 0 means entries never expire.
+     * @param maxWeight max total weight of the entries, 0 means no limit.
+     * @param weigher returns the weight of a value, e.g. the number of rows it holds, null if maxWeight is 0.
+     */
+    public BoundedCache( String name, int maxSize, long ttlSeconds, long maxWeight, ToLongFunction<? super V>
+        weigher )
+    {
+        this.name = name;
+        this.maxSize = Math.max( 1, maxSize );
+        this.ttlMillis = Math.max( 0, ttlSeconds ) * 1000;
+        this.maxWeight = weigher != null ? Math.max( 0, maxWeight ) : 0;
+        this.weigher = weigher;
+        this.map = new LinkedHashMap<K, Entry<V>>( 16, 0.75f, true )
+        {
+            /** Default serialVersionUID */
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry( Map.Entry<K, Entry<V>> eldest )
+            {
+                if ( size() > BoundedCache.this.maxSize )
+                {
+                    weight -= eldest.getValue().weight;
+                    evictions++;
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Return the value mapped to key.
+     *
+     * @param key of entry.
+     * @return value or null if not found or expired.
+     */
+    public synchronized V get( K key )
+    {
+        Entry<V> entry = map.get( key );
+        if ( entry == null )
+        {
+            misses++;
+            return null;
+        }
+        if ( isExpired( entry, System.currentTimeMillis() ) )
+        {
+            map.remove( key );
+            weight -= entry.weight;
+            evictions++;
+            misses++;
+            return null;
+        }
+        hits++;
+        return entry.value;
+    }
+
+    public synchronized void put( K key, V value )
+    {
+        Entry<V> entry = new Entry<>( value, weigher != null ? Math.max( 0, weigher.applyAsLong( value ) ) : 0 );
+        Entry<V> old = map.put( key, entry );
+        if ( old != null )
+        {
+            weight -= old.weight;
+        }
+        weight += entry.weight;
+        if ( maxWeight > 0 )
+        {
+            // least recently used first, the entry just put is last:
+            Iterator<Entry<V>> iterator = map.values().iterator();
+            while ( weight > maxWeight && map.size() > 1 )
+            {
+                weight -= iterator.next().weight;
+                iterator.remove();
+                evictions++;
+            }
+        }
+    }
+
+    public synchronized V remove( K key )
+    {
+        Entry<V> entry = map.remove( key );
+        if ( entry == null )
+        {
+            return null;
+        }
+        weight -= entry.weight;
+        return entry.value;
+    }
+
+    /**
+     * Remove the entries whose key matches filter.  Counters are left alone.
+     *
+     * @param filter returns true for the keys to remove.
+     */
+    public synchronized void removeIf( Predicate<? super K> filter )
+    {
+        Iterator<Map.Entry<K, Entry<V>>> iterator = map.entrySet().iterator();
+        while ( iterator.hasNext() )
+        {
+            Map.Entry<K, Entry<V>> entry = iterator.next();
+            if ( filter.test( entry.getKey() ) )
+            {
+                weight -= entry.getValue().weight;
+                iterator.remove();
+            }
+        }
+    }
+
+    /**
+     * Remove all entries.  Counters are left alone.
+     */
+    public synchronized void clear()
+    {
+        map.clear();
+        weight = 0;
+    }
+
+    /**
+     * Remove entries that have outlived the time to live.
+     */
+    public synchronized void evictExpired()
+    {
+        if ( ttlMillis == 0 )
+        {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        Iterator<Entry<V>> iterator = map.values().iterator();
+        while ( iterator.hasNext() )
+        {
+            Entry<V> entry = iterator.next();
+            if ( isExpired( entry, now ) )
+            {
+                weight -= entry.weight;
+                iterator.remove();
+                evictions++;
+            }
+        }
+    }
+
+    public String getName()
+    {
+        return name;
+    }
+
+    public int getMaxSize()
+    {
+        return maxSize;
+    }
+
+    public synchronized int size()
+    {
+        return map.size();
+    }
+
+    public long getMaxWeight()
+    {
+        return maxWeight;
+    }
+
+    /**
+     * @return total weight of the entries, as of when each was put.
+     */
+    public synchronized long getWeight()
+    {
+        return weight;
+    }
+
+    public synchronized long getHits()
+    {
+        return hits;
+    }
+
+    public synchronized long getMisses()
+    {
+        return misses;
+    }
+
+    public synchronized long getEvictions()
+    {
+        return evictions;
+    }
+
+    @Override
+    public synchronized String toString()
+    {
+        return "BoundedCache name: " + name + " size: " + map.size() + " maxSize: " + maxSize + ( maxWeight > 0
+            ? " weight: " + weight + " maxWeight: " + maxWeight : "" ) + " hits: " + hits + " misses: " + misses
+            + " evictions: " + evictions;
+    }
+
+    private boolean isExpired( Entry<V> entry, long now )
+    {
+        return ttlMillis > 0 && now - entry.created > ttlMillis;
+    }
+
+    private static class Entry<V>
+    {
+        private final V value;
+        private final long weight;
+        private final long created = System.currentTimeMillis();
+
+        private Entry( V value, long weight )
+        {
+            this.value = value;
+            this.weight = weight;
+        }
+    }
+}
@@ -0,0 +1,115 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+package org.apache.directory.fortress.web.common;
+
+import org.apache.commons.lang.StringUtils;
+import org.apache.directory.fortress.core.util.Config;
+import org.apache.log4j.Logger;
+
+/**
+ * Reads optional commander tuning parameters from fortress.properties.  Missing or malformed values fall back to the
+ * supplied default so none of these settings are required to run the app.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ * @version $Rev$
+ */
+public final class ConfigUtils
+{
+    private static final Logger LOG = Logger.getLogger( ConfigUtils.class.getName() );
+
+    private ConfigUtils()
+    {
+    }
+
+    /**
+     * Return the raw property value or null if not set.
+     *
+     * @param name of the property in fortress.properties.
+     * @return property value or null.
+     */
+    public static String getProperty( String name )
+    {
+        String value = null;
+        try
+        {
+            value = Config.getInstance().getProperty( name );
+        }
+        catch ( RuntimeException re )
+        {
+            // fortress config not available, e.g. when running outside of the container:
+            LOG.debug( "getProperty name: " + name + " caught RuntimeException=" + re );
+        }
+        return value;
+    }
+
+    /**
+     * Return an int property.
+     *
+     * @param name of the property in fortress.properties.
+     * @param defaultValue returned when the property is not set or is not a number.
+     * @return property value.
+     */
+    public static int getInt( String name, int defaultValue )
+    {
+        return ( int ) getLong( name, defaultValue );
+    }
+
+    /**
+     * Return a long property.
+     *
+     * @param name of the property in fortress.properties.
+     * @param defaultValue returned when the property is not set or is not a number.
+     * @return property value.
+     */
+    public static long getLong( String name, long defaultValue )
+    {
+        long value = defaultValue;
+        String szValue = getProperty( name );
+        if ( StringUtils.isNotBlank( szValue ) )
+        {
+            try
+            {
+                value = Long.parseLong( szValue.trim() );
+            }
+            catch ( NumberFormatException nfe )
+            {
+                LOG.warn( "Invalid value: " + szValue + " for property: " + name + ", using default: " + defaultValue );
+            }
+        }
+        return value;
+    }
+
+    /**
+     * Return a boolean property.
+     *
+     * @param name of the property in fortress.properties.
+     * @param defaultValue returned when the property is not set.
+     * @return property value.
+     */
+    public static boolean getBoolean( String name, boolean defaultValue )
+    {
+        String szValue = getProperty( name );
+        if ( StringUtils.isBlank( szValue ) )
+        {
+            return defaultValue;
+        }
+        return szValue.trim().equalsIgnoreCase( "true" );
+    }
+}
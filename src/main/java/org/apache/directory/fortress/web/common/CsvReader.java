@@ -0,0 +1,159 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+package org.apache.directory.fortress.web.common;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads RFC 4180 style comma separated records, one at a time, from a character stream.  Quoted fields may contain
+ * commas, doubled quotes and line breaks.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ * @version $Rev$
+ */
+public class CsvReader implements Closeable
+{
+    private static final int EOF = -1;
+    private final Reader reader;
+    private int pushback = EOF - 1;
+    private long lineNumber = 1;
+
+    /**
+     * @param reader source of records, buffered by the caller.
+     */
+    public CsvReader( Reader reader )
+    {
+        this.reader = reader;
+    }
+
+    /**
+     * Read the next record.
+     *
+     * @return fields of the record or null at end of stream.
+     * @throws IOException thrown by the underlying reader.
+     */
+    public List<String> readRecord() throws IOException
+    {
+        int c = read();
+        if ( c == EOF )
+        {
+            return null;
+        }
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean isQuoted = false;
+        while ( true )
+        {
+            if ( isQuoted )
+            {
+                if ( c == EOF )
+                {
+                    throw new IOException( "Unterminated quoted field at line " + lineNumber );
+                }
+                if ( c == '"' )
+                {
+                    int next = read();
+                    if ( next == '"' )
+                    {
+                        field.append( '"' );
+                    }
+                    else
+                    {
+                        isQuoted = false;
+                        unread( next );
+                    }
+                }
+                else
+                {
+                    field.append( ( char ) c );
+                }
+            }
+            else if ( c == '"' && field.length() == 0 )
+            {
+                isQuoted = true;
+            }
+            else if ( c == ',' )
+            {
+                fields.add( field.toString() );
+                field.setLength( 0 );
+            }
+            else if ( c == '\r' || c == '\n' || c == EOF )
+            {
+                if ( c == '\r' )
+                {
+                    int next = read();
+                    if ( next != '\n' )
+                    {
+                        unread( next );
+                    }
+                }
+                fields.add( field.toString() );
+                return fields;
+            }
+            else
+            {
+                field.append( ( char ) c );
+            }
+            c = read();
+        }
+    }
+
+    /**
+     * Return the line the next record starts on, counting from 1.
+     *
+     * @return line number.
+     */
+    public long getLineNumber()
+    {
+        return lineNumber;
+    }
+
+    @Override
+    public void close() throws IOException
+    {
+        reader.close();
+    }
+
+    private int read() throws IOException
+    {
+        int c;
+        if ( pushback != EOF - 1 )
+        {
+            c = pushback;
+            pushback = EOF - 1;
+            return c;
+        }
+        c = reader.read();
+        if ( c == '\n' )
+        {
+            lineNumber++;
+        }
+        return c;
+    }
+
+    private void unread( int c )
+    {
+        pushback = c;
+    }
+}
@@ -42,6 +42,7 @@ public class GlobalIds
     public static final String ROLE_AUDIT_BINDS = "ROLE_AUDIT_BINDS";
     public static final String ROLE_AUDIT_MODS = "ROLE_AUDIT_MODS";
     public static final String ROLE_GROUPS = "ROLE_GROUPS";
+    public static final String ROLE_ADMIN = "ROLE_ADMIN";
     public static final String SSD = "SSD";
     public static final String DSD = "DSD";
     public static final String PAGE_TYPE = "type";
@@ -83,6 +84,8 @@ public class GlobalIds
     public static final String SELECT = "select";
     public static final String SEARCH = "search";
     public static final String CLEAR = "clear";
+    public static final String EXPORT_CSV = "exportcsv";
+    public static final String EXPORT_JSON = "exportjson";
     public static final String SEARCH_VAL = "searchVal";
     public static final String MONDAY_ARC = "mondayARC";
     public static final String TUESDAY_ARC = "tuesdayARC";
@@ -136,9 +139,12 @@ public class GlobalIds
     public static final String EMPLOYEE_TYPE = "employeeType";
     public static final String TITLE = "title";
     public static final String GROUP_PAGE = "groups";
+    public static final String METRICS_PAGE = "metrics";
     public static final String AUDIT_AUTHZS_PAGE = "authzs";
     public static final String AUDIT_MODS_PAGE = "mods";
     public static final String AUDIT_BINDS_PAGE = "binds";
+    public static final String AUDIT_STATS_PAGE = "auditstats";
+    public static final String MATRIX_PAGE = "matrix";
     public static final String JPEGPHOTO = "jpegPhoto";
     public static final String OU = "ou";
     public static final String REQ_AUTHZ_ID = "reqAuthzID";
@@ -164,6 +170,7 @@ public class GlobalIds
     public static final String OBJ_NAME = "objName";
     public static final String OP_NAME = "opName";
     public static final String FAILED_ONLY = "failedOnly";
+    public static final String LIVE = "live";
     public static final String ADMIN = "admin";
     public static final String GET_USER_AUTHZS = "getUserAuthZs";
     public static final String GET_USER_BINDS = "searchBinds";
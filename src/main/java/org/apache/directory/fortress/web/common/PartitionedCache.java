@@ -0,0 +1,119 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+package org.apache.directory.fortress.web.common;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * One {@link BoundedCache} per partition, e.g. per tenant, each bounded on its own so the entries of one partition
+ * never evict those of another.  Partitions are created on first use.
+ *
+ * @param <K> type of key.
+ * @param <V> type of value.
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ * @version $Rev$
+ */
+public class PartitionedCache<K, V>
+{
+    private static final Comparator<BoundedCache<?, ?>> BY_NAME = new Comparator<BoundedCache<?, ?>>()
+    {
+        @Override
+        public int compare( BoundedCache<?, ?> c1, BoundedCache<?, ?> c2 )
+        {
+            return c1.getName().compareTo( c2.getName() );
+        }
+    };
+    private final String name;
+    private final int maxSize;
+    private final long ttlSeconds;
+    private final ConcurrentMap<String, BoundedCache<K, V>> partitions = new ConcurrentHashMap<>();
+
+    /**
+     * @param name used for reporting, the partition name is appended to it.
+     * @param maxSize max number of entries of each partition.
+     * @param ttlSeconds max age of an entry, 0 means entries never expire.
+     */
+    public PartitionedCache( String name, int maxSize, long ttlSeconds )
+    {
+        this.name = name;
+        this.maxSize = maxSize;
+        this.ttlSeconds = ttlSeconds;
+    }
+
+    /**
+     * @param partition name, e.g. a contextId.
+     * @return cache of the partition, created if new.
+     */
+    public BoundedCache<K, V> get( String partition )
+    {
+        BoundedCache<K, V> cache = partitions.get( partition );
+        if ( cache == null )
+        {
+            BoundedCache<K, V> created = new BoundedCache<>( name + ":" + partition, maxSize, ttlSeconds );
+            cache = partitions.putIfAbsent( partition, created );
+            if ( cache == null )
+            {
+                cache = created;
+            }
+        }
+        return cache;
+    }
+
+    /**
+     * Drop a partition, along with its entries and counts.
+     *
+     * @param partition name.
+     */
+    public void remove( String partition )
+    {
+        partitions.remove( partition );
+    }
+
+    /**
+     * Remove the entries of all partitions.  Counters are left alone.
+     */
+    public void clear()
+    {
+        for ( BoundedCache<K, V> cache : partitions.values() )
+        {
+            cache.clear();
+        }
+    }
+
+    public String getName()
+    {
+        return name;
+    }
+
+    /**
+     * @return caches of the partitions, sorted by name.
+     */
+    public List<BoundedCache<K, V>> getPartitions()
+    {
+        List<BoundedCache<K, V>> caches = new ArrayList<>( partitions.values() );
+        Collections.sort( caches, BY_NAME );
+        return caches;
+    }
+}
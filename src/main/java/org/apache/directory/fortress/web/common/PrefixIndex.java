@@ -0,0 +1,265 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+package org.apache.directory.fortress.web.common;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.function.Predicate;
+
+/**
+ * Immutable, case insensitive index of names that finds the names starting with a prefix by binary search over a
+ * sorted array.  Changes return a new index, so it can be read by any number of threads without locking.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ * @version $Rev$
+ */
+public final class PrefixIndex
+{
+    private static final PrefixIndex EMPTY = new PrefixIndex( new String[0], new String[0] );
+    // keys are the lower case names, in order, values the names as given:
+    private final String[] keys;
+    private final String[] values;
+
+    private PrefixIndex( String[] keys, String[] values )
+    {
+        this.keys = keys;
+        this.values = values;
+    }
+
+    /**
+     * @param names to index, may be null, duplicates that differ only in case are kept once.
+     * @return index of names.
+     */
+    public static PrefixIndex of( Collection<String> names )
+    {
+        if ( names == null || names.isEmpty() )
+        {
+            return EMPTY;
+        }
+        Map<String, String> sorted = new TreeMap<>();
+        for ( String name : names )
+        {
+            if ( name != null && !name.isEmpty() )
+            {
+                sorted.put( key( name ), name );
+            }
+        }
+        return new PrefixIndex( sorted.keySet().toArray( new String[sorted.size()] ), sorted.values().toArray(
+            new String[sorted.size()] ) );
+    }
+
+    /**
+     * Return the names that start with prefix, ignoring case, in order.
+     *
+     * @param prefix typed so far.
+     * @param max number of names returned.
+     * @return names, never null.
+     */
+    public List<String> find( String prefix, int max )
+    {
+        String key = key( prefix );
+        List<String> found = new ArrayList<>( Math.min( max, 16 ) );
+        for ( int i = indexOf( key ); i < keys.length && found.size() < max && keys[i].startsWith( key ); i++ )
+        {
+            found.add( values[i] );
+        }
+        return found;
+    }
+
+    /**
+     * Return the names that start with prefix, ignoring case, and pass filter, in order.
+     *
+     * @param prefix typed so far.
+     * @param max number of names returned.
+     * @param filter returns true for the names to return.
+     * @return names, never null.
+     */
+    public List<String> find( String prefix, int max, Predicate<String> filter )
+    {
+        String key = key( prefix );
+        List<String> found = new ArrayList<>( Math.min( max, 16 ) );
+        for ( int i = indexOf( key ); i < keys.length && found.size() < max && keys[i].startsWith( key ); i++ )
+        {
+            if ( filter.test( values[i] ) )
+            {
+                found.add( values[i] );
+            }
+        }
+        return found;
+    }
+
+    /**
+     * @param name to test.
+     * @return true if name is in index, ignoring case.
+     */
+    public boolean contains( String name )
+    {
+        return name != null && Arrays.binarySearch( keys, key( name ) ) >= 0;
+    }
+
+    /**
+     * @param name to add.
+     * @return index with name, this one if name is already in it.
+     */
+    public PrefixIndex with( String name )
+    {
+        if ( name == null || name.isEmpty() || contains( name ) )
+        {
+            return this;
+        }
+        int i = indexOf( key( name ) );
+        return new PrefixIndex( insert( keys, i, key( name ) ), insert( values, i, name ) );
+    }
+
+    /**
+     * @param name to remove.
+     * @return index without name, this one if name was not in it.
+     */
+    public PrefixIndex without( String name )
+    {
+        int i = name != null ? Arrays.binarySearch( keys, key( name ) ) : -1;
+        if ( i < 0 )
+        {
+            return this;
+        }
+        return new PrefixIndex( remove( keys, i ), remove( values, i ) );
+    }
+
+    /**
+     * @return number of names in index.
+     */
+    public int size()
+    {
+        return keys.length;
+    }
+
+    /**
+     * Split names into prefixes that each match at most pageSize of them, e.g. to search them a page at a time.
+     * Names are grouped by their first length characters, and groups larger than pageSize are split by one more
+     * character.  A name that other names start with may stay a prefix of its own, see {@link #prefixOf}.
+     *
+     * @param names to split, ignoring case.
+     * @param length of the shortest prefix, at least 1.
+     * @param pageSize max number of names per prefix, unless they share all of their characters.
+     * @return lower case prefixes, in order, never null.
+     */
+    public static SortedSet<String> toPrefixes( Collection<String> names, int length, int pageSize )
+    {
+        Map<String, List<String>> groups = new TreeMap<>();
+        for ( String name : names )
+        {
+            String key = key( name );
+            String prefix = key.length() > length ? key.substring( 0, length ) : key;
+            List<String> group = groups.get( prefix );
+            if ( group == null )
+            {
+                group = new ArrayList<>();
+                groups.put( prefix, group );
+            }
+            group.add( key );
+        }
+        SortedSet<String> prefixes = new TreeSet<>();
+        for ( Map.Entry<String, List<String>> entry : groups.entrySet() )
+        {
+            if ( entry.getValue().size() > pageSize && isLonger( entry.getValue(), length ) )
+            {
+                prefixes.addAll( toPrefixes( entry.getValue(), length + 1, pageSize ) );
+            }
+            else if ( !entry.getKey().isEmpty() )
+            {
+                prefixes.add( entry.getKey() );
+            }
+        }
+        return prefixes;
+    }
+
+    /**
+     * Return the longest of prefixes that name starts with.  Prefixes from {@link #toPrefixes} may start with one
+     * another, a search by the shorter one also returns the names of the longer, so each name is kept by this one
+     * only.
+     *
+     * @param name to look for, ignoring case.
+     * @param prefixes lower case.
+     * @return prefix or null if name starts with none.
+     */
+    public static String prefixOf( String name, Set<String> prefixes )
+    {
+        String key = key( name );
+        for ( int length = key.length(); length > 0; length-- )
+        {
+            if ( prefixes.contains( key.substring( 0, length ) ) )
+            {
+                return key.substring( 0, length );
+            }
+        }
+        return null;
+    }
+
+    private static boolean isLonger( List<String> keys, int length )
+    {
+        for ( String key : keys )
+        {
+            if ( key.length() > length )
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return position of the first key not less than key.
+     */
+    private int indexOf( String key )
+    {
+        int i = Arrays.binarySearch( keys, key );
+        return i >= 0 ? i : -i - 1;
+    }
+
+    private static String[] insert( String[] array, int i, String value )
+    {
+        String[] result = new String[array.length + 1];
+        System.arraycopy( array, 0, result, 0, i );
+        result[i] = value;
+        System.arraycopy( array, i, result, i + 1, array.length - i );
+        return result;
+    }
+
+    private static String[] remove( String[] array, int i )
+    {
+        String[] result = new String[array.length - 1];
+        System.arraycopy( array, 0, result, 0, i );
+        System.arraycopy( array, i + 1, result, i, array.length - i - 1 );
+        return result;
+    }
+
+    private static String key( String name )
+    {
+        return name != null ? name.toLowerCase( Locale.ENGLISH ) : "";
+    }
+}
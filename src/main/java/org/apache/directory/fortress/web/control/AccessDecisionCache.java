@@ -0,0 +1,78 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+package org.apache.directory.fortress.web.control;
+
+import org.apache.directory.fortress.core.model.Permission;
+import org.apache.directory.fortress.web.common.BoundedCache;
+import org.apache.directory.fortress.web.common.ConfigUtils;
+
+/**
+ * Remembers the result of recent checkAccess calls for one user's session.  Used when perms.cached is false so that
+ * building a page with many secured buttons does not cost one directory round trip per button.
+ * <p>
+ * Entries live for perms.check.ttl.seconds (default 60, 0 disables the cache) and at most
+ * perms.check.max.size (default 1000) are kept.  The cache is cleared whenever the user's active role set changes.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ * @version $Rev$
+ */
+public class AccessDecisionCache
+{
+    private static final long TTL_SECONDS = ConfigUtils.getLong( "perms.check.ttl.seconds", 60 );
+    private static final int MAX_SIZE = ConfigUtils.getInt( "perms.check.max.size", 1000 );
+    private final BoundedCache<String, Boolean> decisions = new BoundedCache<>( "checkAccess", MAX_SIZE,
+        TTL_SECONDS );
+
+    /**
+     * Return the cached decision for permission.
+     *
+     * @param permission contains objName, opName and optional objId.
+     * @return cached result or null if unknown or expired.
+     */
+    public Boolean get( Permission permission )
+    {
+        if ( TTL_SECONDS <= 0 )
+        {
+            return null;
+        }
+        return decisions.get( key( permission ) );
+    }
+
+    public void put( Permission permission, boolean isAuthorized )
+    {
+        if ( TTL_SECONDS > 0 )
+        {
+            decisions.put( key( permission ), isAuthorized );
+        }
+    }
+
+    /**
+     * Discard all decisions.  Called when the active role set of the session changes.
+     */
+    public void clear()
+    {
+        decisions.clear();
+    }
+
+    private static String key( Permission permission )
+    {
+        return PermissionIndex.key( permission.getObjName(), permission.getOpName(), permission.getObjId() );
+    }
+}
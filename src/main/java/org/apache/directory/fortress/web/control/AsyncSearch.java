@@ -0,0 +1,341 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+package org.apache.directory.fortress.web.control;
+
+import org.apache.directory.fortress.core.SecurityException;
+import org.apache.directory.fortress.web.common.BoundedCache;
+import org.apache.directory.fortress.web.common.ConfigUtils;
+import org.apache.log4j.Logger;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs a directory search off the request thread, so the page lock is not held while fortress works and other AJAX
+ * requests on the page stay responsive.  The search publishes its rows as they arrive and the page polls for them.
+ * <p>
+ * A search stops when it is cancelled, e.g. because the admin started another one, or when nobody has polled it for
+ * search.async.abandon.seconds (default 15), which is what happens when the admin leaves the page.
+ * <p>
+ * Searches run on a pool of search.async.threads (default 8) threads, with up to search.async.queue (default 32)
+ * waiting.  On a JVM that has virtual threads, and unless search.async.virtual.threads is false, each search gets its
+ * own virtual thread instead, still limited to search.async.threads running at once.  Searches beyond those limits
+ * are rejected and callers fall back to searching on the request thread.
+ * <p>
+ * A search is held until it ends, the number held is bounded by the limits above.  Once it has ended it is kept in a
+ * cache, for up to 600 seconds, until the page has polled the rest of its rows; one evicted before that is reported
+ * lost by {@link #get(String)} returning null.
+ *
+ * @param <T> type of row.
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ * @version $Rev$
+ */
+public final class AsyncSearch<T>
+{
+    private static final Logger LOG = Logger.getLogger( AsyncSearch.class.getName() );
+    private static final int THREADS = Math.max( 1, ConfigUtils.getInt( "search.async.threads", 8 ) );
+    private static final int QUEUE = Math.max( 1, ConfigUtils.getInt( "search.async.queue", 32 ) );
+    private static final long ABANDON_MILLIS = ConfigUtils.getLong( "search.async.abandon.seconds", 15 ) * 1000;
+    // bounds the searches admitted, and the ones running, when each one gets its own virtual thread:
+    private static final Semaphore ADMITTED = new Semaphore( THREADS + QUEUE );
+    private static final Semaphore RUNNING = new Semaphore( THREADS );
+    private static final ExecutorService VIRTUAL_EXECUTOR = ConfigUtils.getBoolean( "search.async.virtual.threads",
+        true ) ? newVirtualExecutor() : null;
+    private static final ExecutorService EXECUTOR = VIRTUAL_EXECUTOR != null ? VIRTUAL_EXECUTOR : newExecutor();
+    // admitted and not ended yet, bounded by ADMITTED, never evicted:
+    private static final ConcurrentMap<String, AsyncSearch<?>> RUNNING_SEARCHES = new ConcurrentHashMap<>();
+    private static final BoundedCache<String, AsyncSearch<?>> ENDED_SEARCHES = new BoundedCache<>( "asyncSearches",
+        THREADS + QUEUE + 64, 600 );
+
+    /**
+     * The work of one search.  Runs on a background thread, so must not touch Wicket components, the session or
+     * anything else bound to the request.  Managers are initialized, and models injected, before the search starts.
+     *
+     * @param <T> type of row.
+     */
+    public interface Task<T>
+    {
+        /**
+         * Run the search, passing rows to {@link AsyncSearch#publish} as they are read.  Long running tasks should
+         * check {@link AsyncSearch#isCancelled()} between steps.
+         *
+         * @param search receives the rows.
+         * @throws SecurityException thrown by fortress.
+         */
+        void run( AsyncSearch<T> search ) throws SecurityException;
+    }
+
+    private final String id = UUID.randomUUID().toString();
+    private final List<T> rows = new ArrayList<>();
+    private final long started = System.currentTimeMillis();
+    private volatile long polled = started;
+    private volatile boolean isCancelled;
+    private volatile boolean isDone;
+    private volatile String error;
+
+    private AsyncSearch()
+    {
+    }
+
+    /**
+     * Start running task on a background thread.
+     *
+     * @param task does the search.
+     * @param <T> type of row.
+     * @return the running search.
+     * @throws RejectedExecutionException if too many searches are running or waiting already.
+     */
+    public static <T> AsyncSearch<T> start( final Task<T> task )
+    {
+        final AsyncSearch<T> search = new AsyncSearch<>();
+        if ( !ADMITTED.tryAcquire() )
+        {
+            throw new RejectedExecutionException( "Too many searches running" );
+        }
+        // before it runs, so one that ends at once is found with the ended ones:
+        RUNNING_SEARCHES.put( search.id, search );
+        try
+        {
+            // executed rather than submitted so a search cancelled while queued still releases its permit:
+            EXECUTOR.execute( TenantContext.wrap( new Runnable()
+            {
+                @Override
+                public void run()
+                {
+                    search.run( task );
+                }
+            } ) );
+        }
+        catch ( RejectedExecutionException ree )
+        {
+            RUNNING_SEARCHES.remove( search.id );
+            ADMITTED.release();
+            throw ree;
+        }
+        return search;
+    }
+
+    /**
+     * Return the search with id.
+     *
+     * @param id of search.
+     * @return search or null if unknown, cancelled or evicted after it ended.
+     */
+    public static AsyncSearch<?> get( String id )
+    {
+        if ( id == null )
+        {
+            return null;
+        }
+        AsyncSearch<?> search = RUNNING_SEARCHES.get( id );
+        return search != null ? search : ENDED_SEARCHES.get( id );
+    }
+
+    /**
+     * Stop the pool.  Called when the web app shuts down.
+     */
+    public static void shutdown()
+    {
+        EXECUTOR.shutdownNow();
+    }
+
+    public String getId()
+    {
+        return id;
+    }
+
+    /**
+     * Add rows to the results.  Called by the task, from its thread.
+     *
+     * @param published rows read since the last call.
+     */
+    public void publish( List<? extends T> published )
+    {
+        if ( published != null && !published.isEmpty() )
+        {
+            synchronized ( rows )
+            {
+                rows.addAll( published );
+            }
+        }
+    }
+
+    /**
+     * Return the rows published after the first count, and mark the search as still wanted.
+     *
+     * @param count of rows already taken by caller.
+     * @return rows published since, never null.
+     */
+    public List<T> poll( int count )
+    {
+        polled = System.currentTimeMillis();
+        synchronized ( rows )
+        {
+            return count < rows.size() ? new ArrayList<>( rows.subList( count, rows.size() ) )
+                : Collections.<T>emptyList();
+        }
+    }
+
+    /**
+     * Stop the search.  The task stops at its next check of {@link #isCancelled()}, it is not interrupted, which
+     * could leave a directory connection half way through a request.  Rows published already are kept.
+     */
+    public void cancel()
+    {
+        isCancelled = true;
+        RUNNING_SEARCHES.remove( id );
+        ENDED_SEARCHES.remove( id );
+    }
+
+    /**
+     * @return true if the search was cancelled or nobody has polled it for a while.
+     */
+    public boolean isCancelled()
+    {
+        if ( !isCancelled && System.currentTimeMillis() - polled > ABANDON_MILLIS )
+        {
+            LOG.debug( "search id: " + id + " abandoned" );
+            isCancelled = true;
+        }
+        return isCancelled;
+    }
+
+    /**
+     * @return true when the task has ended, whether or not it succeeded.
+     */
+    public boolean isDone()
+    {
+        return isDone;
+    }
+
+    /**
+     * @return message of the exception that ended the task or null if none.
+     */
+    public String getError()
+    {
+        return error;
+    }
+
+    private void run( Task<T> task )
+    {
+        boolean isRunning = false;
+        try
+        {
+            if ( VIRTUAL_EXECUTOR != null )
+            {
+                RUNNING.acquire();
+                isRunning = true;
+            }
+            if ( !isCancelled() )
+            {
+                task.run( this );
+            }
+        }
+        catch ( SecurityException se )
+        {
+            String msg = "run search id: " + id + " caught SecurityException=" + se;
+            LOG.warn( msg );
+            error = se.getMessage();
+        }
+        catch ( InterruptedException ie )
+        {
+            // the pool is shutting down:
+            Thread.currentThread().interrupt();
+            error = "search interrupted";
+        }
+        catch ( RuntimeException re )
+        {
+            String msg = "run search id: " + id + " caught RuntimeException=" + re;
+            LOG.error( msg, re );
+            error = re.getMessage();
+        }
+        finally
+        {
+            if ( isRunning )
+            {
+                RUNNING.release();
+            }
+            isDone = true;
+            // kept for the page to poll the rest of the rows, unless nobody wants them:
+            if ( RUNNING_SEARCHES.remove( id ) != null && !isCancelled )
+            {
+                ENDED_SEARCHES.put( id, this );
+            }
+            ADMITTED.release();
+            if ( LOG.isDebugEnabled() )
+            {
+                LOG.debug( "search id: " + id + " done, rows: " + rows.size() + " millis: " + ( System
+                    .currentTimeMillis() - started ) + " cancelled: " + isCancelled );
+            }
+        }
+    }
+
+    /**
+     * Use Executors.newVirtualThreadPerTaskExecutor where the JVM has it.  Found by reflection so the app still
+     * builds and runs on older JVMs.
+     */
+    private static ExecutorService newVirtualExecutor()
+    {
+        try
+        {
+            ExecutorService executor = ( ExecutorService ) Executors.class.getMethod(
+                "newVirtualThreadPerTaskExecutor" ).invoke( null );
+            LOG.info( "async searches run on virtual threads" );
+            return executor;
+        }
+        catch ( ReflectiveOperationException | RuntimeException e )
+        {
+            LOG.debug( "virtual threads not available: " + e );
+            return null;
+        }
+    }
+
+    private static ExecutorService newExecutor()
+    {
+        ThreadPoolExecutor executor = new ThreadPoolExecutor( THREADS, THREADS, 60, TimeUnit.SECONDS,
+            new ArrayBlockingQueue<Runnable>( QUEUE ), new ThreadFactory()
+            {
+                private final AtomicInteger count = new AtomicInteger();
+
+                @Override
+                public Thread newThread( Runnable runnable )
+                {
+                    Thread thread = new Thread( runnable, "fortress-search-" + count.incrementAndGet() );
+                    thread.setDaemon( true );
+                    return thread;
+                }
+            }, new ThreadPoolExecutor.AbortPolicy() );
+        executor.allowCoreThreadTimeOut( true );
+        return executor;
+    }
+}
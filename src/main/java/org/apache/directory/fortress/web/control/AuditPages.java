@@ -0,0 +1,141 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+package org.apache.directory.fortress.web.control;
+
+import org.apache.commons.lang.SerializationUtils;
+import org.apache.directory.fortress.core.SecurityException;
+import org.apache.directory.fortress.core.model.UserAudit;
+import org.apache.directory.fortress.web.common.ConfigUtils;
+import org.apache.directory.fortress.web.common.GlobalIds;
+
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Audit records of an export, read one window of time at a time, export.audit.window.minutes long (default 1440).
+ * A search without a begin date can't be split and is read as one page.
+ * <p>
+ * Each window is searched up to a few minutes past its end, so a record that started in the window and ended after
+ * it is found whether fortress matches the end date against the start or the end of a record.  Records are kept by
+ * the window they started in.
+ *
+ * @param <T> type of audit record, mapped by {@link AuditRecordParser}.
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ * @version $Rev$
+ */
+public abstract class AuditPages<T> extends ExportResource.Pages<T>
+{
+    private static final long WINDOW_MILLIS = Math.max( 1, ConfigUtils.getInt( "export.audit.window.minutes", 1440 ) )
+        * 60000L;
+    private static final long OVERLAP_MILLIS = 5 * 60000L;
+    private final UserAudit userAudit;
+    private final Date end;
+    private final SimpleDateFormat formatter = new SimpleDateFormat( GlobalIds.AUDIT_TIMESTAMP_FORMAT );
+    private Date begin;
+    private boolean isDone;
+
+
+    /**
+     * @param userAudit criteria of the view, not changed.
+     */
+    protected AuditPages( UserAudit userAudit )
+    {
+        this.userAudit = userAudit;
+        this.begin = userAudit.getBeginDate();
+        this.end = userAudit.getEndDate() != null ? userAudit.getEndDate() : new Date();
+    }
+
+
+    /**
+     * Search the audit records that match userAudit.
+     *
+     * @param userAudit criteria of the view, with the begin and end dates set to the window.
+     * @return records mapped by {@link AuditRecordParser}, may be null.
+     */
+    protected abstract List<T> search( UserAudit userAudit ) throws SecurityException;
+
+
+    /**
+     * @param record mapped by {@link AuditRecordParser}.
+     * @return reqStart of record, formatted as {@link GlobalIds#AUDIT_TIMESTAMP_FORMAT}.
+     */
+    protected abstract String getStart( T record );
+
+
+    @Override
+    protected List<? extends T> next() throws SecurityException
+    {
+        if ( isDone )
+        {
+            return null;
+        }
+        if ( begin == null )
+        {
+            isDone = true;
+            return search( userAudit );
+        }
+        UserAudit criteria = ( UserAudit ) SerializationUtils.clone( userAudit );
+        criteria.setBeginDate( begin );
+        Date to = new Date( begin.getTime() + WINDOW_MILLIS );
+        if ( !to.before( end ) )
+        {
+            // the last window ends where the view does:
+            isDone = true;
+            return search( criteria );
+        }
+        criteria.setEndDate( new Date( to.getTime() + OVERLAP_MILLIS ) );
+        List<T> page = new ArrayList<>();
+        List<T> records = search( criteria );
+        if ( records != null )
+        {
+            for ( T record : records )
+            {
+                Date start = parse( getStart( record ) );
+                // one that can't be placed in time is kept where it was found:
+                if ( start == null || start.before( to ) )
+                {
+                    page.add( record );
+                }
+            }
+        }
+        begin = to;
+        return page;
+    }
+
+
+    private Date parse( String start )
+    {
+        if ( start == null )
+        {
+            return null;
+        }
+        try
+        {
+            return formatter.parse( start );
+        }
+        catch ( ParseException pe )
+        {
+            return null;
+        }
+    }
+}
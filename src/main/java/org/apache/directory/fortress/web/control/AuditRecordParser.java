@@ -0,0 +1,389 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+package org.apache.directory.fortress.web.control;
+
+import org.apache.directory.fortress.core.model.AuthZ;
+import org.apache.directory.fortress.core.model.Bind;
+import org.apache.directory.fortress.core.model.Mod;
+import org.apache.directory.fortress.core.model.Permission;
+import org.apache.directory.fortress.core.util.time.TUtil;
+import org.apache.directory.fortress.web.common.GlobalIds;
+import org.apache.log4j.Logger;
+
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.Collection;
+import java.util.Date;
+
+/**
+ * Maps the raw audit records returned by fortress to what the audit grids and exports show: the userId from the
+ * reqAuthzID or reqDN, the perm object, operation and object id from the reqDN of an authorization, the result and
+ * the start time.
+ * <p>
+ * A DN is read once, left to right, one RDN at a time, and the attribute types are matched ignoring case in place,
+ * so no substrings are made other than for the values kept.  Values are interned per parser, the same userIds, object
+ * and operation names repeat throughout a result set, so a value already seen costs no allocation.  Values are
+ * matched ignoring case, as the directory matches them, and kept as first seen, so e.g. JSmith and jsmith are shown
+ * and counted as one user, spelled the way the first record of the result set has it.  A parser is meant for one
+ * result set and is not thread safe.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ * @version $Rev$
+ */
+public class AuditRecordParser
+{
+    private static final Logger LOG = Logger.getLogger( AuditRecordParser.class.getName() );
+    private static final String OBJ_ID = org.apache.directory.fortress.core.GlobalIds.POBJ_ID;
+    private static final String OBJ_NAME = org.apache.directory.fortress.core.GlobalIds.POBJ_NAME;
+    private static final String OP_NAME = org.apache.directory.fortress.core.GlobalIds.POP_NAME;
+    private static final String AUTH_Z_FAILED = org.apache.directory.fortress.core.GlobalIds.AUTH_Z_FAILED_VALUE;
+    // a result set with more distinct values starts over, rather than grow without bound:
+    private static final int MAX_VALUES = 1 << 16;
+    private String[] values = new String[64];
+    private int size;
+    private final SimpleDateFormat formatter = new SimpleDateFormat( GlobalIds.AUDIT_TIMESTAMP_FORMAT );
+    private String lastStart;
+    private String lastFormatted;
+    // set by parsePermDn:
+    private String objId;
+    private String objName;
+    private String opName;
+
+
+    /**
+     * Map every authorization record, see {@link #map(AuthZ)}.
+     *
+     * @param authZs may be null.
+     */
+    public static void mapAuthZs( Collection<AuthZ> authZs )
+    {
+        if ( authZs != null )
+        {
+            AuditRecordParser parser = new AuditRecordParser();
+            for ( AuthZ authZ : authZs )
+            {
+                parser.map( authZ );
+            }
+        }
+    }
+
+
+    /**
+     * Map every bind record, see {@link #map(Bind)}.
+     *
+     * @param binds may be null.
+     */
+    public static void mapBinds( Collection<Bind> binds )
+    {
+        if ( binds != null )
+        {
+            AuditRecordParser parser = new AuditRecordParser();
+            for ( Bind bind : binds )
+            {
+                parser.map( bind );
+            }
+        }
+    }
+
+
+    /**
+     * Map every admin modification record, see {@link #map(Mod)}.
+     *
+     * @param mods may be null.
+     */
+    public static void mapMods( Collection<Mod> mods )
+    {
+        if ( mods != null )
+        {
+            AuditRecordParser parser = new AuditRecordParser();
+            for ( Mod mod : mods )
+            {
+                parser.map( mod );
+            }
+        }
+    }
+
+
+    /**
+     * Format the start time and result and replace reqAuthzID with the userId.  The object id, perm object and
+     * operation of the reqDN are put in reqDerefAliases, reqAttr and reqAttrsOnly, which are otherwise unused.
+     *
+     * @param authZ raw record.
+     */
+    public void map( AuthZ authZ )
+    {
+        authZ.setReqStart( formatStart( authZ.getReqStart() ) );
+        authZ.setReqResult( AUTH_Z_FAILED.equals( authZ.getReqAssertion() ) ? GlobalIds.FAILURE
+            : GlobalIds.SUCCESS );
+        authZ.setReqAuthzID( getUserId( authZ.getReqAuthzID() ) );
+        if ( authZ.getReqDN() != null )
+        {
+            parsePermDn( authZ.getReqDN() );
+            if ( objId != null )
+            {
+                authZ.setReqDerefAliases( objId );
+            }
+            if ( objName != null )
+            {
+                authZ.setReqAttr( objName );
+            }
+            if ( opName != null )
+            {
+                authZ.setReqAttrsOnly( opName );
+            }
+        }
+    }
+
+
+    /**
+     * Format the start time and result and replace reqDN with the userId.
+     *
+     * @param bind raw record.
+     */
+    public void map( Bind bind )
+    {
+        bind.setReqStart( formatStart( bind.getReqStart() ) );
+        bind.setReqResult( GlobalIds.BIND_SUCCESS_CODE.equals( bind.getReqResult() ) ? GlobalIds.SUCCESS
+            : GlobalIds.FAILURE );
+        bind.setReqDN( getUserId( bind.getReqDN() ) );
+    }
+
+
+    /**
+     * Format the start time.
+     *
+     * @param mod raw record.
+     */
+    public void map( Mod mod )
+    {
+        mod.setReqStart( formatStart( mod.getReqStart() ) );
+    }
+
+
+    /**
+     * @param dn of a permission, e.g. ftObjId=006+ftOpNm=TOP1_6,ftObjNm=TOB1_4,ou=Permissions,ou=RBAC,dc=example,dc=com
+     * @return permission with the object id, perm object and operation found in dn.
+     */
+    public Permission getPermission( String dn )
+    {
+        Permission permission = new Permission();
+        if ( dn != null )
+        {
+            parsePermDn( dn );
+            permission.setObjId( objId );
+            permission.setObjName( objName );
+            permission.setOpName( opName );
+        }
+        return permission;
+    }
+
+
+    /**
+     * @param dn of a user, e.g. uid=fttu3user4,ou=people,dc=example,dc=com
+     * @return value of the first RDN or null if dn is empty or has none.
+     */
+    public String getUserId( String dn )
+    {
+        if ( dn == null )
+        {
+            return null;
+        }
+        int length = dn.length();
+        int eq = -1;
+        int end = 0;
+        for ( ; end < length; end++ )
+        {
+            char c = dn.charAt( end );
+            if ( c == '\\' )
+            {
+                end++;
+            }
+            else if ( c == '=' && eq < 0 )
+            {
+                eq = end;
+            }
+            else if ( c == ',' )
+            {
+                break;
+            }
+        }
+        return eq >= 1 ? intern( dn, eq + 1, Math.min( end, length ) ) : null;
+    }
+
+
+    /**
+     * @param reqStart generalized time.
+     * @return time formatted as {@link GlobalIds#AUDIT_TIMESTAMP_FORMAT}, reqStart as is if it cannot be parsed.
+     */
+    public String formatStart( String reqStart )
+    {
+        if ( reqStart == null )
+        {
+            return null;
+        }
+        // records come in time order, many within the same second:
+        if ( reqStart.equals( lastStart ) )
+        {
+            return lastFormatted;
+        }
+        Date start = null;
+        try
+        {
+            start = TUtil.decodeGeneralizedTime( reqStart );
+        }
+        catch ( ParseException pe )
+        {
+            LOG.warn( "ParseException=" + pe.getMessage() );
+        }
+        lastStart = reqStart;
+        lastFormatted = start != null ? formatter.format( start ) : reqStart;
+        return lastFormatted;
+    }
+
+
+    private void parsePermDn( String dn )
+    {
+        objId = null;
+        objName = null;
+        opName = null;
+        int length = dn.length();
+        int start = 0;
+        // the perm RDNs come first, stop at the ou's once they are found:
+        while ( start < length && ( objName == null || opName == null ) )
+        {
+            int eq = -1;
+            int end = start;
+            for ( ; end < length; end++ )
+            {
+                char c = dn.charAt( end );
+                if ( c == '\\' )
+                {
+                    end++;
+                }
+                else if ( c == '=' && eq < 0 )
+                {
+                    eq = end;
+                }
+                else if ( c == ',' || c == '+' )
+                {
+                    break;
+                }
+            }
+            end = Math.min( end, length );
+            if ( eq > start )
+            {
+                if ( isType( dn, start, eq, OBJ_ID ) )
+                {
+                    objId = intern( dn, eq + 1, end );
+                }
+                else if ( isType( dn, start, eq, OBJ_NAME ) )
+                {
+                    objName = intern( dn, eq + 1, end );
+                }
+                else if ( isType( dn, start, eq, OP_NAME ) )
+                {
+                    opName = intern( dn, eq + 1, end );
+                }
+            }
+            start = end + 1;
+        }
+    }
+
+
+    private static boolean isType( String dn, int start, int end, String type )
+    {
+        return end - start == type.length() && dn.regionMatches( true, start, type, 0, type.length() );
+    }
+
+
+    /**
+     * @return the value of dn between begin and end, the same instance for the same value, ignoring case.
+     */
+    private String intern( String dn, int begin, int end )
+    {
+        int length = end - begin;
+        int hash = hash( dn, begin, end );
+        int mask = values.length - 1;
+        int i = spread( hash ) & mask;
+        String value;
+        while ( ( value = values[i] ) != null )
+        {
+            if ( value.length() == length && dn.regionMatches( true, begin, value, 0, length ) )
+            {
+                return value;
+            }
+            i = ( i + 1 ) & mask;
+        }
+        value = dn.substring( begin, end );
+        if ( size >= MAX_VALUES )
+        {
+            values = new String[64];
+            size = 0;
+            mask = values.length - 1;
+            i = spread( hash ) & mask;
+        }
+        values[i] = value;
+        if ( ++size * 2 > values.length )
+        {
+            resize();
+        }
+        return value;
+    }
+
+
+    private void resize()
+    {
+        String[] old = values;
+        values = new String[old.length * 2];
+        int mask = values.length - 1;
+        for ( String value : old )
+        {
+            if ( value != null )
+            {
+                int i = spread( hash( value, 0, value.length() ) ) & mask;
+                while ( values[i] != null )
+                {
+                    i = ( i + 1 ) & mask;
+                }
+                values[i] = value;
+            }
+        }
+    }
+
+
+    /**
+     * @return hash of the value of s between begin and end, the same for values that differ only in case.
+     */
+    private static int hash( String s, int begin, int end )
+    {
+        int hash = 0;
+        for ( int i = begin; i < end; i++ )
+        {
+            hash = 31 * hash + Character.toLowerCase( Character.toUpperCase( s.charAt( i ) ) );
+        }
+        return hash;
+    }
+
+
+    private static int spread( int hash )
+    {
+        return hash ^ ( hash >>> 16 );
+    }
+}
@@ -0,0 +1,424 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+package org.apache.directory.fortress.web.control;
+
+import org.apache.directory.fortress.core.AuditMgr;
+import org.apache.directory.fortress.core.SecurityException;
+import org.apache.directory.fortress.core.model.AuthZ;
+import org.apache.directory.fortress.core.model.Bind;
+import org.apache.directory.fortress.core.model.UserAudit;
+import org.apache.directory.fortress.core.util.time.TUtil;
+import org.apache.directory.fortress.web.common.BoundedCache;
+import org.apache.directory.fortress.web.common.ConfigUtils;
+import org.apache.directory.fortress.web.common.GlobalIds;
+import org.apache.directory.fortress.web.common.PartitionedCache;
+import org.apache.log4j.Logger;
+
+import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Counts of authorizations and authentications, in total, per hour, per user and per permission, so the busiest and
+ * most failing users and permissions are found without exporting the audit records.
+ * <p>
+ * The audit log is read one hour at a time, so only the records of one hour are held at once, and each hour is reduced
+ * to its counts.  Hours that are over are cached, per tenant, up to audit.stats.cache.hours (default 744), so loading
+ * the dashboard again only reads the current hour.  An hour counts up to audit.stats.max.keys (default 5000) distinct
+ * users and permissions, the rest are counted as {@link #OTHER}.  Results are as shown by the audit views, see
+ * {@link AuditRecordParser}.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ * @version $Rev$
+ */
+public final class AuditStats
+{
+    private static final Logger LOG = Logger.getLogger( AuditStats.class.getName() );
+    public static final String OTHER = "(other)";
+    private static final long HOUR_MILLIS = 3600 * 1000L;
+    // records are written to the audit log a little after they start:
+    private static final long LATE_MILLIS = 60 * 1000L;
+    private static final int MAX_KEYS = Math.max( 1, ConfigUtils.getInt( "audit.stats.max.keys", 5000 ) );
+    private static final PartitionedCache<String, Hour> HOURS = new PartitionedCache<>( "auditStats", ConfigUtils
+        .getInt( "audit.stats.cache.hours", 744 ), 0 );
+    private static final Comparator<Count> BY_FAILED = new Comparator<Count>()
+    {
+        @Override
+        public int compare( Count c1, Count c2 )
+        {
+            if ( c1.failed != c2.failed )
+            {
+                return c1.failed > c2.failed ? -1 : 1;
+            }
+            if ( c1.total != c2.total )
+            {
+                return c1.total > c2.total ? -1 : 1;
+            }
+            return c1.name.compareTo( c2.name );
+        }
+    };
+
+    private final List<Hour> hours = new ArrayList<>();
+    private final Tally authZs = new Tally();
+    private final Tally binds = new Tally();
+
+
+    /**
+     * Number of records and of failures, of a user, permission or hour.
+     */
+    public static final class Count
+    {
+        private final String name;
+        private long total;
+        private long failed;
+
+        private Count( String name )
+        {
+            this.name = name;
+        }
+
+        public String getName()
+        {
+            return name;
+        }
+
+        public long getTotal()
+        {
+            return total;
+        }
+
+        public long getFailed()
+        {
+            return failed;
+        }
+
+        /**
+         * @return percent of records that failed.
+         */
+        public double getFailedPercent()
+        {
+            return total > 0 ? 100.0 * failed / total : 0;
+        }
+    }
+
+
+    /**
+     * Counts of one kind of record.
+     */
+    private static final class Tally
+    {
+        private final Count all = new Count( "" );
+        private final Map<String, Count> byUser = new HashMap<>();
+        private final Map<String, Count> byPermission = new HashMap<>();
+
+        private void add( String userId, String permission, long total, long failed )
+        {
+            all.total += total;
+            all.failed += failed;
+            if ( userId != null )
+            {
+                count( byUser, userId, total, failed );
+            }
+            if ( permission != null )
+            {
+                count( byPermission, permission, total, failed );
+            }
+        }
+
+        private void addAll( Tally tally )
+        {
+            all.total += tally.all.total;
+            all.failed += tally.all.failed;
+            for ( Count count : tally.byUser.values() )
+            {
+                count( byUser, count.name, count.total, count.failed );
+            }
+            for ( Count count : tally.byPermission.values() )
+            {
+                count( byPermission, count.name, count.total, count.failed );
+            }
+        }
+
+        private static void count( Map<String, Count> counts, String name, long total, long failed )
+        {
+            Count count = counts.get( name );
+            if ( count == null )
+            {
+                // bounds the memory held for an hour, or a range of them, whatever the number of users:
+                name = counts.size() < MAX_KEYS ? name : OTHER;
+                count = counts.get( name );
+                if ( count == null )
+                {
+                    count = new Count( name );
+                    counts.put( name, count );
+                }
+            }
+            count.total += total;
+            count.failed += failed;
+        }
+    }
+
+
+    /**
+     * Counts of the records of one hour.
+     */
+    public static final class Hour
+    {
+        private final Date start;
+        private final Tally authZs = new Tally();
+        private final Tally binds = new Tally();
+        // false if the records could not all be read:
+        private boolean isComplete = true;
+
+        private Hour( long start )
+        {
+            this.start = new Date( start );
+        }
+
+        public Date getStart()
+        {
+            return new Date( start.getTime() );
+        }
+
+        public Count getAuthZs()
+        {
+            return authZs.all;
+        }
+
+        public Count getBinds()
+        {
+            return binds.all;
+        }
+    }
+
+
+    private AuditStats()
+    {
+    }
+
+
+    /**
+     * Count the records of the last hours, up to now.
+     *
+     * @param auditMgr initialized with the admin session of caller.
+     * @param hours number of hours, including the current one.
+     * @return counts, never null.
+     */
+    public static AuditStats get( AuditMgr auditMgr, int hours )
+    {
+        long now = System.currentTimeMillis();
+        long current = now / HOUR_MILLIS * HOUR_MILLIS;
+        AuditStats stats = new AuditStats();
+        for ( long start = current - ( Math.max( 1, hours ) - 1 ) * HOUR_MILLIS; start <= current; start +=
+            HOUR_MILLIS )
+        {
+            Hour hour = getHour( auditMgr, start, now );
+            stats.hours.add( hour );
+            stats.authZs.addAll( hour.authZs );
+            stats.binds.addAll( hour.binds );
+        }
+        return stats;
+    }
+
+
+    /**
+     * @return the caches of hours that are over, one per tenant, for reporting.
+     */
+    public static List<BoundedCache<String, Hour>> getCaches()
+    {
+        return HOURS.getPartitions();
+    }
+
+
+    /**
+     * Drop the cached hours of a tenant, see {@link Tenants}.
+     *
+     * @param contextId of tenant.
+     */
+    static void evict( String contextId )
+    {
+        HOURS.remove( contextId );
+    }
+
+
+    /**
+     * @return counts of each hour, oldest first.
+     */
+    public List<Hour> getHours()
+    {
+        return Collections.unmodifiableList( hours );
+    }
+
+
+    public Count getAuthZs()
+    {
+        return authZs.all;
+    }
+
+
+    public Count getBinds()
+    {
+        return binds.all;
+    }
+
+
+    /**
+     * @param max number of users returned.
+     * @return users with the most failed authorizations, then the most authorizations.
+     */
+    public List<Count> getTopAuthZUsers( int max )
+    {
+        return top( authZs.byUser, max );
+    }
+
+
+    /**
+     * @param max number of permissions returned.
+     * @return permissions with the most failed authorizations, then the most authorizations.
+     */
+    public List<Count> getTopPermissions( int max )
+    {
+        return top( authZs.byPermission, max );
+    }
+
+
+    /**
+     * @param max number of users returned.
+     * @return users with the most failed authentications, then the most authentications.
+     */
+    public List<Count> getTopBindUsers( int max )
+    {
+        return top( binds.byUser, max );
+    }
+
+
+    private static List<Count> top( Map<String, Count> counts, int max )
+    {
+        List<Count> sorted = new ArrayList<>( counts.values() );
+        Collections.sort( sorted, BY_FAILED );
+        return sorted.size() > max ? new ArrayList<>( sorted.subList( 0, Math.max( 0, max ) ) ) : sorted;
+    }
+
+
+    private static Hour getHour( AuditMgr auditMgr, long start, long now )
+    {
+        BoundedCache<String, Hour> hours = HOURS.get( ReviewMgrCache.getContextId() );
+        String key = String.valueOf( start );
+        Hour hour = hours.get( key );
+        if ( hour == null )
+        {
+            hour = load( auditMgr, start );
+            if ( hour.isComplete && start + HOUR_MILLIS + LATE_MILLIS <= now )
+            {
+                hours.put( key, hour );
+            }
+        }
+        return hour;
+    }
+
+
+    private static Hour load( AuditMgr auditMgr, long start )
+    {
+        long begin = System.currentTimeMillis();
+        Hour hour = new Hour( start );
+        UserAudit userAudit = new UserAudit();
+        userAudit.setUserId( "" );
+        userAudit.setBeginDate( new Date( start ) );
+        userAudit.setEndDate( new Date( start + HOUR_MILLIS ) );
+        AuditRecordParser parser = new AuditRecordParser();
+        try
+        {
+            List<AuthZ> authZList = auditMgr.getUserAuthZs( userAudit );
+            if ( authZList != null )
+            {
+                for ( AuthZ authZ : authZList )
+                {
+                    // the end of the range is read by the next hour too:
+                    if ( isIn( authZ.getReqStart(), start ) )
+                    {
+                        parser.map( authZ );
+                        String permission = authZ.getReqAttr() != null ? authZ.getReqAttr() + "." + authZ
+                            .getReqAttrsOnly() : null;
+                        hour.authZs.add( authZ.getReqAuthzID(), permission, 1, GlobalIds.FAILURE.equals( authZ
+                            .getReqResult() ) ? 1 : 0 );
+                    }
+                }
+            }
+        }
+        catch ( SecurityException se )
+        {
+            String error = ".load authZs hour: " + hour.start + " caught SecurityException=" + se;
+            LOG.warn( error );
+            hour.isComplete = false;
+        }
+        try
+        {
+            List<Bind> bindList = auditMgr.searchBinds( userAudit );
+            if ( bindList != null )
+            {
+                for ( Bind bind : bindList )
+                {
+                    if ( isIn( bind.getReqStart(), start ) )
+                    {
+                        parser.map( bind );
+                        hour.binds.add( bind.getReqDN(), null, 1, GlobalIds.FAILURE.equals( bind.getReqResult() ) ?
+                            1 : 0 );
+                    }
+                }
+            }
+        }
+        catch ( SecurityException se )
+        {
+            String error = ".load binds hour: " + hour.start + " caught SecurityException=" + se;
+            LOG.warn( error );
+            hour.isComplete = false;
+        }
+        LOG.debug( ".load hour: " + hour.start + " authZs: " + hour.authZs.all.total + " binds: " + hour.binds.all
+            .total + " millis: " + ( System.currentTimeMillis() - begin ) );
+        return hour;
+    }
+
+
+    /**
+     * @return true if reqStart, as generalized time, is within the hour that begins at start.
+     */
+    private static boolean isIn( String reqStart, long start )
+    {
+        if ( reqStart == null )
+        {
+            return false;
+        }
+        try
+        {
+            long time = TUtil.decodeGeneralizedTime( reqStart ).getTime();
+            return time >= start && time < start + HOUR_MILLIS;
+        }
+        catch ( ParseException pe )
+        {
+            LOG.warn( ".isIn ParseException=" + pe.getMessage() );
+            return false;
+        }
+    }
+}
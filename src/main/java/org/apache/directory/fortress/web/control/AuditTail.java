@@ -0,0 +1,224 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+package org.apache.directory.fortress.web.control;
+
+import org.apache.commons.lang.SerializationUtils;
+import org.apache.directory.fortress.core.model.UserAudit;
+import org.apache.directory.fortress.web.common.ConfigUtils;
+import org.apache.directory.fortress.web.common.GlobalIds;
+import org.apache.log4j.Logger;
+
+import java.io.Serializable;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Live tail of an audit view.  Remembers the latest reqStart shown, the watermark, and each poll searches only the
+ * records from then on, with the criteria of the view, so the grid grows by the new records rather than being read
+ * again in full.  Records are polled every audit.tail.seconds (default 10) and the oldest rows are dropped once the
+ * grid holds more than audit.tail.max.rows (default 1000).
+ * <p>
+ * reqStart is shown to the second, so each poll reads the second of the watermark again, and the records already
+ * shown from it are skipped.
+ *
+ * @param <T> type of audit record, mapped by {@link AuditRecordParser}.
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ * @version $Rev$
+ */
+public abstract class AuditTail<T> implements Serializable
+{
+    /** Default serialVersionUID */
+    private static final long serialVersionUID = 1L;
+    private static final Logger LOG = Logger.getLogger( AuditTail.class.getName() );
+    public static final int SECONDS = Math.max( 1, ConfigUtils.getInt( "audit.tail.seconds", 10 ) );
+    public static final int MAX_ROWS = Math.max( 1, ConfigUtils.getInt( "audit.tail.max.rows", 1000 ) );
+    private Date watermark;
+    // keys of the records shown that started in the second of the watermark, with their counts:
+    private Map<String, Integer> seen = new HashMap<>();
+
+
+    /**
+     * Search the audit records that match userAudit.
+     *
+     * @param userAudit criteria of the view, with the begin date set to the watermark.
+     * @return records mapped by {@link AuditRecordParser}, null if the search failed.
+     */
+    protected abstract List<T> search( UserAudit userAudit );
+
+
+    /**
+     * @param record mapped by {@link AuditRecordParser}.
+     * @return reqStart of record, formatted as {@link GlobalIds#AUDIT_TIMESTAMP_FORMAT}.
+     */
+    protected abstract String getStart( T record );
+
+
+    /**
+     * @param record mapped by {@link AuditRecordParser}.
+     * @return value that tells apart the records of the same second.
+     */
+    protected abstract String getKey( T record );
+
+
+    /**
+     * Start the tail after the rows shown.  A view searched up to an end date is tailed from now on instead.
+     *
+     * @param userAudit criteria of the view.
+     * @param rows shown in the view.
+     */
+    public void start( UserAudit userAudit, Collection<T> rows )
+    {
+        watermark = null;
+        seen.clear();
+        if ( userAudit.getEndDate() == null )
+        {
+            advance( rows );
+        }
+        if ( watermark == null )
+        {
+            // ignore the millis, the same as the records:
+            watermark = new Date( System.currentTimeMillis() / 1000 * 1000 );
+        }
+        LOG.debug( ".start watermark: " + watermark );
+    }
+
+
+    /**
+     * Search the records started since the last poll.  The view appends them and keeps the latest {@link #MAX_ROWS}.
+     * A search that fails returns no records and leaves the watermark where it was, so the next poll reads them.
+     *
+     * @param userAudit criteria of the view, not changed.
+     * @return records not yet shown, never null.
+     */
+    public List<T> poll( UserAudit userAudit )
+    {
+        UserAudit criteria = ( UserAudit ) SerializationUtils.clone( userAudit );
+        criteria.setBeginDate( watermark );
+        criteria.setEndDate( null );
+        List<T> records = search( criteria );
+        List<T> added = new ArrayList<>();
+        if ( records == null )
+        {
+            LOG.debug( ".poll no records, watermark: " + watermark );
+            return added;
+        }
+        SimpleDateFormat formatter = new SimpleDateFormat( GlobalIds.AUDIT_TIMESTAMP_FORMAT );
+        Map<String, Integer> skipped = new HashMap<>( seen );
+        for ( T record : records )
+        {
+            String key = getKey( record );
+            Integer count = skipped.get( key );
+            if ( count != null && watermark.equals( parse( formatter, getStart( record ) ) ) )
+            {
+                // shown by an earlier poll:
+                if ( count == 1 )
+                {
+                    skipped.remove( key );
+                }
+                else
+                {
+                    skipped.put( key, count - 1 );
+                }
+                continue;
+            }
+            added.add( record );
+        }
+        advance( records );
+        if ( !added.isEmpty() )
+        {
+            LOG.debug( ".poll added: " + added.size() + " watermark: " + watermark );
+        }
+        return added;
+    }
+
+
+    /**
+     * Move the watermark to the latest start of records, and remember the records of that second.
+     */
+    private void advance( Collection<T> records )
+    {
+        if ( records == null )
+        {
+            return;
+        }
+        SimpleDateFormat formatter = new SimpleDateFormat( GlobalIds.AUDIT_TIMESTAMP_FORMAT );
+        Date latest = watermark;
+        for ( T record : records )
+        {
+            Date start = parse( formatter, getStart( record ) );
+            if ( start != null && ( latest == null || start.after( latest ) ) )
+            {
+                latest = start;
+            }
+        }
+        if ( latest == null )
+        {
+            return;
+        }
+        if ( !latest.equals( watermark ) )
+        {
+            seen.clear();
+            watermark = latest;
+        }
+        Map<String, Integer> latestSeen = new HashMap<>();
+        for ( T record : records )
+        {
+            if ( watermark.equals( parse( formatter, getStart( record ) ) ) )
+            {
+                String key = getKey( record );
+                Integer count = latestSeen.get( key );
+                latestSeen.put( key, count != null ? count + 1 : 1 );
+            }
+        }
+        // a poll that read the second of the watermark again returned all of its records:
+        for ( Map.Entry<String, Integer> entry : latestSeen.entrySet() )
+        {
+            Integer count = seen.get( entry.getKey() );
+            if ( count == null || count < entry.getValue() )
+            {
+                seen.put( entry.getKey(), entry.getValue() );
+            }
+        }
+    }
+
+
+    private static Date parse( SimpleDateFormat formatter, String start )
+    {
+        if ( start == null )
+        {
+            return null;
+        }
+        try
+        {
+            return formatter.parse( start );
+        }
+        catch ( ParseException pe )
+        {
+            // left as is by the parser, can't be placed in time:
+            return null;
+        }
+    }
+}
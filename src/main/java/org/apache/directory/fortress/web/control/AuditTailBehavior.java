@@ -0,0 +1,123 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+package org.apache.directory.fortress.web.control;
+
+import org.apache.directory.fortress.core.model.UserAudit;
+import org.apache.directory.fortress.web.model.SearchDataProvider;
+import org.apache.wicket.Component;
+import org.apache.wicket.ajax.AjaxRequestTarget;
+import org.apache.wicket.ajax.AjaxSelfUpdatingTimerBehavior;
+import org.apache.wicket.ajax.markup.html.form.AjaxCheckBox;
+import org.apache.wicket.markup.head.IHeaderResponse;
+import org.apache.wicket.model.IModel;
+import org.apache.wicket.model.Model;
+import org.apache.wicket.util.time.Duration;
+
+import java.io.Serializable;
+import java.util.List;
+
+/**
+ * Timer of the live tail of an audit grid, see {@link AuditTail}.  Added to the grid, it polls every
+ * {@link AuditTail#SECONDS} while the check box made by {@link #newCheckBox(String)} is on, and appends the new
+ * records to the data provider of the grid.  The timer is rendered with the grid, so it is not sent to the browser
+ * while the tail is off.
+ *
+ * @param <T> type of audit record, mapped by {@link AuditRecordParser}.
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ * @version $Rev$
+ */
+public class AuditTailBehavior<T extends Serializable> extends AjaxSelfUpdatingTimerBehavior
+{
+    /** Default serialVersionUID */
+    private static final long serialVersionUID = 1L;
+    private final AuditTail<T> tail;
+    private final SearchDataProvider<T> dataProvider;
+    private final IModel<UserAudit> criteria;
+    private boolean isOn;
+
+
+    /**
+     * @param tail searches the records of the view.
+     * @param dataProvider of the grid, the records shown.
+     * @param criteria of the view, read on each poll.
+     */
+    public AuditTailBehavior( AuditTail<T> tail, SearchDataProvider<T> dataProvider, IModel<UserAudit> criteria )
+    {
+        super( Duration.seconds( AuditTail.SECONDS ) );
+        this.tail = tail;
+        this.dataProvider = dataProvider;
+        this.criteria = criteria;
+    }
+
+
+    /**
+     * @param id wicket id of the check box.
+     * @return check box that turns the tail on, from the rows shown, and off.
+     */
+    public AjaxCheckBox newCheckBox( String id )
+    {
+        return new AjaxCheckBox( id, Model.of( Boolean.FALSE ) )
+        {
+            /** Default serialVersionUID */
+            private static final long serialVersionUID = 1L;
+
+
+            @Override
+            protected void onUpdate( AjaxRequestTarget target )
+            {
+                isOn = Boolean.TRUE.equals( getModelObject() );
+                if ( isOn )
+                {
+                    tail.start( criteria.getObject(), dataProvider.getAll() );
+                }
+                // the timer is rendered with the grid:
+                target.add( getComponent() );
+            }
+        };
+    }
+
+
+    @Override
+    public void renderHead( Component component, IHeaderResponse response )
+    {
+        if ( isOn )
+        {
+            super.renderHead( component, response );
+        }
+    }
+
+
+    @Override
+    protected boolean shouldTrigger()
+    {
+        return isOn && super.shouldTrigger();
+    }
+
+
+    @Override
+    protected void onPostProcessTarget( AjaxRequestTarget target )
+    {
+        List<T> records = tail.poll( criteria.getObject() );
+        if ( !records.isEmpty() )
+        {
+            dataProvider.append( records, AuditTail.MAX_ROWS );
+        }
+    }
+}
@@ -0,0 +1,527 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+package org.apache.directory.fortress.web.control;
+
+import org.apache.directory.fortress.core.SecurityException;
+import org.apache.directory.fortress.web.common.ConfigUtils;
+import org.apache.directory.fortress.web.common.PrefixIndex;
+import org.apache.log4j.Logger;
+import org.apache.wicket.core.util.lang.PropertyResolver;
+import org.apache.wicket.request.resource.AbstractResource;
+import org.apache.wicket.request.resource.ContentDisposition;
+
+import javax.servlet.http.HttpServletResponse;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * Downloads the results of a list page search as CSV or JSON.  Each row is written to the response as soon as it
+ * has been formatted, through a small buffer that is flushed every export.flush.rows rows (default 500), so a slow
+ * client simply blocks the writer.  Nothing is added to the page and no tree model is built.
+ * <p>
+ * Rows are read from the search a page at a time, see {@link Pages}, so the heap held by an export grows with the
+ * size of its largest page, export.page.size rows (default 1000) for the searches that can be split, rather than
+ * with the number of rows.  Searches fortress can only answer whole, e.g. the perm objects of an OU, are read as one
+ * page.  Names are listed first to split a search, up to export.max.rows (default 1000000) of them.
+ * <p>
+ * Columns are property expressions, the same ones the grid columns use.  Multivalued properties are joined with ';'.
+ * CSV values that start with '=', '+', '-', '@', a tab or a carriage return are prefixed with a quote, so they are
+ * not run as formulas by the spreadsheet they are opened in.
+ *
+ * @param <T> type of row.
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ * @version $Rev$
+ */
+public abstract class ExportResource<T> extends AbstractResource
+{
+    /** Default serialVersionUID */
+    private static final long serialVersionUID = 1L;
+    private static final Logger LOG = Logger.getLogger( ExportResource.class.getName() );
+    private static final int FLUSH_ROWS = Math.max( 1, ConfigUtils.getInt( "export.flush.rows", 500 ) );
+    public static final int PAGE_SIZE = Math.max( 1, ConfigUtils.getInt( "export.page.size", 1000 ) );
+    public static final int MAX_ROWS = Math.max( 1, ConfigUtils.getInt( "export.max.rows", 1000000 ) );
+    private static final char DELIMITER = ',';
+    private static final String MULTI_VALUE_DELIMITER = ";";
+    // first characters a spreadsheet reads as the start of a formula:
+    private static final String FORMULA_PREFIXES = "=+-@\t\r";
+    private final String name;
+    private final Format format;
+    private final String[] properties;
+
+    public enum Format
+    {
+        CSV( "text/csv", "csv" ),
+        JSON( "application/json", "json" );
+
+        private final String contentType;
+        private final String extension;
+
+        Format( String contentType, String extension )
+        {
+            this.contentType = contentType;
+            this.extension = extension;
+        }
+    }
+
+    /**
+     * @param name of the downloaded file, without extension.
+     * @param format of the download.
+     * @param properties expressions of the columns to write, in order.
+     */
+    public ExportResource( String name, Format format, String... properties )
+    {
+        this.name = name;
+        this.format = format;
+        this.properties = properties;
+    }
+
+    /**
+     * Prepare the search.  Called once per download, on the request thread, before the response is started.  Rows
+     * are best returned as {@link Pages}, which are read as they are written.
+     *
+     * @return rows to write, may be null.
+     * @throws SecurityException thrown by fortress when the search fails.
+     */
+    protected abstract Iterable<? extends T> load() throws SecurityException;
+
+    @Override
+    protected ResourceResponse newResourceResponse( Attributes attributes )
+    {
+        ResourceResponse response = new ResourceResponse();
+        final Iterable<? extends T> rows;
+        try
+        {
+            rows = load();
+        }
+        catch ( SecurityException se )
+        {
+            String error = ".newResourceResponse name: " + name + " caught SecurityException=" + se;
+            LOG.warn( error );
+            response.setError( HttpServletResponse.SC_FORBIDDEN, se.getMessage() );
+            return response;
+        }
+        response.setContentType( format.contentType + "; charset=UTF-8" );
+        response.setContentDisposition( ContentDisposition.ATTACHMENT );
+        response.setFileName( name + "." + format.extension );
+        response.disableCaching();
+        response.setWriteCallback( new WriteCallback()
+        {
+            @Override
+            public void writeData( Attributes attributes ) throws IOException
+            {
+                Writer writer = new BufferedWriter( new OutputStreamWriter( attributes.getResponse().getOutputStream(),
+                    StandardCharsets.UTF_8 ) );
+                long count;
+                try
+                {
+                    count = write( rows != null ? rows.iterator() : null, writer );
+                }
+                catch ( PageException pe )
+                {
+                    // the response has started, fail the download rather than end the file early:
+                    String error = ".writeData name: " + name + " caught SecurityException=" + pe.getCause();
+                    LOG.warn( error );
+                    throw new IOException( error, pe.getCause() );
+                }
+                writer.flush();
+                LOG.debug( ".writeData name: " + name + " rows: " + count );
+            }
+        } );
+        return response;
+    }
+
+    /**
+     * Write all rows to writer.
+     *
+     * @param rows may be null.
+     * @param writer destination, not closed.
+     * @return number of rows written.
+     * @throws IOException thrown when the client goes away.
+     */
+    long write( Iterator<? extends T> rows, Writer writer ) throws IOException
+    {
+        long count = 0;
+        if ( format == Format.CSV )
+        {
+            for ( int i = 0; i < properties.length; i++ )
+            {
+                if ( i > 0 )
+                {
+                    writer.write( DELIMITER );
+                }
+                writeCsv( properties[i], writer );
+            }
+            writer.write( "\r\n" );
+        }
+        else
+        {
+            writer.write( '[' );
+        }
+        while ( rows != null && rows.hasNext() )
+        {
+            T row = rows.next();
+            if ( format == Format.CSV )
+            {
+                writeCsvRow( row, writer );
+            }
+            else
+            {
+                if ( count > 0 )
+                {
+                    writer.write( ',' );
+                }
+                writeJsonRow( row, writer );
+            }
+            if ( ++count % FLUSH_ROWS == 0 )
+            {
+                writer.flush();
+            }
+        }
+        if ( format == Format.JSON )
+        {
+            writer.write( "]\n" );
+        }
+        return count;
+    }
+
+    private void writeCsvRow( T row, Writer writer ) throws IOException
+    {
+        for ( int i = 0; i < properties.length; i++ )
+        {
+            if ( i > 0 )
+            {
+                writer.write( DELIMITER );
+            }
+            writeCsv( getValue( row, properties[i] ), writer );
+        }
+        writer.write( "\r\n" );
+    }
+
+    private void writeJsonRow( T row, Writer writer ) throws IOException
+    {
+        writer.write( '{' );
+        for ( int i = 0; i < properties.length; i++ )
+        {
+            if ( i > 0 )
+            {
+                writer.write( ',' );
+            }
+            writeJson( properties[i], writer );
+            writer.write( ':' );
+            String value = getValue( row, properties[i] );
+            if ( value == null )
+            {
+                writer.write( "null" );
+            }
+            else
+            {
+                writeJson( value, writer );
+            }
+        }
+        writer.write( '}' );
+    }
+
+    private static String getValue( Object row, String property )
+    {
+        Object value;
+        try
+        {
+            value = PropertyResolver.getValue( property, row );
+        }
+        catch ( RuntimeException re )
+        {
+            // e.g. null in the middle of a nested expression:
+            LOG.debug( ".getValue property: " + property + " caught RuntimeException=" + re );
+            value = null;
+        }
+        if ( value instanceof Collection )
+        {
+            StringBuilder sb = new StringBuilder();
+            for ( Object element : ( Collection<?> ) value )
+            {
+                if ( sb.length() > 0 )
+                {
+                    sb.append( MULTI_VALUE_DELIMITER );
+                }
+                sb.append( element );
+            }
+            return sb.toString();
+        }
+        return value != null ? value.toString() : null;
+    }
+
+    private static void writeCsv( String value, Writer writer ) throws IOException
+    {
+        if ( value == null )
+        {
+            return;
+        }
+        if ( !value.isEmpty() && FORMULA_PREFIXES.indexOf( value.charAt( 0 ) ) >= 0 )
+        {
+            // so a spreadsheet shows the value as text rather than evaluating it as a formula:
+            value = "'" + value;
+        }
+        boolean isQuoted = false;
+        for ( int i = 0; i < value.length() && !isQuoted; i++ )
+        {
+            char c = value.charAt( i );
+            isQuoted = c == DELIMITER || c == '"' || c == '\n' || c == '\r';
+        }
+        if ( !isQuoted )
+        {
+            writer.write( value );
+            return;
+        }
+        writer.write( '"' );
+        for ( int i = 0; i < value.length(); i++ )
+        {
+            char c = value.charAt( i );
+            if ( c == '"' )
+            {
+                writer.write( '"' );
+            }
+            writer.write( c );
+        }
+        writer.write( '"' );
+    }
+
+    private static void writeJson( String value, Writer writer ) throws IOException
+    {
+        writer.write( '"' );
+        for ( int i = 0; i < value.length(); i++ )
+        {
+            char c = value.charAt( i );
+            switch ( c )
+            {
+                case '"':
+                    writer.write( "\\\"" );
+                    break;
+                case '\\':
+                    writer.write( "\\\\" );
+                    break;
+                case '\n':
+                    writer.write( "\\n" );
+                    break;
+                case '\r':
+                    writer.write( "\\r" );
+                    break;
+                case '\t':
+                    writer.write( "\\t" );
+                    break;
+                default:
+                    if ( c < 0x20 )
+                    {
+                        writer.write( String.format( "\\u%04x", ( int ) c ) );
+                    }
+                    else
+                    {
+                        writer.write( c );
+                    }
+            }
+        }
+        writer.write( '"' );
+    }
+
+
+    /**
+     * Rows of a search read one page at a time, as the export is written.  Only the current page is held.
+     *
+     * @param <T> type of row.
+     */
+    public abstract static class Pages<T> implements Iterable<T>
+    {
+        /**
+         * Read the next page.  Called on the request thread, while the response is written.
+         *
+         * @return rows of the page, empty if it has none, null once there are no more pages.
+         * @throws SecurityException thrown by fortress when the search fails.
+         */
+        protected abstract List<? extends T> next() throws SecurityException;
+
+        @Override
+        public Iterator<T> iterator()
+        {
+            return new Iterator<T>()
+            {
+                private Iterator<? extends T> page = Collections.<T>emptyList().iterator();
+                private boolean isDone;
+
+                @Override
+                public boolean hasNext()
+                {
+                    while ( !isDone && !page.hasNext() )
+                    {
+                        List<? extends T> rows;
+                        try
+                        {
+                            rows = Pages.this.next();
+                        }
+                        catch ( SecurityException se )
+                        {
+                            throw new PageException( se );
+                        }
+                        if ( rows == null )
+                        {
+                            isDone = true;
+                        }
+                        else
+                        {
+                            page = rows.iterator();
+                        }
+                    }
+                    return page.hasNext();
+                }
+
+                @Override
+                public T next()
+                {
+                    if ( !hasNext() )
+                    {
+                        throw new NoSuchElementException();
+                    }
+                    return page.next();
+                }
+            };
+        }
+
+        /**
+         * @param rows of the search, may be null.
+         * @return pages of one page holding rows, for searches that can't be split.
+         */
+        public static <T> Pages<T> of( final List<? extends T> rows )
+        {
+            return new Pages<T>()
+            {
+                private boolean isRead;
+
+                @Override
+                protected List<? extends T> next()
+                {
+                    if ( isRead )
+                    {
+                        return null;
+                    }
+                    isRead = true;
+                    return rows != null ? rows : Collections.<T>emptyList();
+                }
+            };
+        }
+    }
+
+    /**
+     * Rows of a search by name prefix, read one prefix at a time.  The names the search matches are listed first,
+     * and split into prefixes that each match no more than export.page.size of them, see
+     * {@link PrefixIndex#toPrefixes}.  Rows of each page are sorted by name.
+     *
+     * @param <T> type of row.
+     */
+    public abstract static class PrefixPages<T> extends Pages<T>
+    {
+        private final String base;
+        private final Set<String> prefixes;
+        private final Iterator<String> iterator;
+
+        /**
+         * @param base prefix of the search, may be empty.
+         * @param names that the search matches, e.g. as listed by a search that returns names only.
+         */
+        protected PrefixPages( String base, Collection<String> names )
+        {
+            this.base = base != null ? base.toLowerCase( Locale.ENGLISH ) : "";
+            this.prefixes = PrefixIndex.toPrefixes( names, Math.max( 1, this.base.length() ), PAGE_SIZE );
+            this.iterator = prefixes.iterator();
+        }
+
+        /**
+         * Search the rows whose name starts with prefix.
+         *
+         * @param prefix lower case.
+         * @return rows, may be null.
+         * @throws SecurityException thrown by fortress when the search fails.
+         */
+        protected abstract List<? extends T> search( String prefix ) throws SecurityException;
+
+        /**
+         * @param row returned by search.
+         * @return name the rows are split by.
+         */
+        protected abstract String getName( T row );
+
+        @Override
+        protected List<? extends T> next() throws SecurityException
+        {
+            if ( !iterator.hasNext() )
+            {
+                return null;
+            }
+            String prefix = iterator.next();
+            List<T> page = new ArrayList<>();
+            List<? extends T> rows = search( prefix );
+            if ( rows != null )
+            {
+                for ( T row : rows )
+                {
+                    String name = getName( row );
+                    // a shorter prefix also returns the rows of the longer ones, which are kept by their own page:
+                    if ( name != null && name.toLowerCase( Locale.ENGLISH ).startsWith( base ) && prefix.equals(
+                        PrefixIndex.prefixOf( name, prefixes ) ) )
+                    {
+                        page.add( row );
+                    }
+                }
+            }
+            Collections.sort( page, new Comparator<T>()
+            {
+                @Override
+                public int compare( T r1, T r2 )
+                {
+                    return getName( r1 ).compareToIgnoreCase( getName( r2 ) );
+                }
+            } );
+            return page;
+        }
+    }
+
+    /**
+     * Thrown through the row iterator when a page can't be read.
+     */
+    private static class PageException extends RuntimeException
+    {
+        /** Default serialVersionUID */
+        private static final long serialVersionUID = 1L;
+
+        private PageException( SecurityException se )
+        {
+            super( se );
+        }
+    }
+}
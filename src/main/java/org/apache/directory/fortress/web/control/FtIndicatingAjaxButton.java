@@ -73,8 +73,8 @@ public class FtIndicatingAjaxButton extends IndicatingAjaxButton
         try
         {
             WicketSession session = ( WicketSession )getSession();
-            isAuthorized = accessMgr.checkAccess( session.getSession(), perm );
-            LOG.info( "Fortress checkAccess objName: " + this.perm.getObjName() + " opName: " + this.perm.getOpName() + " userId: " + session.getSession().getUserId() + " result: " + isAuthorized);
+            isAuthorized = SecUtils.checkAccess( this, accessMgr, perm );
+            LOG.debug( "Fortress checkAccess objName: " + this.perm.getObjName() + " opName: " + this.perm.getOpName() + " userId: " + session.getSession().getUserId() + " result: " + isAuthorized);
         }
         catch(org.apache.directory.fortress.core.SecurityException se)
         {
@@ -92,8 +92,8 @@ public class FtIndicatingAjaxButton extends IndicatingAjaxButton
         {
             WicketSession session = ( WicketSession )getSession();
             Permission finePerm = new Permission(perm.getObjName(), perm.getOpName(), objectId);
-            isAuthorized = accessMgr.checkAccess( session.getSession(), finePerm );
-            LOG.info( "Fortress checkAccess objName: " + this.perm.getObjName() + " opName: " + this.perm.getOpName() + ", objId: " + finePerm.getObjId() + ", userId: " + session.getSession().getUserId() + " result: " + isAuthorized);
+            isAuthorized = SecUtils.checkAccess( this, accessMgr, finePerm );
+            LOG.debug( "Fortress checkAccess objName: " + this.perm.getObjName() + " opName: " + this.perm.getOpName() + ", objId: " + finePerm.getObjId() + ", userId: " + session.getSession().getUserId() + " result: " + isAuthorized);
         }
         catch(org.apache.directory.fortress.core.SecurityException se)
         {
@@ -0,0 +1,595 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+package org.apache.directory.fortress.web.control;
+
+import org.apache.commons.collections.CollectionUtils;
+import org.apache.commons.lang.SerializationUtils;
+import org.apache.commons.lang.StringUtils;
+import org.apache.directory.fortress.core.DelReviewMgr;
+import org.apache.directory.fortress.core.ReviewMgr;
+import org.apache.directory.fortress.core.SecurityException;
+import org.apache.directory.fortress.core.model.AdminRole;
+import org.apache.directory.fortress.core.model.Administrator;
+import org.apache.directory.fortress.core.model.FortEntity;
+import org.apache.directory.fortress.core.model.OrgUnit;
+import org.apache.directory.fortress.core.model.PermObj;
+import org.apache.directory.fortress.core.model.Role;
+import org.apache.directory.fortress.core.model.Session;
+import org.apache.directory.fortress.core.model.User;
+import org.apache.directory.fortress.core.model.UserAdminRole;
+import org.apache.directory.fortress.web.common.ConfigUtils;
+import org.apache.directory.fortress.web.common.GlobalIds;
+import org.apache.directory.fortress.web.common.PrefixIndex;
+import org.apache.directory.fortress.web.event.SaveModelEvent;
+import org.apache.log4j.Logger;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+
+/**
+ * In-memory indexes of the names admins type into the search fields, userIds, role names, perm object names and
+ * OU names, per tenant, so {@link TypeAheadField} answers each keystroke without going to the directory.
+ * <p>
+ * Indexes are built in the background when the app starts, kept up to date from the {@link SaveModelEvent}s of the
+ * detail panels and built again every index.refresh.seconds (default 900), which picks up changes made outside this
+ * app.  Each index holds up to index.max.entries names (default 100000).  Set index.enabled=false to turn it off.
+ * <p>
+ * Indexes are built without an admin session, so names are filtered by the scope of the admin they are suggested
+ * to.  An admin with activated admin roles is shown the userIds and perm objects of the OUs in the OS-U and OS-P
+ * sets of its admin roles, or their descendants, those OUs themselves and the roles within the role ranges of its
+ * admin roles.  Admin role names are not filtered.  Without admin roles, only the permission check of
+ * {@link TypeAheadField} applies.
+ * <p>
+ * A multi-tenant deployment builds the indexes of a tenant when it is first used, and refreshes those of the tenants
+ * in use, see {@link Tenants}.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ * @version $Rev$
+ */
+public final class IdIndex
+{
+    private static final Logger LOG = Logger.getLogger( IdIndex.class.getName() );
+    private static final boolean IS_ENABLED = ConfigUtils.getBoolean( "index.enabled", true );
+    private static final int MAX_ENTRIES = Math.max( 1, ConfigUtils.getInt( "index.max.entries", 100000 ) );
+    private static final long REFRESH_SECONDS = Math.max( 60, ConfigUtils.getLong( "index.refresh.seconds", 900 ) );
+    private static final ConcurrentMap<String, PrefixIndex> INDEXES = new ConcurrentHashMap<>();
+    // by key( type ), for USER_IDS and PERM_OBJS, name key to the key of its OU:
+    private static final ConcurrentMap<String, Map<String, String>> OUS = new ConcurrentHashMap<>();
+    // by key( type ), for USER_OUS and PERM_OUS, OU key to the keys of its parents:
+    private static final ConcurrentMap<String, Map<String, Set<String>>> OU_PARENTS = new ConcurrentHashMap<>();
+    // by key( ADMIN_ROLES ), admin role key to the role, which holds its OS-U, OS-P and role range:
+    private static final ConcurrentMap<String, Map<String, AdminRole>> ADMIN_ROLES = new ConcurrentHashMap<>();
+    // counts updates, so an index built while one was made is known to be stale:
+    private static final AtomicLong UPDATES = new AtomicLong();
+    private static ScheduledExecutorService scheduler;
+    private static ReviewMgr reviewMgr;
+    private static DelReviewMgr delReviewMgr;
+
+    /**
+     * The names indexed, along with the permission an admin needs to be shown them.
+     */
+    public enum Type
+    {
+        USER_IDS( GlobalIds.REVIEW_MGR, GlobalIds.FIND_USERS ),
+        ROLES( GlobalIds.REVIEW_MGR, GlobalIds.FIND_ROLES ),
+        ADMIN_ROLES( GlobalIds.DEL_REVIEW_MGR, GlobalIds.FIND_ROLES ),
+        PERM_OBJS( GlobalIds.REVIEW_MGR, "findPermObjs" ),
+        USER_OUS( GlobalIds.DEL_REVIEW_MGR, "searchOU" ),
+        PERM_OUS( GlobalIds.DEL_REVIEW_MGR, "searchOU" );
+
+        private final String objName;
+        private final String opName;
+
+        Type( String objName, String opName )
+        {
+            this.objName = objName;
+            this.opName = opName;
+        }
+
+        public String getObjName()
+        {
+            return objName;
+        }
+
+        public String getOpName()
+        {
+            return opName;
+        }
+    }
+
+    private IdIndex()
+    {
+    }
+
+    /**
+     * Build all of the indexes now, in the background, and again every index.refresh.seconds.  Called when the web
+     * app starts.
+     *
+     * @param reviewMgr used by the background thread only, on behalf of each tenant in use.
+     * @param delReviewMgr used by the background thread only, on behalf of each tenant in use.
+     */
+    public static synchronized void start( ReviewMgr reviewMgr, DelReviewMgr delReviewMgr )
+    {
+        if ( !IS_ENABLED || scheduler != null )
+        {
+            return;
+        }
+        IdIndex.reviewMgr = reviewMgr;
+        IdIndex.delReviewMgr = delReviewMgr;
+        scheduler = Executors.newSingleThreadScheduledExecutor( new ThreadFactory()
+        {
+            @Override
+            public Thread newThread( Runnable runnable )
+            {
+                Thread thread = new Thread( runnable, "fortress-id-index" );
+                thread.setDaemon( true );
+                return thread;
+            }
+        } );
+        scheduler.scheduleWithFixedDelay( new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                for ( String contextId : Tenants.getLoaded() )
+                {
+                    TenantContext.wrap( contextId, newLoader() ).run();
+                }
+            }
+        }, 0, REFRESH_SECONDS, TimeUnit.SECONDS );
+    }
+
+    /**
+     * Build all of the indexes of a tenant now, in the background.  Called when a tenant is first used.
+     *
+     * @param contextId of tenant.
+     */
+    static synchronized void refresh( String contextId )
+    {
+        if ( scheduler != null )
+        {
+            scheduler.execute( TenantContext.wrap( contextId, newLoader() ) );
+        }
+    }
+
+    /**
+     * Drop the indexes of a tenant, see {@link Tenants}.
+     *
+     * @param contextId of tenant.
+     */
+    static synchronized void evict( String contextId )
+    {
+        for ( Type type : Type.values() )
+        {
+            INDEXES.remove( contextId + ":" + type );
+            OUS.remove( contextId + ":" + type );
+            OU_PARENTS.remove( contextId + ":" + type );
+            ADMIN_ROLES.remove( contextId + ":" + type );
+        }
+    }
+
+    /**
+     * Stop the refreshes.  Called when the web app shuts down.
+     */
+    public static synchronized void shutdown()
+    {
+        if ( scheduler != null )
+        {
+            scheduler.shutdownNow();
+            scheduler = null;
+        }
+    }
+
+    /**
+     * Build all of the indexes of the tenant of the managers.  An index that cannot be built keeps its old names.
+     *
+     * @param reviewMgr initialized for the tenant.
+     * @param delReviewMgr initialized for the tenant.
+     */
+    public static void loadAll( ReviewMgr reviewMgr, DelReviewMgr delReviewMgr )
+    {
+        for ( Type type : Type.values() )
+        {
+            try
+            {
+                load( type, reviewMgr, delReviewMgr );
+            }
+            catch ( SecurityException se )
+            {
+                String error = "loadAll type: " + type + " caught SecurityException=" + se;
+                LOG.warn( error );
+            }
+            catch ( RuntimeException re )
+            {
+                String error = "loadAll type: " + type + " caught RuntimeException=" + re;
+                LOG.error( error, re );
+            }
+        }
+    }
+
+    /**
+     * Return the names of type that start with prefix and are within the scope of admin.  Answered from memory only.
+     *
+     * @param type of name.
+     * @param prefix typed so far, ignoring case.
+     * @param max number of names returned.
+     * @param admin session of caller, null if there is none.
+     * @return names in order, empty if the index is not built yet.
+     */
+    public static List<String> find( Type type, String prefix, int max, Session admin )
+    {
+        PrefixIndex index = INDEXES.get( key( type ) );
+        if ( index == null )
+        {
+            return Collections.emptyList();
+        }
+        if ( type == Type.ADMIN_ROLES || admin == null || CollectionUtils.isEmpty( admin.getAdminRoles() ) )
+        {
+            return index.find( prefix, max );
+        }
+        final Set<String> inScope = getScope( type, admin );
+        final Map<String, String> ous = OUS.get( key( type ) );
+        return index.find( prefix, max, new Predicate<String>()
+        {
+            @Override
+            public boolean test( String name )
+            {
+                if ( type == Type.USER_IDS || type == Type.PERM_OBJS )
+                {
+                    return ous != null && inScope.contains( ous.get( key( name ) ) );
+                }
+                return inScope.contains( key( name ) );
+            }
+        } );
+    }
+
+    /**
+     * Add or remove the name of an entity.  Called for every {@link SaveModelEvent}, and by code that adds entities
+     * without one.
+     *
+     * @param entity that was added, updated or deleted.
+     * @param operation performed on the entity, may be null.
+     */
+    public static void update( FortEntity entity, SaveModelEvent.Operations operation )
+    {
+        if ( operation != SaveModelEvent.Operations.ADD && operation != SaveModelEvent.Operations.DELETE )
+        {
+            // names are not changed by an update:
+            return;
+        }
+        Type type = null;
+        String name = null;
+        // the OU of a user or perm object, the parents of an OU or a copy of an admin role:
+        Object attribute = null;
+        if ( entity instanceof User )
+        {
+            type = Type.USER_IDS;
+            name = ( ( User ) entity ).getUserId();
+            attribute = key( ( ( User ) entity ).getOu() );
+        }
+        else if ( entity instanceof AdminRole )
+        {
+            type = Type.ADMIN_ROLES;
+            name = ( ( AdminRole ) entity ).getName();
+            attribute = SerializationUtils.clone( ( AdminRole ) entity );
+        }
+        else if ( entity instanceof Role )
+        {
+            type = Type.ROLES;
+            name = ( ( Role ) entity ).getName();
+        }
+        else if ( entity instanceof PermObj )
+        {
+            type = Type.PERM_OBJS;
+            name = ( ( PermObj ) entity ).getObjName();
+            attribute = key( ( ( PermObj ) entity ).getOu() );
+        }
+        else if ( entity instanceof OrgUnit )
+        {
+            OrgUnit orgUnit = ( OrgUnit ) entity;
+            type = orgUnit.getType() == OrgUnit.Type.PERM ? Type.PERM_OUS : Type.USER_OUS;
+            name = orgUnit.getName();
+            attribute = toKeys( orgUnit.getParents() );
+        }
+        if ( type != null && name != null )
+        {
+            boolean isAdd = operation == SaveModelEvent.Operations.ADD;
+            update( type, name, isAdd, isAdd ? attribute : null );
+        }
+    }
+
+    /**
+     * @param attribute of the name added, see update( entity ), null if the name was removed.
+     */
+    @SuppressWarnings("unchecked")
+    private static synchronized void update( Type type, String name, boolean isAdd, Object attribute )
+    {
+        UPDATES.incrementAndGet();
+        String key = key( type );
+        PrefixIndex index = INDEXES.get( key );
+        if ( index != null )
+        {
+            INDEXES.put( key, isAdd ? index.with( name ) : index.without( name ) );
+        }
+        // changed in place, each is read one entry at a time, and large imports make one change per user:
+        if ( OUS.containsKey( key ) )
+        {
+            put( OUS.get( key ), key( name ), ( String ) attribute );
+        }
+        else if ( OU_PARENTS.containsKey( key ) )
+        {
+            put( OU_PARENTS.get( key ), key( name ), ( Set<String> ) attribute );
+        }
+        else if ( ADMIN_ROLES.containsKey( key ) )
+        {
+            put( ADMIN_ROLES.get( key ), key( name ), ( AdminRole ) attribute );
+        }
+    }
+
+    private static <T> void put( Map<String, T> map, String key, T value )
+    {
+        if ( value != null )
+        {
+            map.put( key, value );
+        }
+        else
+        {
+            map.remove( key );
+        }
+    }
+
+    private static void load( Type type, ReviewMgr reviewMgr, DelReviewMgr delReviewMgr ) throws SecurityException
+    {
+        long updates = UPDATES.get();
+        long start = System.currentTimeMillis();
+        List<String> names = new ArrayList<>();
+        Map<String, String> ous = null;
+        Map<String, Set<String>> parents = null;
+        Map<String, AdminRole> adminRoles = null;
+        switch ( type )
+        {
+            case USER_IDS:
+                // one OU at a time, as the scope of an admin is checked by the OU of a user, which the userId only
+                // findUsers( User, int ) does not return.  Each user is reduced to its userId and OU as it arrives,
+                // and no more OUs are read once the index is full:
+                ous = new ConcurrentHashMap<>();
+                for ( OrgUnit orgUnit : delReviewMgr.search( OrgUnit.Type.USER, "" ) )
+                {
+                    if ( names.size() >= MAX_ENTRIES )
+                    {
+                        break;
+                    }
+                    for ( User user : reviewMgr.findUsers( orgUnit ) )
+                    {
+                        if ( names.size() >= MAX_ENTRIES )
+                        {
+                            break;
+                        }
+                        names.add( user.getUserId() );
+                        ous.put( key( user.getUserId() ), key( orgUnit.getName() ) );
+                    }
+                }
+                break;
+            case ROLES:
+                names = reviewMgr.findRoles( "", MAX_ENTRIES );
+                // the hierarchy the role ranges of admins are checked against:
+                RoleGraph.get( reviewMgr, null );
+                break;
+            case ADMIN_ROLES:
+                adminRoles = new ConcurrentHashMap<>();
+                for ( AdminRole adminRole : delReviewMgr.findRoles( "" ) )
+                {
+                    names.add( adminRole.getName() );
+                    adminRoles.put( key( adminRole.getName() ), adminRole );
+                }
+                break;
+            case PERM_OBJS:
+                ous = new ConcurrentHashMap<>();
+                for ( PermObj permObj : reviewMgr.findPermObjs( new PermObj( "" ) ) )
+                {
+                    names.add( permObj.getObjName() );
+                    ous.put( key( permObj.getObjName() ), key( permObj.getOu() ) );
+                }
+                break;
+            case USER_OUS:
+            case PERM_OUS:
+                parents = new ConcurrentHashMap<>();
+                for ( OrgUnit orgUnit : delReviewMgr.search( type == Type.PERM_OUS ? OrgUnit.Type.PERM
+                    : OrgUnit.Type.USER, "" ) )
+                {
+                    names.add( orgUnit.getName() );
+                    parents.put( key( orgUnit.getName() ), toKeys( orgUnit.getParents() ) );
+                }
+                break;
+            default:
+                break;
+        }
+        PrefixIndex index = PrefixIndex.of( names );
+        synchronized ( IdIndex.class )
+        {
+            // an index changed while this one was read keeps its names until the next refresh, one of a tenant
+            // evicted meanwhile is dropped:
+            if ( Tenants.isLoaded( ReviewMgrCache.getContextId() ) && ( updates == UPDATES.get() || !INDEXES
+                .containsKey( key( type ) ) ) )
+            {
+                INDEXES.put( key( type ), index );
+                if ( ous != null )
+                {
+                    OUS.put( key( type ), ous );
+                }
+                if ( parents != null )
+                {
+                    OU_PARENTS.put( key( type ), parents );
+                }
+                if ( adminRoles != null )
+                {
+                    ADMIN_ROLES.put( key( type ), adminRoles );
+                }
+            }
+        }
+        LOG.info( "id index: " + type + " names: " + index.size() + " millis: " + ( System.currentTimeMillis()
+            - start ) );
+    }
+
+    private static Runnable newLoader()
+    {
+        return new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                loadAll( reviewMgr, delReviewMgr );
+            }
+        };
+    }
+
+    /**
+     * Return the keys of the names of type within the scope of admin: the OUs of its OS-U or OS-P sets and their
+     * descendants, or the roles within its role ranges.
+     */
+    private static Set<String> getScope( Type type, Session admin )
+    {
+        Map<String, AdminRole> adminRoles = ADMIN_ROLES.get( key( Type.ADMIN_ROLES ) );
+        boolean isUser = type == Type.USER_IDS || type == Type.USER_OUS;
+        Set<String> scope = new HashSet<>();
+        RoleGraph graph = RoleGraph.peek( false, null );
+        for ( UserAdminRole userAdminRole : admin.getAdminRoles() )
+        {
+            // the admin role as loaded holds its OUs and range, the one in the session may not:
+            Administrator adminRole = adminRoles != null && adminRoles.containsKey( key( userAdminRole.getName() ) )
+                ? adminRoles.get( key( userAdminRole.getName() ) ) : userAdminRole;
+            if ( type == Type.ROLES )
+            {
+                addRange( adminRole, graph, scope );
+            }
+            else
+            {
+                scope.addAll( toKeys( isUser ? adminRole.getOsUSet() : adminRole.getOsPSet() ) );
+            }
+        }
+        if ( type != Type.ROLES )
+        {
+            addDescendants( OU_PARENTS.get( key( isUser ? Type.USER_OUS : Type.PERM_OUS ) ), scope );
+        }
+        return scope;
+    }
+
+    /**
+     * Add the keys of the roles that inherit from the begin of the range and that the end of the range inherits
+     * from, and the begin and end themselves if inclusive.
+     */
+    private static void addRange( Administrator range, RoleGraph graph, Set<String> scope )
+    {
+        if ( StringUtils.isEmpty( range.getBeginRange() ) || StringUtils.isEmpty( range.getEndRange() ) )
+        {
+            return;
+        }
+        if ( range.isBeginInclusive() )
+        {
+            scope.add( key( range.getBeginRange() ) );
+        }
+        if ( range.isEndInclusive() )
+        {
+            scope.add( key( range.getEndRange() ) );
+        }
+        if ( graph != null )
+        {
+            Set<String> below = toKeys( graph.getAncestors( range.getEndRange() ) );
+            for ( String name : graph.getDescendants( range.getBeginRange() ) )
+            {
+                if ( below.contains( key( name ) ) && !key( name ).equals( key( range.getEndRange() ) ) )
+                {
+                    scope.add( key( name ) );
+                }
+            }
+        }
+    }
+
+    /**
+     * Add the OUs that have an OU of scope among their ancestors.
+     */
+    private static void addDescendants( Map<String, Set<String>> parents, Set<String> scope )
+    {
+        if ( parents == null || scope.isEmpty() )
+        {
+            return;
+        }
+        Set<String> found = new HashSet<>();
+        for ( String ou : parents.keySet() )
+        {
+            Set<String> visited = new HashSet<>();
+            Deque<String> queue = new ArrayDeque<>( parents.get( ou ) );
+            while ( !queue.isEmpty() )
+            {
+                String parent = queue.poll();
+                if ( scope.contains( parent ) )
+                {
+                    found.add( ou );
+                    break;
+                }
+                // an OU hierarchy with a cycle does not stop the walk:
+                if ( visited.add( parent ) && parents.containsKey( parent ) )
+                {
+                    queue.addAll( parents.get( parent ) );
+                }
+            }
+        }
+        scope.addAll( found );
+    }
+
+    private static Set<String> toKeys( Collection<String> names )
+    {
+        Set<String> keys = new HashSet<>();
+        if ( names != null )
+        {
+            for ( String name : names )
+            {
+                keys.add( key( name ) );
+            }
+        }
+        return keys;
+    }
+
+    private static String key( String name )
+    {
+        return name != null ? name.toLowerCase( Locale.ENGLISH ) : "";
+    }
+
+    private static String key( Type type )
+    {
+        return ReviewMgrCache.getContextId() + ":" + type;
+    }
+}
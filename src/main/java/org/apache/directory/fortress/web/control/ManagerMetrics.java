@@ -0,0 +1,312 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+package org.apache.directory.fortress.web.control;
+
+import org.apache.directory.fortress.web.common.ConfigUtils;
+import org.apache.log4j.Logger;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Latency, error, result size and in flight counts of every fortress manager method called by this app, see
+ * {@link ManagerMetricsPostProcessor}, and of the Wicket requests that called them.  For each request the time spent
+ * in the managers is subtracted from the total, which leaves the time spent in Wicket, so a slow page can be told
+ * apart from a slow directory.
+ * <p>
+ * Each method is registered with the platform MBean server under
+ * org.apache.directory.fortress.web:type=ManagerMetrics, unless metrics.jmx.enabled=false.  Calls slower than
+ * metrics.slow.millis (default 2000) are logged.  Set metrics.enabled=false to turn it all off.
+ * <p>
+ * The requests and calls are also counted per tenant, see {@link TenantContext}, registered under
+ * org.apache.directory.fortress.web:type=TenantMetrics.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ * @version $Rev$
+ */
+public final class ManagerMetrics
+{
+    private static final Logger LOG = Logger.getLogger( ManagerMetrics.class.getName() );
+    private static final boolean IS_ENABLED = ConfigUtils.getBoolean( "metrics.enabled", true );
+    private static final boolean IS_JMX_ENABLED = ConfigUtils.getBoolean( "metrics.jmx.enabled", true );
+    private static final long SLOW_MILLIS = ConfigUtils.getLong( "metrics.slow.millis", 2000 );
+    private static final String DOMAIN = "org.apache.directory.fortress.web";
+    static final String WICKET = "wicket";
+    private static final ConcurrentMap<String, MethodMetrics> METRICS = new ConcurrentHashMap<>();
+    private static final ConcurrentMap<String, TenantMetrics> TENANTS = new ConcurrentHashMap<>();
+    // timings of the request on this thread, null outside of a request:
+    private static final ThreadLocal<long[]> REQUEST_NANOS = new ThreadLocal<>();
+    private static final Comparator<MethodMetrics> BY_NAME = new Comparator<MethodMetrics>()
+    {
+        @Override
+        public int compare( MethodMetrics m1, MethodMetrics m2 )
+        {
+            int result = m1.getManager().compareTo( m2.getManager() );
+            return result != 0 ? result : m1.getMethod().compareTo( m2.getMethod() );
+        }
+    };
+
+    private ManagerMetrics()
+    {
+    }
+
+    /**
+     * @return true unless metrics.enabled=false.
+     */
+    public static boolean isEnabled()
+    {
+        return IS_ENABLED;
+    }
+
+    /**
+     * Return the counts of a method, creating and registering them on first use.
+     *
+     * @param manager name of the Spring bean, e.g. reviewMgr.
+     * @param method name of the method.
+     * @return counts, never null.
+     */
+    public static MethodMetrics get( String manager, String method )
+    {
+        String key = manager + "." + method;
+        MethodMetrics metrics = METRICS.get( key );
+        if ( metrics == null )
+        {
+            MethodMetrics created = new MethodMetrics( manager, method );
+            metrics = METRICS.putIfAbsent( key, created );
+            if ( metrics == null )
+            {
+                metrics = created;
+                register( metrics, getProperties( metrics ) );
+            }
+        }
+        return metrics;
+    }
+
+    /**
+     * Return the counts of a tenant, creating and registering them on first use.
+     *
+     * @param contextId of tenant.
+     * @return counts, never null.
+     */
+    public static TenantMetrics getTenant( String contextId )
+    {
+        TenantMetrics metrics = TENANTS.get( contextId );
+        if ( metrics == null )
+        {
+            TenantMetrics created = new TenantMetrics( contextId );
+            metrics = TENANTS.putIfAbsent( contextId, created );
+            if ( metrics == null )
+            {
+                metrics = created;
+                if ( IS_ENABLED )
+                {
+                    register( metrics, "type=TenantMetrics,contextId=" + ObjectName.quote( contextId ) );
+                }
+            }
+        }
+        return metrics;
+    }
+
+    /**
+     * Record a finished call to a manager.
+     *
+     * @param metrics of the method, begun before the call.
+     * @param nanos time taken.
+     * @param resultSize number of entities returned, negative if none.
+     * @param isError true if the method threw.
+     */
+    static void end( MethodMetrics metrics, long nanos, int resultSize, boolean isError )
+    {
+        metrics.end( nanos, resultSize, isError );
+        getTenant( TenantContext.get() ).call( nanos, isError );
+        long[] request = REQUEST_NANOS.get();
+        if ( request != null )
+        {
+            request[0] += nanos;
+        }
+        if ( SLOW_MILLIS > 0 && nanos / 1000000 >= SLOW_MILLIS )
+        {
+            LOG.warn( "slow call: " + metrics.getManager() + "." + metrics.getMethod() + " millis: " + nanos / 1000000
+                + " results: " + resultSize + " error: " + isError );
+        }
+    }
+
+    /**
+     * Start timing the request on this thread.
+     */
+    public static void beginRequest()
+    {
+        if ( IS_ENABLED )
+        {
+            // nanos in the managers, start, 1 if failed:
+            REQUEST_NANOS.set( new long[]{ 0, System.nanoTime(), 0 } );
+            get( WICKET, "request" ).begin();
+        }
+    }
+
+    /**
+     * Mark the request on this thread as failed.
+     */
+    public static void failRequest()
+    {
+        long[] request = REQUEST_NANOS.get();
+        if ( request != null )
+        {
+            request[2] = 1;
+        }
+    }
+
+    /**
+     * Record the request on this thread, as a whole and without the time taken by the managers.
+     */
+    public static void endRequest()
+    {
+        long[] request = REQUEST_NANOS.get();
+        if ( request == null )
+        {
+            return;
+        }
+        REQUEST_NANOS.remove();
+        long nanos = System.nanoTime() - request[1];
+        boolean isError = request[2] != 0;
+        get( WICKET, "request" ).end( nanos, -1, isError );
+        getTenant( TenantContext.get() ).request( nanos, isError );
+        MethodMetrics withoutManagers = get( WICKET, "withoutManagers" );
+        withoutManagers.begin();
+        withoutManagers.end( Math.max( 0, nanos - request[0] ), -1, isError );
+    }
+
+    /**
+     * @return counts of every method called so far, sorted by manager and method.
+     */
+    public static List<MethodMetrics> getAll()
+    {
+        List<MethodMetrics> all = new ArrayList<>( METRICS.values() );
+        Collections.sort( all, BY_NAME );
+        return all;
+    }
+
+    /**
+     * @return counts of every tenant served so far, sorted by contextId.
+     */
+    public static List<TenantMetrics> getTenants()
+    {
+        List<TenantMetrics> all = new ArrayList<>( TENANTS.values() );
+        Collections.sort( all, new Comparator<TenantMetrics>()
+        {
+            @Override
+            public int compare( TenantMetrics t1, TenantMetrics t2 )
+            {
+                return t1.getContextId().compareTo( t2.getContextId() );
+            }
+        } );
+        return all;
+    }
+
+    /**
+     * Zero all counts, except for the calls in flight.
+     */
+    public static void reset()
+    {
+        for ( MethodMetrics metrics : METRICS.values() )
+        {
+            metrics.reset();
+        }
+        for ( TenantMetrics metrics : TENANTS.values() )
+        {
+            metrics.reset();
+        }
+    }
+
+    /**
+     * Remove the MBeans.  Called when the web app shuts down.
+     */
+    public static void shutdown()
+    {
+        if ( !IS_JMX_ENABLED )
+        {
+            return;
+        }
+        List<String> names = new ArrayList<>();
+        for ( MethodMetrics metrics : METRICS.values() )
+        {
+            names.add( getProperties( metrics ) );
+        }
+        for ( String contextId : TENANTS.keySet() )
+        {
+            names.add( "type=TenantMetrics,contextId=" + ObjectName.quote( contextId ) );
+        }
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        for ( String properties : names )
+        {
+            try
+            {
+                ObjectName name = new ObjectName( DOMAIN + ":" + properties );
+                if ( server.isRegistered( name ) )
+                {
+                    server.unregisterMBean( name );
+                }
+            }
+            catch ( JMException je )
+            {
+                LOG.warn( "shutdown caught JMException=" + je );
+            }
+        }
+    }
+
+    private static void register( Object metrics, String properties )
+    {
+        if ( !IS_JMX_ENABLED )
+        {
+            return;
+        }
+        try
+        {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName( DOMAIN + ":" + properties );
+            // left behind by an earlier deployment of this app:
+            if ( server.isRegistered( name ) )
+            {
+                server.unregisterMBean( name );
+            }
+            server.registerMBean( metrics, name );
+        }
+        catch ( JMException je )
+        {
+            // the counts are still kept, and shown on the metrics page:
+            LOG.warn( "register " + properties + " caught JMException=" + je );
+        }
+    }
+
+    private static String getProperties( MethodMetrics metrics )
+    {
+        // the calls of all tenants are counted together, under the contextId of the deployment:
+        return "type=ManagerMetrics,contextId=" + ObjectName.quote( TenantContext.getDefault() ) + ",manager="
+            + metrics.getManager() + ",method=" + metrics.getMethod();
+    }
+}
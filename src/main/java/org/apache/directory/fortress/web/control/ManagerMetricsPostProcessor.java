@@ -0,0 +1,148 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+package org.apache.directory.fortress.web.control;
+
+import org.apache.directory.fortress.core.Manageable;
+import org.springframework.beans.BeansException;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.util.ClassUtils;
+
+import java.lang.reflect.Array;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Wraps the fortress managers created by Spring, the beans listed in beanNames, so each of their calls is counted by
+ * {@link ManagerMetrics}.  The wrapper implements the interfaces of the manager, which is how the pages and panels
+ * use them.  Declared in applicationContext.xml.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ * @version $Rev$
+ */
+public class ManagerMetricsPostProcessor implements BeanPostProcessor
+{
+    private Set<String> beanNames = new HashSet<>();
+
+
+    /**
+     * @param beanNames names of the manager beans to count the calls of.
+     */
+    public void setBeanNames( List<String> beanNames )
+    {
+        this.beanNames = new HashSet<>( beanNames );
+    }
+
+
+    @Override
+    public Object postProcessBeforeInitialization( Object bean, String beanName ) throws BeansException
+    {
+        return bean;
+    }
+
+
+    @Override
+    public Object postProcessAfterInitialization( Object bean, String beanName ) throws BeansException
+    {
+        if ( !ManagerMetrics.isEnabled() || !beanNames.contains( beanName ) )
+        {
+            return bean;
+        }
+        Class<?>[] interfaces = ClassUtils.getAllInterfacesForClass( bean.getClass() );
+        return Proxy.newProxyInstance( bean.getClass().getClassLoader(), interfaces, new Handler( beanName, bean ) );
+    }
+
+
+    private static final class Handler implements InvocationHandler
+    {
+        private final String manager;
+        private final Object target;
+
+
+        private Handler( String manager, Object target )
+        {
+            this.manager = manager;
+            this.target = target;
+        }
+
+
+        @Override
+        public Object invoke( Object proxy, Method method, Object[] args ) throws Throwable
+        {
+            // setAdmin, setContextId, equals etc, not worth counting:
+            if ( method.getDeclaringClass() == Object.class || method.getDeclaringClass() == Manageable.class )
+            {
+                return invoke( method, args );
+            }
+            MethodMetrics metrics = ManagerMetrics.get( manager, method.getName() );
+            metrics.begin();
+            long start = System.nanoTime();
+            boolean isError = true;
+            Object result = null;
+            try
+            {
+                result = invoke( method, args );
+                isError = false;
+                return result;
+            }
+            finally
+            {
+                ManagerMetrics.end( metrics, System.nanoTime() - start, sizeOf( result ), isError );
+            }
+        }
+
+
+        private Object invoke( Method method, Object[] args ) throws Throwable
+        {
+            try
+            {
+                return method.invoke( target, args );
+            }
+            catch ( InvocationTargetException ite )
+            {
+                throw ite.getCause();
+            }
+        }
+
+
+        private static int sizeOf( Object result )
+        {
+            if ( result instanceof Collection )
+            {
+                return ( ( Collection<?> ) result ).size();
+            }
+            else if ( result instanceof Map )
+            {
+                return ( ( Map<?, ?> ) result ).size();
+            }
+            else if ( result != null && result.getClass().isArray() )
+            {
+                return Array.getLength( result );
+            }
+            return -1;
+        }
+    }
+}
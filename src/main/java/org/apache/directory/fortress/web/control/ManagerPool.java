@@ -0,0 +1,273 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+package org.apache.directory.fortress.web.control;
+
+import org.apache.directory.fortress.core.Manageable;
+import org.apache.directory.fortress.core.model.Session;
+import org.apache.directory.fortress.web.common.ConfigUtils;
+import org.springframework.beans.BeansException;
+import org.springframework.beans.factory.BeanFactory;
+import org.springframework.beans.factory.BeanFactoryAware;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Queue;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Shares fortress manager instances across the panels, models and buttons of all admins, per tenant.
+ * <p>
+ * The managers injected with {@link org.apache.wicket.spring.injection.annot.SpringBean} are handles created by
+ * {@link #create}: a proxy that holds only the admin session and contextId set on it.  On each call the handle
+ * takes a manager from the pool of its tenant, or creates one from the prototype bean if the pool is empty, sets the
+ * admin session of the handle on it, makes the call and returns it to the pool.  A manager is used by one call at a
+ * time, so handles may be shared between threads.  Up to manager.pool.max.idle (default 32) managers are kept per
+ * bean and tenant.
+ * <p>
+ * A handle without a contextId set works on behalf of the tenant of the calling thread, see {@link TenantContext}.
+ * Pools not used for manager.pool.idle.seconds (default 1800) are dropped, along with their managers, so a tenant
+ * no longer in use holds on to none.
+ * <p>
+ * Declared in applicationContext.xml, the handles as prototype beans created by this one.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ * @version $Rev$
+ */
+public class ManagerPool implements BeanFactoryAware
+{
+    private static final int MAX_IDLE = Math.max( 0, ConfigUtils.getInt( "manager.pool.max.idle", 32 ) );
+    private static final long IDLE_MILLIS = Math.max( 60, ConfigUtils.getLong( "manager.pool.idle.seconds", 1800 ) )
+        * 1000;
+    private static final long SWEEP_MILLIS = 60000;
+    private final ConcurrentMap<String, Pool> pools = new ConcurrentHashMap<>();
+    private final AtomicLong nextSweep = new AtomicLong();
+    private BeanFactory beanFactory;
+
+
+    private static final class Pool
+    {
+        private final String contextId;
+        private final Queue<Manageable> idle = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger size = new AtomicInteger();
+        private volatile long lastUsed = System.currentTimeMillis();
+
+        private Pool( String contextId )
+        {
+            this.contextId = contextId;
+        }
+    }
+
+
+    @Override
+    public void setBeanFactory( BeanFactory beanFactory ) throws BeansException
+    {
+        this.beanFactory = beanFactory;
+    }
+
+
+    /**
+     * Create a handle to the managers of a prototype bean.
+     *
+     * @param type of manager, the interface used by the caller.
+     * @param beanName of the prototype bean that creates the managers.
+     * @param <T> type of manager.
+     * @return handle, cheap to create.
+     */
+    public <T extends Manageable> T create( Class<T> type, String beanName )
+    {
+        return type.cast( Proxy.newProxyInstance( type.getClassLoader(), new Class<?>[]
+            { type }, new Handle( beanName ) ) );
+    }
+
+
+    /**
+     * @return number of managers held idle, across all pools.
+     */
+    public int getIdle()
+    {
+        int idle = 0;
+        for ( Pool pool : pools.values() )
+        {
+            idle += pool.size.get();
+        }
+        return idle;
+    }
+
+
+    /**
+     * @return number of managers held idle, by contextId, the one of the prototype beans included.
+     */
+    public Map<String, Integer> getIdleByTenant()
+    {
+        Map<String, Integer> idle = new TreeMap<>();
+        for ( Pool pool : pools.values() )
+        {
+            String contextId = pool.contextId != null ? pool.contextId : TenantContext.getDefault();
+            Integer count = idle.get( contextId );
+            idle.put( contextId, ( count != null ? count : 0 ) + pool.size.get() );
+        }
+        return idle;
+    }
+
+
+    private Manageable borrow( String beanName, String contextId )
+    {
+        Pool pool = getPool( beanName, contextId );
+        long now = System.currentTimeMillis();
+        pool.lastUsed = now;
+        long sweep = nextSweep.get();
+        if ( now >= sweep && nextSweep.compareAndSet( sweep, now + SWEEP_MILLIS ) )
+        {
+            evictIdle( now );
+        }
+        Manageable manager = pool.idle.poll();
+        if ( manager != null )
+        {
+            pool.size.decrementAndGet();
+            return manager;
+        }
+        manager = ( Manageable ) beanFactory.getBean( beanName );
+        if ( contextId != null )
+        {
+            manager.setContextId( contextId );
+        }
+        return manager;
+    }
+
+
+    private void release( String beanName, String contextId, Manageable manager )
+    {
+        // an idle manager holds on to no admin:
+        manager.setAdmin( null );
+        Pool pool = getPool( beanName, contextId );
+        if ( pool.size.incrementAndGet() <= MAX_IDLE )
+        {
+            pool.idle.offer( manager );
+        }
+        else
+        {
+            pool.size.decrementAndGet();
+        }
+    }
+
+
+    private void evictIdle( long now )
+    {
+        Iterator<Pool> iterator = pools.values().iterator();
+        while ( iterator.hasNext() )
+        {
+            // a manager still borrowed from a dropped pool is released to a new one:
+            if ( now - iterator.next().lastUsed > IDLE_MILLIS )
+            {
+                iterator.remove();
+            }
+        }
+    }
+
+
+    private Pool getPool( String beanName, String contextId )
+    {
+        String key = beanName + ":" + ( contextId != null ? contextId : "" );
+        Pool pool = pools.get( key );
+        if ( pool == null )
+        {
+            Pool created = new Pool( contextId );
+            pool = pools.putIfAbsent( key, created );
+            if ( pool == null )
+            {
+                pool = created;
+            }
+        }
+        return pool;
+    }
+
+
+    private final class Handle implements InvocationHandler
+    {
+        private final String beanName;
+        private volatile Session admin;
+        // null for the contextId the prototype bean is declared with:
+        private volatile String contextId;
+
+
+        private Handle( String beanName )
+        {
+            this.beanName = beanName;
+        }
+
+
+        @Override
+        public Object invoke( Object proxy, Method method, Object[] args ) throws Throwable
+        {
+            if ( method.getDeclaringClass() == Object.class )
+            {
+                switch ( method.getName() )
+                {
+                    case "equals":
+                        return proxy == args[0];
+                    case "hashCode":
+                        return System.identityHashCode( proxy );
+                    default:
+                        return "ManagerPool handle: " + beanName;
+                }
+            }
+            if ( method.getDeclaringClass() == Manageable.class )
+            {
+                // held by the handle, and set on each manager borrowed:
+                switch ( method.getName() )
+                {
+                    case "setAdmin":
+                        admin = ( Session ) args[0];
+                        return null;
+                    case "setContextId":
+                        contextId = ( String ) args[0];
+                        return null;
+                    default:
+                        throw new UnsupportedOperationException( "ManagerPool handle: " + beanName
+                            + " does not support: " + method );
+                }
+            }
+            String tenant = contextId != null ? contextId : TenantContext.isEnabled() ? TenantContext.get() : null;
+            Manageable manager = borrow( beanName, tenant );
+            try
+            {
+                manager.setAdmin( admin );
+                return method.invoke( manager, args );
+            }
+            catch ( InvocationTargetException ite )
+            {
+                throw ite.getCause();
+            }
+            finally
+            {
+                release( beanName, tenant, manager );
+            }
+        }
+    }
+}
@@ -0,0 +1,274 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+package org.apache.directory.fortress.web.control;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Counts the calls to one method of a fortress manager: latency histogram, errors, result set sizes and calls still
+ * running.  Updated without locking, so the values read while calls complete may be off by the calls in progress.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ * @version $Rev$
+ */
+public class MethodMetrics implements MethodMetricsMXBean
+{
+    private static final long[] LIMITS_MILLIS = { 1, 2, 5, 10, 20, 50, 100, 200, 500, 1000, 2000, 5000, 10000 };
+    private final String manager;
+    private final String method;
+    private final AtomicLong calls = new AtomicLong();
+    private final AtomicLong errors = new AtomicLong();
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicLong totalNanos = new AtomicLong();
+    private final AtomicLong maxNanos = new AtomicLong();
+    private final AtomicLong sizedCalls = new AtomicLong();
+    private final AtomicLong totalResults = new AtomicLong();
+    private final AtomicLong maxResults = new AtomicLong();
+    private final AtomicLongArray histogram = new AtomicLongArray( LIMITS_MILLIS.length + 1 );
+    private volatile long since = System.currentTimeMillis();
+
+
+    MethodMetrics( String manager, String method )
+    {
+        this.manager = manager;
+        this.method = method;
+    }
+
+
+    /**
+     * Call when the method is entered.
+     */
+    public void begin()
+    {
+        inFlight.incrementAndGet();
+    }
+
+
+    /**
+     * Call when the method returns or throws, once for each {@link #begin()}.
+     *
+     * @param nanos time taken.
+     * @param resultSize number of entities returned, negative if the method does not return a collection.
+     * @param isError true if the method threw.
+     */
+    public void end( long nanos, int resultSize, boolean isError )
+    {
+        inFlight.decrementAndGet();
+        calls.incrementAndGet();
+        if ( isError )
+        {
+            errors.incrementAndGet();
+        }
+        totalNanos.addAndGet( nanos );
+        setMax( maxNanos, nanos );
+        histogram.incrementAndGet( bucket( TimeUnit.NANOSECONDS.toMillis( nanos ) ) );
+        if ( resultSize >= 0 )
+        {
+            sizedCalls.incrementAndGet();
+            totalResults.addAndGet( resultSize );
+            setMax( maxResults, resultSize );
+        }
+    }
+
+
+    @Override
+    public String getManager()
+    {
+        return manager;
+    }
+
+
+    @Override
+    public String getMethod()
+    {
+        return method;
+    }
+
+
+    @Override
+    public long getCalls()
+    {
+        return calls.get();
+    }
+
+
+    @Override
+    public long getErrors()
+    {
+        return errors.get();
+    }
+
+
+    @Override
+    public int getInFlight()
+    {
+        return inFlight.get();
+    }
+
+
+    @Override
+    public double getCallsPerSecond()
+    {
+        long millis = Math.max( 1, System.currentTimeMillis() - since );
+        return calls.get() * 1000.0 / millis;
+    }
+
+
+    @Override
+    public double getMeanMillis()
+    {
+        long count = calls.get();
+        return count > 0 ? totalNanos.get() / 1000000.0 / count : 0;
+    }
+
+
+    @Override
+    public double getMaxMillis()
+    {
+        return maxNanos.get() / 1000000.0;
+    }
+
+
+    @Override
+    public long getP50Millis()
+    {
+        return getPercentileMillis( 0.50 );
+    }
+
+
+    @Override
+    public long getP95Millis()
+    {
+        return getPercentileMillis( 0.95 );
+    }
+
+
+    @Override
+    public long getP99Millis()
+    {
+        return getPercentileMillis( 0.99 );
+    }
+
+
+    @Override
+    public double getMeanResultSize()
+    {
+        long count = sizedCalls.get();
+        return count > 0 ? ( double ) totalResults.get() / count : 0;
+    }
+
+
+    @Override
+    public long getMaxResultSize()
+    {
+        return maxResults.get();
+    }
+
+
+    @Override
+    public long[] getHistogram()
+    {
+        long[] counts = new long[histogram.length()];
+        for ( int i = 0; i < counts.length; i++ )
+        {
+            counts[i] = histogram.get( i );
+        }
+        return counts;
+    }
+
+
+    @Override
+    public long[] getBucketLimitsMillis()
+    {
+        return LIMITS_MILLIS.clone();
+    }
+
+
+    @Override
+    public void reset()
+    {
+        calls.set( 0 );
+        errors.set( 0 );
+        totalNanos.set( 0 );
+        maxNanos.set( 0 );
+        sizedCalls.set( 0 );
+        totalResults.set( 0 );
+        maxResults.set( 0 );
+        for ( int i = 0; i < histogram.length(); i++ )
+        {
+            histogram.set( i, 0 );
+        }
+        since = System.currentTimeMillis();
+    }
+
+
+    /**
+     * @param fraction of calls, e.g. 0.95.
+     * @return upper bound, in millis, of the bucket the call at fraction falls in, for the last bucket the max.
+     */
+    private long getPercentileMillis( double fraction )
+    {
+        long[] counts = getHistogram();
+        long total = 0;
+        for ( long count : counts )
+        {
+            total += count;
+        }
+        if ( total == 0 )
+        {
+            return 0;
+        }
+        long rank = ( long ) Math.ceil( total * fraction );
+        long seen = 0;
+        for ( int i = 0; i < LIMITS_MILLIS.length; i++ )
+        {
+            seen += counts[i];
+            if ( seen >= rank )
+            {
+                return LIMITS_MILLIS[i];
+            }
+        }
+        return ( long ) Math.ceil( getMaxMillis() );
+    }
+
+
+    private static int bucket( long millis )
+    {
+        int i = 0;
+        while ( i < LIMITS_MILLIS.length && millis >= LIMITS_MILLIS[i] )
+        {
+            i++;
+        }
+        return i;
+    }
+
+
+    private static void setMax( AtomicLong max, long value )
+    {
+        long current = max.get();
+        while ( value > current && !max.compareAndSet( current, value ) )
+        {
+            current = max.get();
+        }
+    }
+}
@@ -0,0 +1,175 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+package org.apache.directory.fortress.web.control;
+
+import org.apache.directory.fortress.core.model.Permission;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Immutable, hashed set of the permissions cached in the {@link WicketSession}.  Lookups are keyed by
+ * objName, opName and objId, compared without regard to case, same as {@link Permission#equals(Object)}.
+ * <p>
+ * Only the three key fields of each permission are written when the session is serialized.  The hash index is
+ * rebuilt on read.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ * @version $Rev$
+ */
+public final class PermissionIndex implements Serializable
+{
+    /** Default serialVersionUID */
+    private static final long serialVersionUID = 1L;
+    private static final PermissionIndex EMPTY = new PermissionIndex( new String[0] );
+    private static final char SEPARATOR = '\u0000';
+    private static final String NULL = "\u0001";
+
+    /** objName, opName, objId of each permission, in that order. */
+    private transient String[] fields;
+    private transient Set<String> keys;
+
+    private PermissionIndex( String[] fields )
+    {
+        this.fields = fields;
+        this.keys = buildKeys( fields );
+    }
+
+    /**
+     * Build an index over the permissions.
+     *
+     * @param permissions may be null or empty.
+     * @return index, never null.
+     */
+    public static PermissionIndex of( List<Permission> permissions )
+    {
+        if ( permissions == null || permissions.isEmpty() )
+        {
+            return EMPTY;
+        }
+        String[] fields = new String[permissions.size() * 3];
+        int i = 0;
+        for ( Permission permission : permissions )
+        {
+            fields[i++] = permission.getObjName();
+            fields[i++] = permission.getOpName();
+            fields[i++] = permission.getObjId();
+        }
+        return new PermissionIndex( fields );
+    }
+
+    /**
+     * Return true if the index contains a permission matching objName, opName and objId of the one passed in.
+     *
+     * @param permission contains the key fields.
+     * @return true if found, false otherwise.
+     */
+    public boolean contains( Permission permission )
+    {
+        return permission != null && keys.contains( key( permission.getObjName(), permission.getOpName(),
+            permission.getObjId() ) );
+    }
+
+    public boolean isEmpty()
+    {
+        return keys.isEmpty();
+    }
+
+    public int size()
+    {
+        return fields.length / 3;
+    }
+
+    /**
+     * Return the indexed permissions as new {@link Permission} objects, with only the key fields set.
+     *
+     * @return unmodifiable list of permissions.
+     */
+    public List<Permission> toList()
+    {
+        List<Permission> permissions = new ArrayList<>( size() );
+        for ( int i = 0; i < fields.length; i += 3 )
+        {
+            permissions.add( new Permission( fields[i], fields[i + 1], fields[i + 2] ) );
+        }
+        return Collections.unmodifiableList( permissions );
+    }
+
+    private static Set<String> buildKeys( String[] fields )
+    {
+        Set<String> keys = new HashSet<>( Math.max( 16, fields.length ) );
+        for ( int i = 0; i < fields.length; i += 3 )
+        {
+            keys.add( key( fields[i], fields[i + 1], fields[i + 2] ) );
+        }
+        return Collections.unmodifiableSet( keys );
+    }
+
+    /**
+     * Return the lookup key for a permission.  Also used by {@link AccessDecisionCache}.
+     */
+    static String key( String objName, String opName, String objId )
+    {
+        StringBuilder key = new StringBuilder( 64 );
+        key.append( normalize( objName ) ).append( SEPARATOR ).append( normalize( opName ) ).append( SEPARATOR )
+            .append( normalize( objId ) );
+        return key.toString();
+    }
+
+    private static String normalize( String value )
+    {
+        return value == null ? NULL : value.toLowerCase( Locale.ENGLISH );
+    }
+
+    private void writeObject( ObjectOutputStream out ) throws IOException
+    {
+        out.defaultWriteObject();
+        out.writeInt( fields.length );
+        for ( String field : fields )
+        {
+            out.writeObject( field );
+        }
+    }
+
+    private void readObject( ObjectInputStream in ) throws IOException, ClassNotFoundException
+    {
+        in.defaultReadObject();
+        int length = in.readInt();
+        if ( length < 0 || length % 3 != 0 )
+        {
+            throw new IOException( "Invalid permission index length: " + length );
+        }
+        String[] fields = new String[length];
+        for ( int i = 0; i < length; i++ )
+        {
+            fields[i] = ( String ) in.readObject();
+        }
+        this.fields = fields;
+        this.keys = buildKeys( fields );
+    }
+}
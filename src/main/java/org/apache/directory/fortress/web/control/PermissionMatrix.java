@@ -0,0 +1,811 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+package org.apache.directory.fortress.web.control;
+
+import org.apache.directory.fortress.core.ReviewMgr;
+import org.apache.directory.fortress.core.SecurityException;
+import org.apache.directory.fortress.core.model.AdminRole;
+import org.apache.directory.fortress.core.model.FortEntity;
+import org.apache.directory.fortress.core.model.PermObj;
+import org.apache.directory.fortress.core.model.Permission;
+import org.apache.directory.fortress.core.model.Role;
+import org.apache.directory.fortress.core.model.Session;
+import org.apache.directory.fortress.core.model.User;
+import org.apache.directory.fortress.core.model.UserRole;
+import org.apache.directory.fortress.web.common.ConfigUtils;
+import org.apache.directory.fortress.web.common.PrefixIndex;
+import org.apache.directory.fortress.web.event.SaveModelEvent;
+import org.apache.log4j.Logger;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-memory snapshot of the RBAC model of a tenant, the users and their assigned roles, the role hierarchy and the
+ * permissions granted to each role, so the effective permissions of any user or role are computed without going to
+ * the directory.  Each permission is a column number, the permissions of a role are a {@link BitSet} of columns,
+ * and those of a user the union of the bitsets of its assigned roles and the roles they inherit from.
+ * <p>
+ * Each admin has a snapshot of its own, holding what that admin may read, the same way {@link ReviewMgrCache} scopes
+ * its entries.  A snapshot is loaded with one search of all permissions, the {@link RoleGraph} of the admin and the
+ * users, read a page at a time.  The userIds are listed first, then the users are searched by the leading characters
+ * of their ids, no more than permission.matrix.page.size (default 1000) per search, and reduced to their assigned
+ * roles as each page arrives.  At most permission.matrix.max.users (default 50000) users and
+ * permission.matrix.max.permissions (default 10000) permissions are loaded, see {@link #isTruncated()}.
+ * <p>
+ * A snapshot is kept up to date from the {@link SaveModelEvent}s of the detail panels and bulk role assignments, and
+ * loaded again when older than permission.matrix.ttl.seconds (default 900), which picks up changes made outside
+ * this app.  Snapshots are immutable, an update replaces the snapshot, so lookups need no locking.
+ * <p>
+ * Role constraints, such as time of day or date ranges, are not applied.  The matrix shows what a user may be
+ * granted, not what a session holds at a given time.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ * @version $Rev$
+ */
+public final class PermissionMatrix
+{
+    private static final Logger LOG = Logger.getLogger( PermissionMatrix.class.getName() );
+    private static final long TTL_MILLIS = ConfigUtils.getLong( "permission.matrix.ttl.seconds", 900 ) * 1000;
+    private static final int MAX_USERS = Math.max( 1, ConfigUtils.getInt( "permission.matrix.max.users", 50000 ) );
+    private static final int MAX_PERMISSIONS = Math.max( 1, ConfigUtils.getInt( "permission.matrix.max.permissions",
+        10000 ) );
+    private static final int PAGE_SIZE = Math.max( 1, ConfigUtils.getInt( "permission.matrix.page.size", 1000 ) );
+    private static final ConcurrentMap<String, PermissionMatrix> MATRICES = new ConcurrentHashMap<>();
+    // counts updates, so a snapshot loaded while one was made is known to be stale:
+    private static final AtomicLong UPDATES = new AtomicLong();
+    private static final String[] NO_ROLES = new String[0];
+    private static final Comparator<Permission> BY_KEY = new Comparator<Permission>()
+    {
+        @Override
+        public int compare( Permission p1, Permission p2 )
+        {
+            return key( p1 ).compareTo( key( p2 ) );
+        }
+    };
+
+    // columns, a deleted permission leaves a null so the other columns keep their numbers:
+    private final Permission[] permissions;
+    private final Map<String, Integer> columns;
+    // users, sorted by lower case userId, with the keys of their assigned roles:
+    private final String[] userKeys;
+    private final String[] userIds;
+    private final String[][] userRoles;
+    // role key to the columns granted to the role itself:
+    private final Map<String, BitSet> grants;
+    // role key to the columns granted to the role and the roles it inherits from, filled in as needed:
+    private final ConcurrentMap<String, BitSet> inherited = new ConcurrentHashMap<>();
+    private final RoleGraph graph;
+    // admin that loaded the snapshot, whose graph is used:
+    private final Session admin;
+    // true if users or permissions were left out, see MAX_USERS:
+    private final boolean isTruncated;
+    private final long loaded;
+
+    private PermissionMatrix( Permission[] permissions, Map<String, Integer> columns, String[] userKeys,
+        String[] userIds, String[][] userRoles, Map<String, BitSet> grants, RoleGraph graph, Session admin,
+        boolean isTruncated, long loaded )
+    {
+        this.permissions = permissions;
+        this.columns = columns;
+        this.userKeys = userKeys;
+        this.userIds = userIds;
+        this.userRoles = userRoles;
+        this.grants = grants;
+        this.graph = graph;
+        this.admin = admin;
+        this.isTruncated = isTruncated;
+        this.loaded = loaded;
+    }
+
+    /**
+     * Return the snapshot of the admin, loading it if missing or stale.
+     *
+     * @param reviewMgr initialized with the admin session of caller.
+     * @param admin session of caller, null if there is none.
+     * @return snapshot, never null.
+     * @throws SecurityException thrown by fortress when the users, roles or permissions cannot be read.
+     */
+    public static PermissionMatrix get( ReviewMgr reviewMgr, Session admin ) throws SecurityException
+    {
+        PermissionMatrix matrix = MATRICES.get( matrixKey( admin ) );
+        if ( matrix == null || matrix.isStale() )
+        {
+            matrix = load( reviewMgr, admin );
+        }
+        return matrix;
+    }
+
+    /**
+     * Load the snapshot of the admin again, e.g. when asked to by an admin.
+     *
+     * @param reviewMgr initialized with the admin session of caller.
+     * @param admin session of caller, null if there is none.
+     * @return the new snapshot.
+     * @throws SecurityException thrown by fortress when the users, roles or permissions cannot be read.
+     */
+    public static PermissionMatrix load( ReviewMgr reviewMgr, Session admin ) throws SecurityException
+    {
+        long updates = UPDATES.get();
+        long start = System.currentTimeMillis();
+        RoleGraph graph = RoleGraph.get( reviewMgr, admin );
+        List<Permission> permissions = reviewMgr.findPermissions( new Permission( "", "" ) );
+        boolean isTruncated = permissions.size() > MAX_PERMISSIONS;
+        if ( isTruncated )
+        {
+            Collections.sort( permissions, BY_KEY );
+            permissions = permissions.subList( 0, MAX_PERMISSIONS );
+        }
+        List<String> userIds = reviewMgr.findUsers( new User( "" ), MAX_USERS + 1 );
+        if ( userIds.size() > MAX_USERS )
+        {
+            isTruncated = true;
+            userIds = userIds.subList( 0, MAX_USERS );
+        }
+        Map<String, String> ids = new TreeMap<>();
+        Map<String, String[]> roles = new HashMap<>();
+        readUsers( reviewMgr, userIds, ids, roles );
+        PermissionMatrix matrix = build( permissions, ids, roles, graph, admin, isTruncated, start );
+        synchronized ( PermissionMatrix.class )
+        {
+            // a change made while this snapshot was read may be missing from it, use it this once and load it again:
+            MATRICES.put( matrixKey( admin ), updates == UPDATES.get() ? matrix : matrix.withLoaded( 0 ) );
+        }
+        if ( isTruncated )
+        {
+            LOG.warn( "permission matrix truncated to " + MAX_USERS + " users and " + MAX_PERMISSIONS
+                + " permissions" );
+        }
+        LOG.info( "permission matrix loaded, users: " + ids.size() + " permissions: " + permissions.size()
+            + " millis: " + ( System.currentTimeMillis() - start ) );
+        return matrix;
+    }
+
+    /**
+     * Apply a change to a user, role or permission.  Called for every {@link SaveModelEvent}.
+     *
+     * @param entity that was added, updated or deleted.
+     * @param operation performed on the entity, may be null.
+     */
+    public static synchronized void update( FortEntity entity, SaveModelEvent.Operations operation )
+    {
+        if ( operation == SaveModelEvent.Operations.SEARCH || entity instanceof AdminRole || !( entity instanceof User
+            || entity instanceof Role || entity instanceof Permission || entity instanceof PermObj ) )
+        {
+            return;
+        }
+        UPDATES.incrementAndGet();
+        String prefix = ReviewMgrCache.getContextId() + ":";
+        for ( Map.Entry<String, PermissionMatrix> entry : MATRICES.entrySet() )
+        {
+            if ( entry.getKey().startsWith( prefix ) )
+            {
+                MATRICES.put( entry.getKey(), entry.getValue().with( entity, operation ) );
+            }
+        }
+    }
+
+    /**
+     * Apply a role assignment made without a {@link SaveModelEvent}, e.g. by {@link UserRoleBulk}.
+     *
+     * @param userId of user.
+     * @param roleName name of RBAC role.
+     * @param isAssign true if the role was assigned, false if deassigned.
+     */
+    public static synchronized void update( String userId, String roleName, boolean isAssign )
+    {
+        UPDATES.incrementAndGet();
+        String prefix = ReviewMgrCache.getContextId() + ":";
+        for ( Map.Entry<String, PermissionMatrix> entry : MATRICES.entrySet() )
+        {
+            PermissionMatrix matrix = entry.getValue();
+            int row = matrix.indexOfUser( userId );
+            // a user the admin of the snapshot may not read is left out:
+            if ( entry.getKey().startsWith( prefix ) && row >= 0 )
+            {
+                List<String> roleNames = new ArrayList<>( Arrays.asList( matrix.userRoles[row] ) );
+                roleNames.remove( key( roleName ) );
+                if ( isAssign )
+                {
+                    roleNames.add( roleName );
+                }
+                MATRICES.put( entry.getKey(), matrix.withUser( matrix.userIds[row], roleNames ) );
+            }
+        }
+    }
+
+    /**
+     * Drop all snapshots.
+     */
+    public static void clear()
+    {
+        MATRICES.clear();
+    }
+
+    /**
+     * Drop the snapshot of a tenant, see {@link Tenants}.
+     *
+     * @param contextId of tenant.
+     */
+    static void evict( String contextId )
+    {
+        String prefix = contextId + ":";
+        for ( String key : MATRICES.keySet() )
+        {
+            if ( key.startsWith( prefix ) )
+            {
+                MATRICES.remove( key );
+            }
+        }
+    }
+
+    /**
+     * @return time the snapshot was loaded, in millis.
+     */
+    public long getLoaded()
+    {
+        return loaded;
+    }
+
+    /**
+     * @return true if users or permissions were left out of the snapshot because there are more than
+     * permission.matrix.max.users or permission.matrix.max.permissions of them.
+     */
+    public boolean isTruncated()
+    {
+        return isTruncated;
+    }
+
+    /**
+     * @return number of users in snapshot.
+     */
+    public int getUserCount()
+    {
+        return userIds.length;
+    }
+
+    /**
+     * @param column number.
+     * @return the permission or null if it has been deleted.
+     */
+    public Permission getPermission( int column )
+    {
+        return column >= 0 && column < permissions.length ? permissions[column] : null;
+    }
+
+    /**
+     * Return the columns of the permissions with an objName that starts with objPrefix, ignoring case.
+     *
+     * @param objPrefix may be null or empty for all permissions.
+     * @return column numbers, sorted by objName, opName and objId.
+     */
+    public List<Integer> getColumns( String objPrefix )
+    {
+        String prefix = key( objPrefix );
+        List<Permission> found = new ArrayList<>();
+        for ( Permission permission : permissions )
+        {
+            if ( permission != null && key( permission.getObjName() ).startsWith( prefix ) )
+            {
+                found.add( permission );
+            }
+        }
+        Collections.sort( found, BY_KEY );
+        List<Integer> result = new ArrayList<>( found.size() );
+        for ( Permission permission : found )
+        {
+            result.add( columns.get( key( permission ) ) );
+        }
+        return result;
+    }
+
+    /**
+     * Return the userIds that start with prefix, ignoring case.
+     *
+     * @param prefix may be null or empty for all users.
+     * @return userIds, sorted.
+     */
+    public List<String> getUserIds( String prefix )
+    {
+        String key = key( prefix );
+        List<String> found = new ArrayList<>();
+        for ( int i = indexOf( userKeys, key ); i < userKeys.length && userKeys[i].startsWith( key ); i++ )
+        {
+            found.add( userIds[i] );
+        }
+        return found;
+    }
+
+    /**
+     * @param userId of user.
+     * @return names of the roles assigned to user, lower case, never null.
+     */
+    public List<String> getUserRoles( String userId )
+    {
+        int row = indexOfUser( userId );
+        return row >= 0 ? Collections.unmodifiableList( Arrays.asList( userRoles[row] ) )
+            : Collections.<String>emptyList();
+    }
+
+    /**
+     * Return the effective permissions of a user, granted to its assigned roles or the roles they inherit from.
+     *
+     * @param userId of user.
+     * @return columns of the permissions, a new set the caller may modify.
+     */
+    public BitSet getUserPermissions( String userId )
+    {
+        BitSet bits = new BitSet( permissions.length );
+        int row = indexOfUser( userId );
+        if ( row >= 0 )
+        {
+            for ( String roleKey : userRoles[row] )
+            {
+                bits.or( getInherited( roleKey ) );
+            }
+        }
+        return bits;
+    }
+
+    /**
+     * Return the effective permissions of a role, granted to it or the roles it inherits from.
+     *
+     * @param roleName name of RBAC role.
+     * @return columns of the permissions, a new set the caller may modify.
+     */
+    public BitSet getRolePermissions( String roleName )
+    {
+        return ( BitSet ) getInherited( key( roleName ) ).clone();
+    }
+
+    /**
+     * Return the role that makes a permission one of the effective permissions of roleName, either roleName itself
+     * or the nearest role it inherits from that was granted the permission.
+     *
+     * @param roleName name of RBAC role.
+     * @param column of permission.
+     * @return name of role, or null if the permission is not an effective permission of roleName.
+     */
+    public String getGrantedBy( String roleName, int column )
+    {
+        BitSet bits = grants.get( key( roleName ) );
+        if ( bits != null && bits.get( column ) )
+        {
+            return roleName;
+        }
+        if ( graph != null )
+        {
+            for ( String ancestor : graph.getAncestors( roleName ) )
+            {
+                bits = grants.get( key( ancestor ) );
+                if ( bits != null && bits.get( column ) )
+                {
+                    return ancestor;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Count the users that have each of the columns among their effective permissions.
+     *
+     * @param columnList to count.
+     * @return number of users, in the order of columnList.
+     */
+    public int[] countUsers( List<Integer> columnList )
+    {
+        int[] counts = new int[columnList.size()];
+        // users with the same roles have the same permissions, work them out once:
+        Map<List<String>, BitSet> byRoles = new HashMap<>();
+        for ( String[] roleKeys : userRoles )
+        {
+            List<String> roles = Arrays.asList( roleKeys );
+            BitSet bits = byRoles.get( roles );
+            if ( bits == null )
+            {
+                bits = new BitSet( permissions.length );
+                for ( String roleKey : roleKeys )
+                {
+                    bits.or( getInherited( roleKey ) );
+                }
+                byRoles.put( roles, bits );
+            }
+            for ( int i = 0; i < counts.length; i++ )
+            {
+                if ( bits.get( columnList.get( i ) ) )
+                {
+                    counts[i]++;
+                }
+            }
+        }
+        return counts;
+    }
+
+    private boolean isStale()
+    {
+        return System.currentTimeMillis() - loaded > TTL_MILLIS;
+    }
+
+    private BitSet getInherited( String roleKey )
+    {
+        BitSet bits = inherited.get( roleKey );
+        if ( bits == null )
+        {
+            bits = new BitSet( permissions.length );
+            BitSet granted = grants.get( roleKey );
+            if ( granted != null )
+            {
+                bits.or( granted );
+            }
+            if ( graph != null )
+            {
+                for ( String ancestor : graph.getAncestors( roleKey ) )
+                {
+                    granted = grants.get( key( ancestor ) );
+                    if ( granted != null )
+                    {
+                        bits.or( granted );
+                    }
+                }
+            }
+            BitSet existing = inherited.putIfAbsent( roleKey, bits );
+            if ( existing != null )
+            {
+                bits = existing;
+            }
+        }
+        return bits;
+    }
+
+    private int indexOfUser( String userId )
+    {
+        return userId != null ? Arrays.binarySearch( userKeys, key( userId ) ) : -1;
+    }
+
+    /**
+     * @return this snapshot with a change applied.
+     */
+    private PermissionMatrix with( FortEntity entity, SaveModelEvent.Operations operation )
+    {
+        if ( operation == null )
+        {
+            // don't know what changed, load it again on next use:
+            return withLoaded( 0 );
+        }
+        if ( entity instanceof User )
+        {
+            User user = ( User ) entity;
+            if ( indexOfUser( user.getUserId() ) < 0 )
+            {
+                // a new user, or one the admin of this snapshot may not read, load it again on next use:
+                return operation == SaveModelEvent.Operations.ADD ? withLoaded( 0 ) : this;
+            }
+            if ( operation == SaveModelEvent.Operations.DELETE )
+            {
+                return withUser( user.getUserId(), null );
+            }
+            if ( user.getRoles() != null )
+            {
+                List<String> roleNames = new ArrayList<>();
+                for ( UserRole userRole : user.getRoles() )
+                {
+                    roleNames.add( userRole.getName() );
+                }
+                return withUser( user.getUserId(), roleNames );
+            }
+        }
+        else if ( entity instanceof Role )
+        {
+            // the role graph has been updated already, the inherited permissions are worked out again as needed:
+            return withRole( ( ( Role ) entity ).getName(), operation == SaveModelEvent.Operations.DELETE );
+        }
+        else if ( entity instanceof Permission )
+        {
+            Permission permission = ( Permission ) entity;
+            if ( permission.isAdmin() )
+            {
+                return this;
+            }
+            if ( !columns.containsKey( key( permission ) ) )
+            {
+                // a new permission, or one the admin of this snapshot may not read, load it again on next use:
+                return operation == SaveModelEvent.Operations.ADD ? withLoaded( 0 ) : this;
+            }
+            if ( operation == SaveModelEvent.Operations.DELETE )
+            {
+                return withPermission( permission, null );
+            }
+            if ( permission.getRoles() != null )
+            {
+                return withPermission( permission, permission.getRoles() );
+            }
+        }
+        else if ( entity instanceof PermObj && operation == SaveModelEvent.Operations.DELETE )
+        {
+            return withoutObject( ( ( PermObj ) entity ).getObjName() );
+        }
+        return this;
+    }
+
+    private PermissionMatrix withLoaded( long time )
+    {
+        return new PermissionMatrix( permissions, columns, userKeys, userIds, userRoles, grants, graph, admin,
+            isTruncated, time );
+    }
+
+    /**
+     * @param roleNames assigned to the user, null if the user was deleted.
+     */
+    private PermissionMatrix withUser( String userId, Collection<String> roleNames )
+    {
+        int row = indexOfUser( userId );
+        if ( row >= 0 && roleNames != null )
+        {
+            // same users, only the roles of one change:
+            String[][] newRoles = userRoles.clone();
+            newRoles[row] = toKeys( roleNames );
+            return new PermissionMatrix( permissions, columns, userKeys, userIds, newRoles, grants, graph, admin,
+                isTruncated, loaded );
+        }
+        Map<String, String> ids = new TreeMap<>();
+        Map<String, String[]> roles = new HashMap<>();
+        for ( int i = 0; i < userKeys.length; i++ )
+        {
+            ids.put( userKeys[i], userIds[i] );
+            roles.put( userKeys[i], userRoles[i] );
+        }
+        String userKey = key( userId );
+        if ( roleNames == null )
+        {
+            ids.remove( userKey );
+            roles.remove( userKey );
+        }
+        else
+        {
+            ids.put( userKey, userId );
+            roles.put( userKey, toKeys( roleNames ) );
+        }
+        String[] keys = ids.keySet().toArray( new String[ids.size()] );
+        String[][] newRoles = new String[keys.length][];
+        for ( int i = 0; i < keys.length; i++ )
+        {
+            newRoles[i] = roles.get( keys[i] );
+        }
+        return new PermissionMatrix( permissions, columns, keys, ids.values().toArray( new String[ids.size()] ),
+            newRoles, grants, graph, admin, isTruncated, loaded );
+    }
+
+    private PermissionMatrix withRole( String roleName, boolean isDelete )
+    {
+        Map<String, BitSet> newGrants = grants;
+        if ( isDelete )
+        {
+            newGrants = new HashMap<>( grants );
+            newGrants.remove( key( roleName ) );
+        }
+        return new PermissionMatrix( permissions, columns, userKeys, userIds, userRoles, newGrants,
+            RoleGraph.peek( false, admin ), admin, isTruncated, loaded );
+    }
+
+    /**
+     * @param roleNames granted the permission, null if the permission was deleted.
+     */
+    private PermissionMatrix withPermission( Permission permission, Collection<String> roleNames )
+    {
+        Permission[] newPermissions = permissions;
+        Map<String, Integer> newColumns = columns;
+        Integer column = columns.get( key( permission ) );
+        if ( column == null && roleNames == null )
+        {
+            return this;
+        }
+        if ( column == null )
+        {
+            column = permissions.length;
+            newPermissions = Arrays.copyOf( permissions, permissions.length + 1 );
+            newColumns = new HashMap<>( columns );
+            newColumns.put( key( permission ), column );
+        }
+        else
+        {
+            newPermissions = permissions.clone();
+        }
+        newPermissions[column] = roleNames != null ? new Permission( permission.getObjName(), permission
+            .getOpName(), permission.getObjId() ) : null;
+        Map<String, BitSet> newGrants = new HashMap<>();
+        for ( Map.Entry<String, BitSet> entry : grants.entrySet() )
+        {
+            BitSet bits = entry.getValue();
+            if ( bits.get( column ) )
+            {
+                bits = ( BitSet ) bits.clone();
+                bits.clear( column );
+            }
+            newGrants.put( entry.getKey(), bits );
+        }
+        if ( roleNames != null )
+        {
+            for ( String roleName : roleNames )
+            {
+                BitSet bits = newGrants.get( key( roleName ) );
+                bits = bits != null ? ( BitSet ) bits.clone() : new BitSet( newPermissions.length );
+                bits.set( column );
+                newGrants.put( key( roleName ), bits );
+            }
+        }
+        return new PermissionMatrix( newPermissions, newColumns, userKeys, userIds, userRoles, newGrants, graph,
+            admin, isTruncated, loaded );
+    }
+
+    private PermissionMatrix withoutObject( String objName )
+    {
+        PermissionMatrix matrix = this;
+        for ( Permission permission : permissions )
+        {
+            if ( permission != null && key( permission.getObjName() ).equals( key( objName ) ) )
+            {
+                matrix = matrix.withPermission( permission, null );
+            }
+        }
+        return matrix;
+    }
+
+    private static PermissionMatrix build( List<Permission> permissionList, Map<String, String> ids,
+        Map<String, String[]> roles, RoleGraph graph, Session admin, boolean isTruncated, long loaded )
+    {
+        List<Permission> sorted = new ArrayList<>( permissionList );
+        Collections.sort( sorted, BY_KEY );
+        Permission[] permissions = new Permission[sorted.size()];
+        Map<String, Integer> columns = new HashMap<>();
+        Map<String, BitSet> grants = new HashMap<>();
+        for ( Permission permission : sorted )
+        {
+            String key = key( permission );
+            if ( columns.containsKey( key ) )
+            {
+                continue;
+            }
+            int column = columns.size();
+            columns.put( key, column );
+            // only the key fields are kept:
+            permissions[column] = new Permission( permission.getObjName(), permission.getOpName(), permission
+                .getObjId() );
+            if ( permission.getRoles() != null )
+            {
+                for ( String roleName : permission.getRoles() )
+                {
+                    BitSet bits = grants.get( key( roleName ) );
+                    if ( bits == null )
+                    {
+                        bits = new BitSet( sorted.size() );
+                        grants.put( key( roleName ), bits );
+                    }
+                    bits.set( column );
+                }
+            }
+        }
+        String[] userKeys = ids.keySet().toArray( new String[ids.size()] );
+        String[][] userRoles = new String[userKeys.length][];
+        for ( int i = 0; i < userKeys.length; i++ )
+        {
+            userRoles[i] = roles.get( userKeys[i] );
+        }
+        String[] userIds = ids.values().toArray( new String[ids.size()] );
+        return new PermissionMatrix( Arrays.copyOf( permissions, columns.size() ), columns, userKeys, userIds,
+            userRoles, grants, graph, admin, isTruncated, loaded );
+    }
+
+    /**
+     * Read the assigned roles of the users, one search per group of no more than PAGE_SIZE userIds that share their
+     * leading characters.  Each page is reduced to role names before the next is read.
+     *
+     * @param ids filled with the userIds, by key.
+     * @param roles filled with the keys of the assigned roles, by user key.
+     */
+    private static void readUsers( ReviewMgr reviewMgr, List<String> userIds, Map<String, String> ids,
+        Map<String, String[]> roles ) throws SecurityException
+    {
+        Set<String> wanted = new HashSet<>();
+        for ( String userId : userIds )
+        {
+            wanted.add( key( userId ) );
+        }
+        Set<String> prefixes = PrefixIndex.toPrefixes( wanted, 1, PAGE_SIZE );
+        for ( String prefix : prefixes )
+        {
+            for ( User user : reviewMgr.findUsers( new User( prefix ) ) )
+            {
+                String userKey = key( user.getUserId() );
+                // a page may hold users beyond the max, they are left out:
+                if ( wanted.contains( userKey ) )
+                {
+                    List<String> roleNames = new ArrayList<>();
+                    if ( user.getRoles() != null )
+                    {
+                        for ( UserRole userRole : user.getRoles() )
+                        {
+                            roleNames.add( userRole.getName() );
+                        }
+                    }
+                    ids.put( userKey, user.getUserId() );
+                    roles.put( userKey, toKeys( roleNames ) );
+                }
+            }
+        }
+    }
+
+    private static String[] toKeys( Collection<String> roleNames )
+    {
+        if ( roleNames.isEmpty() )
+        {
+            return NO_ROLES;
+        }
+        List<String> keys = new ArrayList<>( roleNames.size() );
+        for ( String roleName : roleNames )
+        {
+            if ( !keys.contains( key( roleName ) ) )
+            {
+                keys.add( key( roleName ) );
+            }
+        }
+        // sorted, so users with the same roles share a key in countUsers:
+        Collections.sort( keys );
+        return keys.toArray( new String[keys.size()] );
+    }
+
+    /**
+     * @return position of the first key not less than key.
+     */
+    private static int indexOf( String[] keys, String key )
+    {
+        int i = Arrays.binarySearch( keys, key );
+        return i >= 0 ? i : -i - 1;
+    }
+
+    private static String matrixKey( Session admin )
+    {
+        return ReviewMgrCache.getContextId() + ":" + ReviewMgrCache.scope( admin );
+    }
+
+    private static String key( Permission permission )
+    {
+        return PermissionIndex.key( permission.getObjName(), permission.getOpName(), permission.getObjId() );
+    }
+
+    private static String key( String name )
+    {
+        return name != null ? name.toLowerCase( Locale.ENGLISH ) : "";
+    }
+}
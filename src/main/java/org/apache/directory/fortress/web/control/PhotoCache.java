@@ -0,0 +1,425 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+package org.apache.directory.fortress.web.control;
+
+import org.apache.directory.fortress.web.common.BoundedCache;
+import org.apache.directory.fortress.web.common.ConfigUtils;
+import org.apache.log4j.Logger;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.nio.file.attribute.PosixFileAttributes;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.EnumSet;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Scales user photos down to the size they are shown at and keeps the results, so a photo is decoded and scaled once
+ * rather than sent at full size on every repaint.  Photos are keyed by a hash of their bytes, which also serves as
+ * their ETag, so a new photo gets new keys and the same photo shared by many users, e.g. the default one, is scaled
+ * once.
+ * <p>
+ * Scaled photos are kept in memory, LRU, up to photo.cache.size entries (default 256), and on disk in
+ * photo.cache.dir (default fortress-photos-&lt;user.name&gt; under java.io.tmpdir), up to photo.cache.disk.files files
+ * (default 2000, 0 turns the disk tier off).  Photos hold personal data, so the dir must be readable by the owner of
+ * the process only; it is created that way, and a dir open to others turns the disk tier off.  Photos shown at full
+ * size are not kept, only their thumbnails.  JPEG quality of the thumbnails is photo.thumbnail.quality (default
+ * 0.85).
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ * @version $Rev$
+ */
+public final class PhotoCache
+{
+    private static final Logger LOG = Logger.getLogger( PhotoCache.class.getName() );
+    private static final BoundedCache<String, Photo> CACHE = new BoundedCache<>( "photos", ConfigUtils.getInt(
+        "photo.cache.size", 256 ), 0 );
+    private static final int DISK_FILES = ConfigUtils.getInt( "photo.cache.disk.files", 2000 );
+    private static final Set<PosixFilePermission> OWNER_ONLY = EnumSet.of( PosixFilePermission.OWNER_READ,
+        PosixFilePermission.OWNER_WRITE, PosixFilePermission.OWNER_EXECUTE );
+    private static final File DISK_DIR = newDiskDir();
+    private static final float QUALITY = getQuality();
+    private static final String EXTENSION = ".jpg";
+    private static final AtomicInteger WRITES = new AtomicInteger();
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private PhotoCache()
+    {
+    }
+
+    /**
+     * A photo ready to be sent.
+     */
+    public static final class Photo
+    {
+        private final byte[] data;
+        private final String eTag;
+        private final long lastModified;
+
+        private Photo( byte[] data, String eTag, long lastModified )
+        {
+            this.data = data;
+            this.eTag = eTag;
+            this.lastModified = lastModified;
+        }
+
+        /**
+         * @return jpeg bytes, not to be modified.
+         */
+        public byte[] getData()
+        {
+            return data;
+        }
+
+        /**
+         * @return quoted entity tag, changes whenever the photo or the size does.
+         */
+        public String getETag()
+        {
+            return eTag;
+        }
+
+        /**
+         * @return time, in millis, the photo was first scaled.
+         */
+        public long getLastModified()
+        {
+            return lastModified;
+        }
+    }
+
+    /**
+     * Return the hash used to key photo.
+     *
+     * @param photo bytes as stored on the user.
+     * @return hex string.
+     */
+    public static String hash( byte[] photo )
+    {
+        try
+        {
+            MessageDigest digest = MessageDigest.getInstance( "SHA-256" );
+            byte[] bytes = digest.digest( photo );
+            char[] chars = new char[bytes.length * 2];
+            for ( int i = 0; i < bytes.length; i++ )
+            {
+                chars[i * 2] = HEX[( bytes[i] >> 4 ) & 0xf];
+                chars[i * 2 + 1] = HEX[bytes[i] & 0xf];
+            }
+            return new String( chars );
+        }
+        catch ( NoSuchAlgorithmException e )
+        {
+            // every JVM has SHA-256:
+            throw new IllegalStateException( e );
+        }
+    }
+
+    /**
+     * Return photo scaled to fit a square of size pixels.
+     *
+     * @param photo bytes as stored on the user.
+     * @param hash of photo, as returned by {@link #hash(byte[])}.
+     * @param size max width and height, 0 for the photo as is.
+     * @return scaled photo, or the photo as is if it is small enough already or cannot be decoded.
+     */
+    public static Photo get( byte[] photo, String hash, int size )
+    {
+        String key = hash + "-" + size;
+        if ( size <= 0 )
+        {
+            // sent as stored, only the thumbnails are worth the memory:
+            return new Photo( photo, "\"" + key + "\"", System.currentTimeMillis() );
+        }
+        Photo result = CACHE.get( key );
+        if ( result == null )
+        {
+            byte[] data = readDisk( key );
+            if ( data == null )
+            {
+                data = scale( photo, size );
+                if ( data != photo )
+                {
+                    writeDisk( key, data );
+                }
+            }
+            result = new Photo( data, "\"" + key + "\"", System.currentTimeMillis() );
+            CACHE.put( key, result );
+        }
+        return result;
+    }
+
+    /**
+     * @return the memory tier, for reporting.
+     */
+    public static BoundedCache<String, Photo> getCache()
+    {
+        return CACHE;
+    }
+
+    static byte[] scale( byte[] photo, int size )
+    {
+        try
+        {
+            BufferedImage image = ImageIO.read( new ByteArrayInputStream( photo ) );
+            if ( image == null || ( image.getWidth() <= size && image.getHeight() <= size ) )
+            {
+                return photo;
+            }
+            double ratio = Math.min( ( double ) size / image.getWidth(), ( double ) size / image.getHeight() );
+            int width = Math.max( 1, ( int ) Math.round( image.getWidth() * ratio ) );
+            int height = Math.max( 1, ( int ) Math.round( image.getHeight() * ratio ) );
+            // halve in steps, bilinear alone drops too many pixels on large reductions:
+            while ( image.getWidth() / 2 >= width && image.getHeight() / 2 >= height )
+            {
+                image = draw( image, image.getWidth() / 2, image.getHeight() / 2 );
+            }
+            return write( draw( image, width, height ) );
+        }
+        catch ( IOException | RuntimeException e )
+        {
+            String error = "scale caught " + e.getClass().getSimpleName() + "=" + e;
+            LOG.warn( error );
+            return photo;
+        }
+    }
+
+    private static BufferedImage draw( BufferedImage image, int width, int height )
+    {
+        BufferedImage scaled = new BufferedImage( width, height, BufferedImage.TYPE_INT_RGB );
+        Graphics2D graphics = scaled.createGraphics();
+        try
+        {
+            graphics.setRenderingHint( RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR );
+            graphics.setRenderingHint( RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY );
+            graphics.drawImage( image, 0, 0, width, height, null );
+        }
+        finally
+        {
+            graphics.dispose();
+        }
+        return scaled;
+    }
+
+    private static byte[] write( BufferedImage image ) throws IOException
+    {
+        Iterator<ImageWriter> writers = ImageIO.getImageWritersByFormatName( "jpeg" );
+        if ( !writers.hasNext() )
+        {
+            throw new IOException( "No jpeg writer" );
+        }
+        ImageWriter writer = writers.next();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try ( ImageOutputStream ios = ImageIO.createImageOutputStream( out ) )
+        {
+            writer.setOutput( ios );
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            param.setCompressionMode( ImageWriteParam.MODE_EXPLICIT );
+            param.setCompressionQuality( QUALITY );
+            writer.write( null, new IIOImage( image, null, null ), param );
+        }
+        finally
+        {
+            writer.dispose();
+        }
+        return out.toByteArray();
+    }
+
+    private static byte[] readDisk( String key )
+    {
+        if ( DISK_DIR == null )
+        {
+            return null;
+        }
+        File file = new File( DISK_DIR, key + EXTENSION );
+        try
+        {
+            return file.isFile() ? Files.readAllBytes( file.toPath() ) : null;
+        }
+        catch ( IOException ioe )
+        {
+            LOG.debug( "readDisk file: " + file + " caught IOException=" + ioe );
+            return null;
+        }
+    }
+
+    private static void writeDisk( String key, byte[] data )
+    {
+        if ( DISK_DIR == null )
+        {
+            return;
+        }
+        File file = new File( DISK_DIR, key + EXTENSION );
+        try
+        {
+            // written under a temporary name, readable by the owner only, and moved, so readers never see part of a
+            // file:
+            Path tmp = Files.createTempFile( DISK_DIR.toPath(), key, ".tmp" );
+            Files.write( tmp, data );
+            Files.move( tmp, file.toPath(), StandardCopyOption.REPLACE_EXISTING );
+        }
+        catch ( IOException ioe )
+        {
+            String error = "writeDisk file: " + file + " caught IOException=" + ioe;
+            LOG.warn( error );
+            return;
+        }
+        if ( WRITES.incrementAndGet() % 100 == 0 )
+        {
+            trimDisk();
+        }
+    }
+
+    /**
+     * Delete the least recently written files over the limit.
+     */
+    private static void trimDisk()
+    {
+        File[] files = DISK_DIR.listFiles();
+        if ( files == null || files.length <= DISK_FILES )
+        {
+            return;
+        }
+        Arrays.sort( files, new Comparator<File>()
+        {
+            @Override
+            public int compare( File f1, File f2 )
+            {
+                return Long.compare( f1.lastModified(), f2.lastModified() );
+            }
+        } );
+        for ( int i = 0; i < files.length - DISK_FILES; i++ )
+        {
+            if ( !files[i].delete() )
+            {
+                LOG.debug( "trimDisk could not delete file: " + files[i] );
+            }
+        }
+    }
+
+    private static File newDiskDir()
+    {
+        if ( DISK_FILES <= 0 )
+        {
+            return null;
+        }
+        String dirName = ConfigUtils.getProperty( "photo.cache.dir" );
+        // one dir per user, so it can be owner only:
+        Path dir = dirName != null ? Paths.get( dirName ) : Paths.get( System.getProperty( "java.io.tmpdir" ),
+            "fortress-photos-" + System.getProperty( "user.name" ) );
+        try
+        {
+            if ( !Files.exists( dir, LinkOption.NOFOLLOW_LINKS ) )
+            {
+                Path parent = dir.toAbsolutePath().getParent();
+                if ( parent != null )
+                {
+                    Files.createDirectories( parent );
+                }
+                if ( dir.getFileSystem().supportedFileAttributeViews().contains( "posix" ) )
+                {
+                    Files.createDirectory( dir, PosixFilePermissions.asFileAttribute( OWNER_ONLY ) );
+                }
+                else
+                {
+                    Files.createDirectory( dir );
+                }
+            }
+        }
+        catch ( IOException ioe )
+        {
+            LOG.warn( "photo cache dir: " + dir + " caught IOException=" + ioe + ", photos are cached in memory only" );
+            return null;
+        }
+        if ( !isPrivate( dir ) )
+        {
+            LOG.warn( "photo cache dir: " + dir + " is not a dir readable by " + System.getProperty( "user.name" )
+                + " only, photos are cached in memory only" );
+            return null;
+        }
+        return dir.toFile();
+    }
+
+    /**
+     * @return true if dir is a real dir, not a link, owned by the user running the process and closed to others.
+     */
+    private static boolean isPrivate( Path dir )
+    {
+        if ( !Files.isDirectory( dir, LinkOption.NOFOLLOW_LINKS ) )
+        {
+            return false;
+        }
+        PosixFileAttributeView view = Files.getFileAttributeView( dir, PosixFileAttributeView.class,
+            LinkOption.NOFOLLOW_LINKS );
+        if ( view == null )
+        {
+            // not a posix file system, e.g. windows, where the temp dir is per user already:
+            return true;
+        }
+        try
+        {
+            PosixFileAttributes attributes = view.readAttributes();
+            return attributes.owner().getName().equals( System.getProperty( "user.name" ) ) && OWNER_ONLY
+                .containsAll( attributes.permissions() );
+        }
+        catch ( IOException ioe )
+        {
+            LOG.debug( "isPrivate dir: " + dir + " caught IOException=" + ioe );
+            return false;
+        }
+    }
+
+    private static float getQuality()
+    {
+        String value = ConfigUtils.getProperty( "photo.thumbnail.quality" );
+        try
+        {
+            return value != null ? Math.max( 0.1f, Math.min( 1.0f, Float.parseFloat( value.trim() ) ) ) : 0.85f;
+        }
+        catch ( NumberFormatException nfe )
+        {
+            LOG.warn( "photo.thumbnail.quality: " + value + " is not a number, using 0.85" );
+            return 0.85f;
+        }
+    }
+}
@@ -0,0 +1,355 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+package org.apache.directory.fortress.web.control;
+
+import org.apache.directory.fortress.core.ReviewMgr;
+import org.apache.directory.fortress.core.SecurityException;
+import org.apache.directory.fortress.core.model.FortEntity;
+import org.apache.directory.fortress.core.model.PermObj;
+import org.apache.directory.fortress.core.model.Permission;
+import org.apache.directory.fortress.core.model.Role;
+import org.apache.directory.fortress.core.model.Session;
+import org.apache.directory.fortress.core.model.User;
+import org.apache.directory.fortress.core.model.UserAdminRole;
+import org.apache.directory.fortress.web.common.BoundedCache;
+import org.apache.directory.fortress.web.common.ConfigUtils;
+import org.apache.directory.fortress.web.common.PartitionedCache;
+import org.apache.directory.fortress.web.event.SaveModelEvent;
+import org.apache.directory.fortress.web.model.RoleRow;
+import org.apache.directory.fortress.web.model.UserRow;
+import org.apache.log4j.Logger;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.function.Predicate;
+
+/**
+ * Application wide, read-through cache for the {@link ReviewMgr} lookups that panels repeat for the same keys, e.g.
+ * the acting user of audit records, the permission of an authorization search or the roles of a role search.
+ * <p>
+ * Each tenant, see {@link TenantContext}, has caches of its own.  Each cache is LRU, bounded by review.cache.size
+ * entries (default 1000) per tenant and review.cache.ttl.seconds (default 300).  Set review.cache.enabled=false to
+ * turn it off.
+ * Entries are keyed by the admin session of the caller, its userId and activated admin roles, as well, since what an
+ * admin may read is checked by fortress against that session.  One admin never gets entries another admin read.
+ * Entries are dropped when a detail panel broadcasts a {@link SaveModelEvent} for the entity.  Only immutable rows,
+ * {@link UserRow}, {@link RoleRow} and permission dns, are cached so they are handed out without copying.  Detail
+ * panels, which edit what they read, read the full entity from fortress instead.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ * @version $Rev$
+ */
+public final class ReviewMgrCache
+{
+    private static final Logger LOG = Logger.getLogger( ReviewMgrCache.class.getName() );
+    private static final boolean IS_ENABLED = ConfigUtils.getBoolean( "review.cache.enabled", true );
+    private static final int MAX_SIZE = ConfigUtils.getInt( "review.cache.size", 1000 );
+    private static final long TTL_SECONDS = ConfigUtils.getLong( "review.cache.ttl.seconds", 300 );
+    private static final PartitionedCache<String, UserRow> USERS = new PartitionedCache<>( "users", MAX_SIZE,
+        TTL_SECONDS );
+    private static final PartitionedCache<String, UserRow> INTERNAL_IDS = new PartitionedCache<>( "internalIds",
+        MAX_SIZE, TTL_SECONDS );
+    private static final PartitionedCache<String, String> PERMISSIONS = new PartitionedCache<>( "permissions",
+        MAX_SIZE, TTL_SECONDS );
+    private static final PartitionedCache<String, List<RoleRow>> ROLE_SEARCHES = new PartitionedCache<>(
+        "roleSearches", MAX_SIZE, TTL_SECONDS );
+    private static final List<PartitionedCache<String, ?>> CACHES = Collections.unmodifiableList( Arrays
+        .<PartitionedCache<String, ?>>asList( USERS, INTERNAL_IDS, PERMISSIONS, ROLE_SEARCHES ) );
+
+    private ReviewMgrCache()
+    {
+    }
+
+    /**
+     * Read-through wrapper for {@link ReviewMgr#readUser(User)}.
+     *
+     * @param reviewMgr initialized with the admin session of caller.
+     * @param admin session of caller, null if there is none.
+     * @param userId of the user to read.
+     * @return row of the user.
+     * @throws SecurityException thrown by fortress when the user cannot be read.
+     */
+    public static UserRow readUser( ReviewMgr reviewMgr, Session admin, String userId ) throws SecurityException
+    {
+        String key = key( admin, userId );
+        UserRow row = of( USERS ).get( key );
+        if ( row == null )
+        {
+            row = UserRow.of( reviewMgr.readUser( new User( userId ) ) );
+            put( of( USERS ), key, row );
+        }
+        return row;
+    }
+
+    /**
+     * Return the cached user without reading it.
+     *
+     * @param admin session of caller, null if there is none.
+     * @param userId of the user.
+     * @return row of the user or null if not cached.
+     */
+    public static UserRow getCachedUser( Session admin, String userId )
+    {
+        return IS_ENABLED ? of( USERS ).get( key( admin, userId ) ) : null;
+    }
+
+    /**
+     * Read-through wrapper for {@link ReviewMgr#findUsers(User)} searching by internalId, which is how the
+     * modifier of an admin modification is recorded in the audit log.
+     *
+     * @param reviewMgr initialized with the admin session of caller.
+     * @param admin session of caller, null if there is none.
+     * @param internalId of the user to find.
+     * @return row of the first matching user or null if none found.
+     * @throws SecurityException thrown by fortress when the search fails.
+     */
+    public static UserRow findUserByInternalId( ReviewMgr reviewMgr, Session admin, String internalId )
+        throws SecurityException
+    {
+        String key = key( admin, internalId );
+        UserRow row = of( INTERNAL_IDS ).get( key );
+        if ( row == null )
+        {
+            User user = UserBatchReader.findUserByInternalId( reviewMgr, internalId );
+            if ( user != null )
+            {
+                row = UserRow.of( user );
+                put( of( INTERNAL_IDS ), key, row );
+            }
+        }
+        return row;
+    }
+
+    /**
+     * Read-through wrapper for {@link ReviewMgr#readPermission(Permission)} returning only the dn of the
+     * permission, which is how authorizations are recorded in the audit log.
+     *
+     * @param reviewMgr initialized with the admin session of caller.
+     * @param admin session of caller, null if there is none.
+     * @param permission contains objName, opName, optional objId and admin flag.
+     * @return dn of the permission.
+     * @throws SecurityException thrown by fortress when the permission cannot be read.
+     */
+    public static String readPermissionDn( ReviewMgr reviewMgr, Session admin, Permission permission )
+        throws SecurityException
+    {
+        String key = key( admin, permission.getObjName(), permission.getOpName(), permission.getObjId(), String
+            .valueOf( permission.isAdmin() ) );
+        String dn = of( PERMISSIONS ).get( key );
+        if ( dn == null )
+        {
+            dn = reviewMgr.readPermission( permission ).getDn();
+            put( of( PERMISSIONS ), key, dn );
+        }
+        return dn;
+    }
+
+    /**
+     * Read-through wrapper for {@link ReviewMgr#findRoles(String)}.  The roles returned carry the columns of
+     * {@link RoleRow} only.
+     *
+     * @param reviewMgr initialized with the admin session of caller.
+     * @param admin session of caller, null if there is none.
+     * @param searchVal contains the leading chars of role name.
+     * @return new list of new roles, the caller may sort or edit them.
+     * @throws SecurityException thrown by fortress when the search fails.
+     */
+    public static List<Role> findRoles( ReviewMgr reviewMgr, Session admin, String searchVal )
+        throws SecurityException
+    {
+        String key = key( admin, searchVal );
+        List<RoleRow> rows = of( ROLE_SEARCHES ).get( key );
+        if ( rows == null )
+        {
+            rows = Collections.unmodifiableList( RoleRow.of( reviewMgr.findRoles( searchVal ) ) );
+            put( of( ROLE_SEARCHES ), key, rows );
+        }
+        List<Role> roles = new ArrayList<>( rows.size() );
+        for ( RoleRow row : rows )
+        {
+            roles.add( row.toRole() );
+        }
+        return roles;
+    }
+
+    /**
+     * Drop the cached entries affected by a change to entity.  Called for every {@link SaveModelEvent}.
+     *
+     * @param entity that was added, updated or deleted.
+     * @param operation performed on the entity, may be null.
+     */
+    public static void invalidate( FortEntity entity, SaveModelEvent.Operations operation )
+    {
+        if ( entity == null || operation == SaveModelEvent.Operations.SEARCH )
+        {
+            return;
+        }
+        if ( entity instanceof User )
+        {
+            User user = ( User ) entity;
+            remove( of( USERS ), user.getUserId() );
+            if ( user.getInternalId() != null )
+            {
+                remove( of( INTERNAL_IDS ), user.getInternalId() );
+            }
+            else
+            {
+                of( INTERNAL_IDS ).clear();
+            }
+        }
+        else if ( entity instanceof Role )
+        {
+            of( ROLE_SEARCHES ).clear();
+            if ( operation != SaveModelEvent.Operations.ADD )
+            {
+                // role assignments carried by cached users may be stale:
+                of( USERS ).clear();
+                of( INTERNAL_IDS ).clear();
+            }
+        }
+        else if ( entity instanceof Permission || entity instanceof PermObj )
+        {
+            of( PERMISSIONS ).clear();
+        }
+        LOG.debug( ".invalidate entity: " + entity.getClass().getSimpleName() + " operation: " + operation );
+    }
+
+    /**
+     * Drop all cached entries.
+     */
+    public static void clear()
+    {
+        for ( PartitionedCache<String, ?> cache : CACHES )
+        {
+            cache.clear();
+        }
+    }
+
+    /**
+     * Return the caches so their size and hit/miss counts can be reported.
+     *
+     * @return unmodifiable list of caches.
+     */
+    public static List<BoundedCache<String, ?>> getCaches()
+    {
+        List<BoundedCache<String, ?>> caches = new ArrayList<>();
+        for ( PartitionedCache<String, ?> cache : CACHES )
+        {
+            caches.addAll( cache.getPartitions() );
+        }
+        return caches;
+    }
+
+    /**
+     * Drop the cached entries of a tenant, see {@link Tenants}.
+     *
+     * @param contextId of tenant.
+     */
+    static void evict( String contextId )
+    {
+        for ( PartitionedCache<String, ?> cache : CACHES )
+        {
+            cache.remove( contextId );
+        }
+    }
+
+    private static <T> void put( BoundedCache<String, T> cache, String key, T value )
+    {
+        if ( IS_ENABLED && value != null )
+        {
+            cache.put( key, value );
+        }
+    }
+
+    /**
+     * Remove the entries of value, read by any admin.
+     */
+    private static void remove( BoundedCache<String, ?> cache, String value )
+    {
+        final String suffix = key( value );
+        cache.removeIf( new Predicate<String>()
+        {
+            @Override
+            public boolean test( String key )
+            {
+                return key.endsWith( suffix );
+            }
+        } );
+    }
+
+    private static <T> BoundedCache<String, T> of( PartitionedCache<String, T> cache )
+    {
+        return cache.get( getContextId() );
+    }
+
+    private static String key( Session admin, String... values )
+    {
+        return key( scope( admin ) ) + key( values );
+    }
+
+    private static String key( String... values )
+    {
+        StringBuilder key = new StringBuilder();
+        for ( String value : values )
+        {
+            key.append( '\u0000' ).append( value != null ? value.toLowerCase( Locale.ENGLISH ) : "" );
+        }
+        return key.toString();
+    }
+
+    /**
+     * Return the scope of the reads made with the session of an admin, for the caches and indexes that hold what
+     * an admin read.
+     *
+     * @param admin session of caller, null if there is none.
+     * @return userId and names of the activated admin roles of admin, what fortress checks the reads against.
+     */
+    static String scope( Session admin )
+    {
+        if ( admin == null )
+        {
+            return "";
+        }
+        Set<String> names = new TreeSet<>( String.CASE_INSENSITIVE_ORDER );
+        if ( admin.getAdminRoles() != null )
+        {
+            for ( UserAdminRole adminRole : admin.getAdminRoles() )
+            {
+                names.add( adminRole.getName() );
+            }
+        }
+        StringBuilder scope = new StringBuilder( String.valueOf( admin.getUserId() ) );
+        for ( String name : names )
+        {
+            scope.append( ',' ).append( name );
+        }
+        return scope.toString();
+    }
+
+    static String getContextId()
+    {
+        return TenantContext.get();
+    }
+}
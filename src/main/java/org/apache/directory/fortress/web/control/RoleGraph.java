@@ -0,0 +1,478 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+package org.apache.directory.fortress.web.control;
+
+import org.apache.commons.lang.SerializationUtils;
+import org.apache.directory.fortress.core.DelReviewMgr;
+import org.apache.directory.fortress.core.ReviewMgr;
+import org.apache.directory.fortress.core.SecurityException;
+import org.apache.directory.fortress.core.model.AdminRole;
+import org.apache.directory.fortress.core.model.FortEntity;
+import org.apache.directory.fortress.core.model.Role;
+import org.apache.directory.fortress.core.model.Session;
+import org.apache.directory.fortress.web.common.ConfigUtils;
+import org.apache.directory.fortress.web.event.SaveModelEvent;
+import org.apache.log4j.Logger;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * In-memory graph of the role hierarchy, one for RBAC and one for admin roles per tenant and admin, so parents,
+ * children, ancestors and descendants of a role are looked up in memory instead of reading each role from the
+ * directory.  A graph holds the roles the admin that loaded it may read, the same way {@link ReviewMgrCache} scopes
+ * its entries, and is never handed to another admin.
+ * <p>
+ * A graph is loaded with a single search of all roles, by one thread at a time, kept up to date from the
+ * {@link SaveModelEvent}s of the role detail panels and loaded again when older than role.graph.ttl.seconds (default
+ * 300), which picks up changes made outside this app.  While a stale graph is loaded again, other callers get the
+ * stale one.  Graphs are immutable, an update replaces the graph with one holding a copy of the saved role, so
+ * lookups need no locking.  The roles returned are shared and must not be modified.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ * @version $Rev$
+ */
+public final class RoleGraph
+{
+    private static final Logger LOG = Logger.getLogger( RoleGraph.class.getName() );
+    private static final long TTL_MILLIS = ConfigUtils.getLong( "role.graph.ttl.seconds", 300 ) * 1000;
+    private static final ConcurrentMap<String, RoleGraph> GRAPHS = new ConcurrentHashMap<>();
+    // one per graph key, held by the thread that loads the graph:
+    private static final ConcurrentMap<String, ReentrantLock> LOCKS = new ConcurrentHashMap<>();
+    // counts updates, so a graph loaded while one was made is known to be stale:
+    private static final AtomicLong UPDATES = new AtomicLong();
+    private static final Comparator<Role> BY_NAME = new Comparator<Role>()
+    {
+        @Override
+        public int compare( Role r1, Role r2 )
+        {
+            return r1.getName().compareToIgnoreCase( r2.getName() );
+        }
+    };
+
+    private final Map<String, Vertex> vertices;
+    private final long loaded;
+
+    private static final class Vertex
+    {
+        private final Role role;
+        // keys of the parents and children, see key():
+        private final Set<String> parents;
+        private final Set<String> children;
+
+        private Vertex( Role role, Set<String> parents, Set<String> children )
+        {
+            this.role = role;
+            this.parents = parents;
+            this.children = children;
+        }
+    }
+
+    /**
+     * Reads the roles of a graph.
+     */
+    private interface Loader
+    {
+        List<? extends Role> load() throws SecurityException;
+    }
+
+    private RoleGraph( Map<String, Vertex> vertices, long loaded )
+    {
+        this.vertices = vertices;
+        this.loaded = loaded;
+    }
+
+    /**
+     * Return the graph of RBAC roles, loading it if missing or stale.
+     *
+     * @param reviewMgr initialized with the admin session of caller.
+     * @param admin session of caller, null if there is none.
+     * @return graph, never null.
+     * @throws SecurityException thrown by fortress when the roles cannot be read.
+     */
+    public static RoleGraph get( final ReviewMgr reviewMgr, Session admin ) throws SecurityException
+    {
+        return get( graphKey( false, admin ), new Loader()
+        {
+            @Override
+            public List<? extends Role> load() throws SecurityException
+            {
+                return reviewMgr.findRoles( "" );
+            }
+        } );
+    }
+
+    /**
+     * Return the graph of admin roles, loading it if missing or stale.
+     *
+     * @param delReviewMgr initialized with the admin session of caller.
+     * @param admin session of caller, null if there is none.
+     * @return graph, never null.
+     * @throws SecurityException thrown by fortress when the roles cannot be read.
+     */
+    public static RoleGraph get( final DelReviewMgr delReviewMgr, Session admin ) throws SecurityException
+    {
+        return get( graphKey( true, admin ), new Loader()
+        {
+            @Override
+            public List<? extends Role> load() throws SecurityException
+            {
+                return delReviewMgr.findRoles( "" );
+            }
+        } );
+    }
+
+    /**
+     * Return the graph as loaded, without going to the directory, for code that has no manager at hand.
+     *
+     * @param isAdmin true for the graph of admin roles.
+     * @param admin session of caller, null if there is none.
+     * @return graph, possibly stale, or null if not loaded yet.
+     */
+    public static RoleGraph peek( boolean isAdmin, Session admin )
+    {
+        return GRAPHS.get( graphKey( isAdmin, admin ) );
+    }
+
+    /**
+     * Apply a change to a role.  Called for every {@link SaveModelEvent}.
+     *
+     * @param entity that was added, updated or deleted.
+     * @param operation performed on the entity, may be null.
+     */
+    public static synchronized void update( FortEntity entity, SaveModelEvent.Operations operation )
+    {
+        if ( !( entity instanceof Role ) || operation == SaveModelEvent.Operations.SEARCH )
+        {
+            return;
+        }
+        UPDATES.incrementAndGet();
+        Role role = ( Role ) entity;
+        String prefix = typeKey( role instanceof AdminRole );
+        // copied, the detail panel goes on editing the role it saved:
+        Role copy = ( Role ) SerializationUtils.clone( role );
+        for ( Map.Entry<String, RoleGraph> entry : GRAPHS.entrySet() )
+        {
+            if ( entry.getKey().startsWith( prefix ) )
+            {
+                RoleGraph graph = entry.getValue().with( copy, operation );
+                if ( graph != entry.getValue() )
+                {
+                    GRAPHS.put( entry.getKey(), graph );
+                }
+            }
+        }
+        LOG.debug( ".update role: " + role.getName() + " operation: " + operation );
+    }
+
+    /**
+     * Drop all graphs.
+     */
+    public static void clear()
+    {
+        GRAPHS.clear();
+        LOCKS.clear();
+    }
+
+    /**
+     * Drop the graphs of a tenant, see {@link Tenants}.
+     *
+     * @param contextId of tenant.
+     */
+    static void evict( String contextId )
+    {
+        String prefix = contextId + ":";
+        for ( String key : GRAPHS.keySet() )
+        {
+            if ( key.startsWith( prefix ) )
+            {
+                GRAPHS.remove( key );
+            }
+        }
+        for ( String key : LOCKS.keySet() )
+        {
+            if ( key.startsWith( prefix ) )
+            {
+                LOCKS.remove( key );
+            }
+        }
+    }
+
+    /**
+     * @param name of role.
+     * @return the role or null if not in graph.
+     */
+    public Role getRole( String name )
+    {
+        Vertex vertex = vertices.get( key( name ) );
+        return vertex != null ? vertex.role : null;
+    }
+
+    /**
+     * @param name of role.
+     * @return the immediate parents of role, sorted by name, never null.
+     */
+    public List<Role> getParents( String name )
+    {
+        Vertex vertex = vertices.get( key( name ) );
+        return vertex != null ? toRoles( vertex.parents ) : new ArrayList<Role>();
+    }
+
+    /**
+     * @param name of role.
+     * @return the immediate children of role, sorted by name, never null.
+     */
+    public List<Role> getChildren( String name )
+    {
+        Vertex vertex = vertices.get( key( name ) );
+        return vertex != null ? toRoles( vertex.children ) : new ArrayList<Role>();
+    }
+
+    /**
+     * @param name of role.
+     * @return true if role has at least one child.
+     */
+    public boolean hasChildren( String name )
+    {
+        Vertex vertex = vertices.get( key( name ) );
+        return vertex != null && !vertex.children.isEmpty();
+    }
+
+    /**
+     * @param name of role.
+     * @return names of all the roles role inherits from, nearest first, never null.
+     */
+    public Set<String> getAncestors( String name )
+    {
+        return walk( name, true );
+    }
+
+    /**
+     * @param name of role.
+     * @return names of all the roles that inherit from role, nearest first, never null.
+     */
+    public Set<String> getDescendants( String name )
+    {
+        return walk( name, false );
+    }
+
+    /**
+     * @return number of roles in graph.
+     */
+    public int size()
+    {
+        return vertices.size();
+    }
+
+    private boolean isStale()
+    {
+        return System.currentTimeMillis() - loaded > TTL_MILLIS;
+    }
+
+    /**
+     * @return this graph with a change to role applied, or this graph if the change does not concern it.
+     */
+    private RoleGraph with( Role role, SaveModelEvent.Operations operation )
+    {
+        boolean isFound = vertices.containsKey( key( role.getName() ) );
+        if ( operation == null || operation == SaveModelEvent.Operations.ADD && !isFound )
+        {
+            // don't know what changed, or whether the admin of this graph may read the new role, load it again on
+            // next use:
+            return loaded != 0 ? new RoleGraph( vertices, 0 ) : this;
+        }
+        if ( !isFound )
+        {
+            return this;
+        }
+        Map<String, Role> roles = new HashMap<>();
+        for ( Vertex vertex : vertices.values() )
+        {
+            roles.put( key( vertex.role.getName() ), vertex.role );
+        }
+        if ( operation == SaveModelEvent.Operations.DELETE )
+        {
+            roles.remove( key( role.getName() ) );
+        }
+        else
+        {
+            roles.put( key( role.getName() ), role );
+        }
+        return build( roles.values(), loaded );
+    }
+
+    private Set<String> walk( String name, boolean isUp )
+    {
+        Set<String> found = new LinkedHashSet<>();
+        Vertex start = vertices.get( key( name ) );
+        if ( start == null )
+        {
+            return found;
+        }
+        Set<String> visited = new TreeSet<>();
+        visited.add( key( name ) );
+        Deque<Vertex> queue = new ArrayDeque<>();
+        queue.add( start );
+        while ( !queue.isEmpty() )
+        {
+            Vertex vertex = queue.poll();
+            for ( String next : isUp ? vertex.parents : vertex.children )
+            {
+                Vertex nextVertex = vertices.get( next );
+                // the directory may hold a dangling or cyclic reference, neither stops the walk:
+                if ( nextVertex != null && visited.add( next ) )
+                {
+                    found.add( nextVertex.role.getName() );
+                    queue.add( nextVertex );
+                }
+            }
+        }
+        return found;
+    }
+
+    private List<Role> toRoles( Set<String> keys )
+    {
+        List<Role> roles = new ArrayList<>( keys.size() );
+        for ( String key : keys )
+        {
+            Vertex vertex = vertices.get( key );
+            if ( vertex != null )
+            {
+                roles.add( vertex.role );
+            }
+        }
+        Collections.sort( roles, BY_NAME );
+        return roles;
+    }
+
+    private static RoleGraph build( Collection<? extends Role> roles )
+    {
+        RoleGraph graph = build( roles, System.currentTimeMillis() );
+        LOG.info( "role graph loaded, roles: " + graph.size() );
+        return graph;
+    }
+
+    private static RoleGraph build( Collection<? extends Role> roles, long loaded )
+    {
+        Map<String, Vertex> vertices = new HashMap<>();
+        if ( roles != null )
+        {
+            for ( Role role : roles )
+            {
+                Set<String> parents = new TreeSet<>();
+                if ( role.getParents() != null )
+                {
+                    for ( String parent : role.getParents() )
+                    {
+                        parents.add( key( parent ) );
+                    }
+                }
+                vertices.put( key( role.getName() ), new Vertex( role, parents, new TreeSet<String>() ) );
+            }
+            for ( Map.Entry<String, Vertex> entry : vertices.entrySet() )
+            {
+                for ( String parent : entry.getValue().parents )
+                {
+                    Vertex parentVertex = vertices.get( parent );
+                    if ( parentVertex != null )
+                    {
+                        parentVertex.children.add( entry.getKey() );
+                    }
+                }
+            }
+        }
+        return new RoleGraph( Collections.unmodifiableMap( vertices ), loaded );
+    }
+
+    private static RoleGraph get( String key, Loader loader ) throws SecurityException
+    {
+        RoleGraph graph = GRAPHS.get( key );
+        if ( graph != null && !graph.isStale() )
+        {
+            return graph;
+        }
+        ReentrantLock lock = LOCKS.get( key );
+        if ( lock == null )
+        {
+            LOCKS.putIfAbsent( key, new ReentrantLock() );
+            lock = LOCKS.get( key );
+        }
+        if ( graph != null && !lock.tryLock() )
+        {
+            // another thread is loading it:
+            return graph;
+        }
+        if ( graph == null )
+        {
+            lock.lock();
+        }
+        try
+        {
+            graph = GRAPHS.get( key );
+            if ( graph == null || graph.isStale() )
+            {
+                long updates = UPDATES.get();
+                graph = build( loader.load() );
+                put( key, graph, updates );
+            }
+            return graph;
+        }
+        finally
+        {
+            lock.unlock();
+        }
+    }
+
+    private static synchronized void put( String key, RoleGraph graph, long updates )
+    {
+        // a role saved while this graph was read may be missing from it, use it this once and read it again:
+        GRAPHS.put( key, updates == UPDATES.get() ? graph : new RoleGraph( graph.vertices, 0 ) );
+    }
+
+    private static String key( String name )
+    {
+        return name != null ? name.toLowerCase( Locale.ENGLISH ) : "";
+    }
+
+    private static String graphKey( boolean isAdmin, Session admin )
+    {
+        return typeKey( isAdmin ) + ReviewMgrCache.scope( admin );
+    }
+
+    private static String typeKey( boolean isAdmin )
+    {
+        return ReviewMgrCache.getContextId() + ( isAdmin ? ":admin:" : ":rbac:" );
+    }
+}
@@ -0,0 +1,466 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+package org.apache.directory.fortress.web.control;
+
+import org.apache.directory.fortress.core.ReviewMgr;
+import org.apache.directory.fortress.core.SecurityException;
+import org.apache.directory.fortress.core.model.AdminRole;
+import org.apache.directory.fortress.core.model.FortEntity;
+import org.apache.directory.fortress.core.model.Role;
+import org.apache.directory.fortress.core.model.SDSet;
+import org.apache.directory.fortress.core.model.Session;
+import org.apache.directory.fortress.web.common.ConfigUtils;
+import org.apache.directory.fortress.web.event.SaveModelEvent;
+import org.apache.log4j.Logger;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-memory index of the static (SSD) and dynamic (DSD) separation of duty sets, one per tenant and admin, by set
+ * name and by member role, so set searches are answered from memory and role assignments are checked against SSD
+ * before they are sent to the directory, which still makes the final check.  An index holds the sets the admin that
+ * loaded it may read, the same way {@link ReviewMgrCache} scopes its entries, and is never handed to another admin.
+ * <p>
+ * An index is loaded with one search of each type of set, kept up to date from the {@link SaveModelEvent}s of the
+ * SD detail panel and loaded again when older than sd.index.ttl.seconds (default 300), which picks up changes made
+ * outside this app.  Indexes are immutable, an update replaces the index, so lookups need no locking.  Sets
+ * returned by {@link #search} are copies, the detail panel edits them in place.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ * @version $Rev$
+ */
+public final class SDSetIndex
+{
+    private static final Logger LOG = Logger.getLogger( SDSetIndex.class.getName() );
+    private static final long TTL_MILLIS = ConfigUtils.getLong( "sd.index.ttl.seconds", 300 ) * 1000;
+    private static final ConcurrentMap<String, SDSetIndex> INDEXES = new ConcurrentHashMap<>();
+    // counts updates, so an index loaded while one was made is known to be stale:
+    private static final AtomicLong UPDATES = new AtomicLong();
+    private static final Comparator<SDSet> BY_NAME = new Comparator<SDSet>()
+    {
+        @Override
+        public int compare( SDSet s1, SDSet s2 )
+        {
+            return s1.getName().compareToIgnoreCase( s2.getName() );
+        }
+    };
+
+    // set name key to set, one map per type:
+    private final Map<String, SDSet> ssdSets;
+    private final Map<String, SDSet> dsdSets;
+    // role name key to the sets the role is a member of, one map per type:
+    private final Map<String, List<SDSet>> ssdByRole;
+    private final Map<String, List<SDSet>> dsdByRole;
+    // role hierarchy of the admin the index was returned to, null in the shared index:
+    private final RoleGraph graph;
+    private final long loaded;
+
+    private SDSetIndex( Map<String, SDSet> ssdSets, Map<String, SDSet> dsdSets, long loaded )
+    {
+        this.ssdSets = ssdSets;
+        this.dsdSets = dsdSets;
+        this.ssdByRole = byRole( ssdSets.values() );
+        this.dsdByRole = byRole( dsdSets.values() );
+        this.graph = null;
+        this.loaded = loaded;
+    }
+
+    private SDSetIndex( SDSetIndex index, RoleGraph graph )
+    {
+        this.ssdSets = index.ssdSets;
+        this.dsdSets = index.dsdSets;
+        this.ssdByRole = index.ssdByRole;
+        this.dsdByRole = index.dsdByRole;
+        this.graph = graph;
+        this.loaded = index.loaded;
+    }
+
+    /**
+     * Return the index of the admin, loading it if missing or stale.  Also loads the {@link RoleGraph} of RBAC roles
+     * of the admin, used to check inherited roles.
+     *
+     * @param reviewMgr initialized with the admin session of caller.
+     * @param admin session of caller, null if there is none.
+     * @return index, never null.
+     * @throws SecurityException thrown by fortress when the sets cannot be read.
+     */
+    public static SDSetIndex get( ReviewMgr reviewMgr, Session admin ) throws SecurityException
+    {
+        RoleGraph graph = RoleGraph.get( reviewMgr, admin );
+        String key = indexKey( admin );
+        SDSetIndex index = INDEXES.get( key );
+        if ( index == null || index.isStale() )
+        {
+            long updates = UPDATES.get();
+            index = new SDSetIndex( toMap( reviewMgr.ssdSets( newSearch( SDSet.SDType.STATIC ) ) ), toMap(
+                reviewMgr.dsdSets( newSearch( SDSet.SDType.DYNAMIC ) ) ), System.currentTimeMillis() );
+            synchronized ( SDSetIndex.class )
+            {
+                // a set saved while this index was read may be missing from it, use it this once and read it again:
+                INDEXES.put( key, updates == UPDATES.get() ? index : index.withLoaded( 0 ) );
+            }
+            LOG.info( "sd index loaded, ssd sets: " + index.ssdSets.size() + " dsd sets: " + index.dsdSets.size() );
+        }
+        return new SDSetIndex( index, graph );
+    }
+
+    /**
+     * Apply a change to a set.  Called for every {@link SaveModelEvent}.
+     *
+     * @param entity that was added, updated or deleted.
+     * @param operation performed on the entity, may be null.
+     */
+    public static synchronized void update( FortEntity entity, SaveModelEvent.Operations operation )
+    {
+        if ( operation == SaveModelEvent.Operations.SEARCH || !( entity instanceof SDSet || entity instanceof Role ) )
+        {
+            return;
+        }
+        UPDATES.incrementAndGet();
+        String prefix = ReviewMgrCache.getContextId() + ":";
+        for ( Map.Entry<String, SDSetIndex> entry : INDEXES.entrySet() )
+        {
+            if ( entry.getKey().startsWith( prefix ) )
+            {
+                SDSetIndex index = entry.getValue().with( entity, operation );
+                if ( index != entry.getValue() )
+                {
+                    INDEXES.put( entry.getKey(), index );
+                }
+            }
+        }
+    }
+
+    /**
+     * Drop all indexes.
+     */
+    public static void clear()
+    {
+        INDEXES.clear();
+    }
+
+    /**
+     * Drop the indexes of a tenant, see {@link Tenants}.
+     *
+     * @param contextId of tenant.
+     */
+    static void evict( String contextId )
+    {
+        String prefix = contextId + ":";
+        for ( String key : INDEXES.keySet() )
+        {
+            if ( key.startsWith( prefix ) )
+            {
+                INDEXES.remove( key );
+            }
+        }
+    }
+
+    /**
+     * Answer a set search the way {@link ReviewMgr#ssdSets}, {@link ReviewMgr#ssdRoleSets} and their dsd
+     * counterparts do.  If criteria has members, return the sets its first member is in, else the sets with a name
+     * that starts with the name of criteria, ignoring case.
+     *
+     * @param criteria contains the type, and either a name or members.
+     * @return sets, sorted by name, never null.
+     */
+    public List<SDSet> search( SDSet criteria )
+    {
+        boolean isStatic = criteria.getType() == null || criteria.getType() == SDSet.SDType.STATIC;
+        List<SDSet> found = new ArrayList<>();
+        if ( criteria.getMembers() != null && !criteria.getMembers().isEmpty() )
+        {
+            List<SDSet> sets = ( isStatic ? ssdByRole : dsdByRole ).get( key( criteria.getMembers().iterator()
+                .next() ) );
+            if ( sets != null )
+            {
+                found.addAll( sets );
+            }
+        }
+        else
+        {
+            String prefix = key( criteria.getName() );
+            for ( Map.Entry<String, SDSet> entry : ( isStatic ? ssdSets : dsdSets ).entrySet() )
+            {
+                if ( entry.getKey().startsWith( prefix ) )
+                {
+                    found.add( entry.getValue() );
+                }
+            }
+        }
+        List<SDSet> copies = new ArrayList<>( found.size() );
+        for ( SDSet sdSet : found )
+        {
+            copies.add( copy( sdSet ) );
+        }
+        Collections.sort( copies, BY_NAME );
+        return copies;
+    }
+
+    /**
+     * Return the SSD sets a role may not be assigned to a user because of, the same check fortress makes on
+     * assignUser.  A user is authorized for its assigned roles and the roles they inherit from.  A set is violated if
+     * the user would then be authorized for cardinality or more of its members.
+     *
+     * @param assigned names of the RBAC roles assigned to the user.
+     * @param roleName name of the RBAC role to assign.
+     * @return violated sets, sorted by name, empty if the assignment may be made.
+     */
+    public List<SDSet> getSsdViolations( Collection<String> assigned, String roleName )
+    {
+        return getViolations( ssdByRole, assigned, roleName );
+    }
+
+    /**
+     * Return the DSD sets that limit the roles the user may activate at once, if roleName were assigned.  These do
+     * not stop the assignment, they are shown as a warning.
+     *
+     * @param assigned names of the RBAC roles assigned to the user.
+     * @param roleName name of the RBAC role to assign.
+     * @return sets, sorted by name, that the user's roles would reach the cardinality of.
+     */
+    public List<SDSet> getDsdConflicts( Collection<String> assigned, String roleName )
+    {
+        return getViolations( dsdByRole, assigned, roleName );
+    }
+
+    /**
+     * @param sets violated or in conflict.
+     * @return e.g. 'set1 (2 of r1, r2, r3)', for messages.
+     */
+    public static String format( List<SDSet> sets )
+    {
+        StringBuilder text = new StringBuilder();
+        for ( SDSet sdSet : sets )
+        {
+            if ( text.length() > 0 )
+            {
+                text.append( ", " );
+            }
+            text.append( sdSet.getName() ).append( " (" ).append( sdSet.getCardinality() ).append( " of " );
+            text.append( sdSet.getMembers() != null ? sdSet.getMembers().toString() : "[]" ).append( ")" );
+        }
+        return text.toString();
+    }
+
+    private boolean isStale()
+    {
+        return System.currentTimeMillis() - loaded > TTL_MILLIS;
+    }
+
+    /**
+     * @return this index with a change applied, or this index if the change does not concern it.
+     */
+    private SDSetIndex with( FortEntity entity, SaveModelEvent.Operations operation )
+    {
+        if ( entity instanceof Role )
+        {
+            if ( !( entity instanceof AdminRole ) && ( operation == null
+                || operation == SaveModelEvent.Operations.DELETE ) )
+            {
+                // a deleted role is dropped from its sets in the directory, read them again on next use:
+                return withLoaded( 0 );
+            }
+            return this;
+        }
+        SDSet sdSet = ( SDSet ) entity;
+        if ( operation == null || sdSet.getType() == null )
+        {
+            // don't know what changed, load it again on next use:
+            return withLoaded( 0 );
+        }
+        boolean isStatic = sdSet.getType() == SDSet.SDType.STATIC;
+        Map<String, SDSet> sets = new HashMap<>( isStatic ? ssdSets : dsdSets );
+        boolean isFound = sets.containsKey( key( sdSet.getName() ) );
+        if ( !isFound )
+        {
+            // a new set, or one the admin of this index may not read, load it again on next use:
+            return operation == SaveModelEvent.Operations.ADD ? withLoaded( 0 ) : this;
+        }
+        if ( operation == SaveModelEvent.Operations.DELETE )
+        {
+            sets.remove( key( sdSet.getName() ) );
+        }
+        else
+        {
+            sets.put( key( sdSet.getName() ), copy( sdSet ) );
+        }
+        sets = Collections.unmodifiableMap( sets );
+        LOG.debug( ".update sdSet: " + sdSet.getName() + " operation: " + operation );
+        return new SDSetIndex( isStatic ? sets : ssdSets, isStatic ? dsdSets : sets, loaded );
+    }
+
+    private SDSetIndex withLoaded( long time )
+    {
+        return loaded != time ? new SDSetIndex( ssdSets, dsdSets, time ) : this;
+    }
+
+    private List<SDSet> getViolations( Map<String, List<SDSet>> byRole, Collection<String> assigned,
+        String roleName )
+    {
+        List<SDSet> violated = new ArrayList<>();
+        if ( roleName == null || byRole.isEmpty() )
+        {
+            return violated;
+        }
+        Set<String> authorized = authorize( assigned );
+        if ( authorized.contains( key( roleName ) ) )
+        {
+            // already authorized, nothing changes:
+            return violated;
+        }
+        Set<String> added = authorize( Collections.singletonList( roleName ) );
+        Set<SDSet> candidates = new HashSet<>();
+        for ( String role : added )
+        {
+            List<SDSet> sets = byRole.get( role );
+            if ( sets != null )
+            {
+                candidates.addAll( sets );
+            }
+        }
+        for ( SDSet sdSet : candidates )
+        {
+            int count = 0;
+            for ( String member : sdSet.getMembers() )
+            {
+                if ( authorized.contains( key( member ) ) || added.contains( key( member ) ) )
+                {
+                    count++;
+                }
+            }
+            // fortress defaults the cardinality to 2:
+            int cardinality = sdSet.getCardinality() != null ? sdSet.getCardinality() : 2;
+            if ( count >= cardinality )
+            {
+                violated.add( sdSet );
+            }
+        }
+        Collections.sort( violated, BY_NAME );
+        return violated;
+    }
+
+    /**
+     * @return keys of roles and the roles they inherit from.
+     */
+    private Set<String> authorize( Collection<String> roleNames )
+    {
+        Set<String> authorized = new HashSet<>();
+        if ( roleNames != null )
+        {
+            for ( String roleName : roleNames )
+            {
+                authorized.add( key( roleName ) );
+                if ( graph != null )
+                {
+                    for ( String ancestor : graph.getAncestors( roleName ) )
+                    {
+                        authorized.add( key( ancestor ) );
+                    }
+                }
+            }
+        }
+        return authorized;
+    }
+
+    private static Map<String, List<SDSet>> byRole( Collection<SDSet> sets )
+    {
+        Map<String, List<SDSet>> byRole = new HashMap<>();
+        for ( SDSet sdSet : sets )
+        {
+            if ( sdSet.getMembers() == null )
+            {
+                continue;
+            }
+            for ( String member : sdSet.getMembers() )
+            {
+                List<SDSet> memberSets = byRole.get( key( member ) );
+                if ( memberSets == null )
+                {
+                    memberSets = new ArrayList<>();
+                    byRole.put( key( member ), memberSets );
+                }
+                memberSets.add( sdSet );
+            }
+        }
+        return byRole;
+    }
+
+    private static Map<String, SDSet> toMap( List<SDSet> sets )
+    {
+        Map<String, SDSet> map = new HashMap<>();
+        if ( sets != null )
+        {
+            for ( SDSet sdSet : sets )
+            {
+                map.put( key( sdSet.getName() ), sdSet );
+            }
+        }
+        return Collections.unmodifiableMap( map );
+    }
+
+    private static SDSet copy( SDSet sdSet )
+    {
+        SDSet copy = new SDSet();
+        copy.setId( sdSet.getId() );
+        copy.setName( sdSet.getName() );
+        copy.setDescription( sdSet.getDescription() );
+        copy.setType( sdSet.getType() );
+        copy.setCardinality( sdSet.getCardinality() );
+        Set<String> members = new TreeSet<>( String.CASE_INSENSITIVE_ORDER );
+        if ( sdSet.getMembers() != null )
+        {
+            members.addAll( sdSet.getMembers() );
+        }
+        copy.setMembers( members );
+        return copy;
+    }
+
+    private static String indexKey( Session admin )
+    {
+        return ReviewMgrCache.getContextId() + ":" + ReviewMgrCache.scope( admin );
+    }
+
+    private static SDSet newSearch( SDSet.SDType type )
+    {
+        SDSet sdSet = new SDSet();
+        sdSet.setName( "" );
+        sdSet.setType( type );
+        return sdSet;
+    }
+
+    private static String key( String name )
+    {
+        return name != null ? name.toLowerCase( Locale.ENGLISH ) : "";
+    }
+}
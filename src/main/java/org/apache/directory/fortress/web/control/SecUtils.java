@@ -189,8 +189,8 @@ public class SecUtils
      */
     public static boolean isFound( Permission permission, Component component )
     {
-        List<Permission> permissions = SecUtils.getPermissions( component );
-        return CollectionUtils.isNotEmpty( permissions ) && permissions.contains( permission );
+        PermissionIndex permissions = ( ( WicketSession ) component.getSession() ).getPermissionIndex();
+        return permissions != null && permissions.contains( permission );
     }
 
     /**
@@ -205,10 +205,33 @@ public class SecUtils
      * @throws org.apache.directory.fortress.core.SecurityException checked exception for system errors.
      */
     public static boolean checkAccess(Component component, AccessMgr accessMgr, String objName, String opName, String objId ) throws org.apache.directory.fortress.core.SecurityException
+    {
+        return checkAccess( component, accessMgr, new Permission( objName, opName, objId ) );
+    }
+
+    /**
+     * Wrapper to fortress checkAccess api that first consults the decisions cached in the wicket session.
+     * The directory is only called on a miss, and the result is remembered until it expires or the user's active role
+     * set changes.
+     *
+     * @param component contains the wicket session handle.
+     * @param accessMgr has the checkAccess api
+     * @param permission contains objName, opName and optional objId.
+     * @return true if success, false otherwise.
+     * @throws org.apache.directory.fortress.core.SecurityException checked exception for system errors.
+     */
+    public static boolean checkAccess( Component component, AccessMgr accessMgr, Permission permission ) throws org.apache.directory.fortress.core.SecurityException
     {
         WicketSession session = ( WicketSession )component.getSession();
-        Permission permission = new Permission( objName, opName, objId );
-        return accessMgr.checkAccess( session.getSession(), permission );
+        AccessDecisionCache decisions = session.getAccessDecisions();
+        Boolean isAuthorized = decisions.get( permission );
+        if ( isAuthorized == null )
+        {
+            isAuthorized = accessMgr.checkAccess( session.getSession(), permission );
+            decisions.put( permission, isAuthorized );
+            LOG.debug( "Fortress checkAccess objName: " + permission.getObjName() + " opName: " + permission.getOpName() + " objId: " + permission.getObjId() + " userId: " + session.getSession().getUserId() + " result: " + isAuthorized );
+        }
+        return isAuthorized;
     }
 
     /**
@@ -272,6 +295,7 @@ public class SecUtils
             WicketSession session = ( WicketSession ) component.getSession();
             session.getSession().setWarnings( null );
             accessMgr.addActiveRole( session.getSession(), new UserRole( roleName ) );
+            session.getAccessDecisions().clear();
             List<Warning> warnings = session.getSession().getWarnings();
             if ( CollectionUtils.isNotEmpty( warnings ) )
             {
@@ -336,6 +360,7 @@ public class SecUtils
         {
             WicketSession session = ( WicketSession ) component.getSession();
             accessMgr.dropActiveRole( session.getSession(), new UserRole( roleName ) );
+            session.getAccessDecisions().clear();
             // User's active role set changed so refresh their permissions:
             SecUtils.getPermissions( component, accessMgr );
             isSuccessful = true;
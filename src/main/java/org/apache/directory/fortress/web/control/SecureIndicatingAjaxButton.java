@@ -58,8 +58,8 @@ public class SecureIndicatingAjaxButton extends IndicatingAjaxButton
             try
             {
                 WicketSession session = ( WicketSession )component.getSession();
-                isAuthorized = accessMgr.checkAccess( session.getSession(), perm );
-                LOG.info( "Fortress checkAccess objectName: " + objectName + " operationName: " + opName + " userId: " + session.getSession().getUserId() + " result: " + isAuthorized);
+                isAuthorized = SecUtils.checkAccess( component, accessMgr, perm );
+                LOG.debug( "Fortress checkAccess objectName: " + objectName + " operationName: " + opName + " userId: " + session.getSession().getUserId() + " result: " + isAuthorized);
             }
             catch(org.apache.directory.fortress.core.SecurityException se)
             {
@@ -94,8 +94,8 @@ public class SecureIndicatingAjaxButton extends IndicatingAjaxButton
             WicketSession session = ( WicketSession )getSession();
             Permission permission = new Permission( objectName, opName );
             //Permission permission = new Permission( objectName, perm.getOpName() );
-            isAuthorized = accessMgr.checkAccess( session.getSession(), permission );
-            LOG.info( "Fortress checkAccess objectName: " + permission.getObjName() + " operationName: " + permission.getOpName() + " userId: " + session.getSession().getUserId() + " result: " + isAuthorized);
+            isAuthorized = SecUtils.checkAccess( this, accessMgr, permission );
+            LOG.debug( "Fortress checkAccess objectName: " + permission.getObjName() + " operationName: " + permission.getOpName() + " userId: " + session.getSession().getUserId() + " result: " + isAuthorized);
         }
         catch(org.apache.directory.fortress.core.SecurityException se)
         {
@@ -111,8 +111,8 @@ public class SecureIndicatingAjaxButton extends IndicatingAjaxButton
         try
         {
             WicketSession session = ( WicketSession )getSession();
-            isAuthorized = accessMgr.checkAccess( session.getSession(), perm );
-            LOG.info( "Fortress checkAccess objName: " + this.perm.getObjName() + " opName: " + this.perm.getOpName() + " userId: " + session.getSession().getUserId() + " result: " + isAuthorized);
+            isAuthorized = SecUtils.checkAccess( this, accessMgr, perm );
+            LOG.debug( "Fortress checkAccess objName: " + this.perm.getObjName() + " opName: " + this.perm.getOpName() + " userId: " + session.getSession().getUserId() + " result: " + isAuthorized);
         }
         catch(org.apache.directory.fortress.core.SecurityException se)
         {
@@ -130,8 +130,8 @@ public class SecureIndicatingAjaxButton extends IndicatingAjaxButton
         {
             WicketSession session = ( WicketSession )getSession();
             Permission finePerm = new Permission(perm.getObjName(), perm.getOpName(), objectId);
-            isAuthorized = accessMgr.checkAccess( session.getSession(), finePerm );
-            LOG.info( "Fortress checkAccess objName: " + this.perm.getObjName() + " opName: " + this.perm.getOpName() + ", objId: " + finePerm.getObjId() + ", userId: " + session.getSession().getUserId() + " result: " + isAuthorized);
+            isAuthorized = SecUtils.checkAccess( this, accessMgr, finePerm );
+            LOG.debug( "Fortress checkAccess objName: " + this.perm.getObjName() + " opName: " + this.perm.getOpName() + ", objId: " + finePerm.getObjId() + ", userId: " + session.getSession().getUserId() + " result: " + isAuthorized);
         }
         catch(org.apache.directory.fortress.core.SecurityException se)
         {
@@ -0,0 +1,71 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+package org.apache.directory.fortress.web.control;
+
+
+import org.apache.log4j.Logger;
+import org.apache.wicket.markup.html.link.ResourceLink;
+import org.apache.wicket.request.resource.IResource;
+import org.apache.wicket.spring.injection.annot.SpringBean;
+import org.apache.directory.fortress.core.AccessMgr;
+import org.apache.directory.fortress.core.model.Permission;
+
+
+/**
+ * Link to a resource, e.g. an {@link ExportResource}, that is only shown to users holding the permission.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ * @version $Rev$
+ */
+public class SecureResourceLink extends ResourceLink<Void>
+{
+    /** Default serialVersionUID */
+    private static final long serialVersionUID = 1L;
+    @SpringBean
+    private AccessMgr accessMgr;
+    private static final Logger LOG = Logger.getLogger( SecureResourceLink.class.getName() );
+
+
+    public SecureResourceLink( String id, IResource resource, String objName, String opName )
+    {
+        super( id, resource );
+        Permission perm = new Permission( objName, opName );
+        if( SecUtils.IS_PERM_CACHED )
+        {
+            if ( !SecUtils.isFound( perm, this ) )
+                setVisible( false );
+        }
+        else
+        {
+            boolean isAuthorized = false;
+            try
+            {
+                isAuthorized = SecUtils.checkAccess( this, accessMgr, perm );
+            }
+            catch( org.apache.directory.fortress.core.SecurityException se )
+            {
+                String error = "Fortress SecurityException checkAccess objectName: " + objName + " operationName: " + opName + " error=" + se;
+                LOG.error( error );
+            }
+            if ( !isAuthorized )
+                setVisible( false );
+        }
+    }
+}
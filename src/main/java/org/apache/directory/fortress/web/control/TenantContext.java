@@ -0,0 +1,285 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+package org.apache.directory.fortress.web.control;
+
+import org.apache.commons.lang.StringUtils;
+import org.apache.directory.fortress.core.model.Session;
+import org.apache.directory.fortress.web.common.ConfigUtils;
+import org.apache.directory.fortress.web.common.GlobalIds;
+
+import javax.servlet.http.HttpServletRequest;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.Callable;
+
+/**
+ * The tenant, or contextId, the current thread works on behalf of.  With tenant.multi.enabled=false, the default,
+ * it is always the contextId of fortress.properties, same as the manager beans.
+ * <p>
+ * With tenant.multi.enabled=true, one deployment serves the tenants listed in tenant.allowed as well as the default
+ * one.  The tenant of a request is the one the admin logged in to, the contextId of the fortress session handed over
+ * by the realm.  {@link TenantFilter} binds it to the request thread, the manager handles of {@link ManagerPool} and
+ * the per tenant caches of this package use it.  Work handed to a background thread is wrapped with
+ * {@link #wrap(Runnable)} so it runs on behalf of the tenant that submitted it.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ * @version $Rev$
+ */
+public final class TenantContext
+{
+    private static final boolean IS_ENABLED = ConfigUtils.getBoolean( "tenant.multi.enabled", false );
+    private static final String RESOLVER = StringUtils.defaultIfEmpty( StringUtils.trimToNull( ConfigUtils
+        .getProperty( "tenant.resolver" ) ), "none" );
+    private static final String PARAM = StringUtils.defaultIfEmpty( ConfigUtils.getProperty( "tenant.param" ),
+        "tenant" );
+    private static final String HEADER = StringUtils.defaultIfEmpty( ConfigUtils.getProperty( "tenant.header" ),
+        "X-Fortress-Tenant" );
+    private static final Set<String> ALLOWED = getAllowed();
+    private static final ThreadLocal<String> CURRENT = new ThreadLocal<>();
+
+    private TenantContext()
+    {
+    }
+
+    /**
+     * @return true if tenant.multi.enabled=true.
+     */
+    public static boolean isEnabled()
+    {
+        return IS_ENABLED;
+    }
+
+    /**
+     * @return contextId of fortress.properties, HOME if not set.
+     */
+    public static String getDefault()
+    {
+        String contextId = ConfigUtils.getProperty( GlobalIds.CONTEXT_ID_PROPERTY );
+        return contextId != null ? contextId : "HOME";
+    }
+
+    /**
+     * @return tenant bound to this thread, or the default one.
+     */
+    public static String get()
+    {
+        String contextId = IS_ENABLED ? CURRENT.get() : null;
+        return contextId != null ? contextId : getDefault();
+    }
+
+    /**
+     * Bind a tenant to this thread.
+     *
+     * @param contextId of tenant, null for the default one.
+     * @return tenant bound before, null if none.
+     */
+    static String set( String contextId )
+    {
+        String previous = CURRENT.get();
+        if ( contextId != null )
+        {
+            CURRENT.set( contextId );
+        }
+        else
+        {
+            CURRENT.remove();
+        }
+        return previous;
+    }
+
+    /**
+     * @param contextId of tenant.
+     * @return true if the tenant may be served by this deployment.
+     */
+    public static boolean isAllowed( String contextId )
+    {
+        return contextId != null && ( contextId.equals( getDefault() ) || ( IS_ENABLED && ALLOWED.contains(
+            contextId ) ) );
+    }
+
+    /**
+     * Return the tenant of a login.
+     *
+     * @param realmSession fortress session of the admin, handed over by the realm.
+     * @return contextId of the session, or of its user, the default one if neither is set.
+     */
+    static String getLoginTenant( Session realmSession )
+    {
+        String contextId = realmSession != null ? StringUtils.trimToNull( realmSession.getContextId() ) : null;
+        if ( contextId == null && realmSession != null && realmSession.getUser() != null )
+        {
+            contextId = StringUtils.trimToNull( realmSession.getUser().getContextId() );
+        }
+        return contextId != null ? contextId : getDefault();
+    }
+
+    /**
+     * Decide the tenant of a request made by a logged in admin.
+     *
+     * @param named contextId named by the request, see {@link #resolve(HttpServletRequest)}, null if none.
+     * @param login contextId of the login, see {@link #getLoginTenant(Session)}.
+     * @return tenant to serve the request for, null if it must be refused: the tenant of the login is not served by
+     * this deployment or the request names another.
+     */
+    static String check( String named, String login )
+    {
+        if ( !isAllowed( login ) || ( named != null && !named.equals( login ) ) )
+        {
+            return null;
+        }
+        return login;
+    }
+
+    /**
+     * Return the tenant named by a request, per tenant.resolver.  It is only checked against the tenant of the login,
+     * see {@link #check(String, String)}.
+     *
+     * @param request to resolve.
+     * @return contextId named by the request, null if none.
+     */
+    static String resolve( HttpServletRequest request )
+    {
+        return resolve( request, RESOLVER );
+    }
+
+    /**
+     * Return the tenant named by a request: none (the default) names none, param reads the tenant.param request
+     * parameter, header the tenant.header request header and host the first label of the server name, e.g. acme123
+     * of acme123.commander.example.com.
+     *
+     * @param request to resolve.
+     * @param resolver one of none, param, header or host.
+     * @return contextId named by the request, null if none.
+     */
+    static String resolve( HttpServletRequest request, String resolver )
+    {
+        String contextId;
+        switch ( resolver )
+        {
+            case "header":
+                contextId = request.getHeader( HEADER );
+                break;
+            case "host":
+                String host = request.getServerName();
+                int dot = host != null ? host.indexOf( '.' ) : -1;
+                contextId = dot > 0 ? host.substring( 0, dot ) : null;
+                break;
+            case "param":
+                contextId = request.getParameter( PARAM );
+                break;
+            default:
+                contextId = null;
+                break;
+        }
+        return StringUtils.trimToNull( contextId );
+    }
+
+    /**
+     * Wrap a task so it runs on behalf of the tenant of the calling thread.
+     *
+     * @param task to run on another thread.
+     * @return wrapped task.
+     */
+    public static Runnable wrap( Runnable task )
+    {
+        return wrap( get(), task );
+    }
+
+    /**
+     * Wrap a task so it runs on behalf of a tenant.
+     *
+     * @param contextId of the tenant.
+     * @param task to run on another thread.
+     * @return wrapped task.
+     */
+    public static Runnable wrap( final String contextId, final Runnable task )
+    {
+        if ( !IS_ENABLED )
+        {
+            return task;
+        }
+        return new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                String previous = set( contextId );
+                try
+                {
+                    task.run();
+                }
+                finally
+                {
+                    set( previous );
+                }
+            }
+        };
+    }
+
+    /**
+     * Wrap a task so it runs on behalf of the tenant of the calling thread.
+     *
+     * @param task to call on another thread.
+     * @param <T> type of result.
+     * @return wrapped task.
+     */
+    public static <T> Callable<T> wrap( final Callable<T> task )
+    {
+        if ( !IS_ENABLED )
+        {
+            return task;
+        }
+        final String contextId = get();
+        return new Callable<T>()
+        {
+            @Override
+            public T call() throws Exception
+            {
+                String previous = set( contextId );
+                try
+                {
+                    return task.call();
+                }
+                finally
+                {
+                    set( previous );
+                }
+            }
+        };
+    }
+
+    private static Set<String> getAllowed()
+    {
+        Set<String> allowed = new HashSet<>();
+        String szAllowed = ConfigUtils.getProperty( "tenant.allowed" );
+        if ( szAllowed != null )
+        {
+            for ( String contextId : szAllowed.split( "," ) )
+            {
+                if ( StringUtils.isNotBlank( contextId ) )
+                {
+                    allowed.add( contextId.trim() );
+                }
+            }
+        }
+        return Collections.unmodifiableSet( allowed );
+    }
+}
@@ -0,0 +1,146 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+package org.apache.directory.fortress.web.control;
+
+import org.apache.directory.fortress.core.SecurityException;
+import org.apache.directory.fortress.realm.J2eePolicyMgr;
+import org.apache.log4j.Logger;
+import org.springframework.web.context.WebApplicationContext;
+import org.springframework.web.context.support.WebApplicationContextUtils;
+
+import javax.servlet.Filter;
+import javax.servlet.FilterChain;
+import javax.servlet.FilterConfig;
+import javax.servlet.ServletContext;
+import javax.servlet.ServletException;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpSession;
+import java.io.IOException;
+import java.security.Principal;
+
+/**
+ * Binds the tenant of each request to the request thread, see {@link TenantContext}.  Does nothing unless
+ * tenant.multi.enabled=true.
+ * <p>
+ * The tenant is the one the admin logged in to, taken from the fortress session the realm hands over with the
+ * principal, and remembered for the rest of the http session.  A request is refused with 403 if the tenant of its
+ * login is not served by this deployment, or if it names another tenant, per tenant.resolver.  Requests not logged in
+ * yet are served for the default tenant.  Declared in web.xml, ahead of the wicket filter.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ * @version $Rev$
+ */
+public class TenantFilter implements Filter
+{
+    private static final Logger LOG = Logger.getLogger( TenantFilter.class.getName() );
+    private static final String SESSION_PRINCIPAL = TenantFilter.class.getName() + ".principal";
+    private static final String SESSION_TENANT = TenantFilter.class.getName() + ".contextId";
+    private ServletContext servletContext;
+
+
+    @Override
+    public void init( FilterConfig filterConfig ) throws ServletException
+    {
+        servletContext = filterConfig.getServletContext();
+    }
+
+
+    @Override
+    public void doFilter( ServletRequest request, ServletResponse response, FilterChain chain ) throws IOException,
+        ServletException
+    {
+        if ( !TenantContext.isEnabled() || !( request instanceof HttpServletRequest ) )
+        {
+            chain.doFilter( request, response );
+            return;
+        }
+        HttpServletRequest httpRequest = ( HttpServletRequest ) request;
+        Principal principal = httpRequest.getUserPrincipal();
+        String contextId;
+        if ( principal == null )
+        {
+            // nothing is read on behalf of a tenant before the login:
+            contextId = TenantContext.getDefault();
+        }
+        else
+        {
+            String login = getLoginTenant( httpRequest, principal );
+            String named = TenantContext.resolve( httpRequest );
+            contextId = login != null ? TenantContext.check( named, login ) : null;
+            if ( contextId == null )
+            {
+                LOG.warn( "doFilter refused principal: " + principal.getName() + " login tenant: " + login
+                    + " named tenant: " + named + " uri: " + httpRequest.getRequestURI() );
+                ( ( HttpServletResponse ) response ).sendError( HttpServletResponse.SC_FORBIDDEN );
+                return;
+            }
+        }
+        String previous = TenantContext.set( contextId );
+        try
+        {
+            Tenants.touch();
+            chain.doFilter( request, response );
+        }
+        finally
+        {
+            TenantContext.set( previous );
+        }
+    }
+
+
+    @Override
+    public void destroy()
+    {
+    }
+
+
+    /**
+     * Return the tenant of the login, read from the principal once per http session and login.
+     *
+     * @return contextId of the login, null if the principal could not be read.
+     */
+    private String getLoginTenant( HttpServletRequest request, Principal principal )
+    {
+        HttpSession session = request.getSession();
+        String contextId = ( String ) session.getAttribute( SESSION_TENANT );
+        if ( contextId != null && principal.getName().equals( session.getAttribute( SESSION_PRINCIPAL ) ) )
+        {
+            return contextId;
+        }
+        try
+        {
+            WebApplicationContext spring = WebApplicationContextUtils.getRequiredWebApplicationContext(
+                servletContext );
+            J2eePolicyMgr j2eePolicyMgr = spring.getBean( "j2eePolicyMgr", J2eePolicyMgr.class );
+            contextId = TenantContext.getLoginTenant( j2eePolicyMgr.deserialize( principal.toString() ) );
+        }
+        catch ( SecurityException se )
+        {
+            LOG.warn( "getLoginTenant principal: " + principal.getName() + " caught SecurityException=" + se );
+            return null;
+        }
+        session.setAttribute( SESSION_PRINCIPAL, principal.getName() );
+        session.setAttribute( SESSION_TENANT, contextId );
+        return contextId;
+    }
+}
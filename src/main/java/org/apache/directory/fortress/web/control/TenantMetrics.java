@@ -0,0 +1,148 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+package org.apache.directory.fortress.web.control;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counts the requests made for one tenant and the fortress manager calls made on its behalf, by request threads and
+ * by the background work they started.  Kept by {@link ManagerMetrics}.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ * @version $Rev$
+ */
+public class TenantMetrics implements TenantMetricsMXBean
+{
+    private final String contextId;
+    private final MethodMetrics requests = new MethodMetrics( ManagerMetrics.WICKET, "request" );
+    private final MethodMetrics calls = new MethodMetrics( "managers", "calls" );
+    private final AtomicLong evictions = new AtomicLong();
+
+
+    TenantMetrics( String contextId )
+    {
+        this.contextId = contextId;
+    }
+
+
+    void request( long nanos, boolean isError )
+    {
+        requests.begin();
+        requests.end( nanos, -1, isError );
+    }
+
+
+    void call( long nanos, boolean isError )
+    {
+        calls.begin();
+        calls.end( nanos, -1, isError );
+    }
+
+
+    void evicted()
+    {
+        evictions.incrementAndGet();
+    }
+
+
+    @Override
+    public String getContextId()
+    {
+        return contextId;
+    }
+
+
+    @Override
+    public long getRequests()
+    {
+        return requests.getCalls();
+    }
+
+
+    @Override
+    public long getRequestErrors()
+    {
+        return requests.getErrors();
+    }
+
+
+    @Override
+    public double getRequestMeanMillis()
+    {
+        return requests.getMeanMillis();
+    }
+
+
+    @Override
+    public long getRequestP95Millis()
+    {
+        return requests.getP95Millis();
+    }
+
+
+    @Override
+    public long getCalls()
+    {
+        return calls.getCalls();
+    }
+
+
+    @Override
+    public long getCallErrors()
+    {
+        return calls.getErrors();
+    }
+
+
+    @Override
+    public double getCallsPerSecond()
+    {
+        return calls.getCallsPerSecond();
+    }
+
+
+    @Override
+    public double getCallMeanMillis()
+    {
+        return calls.getMeanMillis();
+    }
+
+
+    @Override
+    public long getCallP95Millis()
+    {
+        return calls.getP95Millis();
+    }
+
+
+    @Override
+    public long getEvictions()
+    {
+        return evictions.get();
+    }
+
+
+    @Override
+    public void reset()
+    {
+        requests.reset();
+        calls.reset();
+    }
+}
@@ -0,0 +1,58 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+package org.apache.directory.fortress.web.control;
+
+/**
+ * JMX view of the requests made for one tenant and the fortress manager calls made on its behalf, see
+ * {@link ManagerMetrics}.  Times are in milliseconds, percentiles are the upper bound of the histogram bucket they
+ * fall in.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ * @version $Rev$
+ */
+public interface TenantMetricsMXBean
+{
+    String getContextId();
+
+    long getRequests();
+
+    long getRequestErrors();
+
+    double getRequestMeanMillis();
+
+    long getRequestP95Millis();
+
+    long getCalls();
+
+    long getCallErrors();
+
+    double getCallsPerSecond();
+
+    double getCallMeanMillis();
+
+    long getCallP95Millis();
+
+    /**
+     * @return number of times the in-memory state of the tenant was dropped for being idle, see {@link Tenants}.
+     */
+    long getEvictions();
+
+    void reset();
+}
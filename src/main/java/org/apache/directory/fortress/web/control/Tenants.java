@@ -0,0 +1,156 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+package org.apache.directory.fortress.web.control;
+
+import org.apache.directory.fortress.web.common.ConfigUtils;
+import org.apache.log4j.Logger;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Tracks the tenants served by a multi-tenant deployment, see {@link TenantContext}, and drops the in-memory state
+ * of the ones not used for tenant.idle.seconds (default 1800): their role graphs, permission matrix, SD set index
+ * and type-ahead indexes.  These are built again, on the first request made for the tenant after that.  The default
+ * tenant is never dropped.  The other caches of the app are bounded and expire on their own, and
+ * {@link ManagerPool} drops its idle managers the same way.
+ * <p>
+ * Idle tenants are looked for at most once a minute, by the request that happens to come along.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ * @version $Rev$
+ */
+public final class Tenants
+{
+    private static final Logger LOG = Logger.getLogger( Tenants.class.getName() );
+    private static final long IDLE_MILLIS = Math.max( 60, ConfigUtils.getLong( "tenant.idle.seconds", 1800 ) ) * 1000;
+    private static final long SWEEP_MILLIS = 60000;
+    // last time each tenant was used, of the tenants whose state is loaded:
+    private static final ConcurrentMap<String, AtomicLong> LAST_USED = new ConcurrentHashMap<>();
+    private static final AtomicLong NEXT_SWEEP = new AtomicLong();
+
+    private Tenants()
+    {
+    }
+
+    /**
+     * Record a request made for the tenant bound to this thread.  Called by {@link TenantFilter}.
+     */
+    static void touch()
+    {
+        if ( !TenantContext.isEnabled() )
+        {
+            return;
+        }
+        String contextId = TenantContext.get();
+        long now = System.currentTimeMillis();
+        AtomicLong lastUsed = LAST_USED.get( contextId );
+        if ( lastUsed == null )
+        {
+            AtomicLong created = new AtomicLong( now );
+            lastUsed = LAST_USED.putIfAbsent( contextId, created );
+            if ( lastUsed == null )
+            {
+                LOG.info( "tenant: " + contextId + " in use" );
+                // the type-ahead indexes are built in the background, the others on first use:
+                IdIndex.refresh( contextId );
+            }
+        }
+        if ( lastUsed != null )
+        {
+            lastUsed.set( now );
+        }
+        long nextSweep = NEXT_SWEEP.get();
+        if ( now >= nextSweep && NEXT_SWEEP.compareAndSet( nextSweep, now + SWEEP_MILLIS ) )
+        {
+            evictIdle( now );
+        }
+    }
+
+    /**
+     * @return contextIds of the tenants with state loaded, the default one first.
+     */
+    public static List<String> getLoaded()
+    {
+        List<String> loaded = new ArrayList<>();
+        String defaultId = TenantContext.getDefault();
+        loaded.add( defaultId );
+        List<String> others = new ArrayList<>( LAST_USED.keySet() );
+        others.remove( defaultId );
+        Collections.sort( others );
+        loaded.addAll( others );
+        return loaded;
+    }
+
+    /**
+     * @param contextId of tenant.
+     * @return true if the state of the tenant is loaded, or may be, always true for the default tenant.
+     */
+    static boolean isLoaded( String contextId )
+    {
+        return !TenantContext.isEnabled() || contextId.equals( TenantContext.getDefault() ) || LAST_USED.containsKey(
+            contextId );
+    }
+
+    /**
+     * @param contextId of tenant.
+     * @return last time a request was made for the tenant, in millis, 0 if not loaded or never used.
+     */
+    public static long getLastUsed( String contextId )
+    {
+        AtomicLong lastUsed = LAST_USED.get( contextId );
+        return lastUsed != null ? lastUsed.get() : 0;
+    }
+
+    /**
+     * Drop the in-memory state of a tenant.
+     *
+     * @param contextId of tenant.
+     */
+    public static void evict( String contextId )
+    {
+        LAST_USED.remove( contextId );
+        ReviewMgrCache.evict( contextId );
+        AuditStats.evict( contextId );
+        RoleGraph.evict( contextId );
+        PermissionMatrix.evict( contextId );
+        SDSetIndex.evict( contextId );
+        IdIndex.evict( contextId );
+        ManagerMetrics.getTenant( contextId ).evicted();
+        LOG.info( "tenant: " + contextId + " evicted" );
+    }
+
+    private static void evictIdle( long now )
+    {
+        String defaultId = TenantContext.getDefault();
+        for ( Map.Entry<String, AtomicLong> entry : LAST_USED.entrySet() )
+        {
+            if ( !entry.getKey().equals( defaultId ) && now - entry.getValue().get() > IDLE_MILLIS )
+            {
+                evict( entry.getKey() );
+            }
+        }
+    }
+}
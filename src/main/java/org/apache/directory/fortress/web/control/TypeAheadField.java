@@ -0,0 +1,126 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+package org.apache.directory.fortress.web.control;
+
+import org.apache.commons.lang.StringUtils;
+import org.apache.directory.fortress.core.AccessMgr;
+import org.apache.directory.fortress.core.SecurityException;
+import org.apache.directory.fortress.core.model.Permission;
+import org.apache.directory.fortress.web.common.ConfigUtils;
+import org.apache.log4j.Logger;
+import org.apache.wicket.extensions.ajax.markup.html.autocomplete.AutoCompleteSettings;
+import org.apache.wicket.extensions.ajax.markup.html.autocomplete.AutoCompleteTextField;
+import org.apache.wicket.model.IModel;
+import org.apache.wicket.spring.injection.annot.SpringBean;
+
+import java.util.Collections;
+import java.util.Iterator;
+
+/**
+ * Search field that suggests matching names as the admin types, from {@link IdIndex}.  Names are only suggested to
+ * admins allowed to search for them, and only the names within the admin's scope, see
+ * {@link IdIndex#find(IdIndex.Type, String, int, org.apache.directory.fortress.core.model.Session)}.  Max number of suggestions is typeahead.max.choices (default 10).
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ * @version $Rev$
+ */
+public class TypeAheadField extends AutoCompleteTextField<String>
+{
+    /** Default serialVersionUID */
+    private static final long serialVersionUID = 1L;
+    private static final Logger LOG = Logger.getLogger( TypeAheadField.class.getName() );
+    private static final int MAX_CHOICES = Math.max( 1, ConfigUtils.getInt( "typeahead.max.choices", 10 ) );
+    @SpringBean
+    private AccessMgr accessMgr;
+    private IdIndex.Type type;
+
+
+    /**
+     * @param id of field.
+     * @param model of the text typed.
+     * @param type of names suggested, may be null if {@link #getType()} is overridden.
+     */
+    public TypeAheadField( String id, IModel<String> model, IdIndex.Type type )
+    {
+        super( id, model, newSettings() );
+        this.type = type;
+    }
+
+
+    /**
+     * @return type of names suggested, null for none.
+     */
+    protected IdIndex.Type getType()
+    {
+        return type;
+    }
+
+
+    public void setType( IdIndex.Type type )
+    {
+        this.type = type;
+    }
+
+
+    @Override
+    protected Iterator<String> getChoices( String input )
+    {
+        IdIndex.Type choiceType = getType();
+        if ( choiceType == null || StringUtils.isEmpty( input ) || !isAuthorized( new Permission( choiceType
+            .getObjName(), choiceType.getOpName() ) ) )
+        {
+            return Collections.<String>emptyList().iterator();
+        }
+        return IdIndex.find( choiceType, input, MAX_CHOICES, SecUtils.getSession( this ) ).iterator();
+    }
+
+
+    /**
+     * Check the permission against the perms cached in the session if there are, with fortress otherwise, the way
+     * {@link SecureIndicatingAjaxButton} does.
+     */
+    private boolean isAuthorized( Permission perm )
+    {
+        if ( SecUtils.IS_PERM_CACHED )
+        {
+            return SecUtils.isFound( perm, this );
+        }
+        try
+        {
+            return SecUtils.checkAccess( this, accessMgr, perm );
+        }
+        catch ( SecurityException se )
+        {
+            LOG.error( "Fortress SecurityException checkAccess objName: " + perm.getObjName() + " opName: " + perm
+                .getOpName() + " error=" + se );
+            return false;
+        }
+    }
+
+
+    private static AutoCompleteSettings newSettings()
+    {
+        AutoCompleteSettings settings = new AutoCompleteSettings();
+        settings.setPreselect( true );
+        settings.setShowListOnEmptyInput( false );
+        settings.setThrottleDelay( 200 );
+        return settings;
+    }
+}
@@ -0,0 +1,371 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+package org.apache.directory.fortress.web.control;
+
+import org.apache.commons.collections.CollectionUtils;
+import org.apache.directory.fortress.core.GlobalErrIds;
+import org.apache.directory.fortress.core.ReviewMgr;
+import org.apache.directory.fortress.core.SecurityException;
+import org.apache.directory.fortress.core.model.Session;
+import org.apache.directory.fortress.core.model.User;
+import org.apache.directory.fortress.web.common.ConfigUtils;
+import org.apache.directory.fortress.web.model.UserRow;
+import org.apache.log4j.Logger;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Reads fortress users for a collection of userIds.  The ids are split into chunks and the chunks are read
+ * concurrently on a small, bounded pool shared by the whole app, so a search that returns thousands of userIds,
+ * e.g. {@link ReviewMgr#authorizedPermissionUsers}, no longer makes thousands of sequential directory round trips on
+ * the request thread.
+ * <p>
+ * As when the users were read one at a time, a user that can't be read fails the whole set: the first failure is
+ * thrown to the caller and the batches not yet read are cancelled.
+ * <p>
+ * Tuned with these optional fortress.properties:
+ * <ul>
+ * <li>user.read.batch.size - number of userIds read by one task, default 25.</li>
+ * <li>user.read.threads - max number of concurrent tasks, default 8.</li>
+ * <li>user.read.timeout.seconds - max time to wait for a whole set, default 60.</li>
+ * </ul>
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ * @version $Rev$
+ */
+public final class UserBatchReader
+{
+    private static final Logger LOG = Logger.getLogger( UserBatchReader.class.getName() );
+    static final int BATCH_SIZE = Math.max( 1, ConfigUtils.getInt( "user.read.batch.size", 25 ) );
+    static final int THREADS = Math.max( 1, ConfigUtils.getInt( "user.read.threads", 8 ) );
+    private static final long TIMEOUT_SECONDS = ConfigUtils.getLong( "user.read.timeout.seconds", 60 );
+    private static final ThreadPoolExecutor EXECUTOR = newExecutor();
+    private static final Reader<User> USERS = new Reader<User>()
+    {
+        @Override
+        public User read( ReviewMgr reviewMgr, String userId ) throws SecurityException
+        {
+            return reviewMgr.readUser( new User( userId ) );
+        }
+    };
+
+    /**
+     * Reads one entry of a batch.
+     *
+     * @param <T> type read.
+     */
+    private interface Reader<T>
+    {
+        /**
+         * @return entry, never null.
+         * @throws SecurityException thrown by fortress when the entry cannot be read.
+         */
+        T read( ReviewMgr reviewMgr, String id ) throws SecurityException;
+    }
+
+    private UserBatchReader()
+    {
+    }
+
+    /**
+     * Read a single user, returning null, rather than throwing, if it cannot be read.
+     *
+     * @param reviewMgr initialized with the admin session of caller.
+     * @param userId contains the id of user to read.
+     * @return matching user or null if not found.
+     */
+    public static User readUser( ReviewMgr reviewMgr, String userId )
+    {
+        User user = null;
+        try
+        {
+            user = reviewMgr.readUser( new User( userId ) );
+        }
+        catch ( SecurityException se )
+        {
+            String error = "readUser userId: " + userId + " caught SecurityException=" + se;
+            LOG.warn( error );
+        }
+        return user;
+    }
+
+    /**
+     * Find the user with the given internalId, returning null, rather than throwing, if it cannot be found.
+     *
+     * @param reviewMgr initialized with the admin session of caller.
+     * @param internalId contains the internal id of user, e.g. the ftModifier of an audit record.
+     * @return matching user or null if not found.
+     */
+    public static User readUserByInternalId( ReviewMgr reviewMgr, String internalId )
+    {
+        User user = null;
+        try
+        {
+            user = findUserByInternalId( reviewMgr, internalId );
+            if ( user == null )
+            {
+                String error = "Can't find user matching internalId: " + internalId;
+                LOG.warn( error );
+            }
+        }
+        catch ( SecurityException se )
+        {
+            String error = "readUserByInternalId internalId: " + internalId + " caught SecurityException=" + se;
+            LOG.warn( error );
+        }
+        return user;
+    }
+
+    /**
+     * Find the user with the given internalId.
+     *
+     * @param reviewMgr initialized with the admin session of caller.
+     * @param internalId contains the internal id of user.
+     * @return first matching user or null if none found.
+     * @throws SecurityException thrown by fortress when the search fails.
+     */
+    static User findUserByInternalId( ReviewMgr reviewMgr, String internalId ) throws SecurityException
+    {
+        User inUser = new User();
+        inUser.setInternalId( internalId );
+        List<User> users = reviewMgr.findUsers( inUser );
+        if ( CollectionUtils.isEmpty( users ) )
+        {
+            return null;
+        }
+        if ( users.size() > 1 )
+        {
+            String error = "Found: " + users.size() + " users matching internalId: " + internalId;
+            LOG.warn( error );
+        }
+        return users.get( 0 );
+    }
+
+    /**
+     * Read the users for all of the userIds.  Order of the result follows the iteration order of the input.
+     *
+     * @param reviewMgr initialized with the admin session of caller.  Must be safe for use by multiple threads.
+     * @param userIds contains the ids of users to read.
+     * @return list of users, never null.
+     * @throws SecurityException thrown by fortress for the first user that can't be read, or if the set can't be read
+     * within user.read.timeout.seconds.
+     */
+    public static List<User> readUsers( ReviewMgr reviewMgr, Collection<String> userIds ) throws SecurityException
+    {
+        return read( reviewMgr, userIds, USERS );
+    }
+
+    /**
+     * Read the grid rows for all of the userIds, for list views that show a few columns of many users.  Each user is
+     * reduced to its row on the reading thread, so the photos and other bulky attributes of the users are dropped as
+     * soon as they arrive rather than held until the whole set is read.  Rows {@link ReviewMgrCache} holds for the
+     * admin are reused, but users read this way are not added to it, so a large search does not push out the entries
+     * panels reuse; the full user is read when its row is selected.
+     *
+     * @param reviewMgr initialized with the admin session of caller.  Must be safe for use by multiple threads.
+     * @param admin session of caller, null if there is none.
+     * @param userIds contains the ids of users to read.
+     * @return list of rows, never null.
+     * @throws SecurityException thrown by fortress for the first user that can't be read, or if the set can't be read
+     * within user.read.timeout.seconds.
+     */
+    public static List<UserRow> readUserRows( ReviewMgr reviewMgr, final Session admin, Collection<String> userIds )
+        throws SecurityException
+    {
+        return read( reviewMgr, userIds, new Reader<UserRow>()
+        {
+            @Override
+            public UserRow read( ReviewMgr reviewMgr, String userId ) throws SecurityException
+            {
+                return readUserRow( reviewMgr, admin, userId );
+            }
+        } );
+    }
+
+    /**
+     * Stop the pool.  Called when the web app shuts down.
+     */
+    public static void shutdown()
+    {
+        EXECUTOR.shutdownNow();
+    }
+
+    private static UserRow readUserRow( ReviewMgr reviewMgr, Session admin, String userId )
+        throws SecurityException
+    {
+        UserRow row = ReviewMgrCache.getCachedUser( admin, userId );
+        if ( row == null )
+        {
+            row = UserRow.of( reviewMgr.readUser( new User( userId ) ) );
+        }
+        return row;
+    }
+
+    private static <T> List<T> read( final ReviewMgr reviewMgr, Collection<String> userIds, final Reader<T> reader )
+        throws SecurityException
+    {
+        List<T> users = new ArrayList<>();
+        if ( CollectionUtils.isEmpty( userIds ) )
+        {
+            return users;
+        }
+        List<List<String>> batches = partition( userIds, BATCH_SIZE );
+        if ( batches.size() == 1 )
+        {
+            // not worth the thread hop:
+            users.addAll( readBatch( reviewMgr, batches.get( 0 ), reader ) );
+            return users;
+        }
+        List<Future<List<T>>> futures = new ArrayList<>( batches.size() );
+        for ( final List<String> batch : batches )
+        {
+            futures.add( EXECUTOR.submit( TenantContext.wrap( new Callable<List<T>>()
+            {
+                @Override
+                public List<T> call() throws SecurityException
+                {
+                    return readBatch( reviewMgr, batch, reader );
+                }
+            } ) ) );
+        }
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos( TIMEOUT_SECONDS );
+        for ( Future<List<T>> future : futures )
+        {
+            try
+            {
+                users.addAll( future.get( Math.max( 0, deadline - System.nanoTime() ), TimeUnit.NANOSECONDS ) );
+            }
+            catch ( InterruptedException ie )
+            {
+                Thread.currentThread().interrupt();
+                cancel( futures );
+                String error = "readUsers interrupted after " + users.size() + " of " + userIds.size() + " users";
+                throw new SecurityException( GlobalErrIds.USER_READ_FAILED, error );
+            }
+            catch ( ExecutionException ee )
+            {
+                cancel( futures );
+                throw toSecurityException( ee.getCause() );
+            }
+            catch ( TimeoutException te )
+            {
+                cancel( futures );
+                String error = "readUsers timed out after " + users.size() + " of " + userIds.size() + " users";
+                throw new SecurityException( GlobalErrIds.USER_READ_FAILED, error );
+            }
+        }
+        if ( LOG.isDebugEnabled() )
+        {
+            LOG.debug( "readUsers read " + users.size() + " users in " + batches.size() + " batches" );
+        }
+        return users;
+    }
+
+    static List<List<String>> partition( Collection<String> userIds, int size )
+    {
+        List<List<String>> batches = new ArrayList<>( ( userIds.size() + size - 1 ) / size );
+        List<String> batch = new ArrayList<>( size );
+        for ( String userId : userIds )
+        {
+            batch.add( userId );
+            if ( batch.size() == size )
+            {
+                batches.add( batch );
+                batch = new ArrayList<>( size );
+            }
+        }
+        if ( !batch.isEmpty() )
+        {
+            batches.add( batch );
+        }
+        return batches;
+    }
+
+    private static <T> List<T> readBatch( ReviewMgr reviewMgr, List<String> userIds, Reader<T> reader )
+        throws SecurityException
+    {
+        List<T> users = new ArrayList<>( userIds.size() );
+        for ( String userId : userIds )
+        {
+            if ( Thread.currentThread().isInterrupted() )
+            {
+                break;
+            }
+            users.add( reader.read( reviewMgr, userId ) );
+        }
+        return users;
+    }
+
+    private static SecurityException toSecurityException( Throwable cause )
+    {
+        if ( cause instanceof SecurityException )
+        {
+            return ( SecurityException ) cause;
+        }
+        if ( cause instanceof RuntimeException )
+        {
+            throw ( RuntimeException ) cause;
+        }
+        if ( cause instanceof Error )
+        {
+            throw ( Error ) cause;
+        }
+        return new SecurityException( GlobalErrIds.USER_READ_FAILED, "readUsers caught " + cause, ( Exception ) cause );
+    }
+
+    private static void cancel( List<? extends Future<?>> futures )
+    {
+        for ( Future<?> future : futures )
+        {
+            future.cancel( true );
+        }
+    }
+
+    private static ThreadPoolExecutor newExecutor()
+    {
+        // When the queue fills, the request thread reads the batch itself which throttles the callers:
+        ThreadPoolExecutor executor = new ThreadPoolExecutor( THREADS, THREADS, 60, TimeUnit.SECONDS,
+            new ArrayBlockingQueue<Runnable>( THREADS * 16 ), new ThreadFactory()
+            {
+                private final AtomicInteger count = new AtomicInteger();
+
+                @Override
+                public Thread newThread( Runnable runnable )
+                {
+                    Thread thread = new Thread( runnable, "fortress-user-reader-" + count.incrementAndGet() );
+                    thread.setDaemon( true );
+                    return thread;
+                }
+            }, new ThreadPoolExecutor.CallerRunsPolicy() );
+        executor.allowCoreThreadTimeOut( true );
+        return executor;
+    }
+}
@@ -0,0 +1,657 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+package org.apache.directory.fortress.web.control;
+
+import org.apache.commons.collections.CollectionUtils;
+import org.apache.commons.lang.StringUtils;
+import org.apache.directory.api.ldap.model.entry.Attribute;
+import org.apache.directory.api.ldap.model.entry.Entry;
+import org.apache.directory.api.ldap.model.entry.Value;
+import org.apache.directory.api.ldap.model.exception.LdapException;
+import org.apache.directory.api.ldap.model.exception.LdapInvalidDnException;
+import org.apache.directory.api.ldap.model.ldif.LdifEntry;
+import org.apache.directory.api.ldap.model.ldif.LdifReader;
+import org.apache.directory.api.ldap.model.name.Dn;
+import org.apache.directory.fortress.core.AdminMgr;
+import org.apache.directory.fortress.core.SecurityException;
+import org.apache.directory.fortress.core.model.User;
+import org.apache.directory.fortress.core.model.UserRole;
+import org.apache.directory.fortress.web.common.BoundedCache;
+import org.apache.directory.fortress.web.common.ConfigUtils;
+import org.apache.directory.fortress.web.common.CsvReader;
+import org.apache.directory.fortress.web.event.SaveModelEvent;
+import org.apache.log4j.Logger;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Serializable;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Adds users, and assigns their roles, from an uploaded CSV or LDIF file.  The file is read one record at a time on a
+ * background thread.  Each record is checked against the OUs, roles and password policies that exist, then handed to
+ * a small, bounded pool of writers that call {@link AdminMgr#addUser} and {@link AdminMgr#assignUser}.  When the
+ * writers fall behind, the reader does the write itself, which keeps the number of records in memory bounded.  Each
+ * user written is applied to the in-memory caches the same way a save from a page is, see
+ * {@link SaveModelEvent#update}.
+ * <p>
+ * CSV files start with a header row naming the columns: userId, password, ou, cn, sn, description, title, pwPolicy
+ * and roles.  Multiple roles are separated by ';'.  LDIF entries use uid, userPassword, ou, cn, sn, description,
+ * title, pwdPolicySubentry and ftRA.  pwdPolicySubentry may hold the DN of the policy or its name.
+ * <p>
+ * Tuned with these optional fortress.properties:
+ * <ul>
+ * <li>user.import.threads - number of concurrent writers, default 4.</li>
+ * <li>user.import.max.jobs - number of imports that may run at once, default 2.</li>
+ * <li>user.import.max.errors - number of row errors kept for the report, default 1000.</li>
+ * </ul>
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ * @version $Rev$
+ */
+public final class UserImport
+{
+    private static final Logger LOG = Logger.getLogger( UserImport.class.getName() );
+    private static final int THREADS = Math.max( 1, ConfigUtils.getInt( "user.import.threads", 4 ) );
+    private static final int MAX_JOBS = Math.max( 1, ConfigUtils.getInt( "user.import.max.jobs", 2 ) );
+    private static final int MAX_ERRORS = ConfigUtils.getInt( "user.import.max.errors", 1000 );
+    private static final String MULTI_VALUE_DELIMITER = ";";
+    private static final ThreadPoolExecutor READERS = newExecutor( "fortress-user-import-", MAX_JOBS,
+        new SynchronousQueue<Runnable>(), new ThreadPoolExecutor.AbortPolicy() );
+    // When the queue fills, the reader writes the record itself, which throttles the reader:
+    private static final ThreadPoolExecutor WRITERS = newExecutor( "fortress-user-writer-", THREADS,
+        new ArrayBlockingQueue<Runnable>( THREADS * 4 ), new ThreadPoolExecutor.CallerRunsPolicy() );
+    private static final BoundedCache<String, UserImport> IMPORTS = new BoundedCache<>( "userImports", 16, 24 * 3600 );
+
+    public enum State
+    {
+        RUNNING,
+        DONE,
+        CANCELLED,
+        FAILED
+    }
+
+    private final String id = UUID.randomUUID().toString();
+    private final File file;
+    private final String fileName;
+    private final AdminMgr adminMgr;
+    private final Set<String> ous;
+    private final Set<String> roles;
+    private final Set<String> policies;
+    private final AtomicLong read = new AtomicLong();
+    private final AtomicLong added = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicInteger pending = new AtomicInteger();
+    private final List<RowError> errors = new ArrayList<>();
+    private final long started = System.currentTimeMillis();
+    private volatile long finished;
+    private volatile State state = State.RUNNING;
+    private volatile boolean isCancelled;
+
+    private UserImport( File file, String fileName, AdminMgr adminMgr, Collection<String> ous,
+        Collection<String> roles, Collection<String> policies )
+    {
+        this.file = file;
+        this.fileName = fileName;
+        this.adminMgr = adminMgr;
+        this.ous = normalize( ous );
+        this.roles = normalize( roles );
+        this.policies = normalize( policies );
+    }
+
+    /**
+     * Start importing the users in file on a background thread.  The file is deleted when the import ends.
+     *
+     * @param file CSV or LDIF file, owned by the import from now on.
+     * @param fileName name of the uploaded file, used to tell CSV from LDIF.
+     * @param adminMgr initialized with the admin session of caller.  Must be safe for use by multiple threads.
+     * @param ous names of the user OUs that exist.
+     * @param roles names of the roles that exist.
+     * @param policies names of the password policies that exist.
+     * @return the running import.
+     * @throws java.util.concurrent.RejectedExecutionException if too many imports are running already.
+     */
+    public static UserImport start( File file, String fileName, AdminMgr adminMgr, Collection<String> ous,
+        Collection<String> roles, Collection<String> policies )
+    {
+        final UserImport userImport = new UserImport( file, fileName, adminMgr, ous, roles, policies );
+        READERS.execute( TenantContext.wrap( new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                userImport.run();
+            }
+        } ) );
+        IMPORTS.put( userImport.id, userImport );
+        LOG.info( "start import id: " + userImport.id + " file: " + fileName );
+        return userImport;
+    }
+
+    /**
+     * Return the import with id.
+     *
+     * @param id of import.
+     * @return import or null if unknown or long since finished.
+     */
+    public static UserImport get( String id )
+    {
+        return id != null ? IMPORTS.get( id ) : null;
+    }
+
+    /**
+     * Stop the pools.  Called when the web app shuts down.
+     */
+    public static void shutdown()
+    {
+        READERS.shutdownNow();
+        WRITERS.shutdownNow();
+    }
+
+    /**
+     * Stop reading the file.  Records already handed to a writer are still written.
+     */
+    public void cancel()
+    {
+        isCancelled = true;
+    }
+
+    public String getId()
+    {
+        return id;
+    }
+
+    public String getFileName()
+    {
+        return fileName;
+    }
+
+    public State getState()
+    {
+        return state;
+    }
+
+    public boolean isRunning()
+    {
+        return state == State.RUNNING;
+    }
+
+    /**
+     * @return number of records read from the file so far.
+     */
+    public long getRead()
+    {
+        return read.get();
+    }
+
+    /**
+     * @return number of users added so far.
+     */
+    public long getAdded()
+    {
+        return added.get();
+    }
+
+    /**
+     * @return number of records that failed validation or could not be written.
+     */
+    public long getFailed()
+    {
+        return failed.get();
+    }
+
+    /**
+     * @return users added per second since the import started.
+     */
+    public double getUsersPerSecond()
+    {
+        long end = finished > 0 ? finished : System.currentTimeMillis();
+        long millis = Math.max( 1, end - started );
+        return added.get() * 1000.0 / millis;
+    }
+
+    /**
+     * Return the errors found so far, at most user.import.max.errors of them.
+     *
+     * @return copy of the error report.
+     */
+    public List<RowError> getErrors()
+    {
+        synchronized ( errors )
+        {
+            return new ArrayList<>( errors );
+        }
+    }
+
+    @Override
+    public String toString()
+    {
+        return "UserImport file: " + fileName + " state: " + state + " read: " + read + " added: " + added
+            + " failed: " + failed + " users/sec: " + String.format( "%.1f", getUsersPerSecond() );
+    }
+
+    private void run()
+    {
+        try
+        {
+            if ( fileName != null && fileName.toLowerCase( Locale.ENGLISH ).endsWith( ".ldif" ) )
+            {
+                readLdif();
+            }
+            else
+            {
+                readCsv();
+            }
+            awaitWriters();
+            state = isCancelled ? State.CANCELLED : State.DONE;
+        }
+        catch ( IOException | LdapException | RuntimeException e )
+        {
+            String error = "run file: " + fileName + " caught " + e.getClass().getSimpleName() + "=" + e;
+            LOG.error( error );
+            addError( read.get(), null, e.getMessage() );
+            awaitWriters();
+            state = State.FAILED;
+        }
+        finally
+        {
+            finished = System.currentTimeMillis();
+            if ( !file.delete() )
+            {
+                LOG.warn( "run could not delete file: " + file );
+            }
+            LOG.info( "end import id: " + id + " " + this );
+        }
+    }
+
+    private void readCsv() throws IOException
+    {
+        try ( CsvReader reader = new CsvReader( new BufferedReader( new InputStreamReader( new FileInputStream(
+            file ), StandardCharsets.UTF_8 ) ) ) )
+        {
+            List<String> header = reader.readRecord();
+            if ( header == null )
+            {
+                return;
+            }
+            Map<String, Integer> columns = new HashMap<>();
+            for ( int i = 0; i < header.size(); i++ )
+            {
+                columns.put( header.get( i ).trim().toLowerCase( Locale.ENGLISH ), i );
+            }
+            if ( !columns.containsKey( "userid" ) )
+            {
+                throw new IOException( "Missing userId column in header" );
+            }
+            long line = reader.getLineNumber();
+            List<String> record;
+            while ( !isCancelled && ( record = reader.readRecord() ) != null )
+            {
+                if ( !( record.size() == 1 && record.get( 0 ).isEmpty() ) )
+                {
+                    User user = new User( get( record, columns, "userid" ) );
+                    user.setPassword( toChars( get( record, columns, "password" ) ) );
+                    user.setOu( get( record, columns, "ou" ) );
+                    user.setCn( get( record, columns, "cn" ) );
+                    user.setSn( get( record, columns, "sn" ) );
+                    user.setDescription( get( record, columns, "description" ) );
+                    user.setTitle( get( record, columns, "title" ) );
+                    user.setPwPolicy( get( record, columns, "pwpolicy" ) );
+                    submit( line, user, split( get( record, columns, "roles" ) ) );
+                }
+                line = reader.getLineNumber();
+            }
+        }
+    }
+
+    private void readLdif() throws LdapException, IOException
+    {
+        try ( LdifReader reader = new LdifReader( file ) )
+        {
+            long count = 0;
+            for ( LdifEntry ldifEntry : reader )
+            {
+                if ( isCancelled )
+                {
+                    break;
+                }
+                count++;
+                if ( !ldifEntry.isEntry() )
+                {
+                    addError( count, null, "Only entries may be imported, found: " + ldifEntry.getChangeType() );
+                    continue;
+                }
+                Entry entry = ldifEntry.getEntry();
+                String pwPolicy;
+                try
+                {
+                    pwPolicy = toPolicyName( getString( entry, "pwdPolicySubentry" ) );
+                }
+                catch ( LdapInvalidDnException e )
+                {
+                    addError( count, getString( entry, "uid" ), "pwdPolicySubentry is not a valid DN: " + e
+                        .getMessage() );
+                    continue;
+                }
+                User user = new User( getString( entry, "uid" ) );
+                user.setPassword( toChars( getString( entry, "userPassword" ) ) );
+                user.setOu( getString( entry, "ou" ) );
+                user.setCn( getString( entry, "cn" ) );
+                user.setSn( getString( entry, "sn" ) );
+                user.setDescription( getString( entry, "description" ) );
+                user.setTitle( getString( entry, "title" ) );
+                user.setPwPolicy( pwPolicy );
+                submit( count, user, getStrings( entry, "ftRA" ) );
+            }
+        }
+    }
+
+    private void submit( final long line, final User user, final List<String> userRoles )
+    {
+        read.incrementAndGet();
+        String error = validate( user, userRoles );
+        if ( error != null )
+        {
+            addError( line, user.getUserId(), error );
+            return;
+        }
+        pending.incrementAndGet();
+        try
+        {
+            WRITERS.execute( TenantContext.wrap( new Runnable()
+            {
+                @Override
+                public void run()
+                {
+                    try
+                    {
+                        write( line, user, userRoles );
+                    }
+                    finally
+                    {
+                        release();
+                    }
+                }
+            } ) );
+        }
+        catch ( RuntimeException re )
+        {
+            release();
+            throw re;
+        }
+    }
+
+    private void write( long line, User user, List<String> userRoles )
+    {
+        try
+        {
+            adminMgr.addUser( user );
+            added.incrementAndGet();
+        }
+        catch ( SecurityException se )
+        {
+            addError( line, user.getUserId(), "addUser failed, error id: " + se.getErrorId() + " " + se.getMessage() );
+            return;
+        }
+        for ( String roleName : userRoles )
+        {
+            try
+            {
+                adminMgr.assignUser( new UserRole( user.getUserId(), roleName ) );
+            }
+            catch ( SecurityException se )
+            {
+                addError( line, user.getUserId(), "assignUser role: " + roleName + " failed, error id: "
+                    + se.getErrorId() + " " + se.getMessage() );
+            }
+        }
+        // once its roles are assigned, as a page would after saving the user:
+        SaveModelEvent.update( user, SaveModelEvent.Operations.ADD );
+    }
+
+    private String validate( User user, List<String> userRoles )
+    {
+        if ( StringUtils.isEmpty( user.getUserId() ) )
+        {
+            return "userId is required";
+        }
+        if ( StringUtils.isEmpty( user.getOu() ) )
+        {
+            return "ou is required";
+        }
+        if ( !ous.contains( user.getOu().toLowerCase( Locale.ENGLISH ) ) )
+        {
+            return "ou not found: " + user.getOu();
+        }
+        if ( StringUtils.isNotEmpty( user.getPwPolicy() ) && !policies.contains( user.getPwPolicy().toLowerCase(
+            Locale.ENGLISH ) ) )
+        {
+            return "pwPolicy not found: " + user.getPwPolicy();
+        }
+        for ( String roleName : userRoles )
+        {
+            if ( !roles.contains( roleName.toLowerCase( Locale.ENGLISH ) ) )
+            {
+                return "role not found: " + roleName;
+            }
+        }
+        return null;
+    }
+
+    private void addError( long line, String userId, String message )
+    {
+        failed.incrementAndGet();
+        synchronized ( errors )
+        {
+            if ( errors.size() < MAX_ERRORS )
+            {
+                errors.add( new RowError( line, userId, message ) );
+            }
+        }
+    }
+
+    private void release()
+    {
+        if ( pending.decrementAndGet() == 0 )
+        {
+            synchronized ( pending )
+            {
+                pending.notifyAll();
+            }
+        }
+    }
+
+    private void awaitWriters()
+    {
+        synchronized ( pending )
+        {
+            while ( pending.get() > 0 )
+            {
+                try
+                {
+                    pending.wait( 1000 );
+                }
+                catch ( InterruptedException ie )
+                {
+                    Thread.currentThread().interrupt();
+                    LOG.warn( "awaitWriters interrupted with " + pending.get() + " writes pending" );
+                    return;
+                }
+            }
+        }
+    }
+
+    private static String get( List<String> record, Map<String, Integer> columns, String name )
+    {
+        Integer index = columns.get( name );
+        if ( index == null || index >= record.size() )
+        {
+            return null;
+        }
+        String value = record.get( index ).trim();
+        return value.isEmpty() ? null : value;
+    }
+
+    private static char[] toChars( String value )
+    {
+        return value != null ? value.toCharArray() : null;
+    }
+
+    private static List<String> split( String value )
+    {
+        List<String> values = new ArrayList<>();
+        if ( value != null )
+        {
+            for ( String element : value.split( MULTI_VALUE_DELIMITER ) )
+            {
+                if ( StringUtils.isNotBlank( element ) )
+                {
+                    values.add( element.trim() );
+                }
+            }
+        }
+        return values;
+    }
+
+    private static String getString( Entry entry, String name ) throws LdapException
+    {
+        Attribute attribute = entry.get( name );
+        return attribute != null ? attribute.getString() : null;
+    }
+
+    /**
+     * Return the name of a password policy given by DN, e.g. cn=policy1,ou=Policies,dc=example,dc=com, or by name.
+     */
+    static String toPolicyName( String value ) throws LdapInvalidDnException
+    {
+        if ( value == null || value.indexOf( '=' ) == -1 )
+        {
+            return value;
+        }
+        String rdn = new Dn( value ).getRdn().getName();
+        return rdn.substring( rdn.indexOf( '=' ) + 1 ).trim();
+    }
+
+    private static List<String> getStrings( Entry entry, String name )
+    {
+        List<String> values = new ArrayList<>();
+        Attribute attribute = entry.get( name );
+        if ( attribute != null )
+        {
+            for ( Value<?> value : attribute )
+            {
+                values.add( value.getString() );
+            }
+        }
+        return values;
+    }
+
+    private static Set<String> normalize( Collection<String> names )
+    {
+        Set<String> set = new HashSet<>();
+        if ( CollectionUtils.isNotEmpty( names ) )
+        {
+            for ( String name : names )
+            {
+                set.add( name.toLowerCase( Locale.ENGLISH ) );
+            }
+        }
+        return Collections.unmodifiableSet( set );
+    }
+
+    private static ThreadPoolExecutor newExecutor( final String prefix, int threads, BlockingQueue<Runnable> queue,
+        RejectedExecutionHandler handler )
+    {
+        ThreadPoolExecutor executor = new ThreadPoolExecutor( threads, threads, 60, TimeUnit.SECONDS, queue,
+            new ThreadFactory()
+            {
+                private final AtomicInteger count = new AtomicInteger();
+
+                @Override
+                public Thread newThread( Runnable runnable )
+                {
+                    Thread thread = new Thread( runnable, prefix + count.incrementAndGet() );
+                    thread.setDaemon( true );
+                    return thread;
+                }
+            }, handler );
+        executor.allowCoreThreadTimeOut( true );
+        return executor;
+    }
+
+    /**
+     * One entry of the error report.
+     */
+    public static final class RowError implements Serializable
+    {
+        /** Default serialVersionUID */
+        private static final long serialVersionUID = 1L;
+        private final long line;
+        private final String userId;
+        private final String message;
+
+        private RowError( long line, String userId, String message )
+        {
+            this.line = line;
+            this.userId = userId;
+            this.message = message;
+        }
+
+        /**
+         * @return line of a CSV file, or entry number of an LDIF file, the error was found in.
+         */
+        public long getLine()
+        {
+            return line;
+        }
+
+        public String getUserId()
+        {
+            return userId;
+        }
+
+        public String getMessage()
+        {
+            return message;
+        }
+    }
+}
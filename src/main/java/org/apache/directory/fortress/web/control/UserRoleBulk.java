@@ -0,0 +1,483 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+package org.apache.directory.fortress.web.control;
+
+import org.apache.directory.fortress.core.AdminMgr;
+import org.apache.directory.fortress.core.DelAdminMgr;
+import org.apache.directory.fortress.core.SecurityException;
+import org.apache.directory.fortress.core.model.User;
+import org.apache.directory.fortress.core.model.UserAdminRole;
+import org.apache.directory.fortress.core.model.UserRole;
+import org.apache.directory.fortress.web.common.BoundedCache;
+import org.apache.directory.fortress.web.common.ConfigUtils;
+import org.apache.directory.fortress.web.event.SaveModelEvent;
+import org.apache.log4j.Logger;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Assigns, or deassigns, one RBAC or Admin role to many users at once, e.g. all users selected in the user grid or
+ * the entire result of a search.  A background thread hands one write per user to a bounded pool of writers that call
+ * {@link AdminMgr#assignUser} or {@link DelAdminMgr#assignUser}, and their deassign counterparts.  Fortress has no
+ * call that writes many assignments at once, so the writes are made concurrently instead.  When the writers fall
+ * behind, the background thread does the write itself, as {@link UserImport} does.
+ * <p>
+ * Tuned with these optional fortress.properties:
+ * <ul>
+ * <li>user.bulk.threads - number of concurrent writers, default 8.</li>
+ * <li>user.bulk.max.jobs - number of bulk jobs that may run at once, default 2.</li>
+ * <li>user.bulk.max.errors - number of user errors kept for the report, default 1000.</li>
+ * </ul>
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ * @version $Rev$
+ */
+public final class UserRoleBulk
+{
+    private static final Logger LOG = Logger.getLogger( UserRoleBulk.class.getName() );
+    private static final int THREADS = Math.max( 1, ConfigUtils.getInt( "user.bulk.threads", 8 ) );
+    private static final int MAX_JOBS = Math.max( 1, ConfigUtils.getInt( "user.bulk.max.jobs", 2 ) );
+    private static final int MAX_ERRORS = ConfigUtils.getInt( "user.bulk.max.errors", 1000 );
+    private static final ThreadPoolExecutor JOBS = newExecutor( "fortress-user-bulk-", MAX_JOBS,
+        new SynchronousQueue<Runnable>(), new ThreadPoolExecutor.AbortPolicy() );
+    // When the queue fills, the job writes the assignment itself, which throttles it:
+    private static final ThreadPoolExecutor WRITERS = newExecutor( "fortress-user-bulk-writer-", THREADS,
+        new ArrayBlockingQueue<Runnable>( THREADS * 4 ), new ThreadPoolExecutor.CallerRunsPolicy() );
+    private static final BoundedCache<String, UserRoleBulk> JOBS_BY_ID = new BoundedCache<>( "userRoleBulks", 16,
+        24 * 3600 );
+
+    public enum State
+    {
+        RUNNING,
+        DONE,
+        CANCELLED,
+        FAILED
+    }
+
+    private final String id = UUID.randomUUID().toString();
+    private final List<String> userIds;
+    private final String roleName;
+    private final boolean isAdminRole;
+    private final boolean isAssign;
+    private final AdminMgr adminMgr;
+    private final DelAdminMgr delAdminMgr;
+    private final AtomicLong submitted = new AtomicLong();
+    private final AtomicLong written = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicInteger pending = new AtomicInteger();
+    private final List<String> succeeded = new ArrayList<>();
+    private final List<UserError> errors = new ArrayList<>();
+    private final long started = System.currentTimeMillis();
+    private volatile long finished;
+    private volatile State state = State.RUNNING;
+    private volatile boolean isCancelled;
+
+    private UserRoleBulk( Collection<String> userIds, String roleName, boolean isAdminRole, boolean isAssign,
+        AdminMgr adminMgr, DelAdminMgr delAdminMgr )
+    {
+        this.userIds = new ArrayList<>( userIds );
+        this.roleName = roleName;
+        this.isAdminRole = isAdminRole;
+        this.isAssign = isAssign;
+        this.adminMgr = adminMgr;
+        this.delAdminMgr = delAdminMgr;
+    }
+
+    /**
+     * Start assigning, or deassigning, roleName to userIds on a background thread.
+     *
+     * @param userIds of the users to write, copied.
+     * @param roleName name of RBAC or Admin role.
+     * @param isAdminRole true if roleName is an Admin role.
+     * @param isAssign true to assign the role, false to deassign it.
+     * @param adminMgr initialized with the admin session of caller.  Must be safe for use by multiple threads.
+     * @param delAdminMgr initialized with the admin session of caller.  Must be safe for use by multiple threads.
+     * @return the running job.
+     * @throws java.util.concurrent.RejectedExecutionException if too many bulk jobs are running already.
+     */
+    public static UserRoleBulk start( Collection<String> userIds, String roleName, boolean isAdminRole,
+        boolean isAssign, AdminMgr adminMgr, DelAdminMgr delAdminMgr )
+    {
+        final UserRoleBulk bulk = new UserRoleBulk( userIds, roleName, isAdminRole, isAssign, adminMgr,
+            delAdminMgr );
+        JOBS.execute( TenantContext.wrap( new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                bulk.run();
+            }
+        } ) );
+        JOBS_BY_ID.put( bulk.id, bulk );
+        LOG.info( "start bulk id: " + bulk.id + " " + bulk.getOperation() + " users: " + bulk.userIds.size() );
+        return bulk;
+    }
+
+    /**
+     * Return the bulk job with id.
+     *
+     * @param id of job.
+     * @return job or null if unknown or long since finished.
+     */
+    public static UserRoleBulk get( String id )
+    {
+        return id != null ? JOBS_BY_ID.get( id ) : null;
+    }
+
+    /**
+     * Stop the pools.  Called when the web app shuts down.
+     */
+    public static void shutdown()
+    {
+        JOBS.shutdownNow();
+        WRITERS.shutdownNow();
+    }
+
+    /**
+     * Stop handing out writes.  Writes already handed to a writer are still made.
+     */
+    public void cancel()
+    {
+        isCancelled = true;
+    }
+
+    public String getId()
+    {
+        return id;
+    }
+
+    public String getRoleName()
+    {
+        return roleName;
+    }
+
+    public boolean isAdminRole()
+    {
+        return isAdminRole;
+    }
+
+    public boolean isAssign()
+    {
+        return isAssign;
+    }
+
+    /**
+     * @return e.g. 'assign role: r1', for the progress report.
+     */
+    public String getOperation()
+    {
+        return ( isAssign ? "assign " : "deassign " ) + ( isAdminRole ? "adminRole: " : "role: " ) + roleName;
+    }
+
+    public State getState()
+    {
+        return state;
+    }
+
+    public boolean isRunning()
+    {
+        return state == State.RUNNING;
+    }
+
+    /**
+     * @return number of users in the job.
+     */
+    public int getTotal()
+    {
+        return userIds.size();
+    }
+
+    /**
+     * @return number of users handed to a writer so far.
+     */
+    public long getSubmitted()
+    {
+        return submitted.get();
+    }
+
+    /**
+     * @return number of users written so far.
+     */
+    public long getWritten()
+    {
+        return written.get();
+    }
+
+    /**
+     * @return number of users that could not be written.
+     */
+    public long getFailed()
+    {
+        return failed.get();
+    }
+
+    /**
+     * @return users written per second since the job started.
+     */
+    public double getUsersPerSecond()
+    {
+        long end = finished > 0 ? finished : System.currentTimeMillis();
+        long millis = Math.max( 1, end - started );
+        return written.get() * 1000.0 / millis;
+    }
+
+    /**
+     * Return the userIds written so far, in the order the writes completed.
+     *
+     * @return copy of the userIds.
+     */
+    public List<String> getSucceeded()
+    {
+        synchronized ( succeeded )
+        {
+            return new ArrayList<>( succeeded );
+        }
+    }
+
+    /**
+     * Return the errors found so far, at most user.bulk.max.errors of them.
+     *
+     * @return copy of the error report.
+     */
+    public List<UserError> getErrors()
+    {
+        synchronized ( errors )
+        {
+            return new ArrayList<>( errors );
+        }
+    }
+
+    @Override
+    public String toString()
+    {
+        return "UserRoleBulk " + getOperation() + " state: " + state + " users: " + userIds.size() + " written: "
+            + written + " failed: " + failed + " users/sec: " + String.format( "%.1f", getUsersPerSecond() );
+    }
+
+    private void run()
+    {
+        try
+        {
+            for ( String userId : userIds )
+            {
+                if ( isCancelled )
+                {
+                    break;
+                }
+                submit( userId );
+            }
+            awaitWriters();
+            state = isCancelled ? State.CANCELLED : State.DONE;
+        }
+        catch ( RuntimeException re )
+        {
+            String error = "run " + getOperation() + " caught RuntimeException=" + re;
+            LOG.error( error );
+            addError( null, re.getMessage() );
+            awaitWriters();
+            state = State.FAILED;
+        }
+        finally
+        {
+            finished = System.currentTimeMillis();
+            LOG.info( "end bulk id: " + id + " " + this );
+        }
+    }
+
+    private void submit( final String userId )
+    {
+        submitted.incrementAndGet();
+        pending.incrementAndGet();
+        try
+        {
+            WRITERS.execute( TenantContext.wrap( new Runnable()
+            {
+                @Override
+                public void run()
+                {
+                    try
+                    {
+                        write( userId );
+                    }
+                    finally
+                    {
+                        release();
+                    }
+                }
+            } ) );
+        }
+        catch ( RuntimeException re )
+        {
+            release();
+            throw re;
+        }
+    }
+
+    private void write( String userId )
+    {
+        try
+        {
+            if ( isAdminRole )
+            {
+                UserAdminRole userAdminRole = new UserAdminRole();
+                userAdminRole.setUserId( userId );
+                userAdminRole.setName( roleName );
+                if ( isAssign )
+                {
+                    delAdminMgr.assignUser( userAdminRole );
+                }
+                else
+                {
+                    delAdminMgr.deassignUser( userAdminRole );
+                }
+            }
+            else
+            {
+                UserRole userRole = new UserRole( userId, roleName );
+                if ( isAssign )
+                {
+                    adminMgr.assignUser( userRole );
+                }
+                else
+                {
+                    adminMgr.deassignUser( userRole );
+                }
+            }
+            written.incrementAndGet();
+            synchronized ( succeeded )
+            {
+                succeeded.add( userId );
+            }
+            // the cached user carries its role assignments:
+            ReviewMgrCache.invalidate( new User( userId ), SaveModelEvent.Operations.UPDATE );
+            if ( !isAdminRole )
+            {
+                PermissionMatrix.update( userId, roleName, isAssign );
+            }
+        }
+        catch ( SecurityException se )
+        {
+            addError( userId, getOperation() + " failed, error id: " + se.getErrorId() + " " + se.getMessage() );
+        }
+    }
+
+    private void addError( String userId, String message )
+    {
+        failed.incrementAndGet();
+        synchronized ( errors )
+        {
+            if ( errors.size() < MAX_ERRORS )
+            {
+                errors.add( new UserError( userId, message ) );
+            }
+        }
+    }
+
+    private void release()
+    {
+        if ( pending.decrementAndGet() == 0 )
+        {
+            synchronized ( pending )
+            {
+                pending.notifyAll();
+            }
+        }
+    }
+
+    private void awaitWriters()
+    {
+        synchronized ( pending )
+        {
+            while ( pending.get() > 0 )
+            {
+                try
+                {
+                    pending.wait( 1000 );
+                }
+                catch ( InterruptedException ie )
+                {
+                    Thread.currentThread().interrupt();
+                    LOG.warn( "awaitWriters interrupted with " + pending.get() + " writes pending" );
+                    return;
+                }
+            }
+        }
+    }
+
+    private static ThreadPoolExecutor newExecutor( final String prefix, int threads, BlockingQueue<Runnable> queue,
+        RejectedExecutionHandler handler )
+    {
+        ThreadPoolExecutor executor = new ThreadPoolExecutor( threads, threads, 60, TimeUnit.SECONDS, queue,
+            new ThreadFactory()
+            {
+                private final AtomicInteger count = new AtomicInteger();
+
+                @Override
+                public Thread newThread( Runnable runnable )
+                {
+                    Thread thread = new Thread( runnable, prefix + count.incrementAndGet() );
+                    thread.setDaemon( true );
+                    return thread;
+                }
+            }, handler );
+        executor.allowCoreThreadTimeOut( true );
+        return executor;
+    }
+
+    /**
+     * One entry of the error report.
+     */
+    public static final class UserError implements Serializable
+    {
+        /** Default serialVersionUID */
+        private static final long serialVersionUID = 1L;
+        private final String userId;
+        private final String message;
+
+        private UserError( String userId, String message )
+        {
+            this.userId = userId;
+            this.message = message;
+        }
+
+        public String getUserId()
+        {
+            return userId;
+        }
+
+        public String getMessage()
+        {
+            return message;
+        }
+    }
+}
@@ -30,6 +30,7 @@ import java.util.List;
 
 /**
  * This object is managed by wicket framework.  It is used to cache a copy of a user's session and permissions.
+ * Permissions are held in a {@link PermissionIndex} so buttons can check them without a scan of the list.
  *
  *
  * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
@@ -40,7 +41,8 @@ public class WicketSession extends WebSession
     /** Default serialVersionUID */
     private static final long serialVersionUID = 1L;
     private Session session;
-    private List<Permission> permissions;
+    private PermissionIndex permissions;
+    private transient AccessDecisionCache accessDecisions;
 
 
     /**
@@ -64,17 +66,45 @@ public class WicketSession extends WebSession
     public void setSession(Session session)
     {
         this.session = session;
+        getAccessDecisions().clear();
     }
 
 
+    /**
+     * Return the checkAccess results cached for this session.  Not serialized, starts empty after a restore.
+     *
+     * @return decision cache, never null.
+     */
+    public synchronized AccessDecisionCache getAccessDecisions()
+    {
+        if ( accessDecisions == null )
+        {
+            accessDecisions = new AccessDecisionCache();
+        }
+        return accessDecisions;
+    }
+
+
+    /**
+     * Return the cached permissions.  The list is rebuilt from the index on each call, use
+     * {@link #getPermissionIndex()} for lookups.
+     *
+     * @return unmodifiable list of permissions or null if not loaded.
+     */
     public List<Permission> getPermissions()
     {
-        return permissions;
+        return permissions != null ? permissions.toList() : null;
     }
 
 
     public void setPermissions( List<Permission> permissions )
     {
-        this.permissions = permissions;
+        this.permissions = permissions != null ? PermissionIndex.of( permissions ) : null;
+    }
+
+
+    public PermissionIndex getPermissionIndex()
+    {
+        return permissions;
     }
 }
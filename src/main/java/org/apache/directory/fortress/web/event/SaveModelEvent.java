@@ -30,8 +30,11 @@ import org.apache.wicket.request.IRequestCycle;
 import org.apache.wicket.request.component.IRequestablePage;
 import org.apache.wicket.request.mapper.parameter.PageParameters;
 import org.apache.directory.fortress.core.model.FortEntity;
+import org.apache.log4j.Logger;
 
 import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 /**
  *
@@ -40,6 +43,8 @@ import java.util.Collection;
  */
 public class SaveModelEvent extends AjaxUpdateEvent
 {
+    private static final Logger LOG = Logger.getLogger( SaveModelEvent.class.getName() );
+    private static final List<Listener> LISTENERS = new CopyOnWriteArrayList<>();
     private int index = 0;
     private FortEntity entity;
 
@@ -63,6 +68,19 @@ public class SaveModelEvent extends AjaxUpdateEvent
         DELETE
     }
 
+    /**
+     * Told of every entity saved, e.g. an in-memory cache or index that has to follow the directory.  Registered
+     * once, when the application starts.
+     */
+    public interface Listener
+    {
+        /**
+         * @param entity that was added, updated or deleted.
+         * @param operation performed on the entity, may be null.
+         */
+        void saved( FortEntity entity, Operations operation );
+    }
+
     public SaveModelEvent(AjaxRequestTarget target)
     {
         super(target);
@@ -109,11 +127,51 @@ public class SaveModelEvent extends AjaxUpdateEvent
 
     public static void send(Page page, Component component, FortEntity entity, AjaxRequestTarget target, Operations operation)
     {
+        update(entity, operation);
         component.send(page, Broadcast.BREADTH, new SaveModelEvent(target, entity, operation));
     }
 
+    /**
+     * @param listener to tell of every entity saved from now on.
+     */
+    public static void addListener(Listener listener)
+    {
+        LISTENERS.add(listener);
+    }
+
+    public static void removeListener(Listener listener)
+    {
+        LISTENERS.remove(listener);
+    }
+
+    /**
+     * Tell the listeners of a change, so the in-memory caches and indexes follow it.  Called by each send, and by code
+     * that saves entities without a page to send the event to, e.g.
+     * {@link org.apache.directory.fortress.web.control.UserImport}.
+     *
+     * @param entity that was added, updated or deleted.
+     * @param operation performed on the entity, may be null.
+     */
+    public static void update(FortEntity entity, Operations operation)
+    {
+        for (Listener listener : LISTENERS)
+        {
+            try
+            {
+                listener.saved(entity, operation);
+            }
+            catch (RuntimeException re)
+            {
+                // the others still follow the change:
+                String error = "update listener: " + listener + " caught RuntimeException=" + re;
+                LOG.warn(error, re);
+            }
+        }
+    }
+
     public static void send(Page page, Component component, FortEntity entity, AjaxRequestTarget target)
     {
+        update(entity, null);
         component.send(page, Broadcast.BREADTH, new SaveModelEvent(target, entity));
     }
 
@@ -230,6 +288,7 @@ public class SaveModelEvent extends AjaxUpdateEvent
                 target.addComponent(myComponent);
         }
 */
+        update(entity, null);
         component.send(page, Broadcast.BREADTH, new SaveModelEvent(target, entity));
     }
 }
\ No newline at end of file
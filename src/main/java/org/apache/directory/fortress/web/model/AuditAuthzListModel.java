@@ -31,6 +31,8 @@ import org.apache.directory.fortress.core.model.Permission;
 import org.apache.directory.fortress.core.model.Session;
 import org.apache.directory.fortress.core.model.UserAudit;
 import org.apache.directory.fortress.core.SecurityException;
+import org.apache.directory.fortress.web.control.AuditRecordParser;
+import org.apache.directory.fortress.web.control.ReviewMgrCache;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -50,6 +52,7 @@ public class AuditAuthzListModel extends Model<SerializableList<AuthZ>>
     private ReviewMgr reviewMgr;
     private static final Logger LOG = Logger.getLogger(AuditAuthzListModel.class.getName());
     private UserAudit userAudit;
+    private Session session;
     private SerializableList<AuthZ> authZs = null;
 
     /**
@@ -58,6 +61,7 @@ public class AuditAuthzListModel extends Model<SerializableList<AuthZ>>
     public AuditAuthzListModel( Session session )
     {
         Injector.get().inject( this );
+        this.session = session;
         auditMgr.setAdmin( session );
     }
     
@@ -71,6 +75,7 @@ public class AuditAuthzListModel extends Model<SerializableList<AuthZ>>
     {
         Injector.get().inject( this );
         this.userAudit = userAudit;
+        this.session = session;
         auditMgr.setAdmin( session );
     }
     
@@ -117,16 +122,16 @@ public class AuditAuthzListModel extends Model<SerializableList<AuthZ>>
             //log.debug( ".getObject authZ id: " + userAudit != null ? userAudit.getUserId() : "null" );
             if ( StringUtils.isNotEmpty( userAudit.getObjName() ) && StringUtils.isNotEmpty( userAudit.getOpName() ) && !StringUtils.isNotEmpty( userAudit.getDn() ) )
             {
-                Permission permission = getPermission( userAudit );
+                String permissionDn = getPermissionDn( userAudit );
 
-                if ( permission == null)
+                if ( permissionDn == null)
                 {
                     String warning = "Matching permission not found for object: " + userAudit.getObjName() + " operation: " + userAudit.getOpName();
                     LOG.warn( warning );
                     throw new RuntimeException( warning );
                 }
 
-                userAudit.setDn( permission.getDn() );
+                userAudit.setDn( permissionDn );
             }
             
             authZs = new SerializableList<>( getList( userAudit ) );
@@ -160,31 +165,34 @@ public class AuditAuthzListModel extends Model<SerializableList<AuthZ>>
         try
         {
             authZList = auditMgr.getUserAuthZs( userAudit );
+            AuditRecordParser.mapAuthZs( authZList );
         }
         catch (org.apache.directory.fortress.core.SecurityException se)
         {
             String error = ".getList caught SecurityException=" + se;
             LOG.warn( error );
+            // create empty model object to prevent npe in listview.
+            authZList = new SerializableList<>( new ArrayList<AuthZ>() );
         }
         
         return authZList;
     }
     
 
-    private Permission getPermission( UserAudit userAudit )
+    private String getPermissionDn( UserAudit userAudit )
     {
-        Permission permission = null;
+        String permissionDn = null;
         
         try
         {
-            permission = reviewMgr.readPermission( new Permission ( userAudit.getObjName(), userAudit.getOpName(), userAudit.isAdmin()) );
+            permissionDn = ReviewMgrCache.readPermissionDn( reviewMgr, session, new Permission ( userAudit.getObjName(), userAudit.getOpName(), userAudit.isAdmin()) );
         }
         catch ( SecurityException se )
         {
-            String error = ".getPermission caught SecurityException=" + se;
+            String error = ".getPermissionDn caught SecurityException=" + se;
             LOG.warn( error );
         }
         
-        return permission;
+        return permissionDn;
     }
 }
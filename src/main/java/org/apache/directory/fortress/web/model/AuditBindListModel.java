@@ -30,6 +30,7 @@ import org.apache.directory.fortress.core.model.Bind;
 import org.apache.directory.fortress.core.model.Session;
 import org.apache.directory.fortress.core.model.UserAudit;
 import org.apache.directory.fortress.core.SecurityException;
+import org.apache.directory.fortress.web.control.AuditRecordParser;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -131,11 +132,14 @@ public class AuditBindListModel extends Model<SerializableList<Bind>>
         try
         {
             bindList = auditMgr.searchBinds( userAudit );
+            AuditRecordParser.mapBinds( bindList );
         }
         catch ( SecurityException se )
         {
             String error = ".getList caught SecurityException=" + se;
             LOG.warn( error );
+            // create empty model object to prevent npe in listview.
+            bindList = new SerializableList<>( new ArrayList<Bind>() );
         }
         
         return bindList;
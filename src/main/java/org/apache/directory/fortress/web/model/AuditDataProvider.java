@@ -0,0 +1,64 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+package org.apache.directory.fortress.web.model;
+
+import org.apache.commons.lang.SerializationUtils;
+import org.apache.directory.fortress.core.model.UserAudit;
+
+import java.io.Serializable;
+import java.util.List;
+
+/**
+ * Paged provider of audit records for the audit list panels.  The view's criteria are copied when the provider is
+ * created, so a search run again after its results were evicted from {@link SearchResultCache} matches the rows
+ * first shown, whatever has been typed into the form since.
+ *
+ * @param <T> type of audit record, mapped by {@link org.apache.directory.fortress.web.control.AuditRecordParser}.
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ * @version $Rev$
+ */
+public abstract class AuditDataProvider<T extends Serializable> extends SearchDataProvider<T>
+{
+    /** Default serialVersionUID */
+    private static final long serialVersionUID = 1L;
+    private final UserAudit userAudit;
+
+    /**
+     * @param userAudit criteria of the view, null shows no records.
+     */
+    protected AuditDataProvider( UserAudit userAudit )
+    {
+        this.userAudit = userAudit != null ? ( UserAudit ) SerializationUtils.clone( userAudit ) : null;
+    }
+
+    /**
+     * Search the audit records that match userAudit.
+     *
+     * @param userAudit criteria of the view.
+     * @return records mapped by {@link org.apache.directory.fortress.web.control.AuditRecordParser}, may be null.
+     */
+    protected abstract List<T> search( UserAudit userAudit );
+
+    @Override
+    protected List<T> search()
+    {
+        return userAudit != null ? search( userAudit ) : null;
+    }
+}
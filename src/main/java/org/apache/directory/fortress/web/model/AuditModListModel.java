@@ -28,9 +28,10 @@ import org.apache.directory.fortress.core.AuditMgr;
 import org.apache.directory.fortress.core.ReviewMgr;
 import org.apache.directory.fortress.core.model.Mod;
 import org.apache.directory.fortress.core.model.Session;
-import org.apache.directory.fortress.core.model.User;
 import org.apache.directory.fortress.core.model.UserAudit;
 import org.apache.directory.fortress.core.SecurityException;
+import org.apache.directory.fortress.web.control.AuditRecordParser;
+import org.apache.directory.fortress.web.control.ReviewMgrCache;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -50,6 +51,7 @@ public class AuditModListModel extends Model<SerializableList<Mod>>
     private ReviewMgr reviewMgr;
     private static final Logger LOG = Logger.getLogger(AuditModListModel.class.getName());
     private UserAudit userAudit;
+    private Session session;
     private SerializableList<Mod> mods = null;
 
     /**
@@ -58,6 +60,7 @@ public class AuditModListModel extends Model<SerializableList<Mod>>
     public AuditModListModel( final Session session )
     {
         Injector.get().inject(this);
+        this.session = session;
         auditMgr.setAdmin( session );
     }
     
@@ -71,6 +74,7 @@ public class AuditModListModel extends Model<SerializableList<Mod>>
     {
         Injector.get().inject(this);
         this.userAudit = userAudit;
+        this.session = session;
         auditMgr.setAdmin( session );
     }
 
@@ -108,7 +112,7 @@ public class AuditModListModel extends Model<SerializableList<Mod>>
             if ( StringUtils.isNotEmpty( userAudit.getUserId() ) && !StringUtils.isNotEmpty( userAudit
                 .getInternalUserId() ) )
             {
-                User user = getUser( userAudit );
+                UserRow user = getUser( userAudit );
                 if ( user == null )
                 {
                     String warning = "Matching user not found for userId: " + userAudit.getUserId();
@@ -157,6 +161,7 @@ public class AuditModListModel extends Model<SerializableList<Mod>>
             }
             
             modList = auditMgr.searchAdminMods( userAudit );
+            AuditRecordParser.mapMods( modList );
         }
         catch ( org.apache.directory.fortress.core.SecurityException se )
         {
@@ -189,13 +194,13 @@ public class AuditModListModel extends Model<SerializableList<Mod>>
     }
     
 
-    private User getUser( UserAudit userAudit )
+    private UserRow getUser( UserAudit userAudit )
     {
-        User user = null;
+        UserRow user = null;
         
         try
         {
-            user = reviewMgr.readUser( new User ( userAudit.getUserId() ) );
+            user = ReviewMgrCache.readUser( reviewMgr, session, userAudit.getUserId() );
         }
         catch ( SecurityException se )
         {
@@ -0,0 +1,81 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+package org.apache.directory.fortress.web.model;
+
+import org.apache.directory.fortress.core.model.Group;
+import org.apache.directory.fortress.core.model.Session;
+import org.apache.log4j.Logger;
+
+import java.util.List;
+
+/**
+ * Paged provider of groups for {@link org.apache.directory.fortress.web.panel.GroupListPanel}.  Search criteria are
+ * the same as {@link GroupListModel}, which runs the actual search.  Holds {@link GroupRow}s rather than groups, so
+ * the members of each group are not kept.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ * @version $Rev$
+ */
+public class GroupDataProvider extends SearchDataProvider<GroupRow>
+{
+    /** Default serialVersionUID */
+    private static final long serialVersionUID = 1L;
+    private static final Logger LOG = Logger.getLogger( GroupDataProvider.class.getName() );
+    private final Session session;
+    private Group group;
+
+    /**
+     * Create an empty provider.  Call {@link #search(Group)} to load it.
+     *
+     * @param session of the administrator running the search.
+     */
+    public GroupDataProvider( Session session )
+    {
+        this.session = session;
+    }
+
+    /**
+     * Search groups by name or member.
+     *
+     * @param group contains the search arguments.
+     */
+    public void search( Group group )
+    {
+        this.group = group;
+        refresh();
+    }
+
+    @Override
+    protected List<GroupRow> search()
+    {
+        if ( group == null )
+        {
+            return null;
+        }
+        LOG.debug( ".search group: " + group.getName() );
+        return GroupRow.of( new GroupListModel( group, session ).getObject() );
+    }
+
+    @Override
+    protected String getId( GroupRow object )
+    {
+        return object.getName();
+    }
+}
@@ -0,0 +1,106 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+package org.apache.directory.fortress.web.model;
+
+import org.apache.directory.fortress.core.model.Group;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * The columns of one row of {@link org.apache.directory.fortress.web.panel.GroupListPanel}.  Leaves out the members,
+ * which can run to thousands of entries.  The full group is read again when the row is selected.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ * @version $Rev$
+ */
+public class GroupRow implements Serializable
+{
+    /** Default serialVersionUID */
+    private static final long serialVersionUID = 1L;
+    private final String name;
+    private final String description;
+    private final String protocol;
+
+    private GroupRow( Group group )
+    {
+        name = group.getName();
+        description = group.getDescription();
+        protocol = group.getProtocol();
+    }
+
+    /**
+     * @param group to show.
+     * @return row with the columns of group.
+     */
+    public static GroupRow of( Group group )
+    {
+        return new GroupRow( group );
+    }
+
+    /**
+     * @param groups to show, may be null.
+     * @return rows in the same order, never null.
+     */
+    public static List<GroupRow> of( Collection<Group> groups )
+    {
+        List<GroupRow> rows = new ArrayList<>( groups != null ? groups.size() : 0 );
+        if ( groups != null )
+        {
+            for ( Group group : groups )
+            {
+                rows.add( new GroupRow( group ) );
+            }
+        }
+        return rows;
+    }
+
+    /**
+     * @param group saved by a detail panel.
+     * @return true if this row shows group.
+     */
+    public boolean matches( Group group )
+    {
+        return name != null && name.equalsIgnoreCase( group.getName() );
+    }
+
+    public String getName()
+    {
+        return name;
+    }
+
+    public String getDescription()
+    {
+        return description;
+    }
+
+    public String getProtocol()
+    {
+        return protocol;
+    }
+
+    @Override
+    public String toString()
+    {
+        return name;
+    }
+}
@@ -0,0 +1,83 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+package org.apache.directory.fortress.web.model;
+
+import org.apache.directory.fortress.core.model.PermObj;
+import org.apache.directory.fortress.core.model.Session;
+import org.apache.log4j.Logger;
+
+import java.util.List;
+
+/**
+ * Paged provider of permission objects for {@link org.apache.directory.fortress.web.panel.ObjectListPanel}.  Search
+ * criteria are the same as {@link ObjectListModel}, which runs the actual search.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ * @version $Rev$
+ */
+public class ObjectDataProvider extends SearchDataProvider<PermObj>
+{
+    /** Default serialVersionUID */
+    private static final long serialVersionUID = 1L;
+    private static final Logger LOG = Logger.getLogger( ObjectDataProvider.class.getName() );
+    private final boolean isAdmin;
+    private final Session session;
+    private PermObj permObj;
+
+    /**
+     * Create an empty provider.  Call {@link #search(PermObj)} to load it.
+     *
+     * @param isAdmin true for admin permission objects.
+     * @param session of the administrator running the search.
+     */
+    public ObjectDataProvider( boolean isAdmin, Session session )
+    {
+        this.isAdmin = isAdmin;
+        this.session = session;
+    }
+
+    /**
+     * Search permission objects by name or ou.
+     *
+     * @param permObj contains the search arguments.
+     */
+    public void search( PermObj permObj )
+    {
+        this.permObj = permObj;
+        refresh();
+    }
+
+    @Override
+    protected List<PermObj> search()
+    {
+        if ( permObj == null )
+        {
+            return null;
+        }
+        LOG.debug( ".search objName: " + permObj.getObjName() + " ou: " + permObj.getOu() );
+        return new ObjectListModel( permObj, isAdmin, session ).getObject();
+    }
+
+    @Override
+    protected String getId( PermObj object )
+    {
+        return object.getObjName();
+    }
+}
@@ -0,0 +1,86 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+package org.apache.directory.fortress.web.model;
+
+import org.apache.directory.fortress.core.model.Permission;
+import org.apache.directory.fortress.core.model.Session;
+import org.apache.log4j.Logger;
+
+import java.util.List;
+
+/**
+ * Paged provider of permissions for {@link org.apache.directory.fortress.web.panel.PermListPanel}.  Search criteria
+ * are the same as {@link PermListModel}, which runs the actual search.  Holds {@link PermRow}s rather than
+ * permissions so the rows the grid keeps in page state stay small.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ * @version $Rev$
+ */
+public class PermDataProvider extends SearchDataProvider<PermRow>
+{
+    /** Default serialVersionUID */
+    private static final long serialVersionUID = 1L;
+    private static final Logger LOG = Logger.getLogger( PermDataProvider.class.getName() );
+    private final boolean isAdmin;
+    private final Session session;
+    private Permission perm;
+
+    /**
+     * Create an empty provider.  Call {@link #search(Permission)} to load it.
+     *
+     * @param isAdmin true for admin permissions.
+     * @param session of the administrator running the search.
+     */
+    public PermDataProvider( boolean isAdmin, Session session )
+    {
+        this.isAdmin = isAdmin;
+        this.session = session;
+    }
+
+    /**
+     * Search permissions by object and operation name.
+     *
+     * @param perm contains the search arguments.
+     */
+    public void search( Permission perm )
+    {
+        this.perm = perm;
+        refresh();
+    }
+
+    @Override
+    protected List<PermRow> search()
+    {
+        if ( perm == null )
+        {
+            return null;
+        }
+        LOG.debug( ".search perm: " + perm.getObjName() + "." + perm.getOpName() );
+        return PermRow.of( new PermListModel( perm, isAdmin, session ).getObject() );
+    }
+
+    @Override
+    protected String getId( PermRow object )
+    {
+        // an empty objId and a missing one are the same:
+        return object.getObjName() + "." + object.getOpName() + "." + ( object.getObjId() != null ? object.getObjId()
+            : "" );
+    }
+}
@@ -25,9 +25,11 @@ import org.apache.wicket.injection.Injector;
 import org.apache.wicket.model.Model;
 import org.apache.wicket.spring.injection.annot.SpringBean;
 import org.apache.directory.fortress.core.ReviewMgr;
+import org.apache.directory.fortress.core.model.PermObj;
 import org.apache.directory.fortress.core.model.Permission;
 import org.apache.directory.fortress.core.model.Session;
 import org.apache.directory.fortress.core.SecurityException;
+import org.apache.directory.fortress.web.control.ExportResource;
 
 import java.util.ArrayList;
 import java.util.Collections;
@@ -103,6 +105,48 @@ public class PermListModel extends Model<SerializableList<Permission>>
     }
     
 
+    /**
+     * Run the search for an export, a page at a time, see {@link ExportResource.Pages}.  The perm objects the search
+     * matches are listed first, and the permissions searched by longer prefixes of the object name.
+     *
+     * @return pages of permissions sorted by object name.
+     * @throws SecurityException thrown by fortress when the perm objects can't be listed.
+     */
+    public ExportResource.Pages<Permission> getPages() throws SecurityException
+    {
+        if ( perm == null )
+        {
+            return ExportResource.Pages.of( null );
+        }
+        final String objName = perm.getObjName() != null ? perm.getObjName() : "";
+        final String opName = perm.getOpName() != null ? perm.getOpName() : "";
+        PermObj permObj = new PermObj( objName );
+        permObj.setAdmin( isAdmin );
+        List<String> objNames = new ArrayList<>();
+        for ( PermObj found : reviewMgr.findPermObjs( permObj ) )
+        {
+            objNames.add( found.getObjName() );
+        }
+        return new ExportResource.PrefixPages<Permission>( objName, objNames )
+        {
+            @Override
+            protected List<Permission> search( String prefix ) throws SecurityException
+            {
+                Permission srchPerm = new Permission( prefix, opName );
+                srchPerm.setAdmin( isAdmin );
+                return reviewMgr.findPermissions( srchPerm );
+            }
+
+
+            @Override
+            protected String getName( Permission row )
+            {
+                return row.getObjName();
+            }
+        };
+    }
+    
+
     @Override
     public void setObject( SerializableList<Permission> object )
     {
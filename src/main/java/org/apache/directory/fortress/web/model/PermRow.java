@@ -0,0 +1,143 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+package org.apache.directory.fortress.web.model;
+
+import org.apache.directory.fortress.core.model.Permission;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * The columns of one row of {@link org.apache.directory.fortress.web.panel.PermListPanel}.  The full permission is
+ * read again when the row is selected.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ * @version $Rev$
+ */
+public class PermRow implements Serializable
+{
+    /** Default serialVersionUID */
+    private static final long serialVersionUID = 1L;
+    private final String objName;
+    private final String objId;
+    private final String opName;
+    private final String description;
+    private final boolean isAdmin;
+    private final Set<String> roles;
+
+    private PermRow( Permission perm )
+    {
+        objName = perm.getObjName();
+        objId = perm.getObjId();
+        opName = perm.getOpName();
+        description = perm.getDescription();
+        isAdmin = perm.isAdmin();
+        roles = perm.getRoles() != null ? new TreeSet<>( perm.getRoles() ) : new TreeSet<String>();
+    }
+
+    /**
+     * @param perm to show.
+     * @return row with the columns of perm.
+     */
+    public static PermRow of( Permission perm )
+    {
+        return new PermRow( perm );
+    }
+
+    /**
+     * @param perms to show, may be null.
+     * @return rows in the same order, never null.
+     */
+    public static List<PermRow> of( Collection<Permission> perms )
+    {
+        List<PermRow> rows = new ArrayList<>( perms != null ? perms.size() : 0 );
+        if ( perms != null )
+        {
+            for ( Permission perm : perms )
+            {
+                rows.add( new PermRow( perm ) );
+            }
+        }
+        return rows;
+    }
+
+    /**
+     * @return key to read the full permission with.
+     */
+    public Permission toPermission()
+    {
+        Permission perm = new Permission( objName, opName, objId );
+        perm.setAdmin( isAdmin );
+        return perm;
+    }
+
+    /**
+     * @param perm saved by a detail panel.
+     * @return true if this row shows perm.
+     */
+    public boolean matches( Permission perm )
+    {
+        return equalsIgnoreCase( objName, perm.getObjName() ) && equalsIgnoreCase( opName, perm.getOpName() )
+            && equalsIgnoreCase( objId, perm.getObjId() );
+    }
+
+    public String getObjName()
+    {
+        return objName;
+    }
+
+    public String getObjId()
+    {
+        return objId;
+    }
+
+    public String getOpName()
+    {
+        return opName;
+    }
+
+    public String getDescription()
+    {
+        return description;
+    }
+
+    public Set<String> getRoles()
+    {
+        return roles;
+    }
+
+    @Override
+    public String toString()
+    {
+        return objName + "." + opName + ( objId != null ? "." + objId : "" );
+    }
+
+    private static boolean equalsIgnoreCase( String s1, String s2 )
+    {
+        // an empty objId and a missing one are the same:
+        String v1 = s1 != null ? s1 : "";
+        String v2 = s2 != null ? s2 : "";
+        return v1.equalsIgnoreCase( v2 );
+    }
+}
@@ -0,0 +1,156 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+package org.apache.directory.fortress.web.model;
+
+import org.apache.directory.fortress.core.DelReviewMgr;
+import org.apache.directory.fortress.core.ReviewMgr;
+import org.apache.directory.fortress.core.SecurityException;
+import org.apache.directory.fortress.core.model.Role;
+import org.apache.directory.fortress.core.model.Session;
+import org.apache.directory.fortress.web.control.RoleGraph;
+import org.apache.log4j.Logger;
+import org.apache.wicket.injection.Injector;
+import org.apache.wicket.spring.injection.annot.SpringBean;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Paged provider of the top level of the role tree in {@link org.apache.directory.fortress.web.panel.RoleListPanel}.
+ * Search criteria are the same as {@link RoleListModel}, which runs the actual search.  Only the roles that have no
+ * ancestor among the results are held, the others are shown under their parents, read from the {@link RoleGraph}
+ * as the tree is expanded.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ * @version $Rev$
+ */
+public class RoleDataProvider extends SearchDataProvider<RoleRow>
+{
+    /** Default serialVersionUID */
+    private static final long serialVersionUID = 1L;
+    private static final Logger LOG = Logger.getLogger( RoleDataProvider.class.getName() );
+    @SpringBean
+    private ReviewMgr reviewMgr;
+    @SpringBean
+    private DelReviewMgr delReviewMgr;
+    private final boolean isAdmin;
+    private final Session session;
+    private Role role;
+    private int matched;
+
+    /**
+     * Create an empty provider.  Call {@link #search(Role)} to load it.
+     *
+     * @param isAdmin true for admin roles.
+     * @param session of the administrator running the search.
+     */
+    public RoleDataProvider( boolean isAdmin, Session session )
+    {
+        Injector.get().inject( this );
+        this.isAdmin = isAdmin;
+        this.session = session;
+        this.reviewMgr.setAdmin( session );
+        this.delReviewMgr.setAdmin( session );
+    }
+
+    /**
+     * Search roles by name.
+     *
+     * @param role contains the search arguments.
+     */
+    public void search( Role role )
+    {
+        this.role = role;
+        refresh();
+    }
+
+    /**
+     * @return number of roles found by the last search, including those shown under their parents.
+     */
+    public int getMatched()
+    {
+        return matched;
+    }
+
+    @Override
+    protected List<RoleRow> search()
+    {
+        matched = 0;
+        if ( role == null )
+        {
+            return null;
+        }
+        LOG.debug( ".search roleNm: " + role.getName() );
+        List<? extends Role> roles = new RoleListModel( role, isAdmin, session ).getObject();
+        matched = roles.size();
+        RoleGraph graph = loadGraph();
+        Set<String> names = new HashSet<>();
+        for ( Role found : roles )
+        {
+            names.add( found.getName().toLowerCase( Locale.ENGLISH ) );
+        }
+        List<RoleRow> rows = new ArrayList<>();
+        for ( Role found : roles )
+        {
+            boolean isRoot = true;
+            if ( graph != null )
+            {
+                for ( String ancestor : graph.getAncestors( found.getName() ) )
+                {
+                    if ( names.contains( ancestor.toLowerCase( Locale.ENGLISH ) ) )
+                    {
+                        isRoot = false;
+                        break;
+                    }
+                }
+            }
+            if ( isRoot )
+            {
+                rows.add( RoleRow.of( found ) );
+            }
+        }
+        return rows;
+    }
+
+    @Override
+    protected String getId( RoleRow object )
+    {
+        return object.getName().toLowerCase( Locale.ENGLISH );
+    }
+
+    private RoleGraph loadGraph()
+    {
+        RoleGraph graph = null;
+        try
+        {
+            graph = isAdmin ? RoleGraph.get( delReviewMgr, session ) : RoleGraph.get( reviewMgr, session );
+        }
+        catch ( SecurityException se )
+        {
+            // the roles are still listed, without their hierarchy:
+            String error = ".loadGraph caught SecurityException=" + se;
+            LOG.warn( error );
+        }
+        return graph;
+    }
+}
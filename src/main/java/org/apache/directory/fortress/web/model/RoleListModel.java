@@ -30,6 +30,8 @@ import org.apache.directory.fortress.core.model.AdminRole;
 import org.apache.directory.fortress.core.model.Role;
 import org.apache.directory.fortress.core.model.Session;
 import org.apache.directory.fortress.core.SecurityException;
+import org.apache.directory.fortress.web.control.ExportResource;
+import org.apache.directory.fortress.web.control.ReviewMgrCache;
 
 import java.util.ArrayList;
 import java.util.Collections;
@@ -53,12 +55,14 @@ public class RoleListModel extends Model<SerializableList<? extends Role>>
     private Role role;
     private SerializableList<? extends Role> roles = null;
     private boolean isAdmin;
+    private Session session;
 
 
     public RoleListModel( boolean isAdmin, Session session )
     {
         Injector.get().inject( this );
         this.isAdmin = isAdmin;
+        this.session = session;
         this.reviewMgr.setAdmin( session );
     }
     
@@ -73,6 +77,7 @@ public class RoleListModel extends Model<SerializableList<? extends Role>>
         Injector.get().inject( this );
         this.role = role;
         this.isAdmin = isAdmin;
+        this.session = session;
         this.reviewMgr.setAdmin( session );
     }
     
@@ -114,6 +119,42 @@ public class RoleListModel extends Model<SerializableList<? extends Role>>
     }
     
 
+    /**
+     * Run the search for an export, a page at a time, see {@link ExportResource.Pages}.  RBAC roles are listed by
+     * name first and searched by longer prefixes of the name, admin roles are read at once.
+     *
+     * @return pages of roles sorted by name.
+     * @throws SecurityException thrown by fortress when the names can't be listed.
+     */
+    public ExportResource.Pages<? extends Role> getPages() throws SecurityException
+    {
+        if ( role == null )
+        {
+            return ExportResource.Pages.of( null );
+        }
+        String name = role.getName() != null ? role.getName() : "";
+        if ( isAdmin )
+        {
+            return ExportResource.Pages.of( getAdminList( name ) );
+        }
+        return new ExportResource.PrefixPages<Role>( name, reviewMgr.findRoles( name, ExportResource.MAX_ROWS ) )
+        {
+            @Override
+            protected List<Role> search( String prefix ) throws SecurityException
+            {
+                return reviewMgr.findRoles( prefix );
+            }
+
+
+            @Override
+            protected String getName( Role row )
+            {
+                return row.getName();
+            }
+        };
+    }
+    
+
     @Override
     public void setObject( SerializableList<? extends Role> object )
     {
@@ -138,7 +179,7 @@ public class RoleListModel extends Model<SerializableList<? extends Role>>
         try
         {
             LOG.debug( ".getList roleNm: " + szRoleNm );
-            rolesList = reviewMgr.findRoles( szRoleNm );
+            rolesList = ReviewMgrCache.findRoles( reviewMgr, session, szRoleNm );
             // sort list by role name:
             if( CollectionUtils.isNotEmpty( rolesList ))
             {
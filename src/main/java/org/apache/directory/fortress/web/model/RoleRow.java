@@ -0,0 +1,185 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+package org.apache.directory.fortress.web.model;
+
+import org.apache.directory.fortress.core.model.Role;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * The columns of one row of {@link org.apache.directory.fortress.web.panel.RoleListPanel}, for RBAC and admin roles
+ * alike.  The full role is read again when the row is selected.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ * @version $Rev$
+ */
+public class RoleRow implements Serializable
+{
+    /** Default serialVersionUID */
+    private static final long serialVersionUID = 1L;
+    private final String name;
+    private final String description;
+    private final String beginDate;
+    private final String endDate;
+    private final String beginLockDate;
+    private final String endLockDate;
+    private final String beginTime;
+    private final String endTime;
+    private final String dayMask;
+    private final Integer timeout;
+    private final Set<String> parents;
+
+    private RoleRow( Role role )
+    {
+        name = role.getName();
+        description = role.getDescription();
+        beginDate = role.getBeginDate();
+        endDate = role.getEndDate();
+        beginLockDate = role.getBeginLockDate();
+        endLockDate = role.getEndLockDate();
+        beginTime = role.getBeginTime();
+        endTime = role.getEndTime();
+        dayMask = role.getDayMask();
+        timeout = role.getTimeout();
+        parents = role.getParents() != null ? new TreeSet<>( role.getParents() ) : new TreeSet<String>();
+    }
+
+    /**
+     * @param role to show.
+     * @return row with the columns of role.
+     */
+    public static RoleRow of( Role role )
+    {
+        return new RoleRow( role );
+    }
+
+    /**
+     * @param roles to show, may be null.
+     * @return rows in the same order, never null.
+     */
+    public static List<RoleRow> of( Collection<? extends Role> roles )
+    {
+        List<RoleRow> rows = new ArrayList<>( roles != null ? roles.size() : 0 );
+        if ( roles != null )
+        {
+            for ( Role role : roles )
+            {
+                rows.add( new RoleRow( role ) );
+            }
+        }
+        return rows;
+    }
+
+    /**
+     * @return new role with the columns of this row, for callers that expect a role.
+     */
+    public Role toRole()
+    {
+        Role role = new Role( name );
+        role.setDescription( description );
+        role.setBeginDate( beginDate );
+        role.setEndDate( endDate );
+        role.setBeginLockDate( beginLockDate );
+        role.setEndLockDate( endLockDate );
+        role.setBeginTime( beginTime );
+        role.setEndTime( endTime );
+        role.setDayMask( dayMask );
+        role.setTimeout( timeout );
+        role.setParents( new HashSet<>( parents ) );
+        return role;
+    }
+
+    /**
+     * @param role saved by a detail panel.
+     * @return true if this row shows role.
+     */
+    public boolean matches( Role role )
+    {
+        return name != null && name.equalsIgnoreCase( role.getName() );
+    }
+
+    public String getName()
+    {
+        return name;
+    }
+
+    public String getDescription()
+    {
+        return description;
+    }
+
+    public String getBeginDate()
+    {
+        return beginDate;
+    }
+
+    public String getEndDate()
+    {
+        return endDate;
+    }
+
+    public String getBeginLockDate()
+    {
+        return beginLockDate;
+    }
+
+    public String getEndLockDate()
+    {
+        return endLockDate;
+    }
+
+    public String getBeginTime()
+    {
+        return beginTime;
+    }
+
+    public String getEndTime()
+    {
+        return endTime;
+    }
+
+    public String getDayMask()
+    {
+        return dayMask;
+    }
+
+    public Integer getTimeout()
+    {
+        return timeout;
+    }
+
+    public Set<String> getParents()
+    {
+        return Collections.unmodifiableSet( parents );
+    }
+
+    @Override
+    public String toString()
+    {
+        return name;
+    }
+}
@@ -19,20 +19,17 @@
  */
 package org.apache.directory.fortress.web.model;
 
-import org.apache.commons.collections.CollectionUtils;
 import org.apache.log4j.Logger;
 import org.apache.wicket.injection.Injector;
 import org.apache.wicket.model.Model;
 import org.apache.wicket.spring.injection.annot.SpringBean;
 import org.apache.directory.fortress.core.ReviewMgr;
-import org.apache.directory.fortress.core.model.Role;
 import org.apache.directory.fortress.core.model.SDSet;
 import org.apache.directory.fortress.core.model.Session;
 import org.apache.directory.fortress.core.SecurityException;
+import org.apache.directory.fortress.web.control.SDSetIndex;
 
 import java.util.ArrayList;
-import java.util.Collections;
-import java.util.Comparator;
 import java.util.List;
 
 /**
@@ -48,6 +45,7 @@ public class SDListModel extends Model<SerializableList<SDSet>>
     private ReviewMgr reviewMgr;
     private static final Logger LOG = Logger.getLogger(SDListModel.class.getName());
     private SDSet sdSet;
+    private Session session;
     private SerializableList<SDSet> sdSets = null;
 
     /**
@@ -56,6 +54,7 @@ public class SDListModel extends Model<SerializableList<SDSet>>
     public SDListModel( boolean isStatic, Session session )
     {
         Injector.get().inject( this );
+        this.session = session;
         reviewMgr.setAdmin( session );
     }
     
@@ -69,6 +68,7 @@ public class SDListModel extends Model<SerializableList<SDSet>>
     {
         Injector.get().inject( this );
         this.sdSet = sdSet;
+        this.session = session;
         reviewMgr.setAdmin( session );
     }
     
@@ -130,47 +130,9 @@ public class SDListModel extends Model<SerializableList<SDSet>>
         
         try
         {
-            String szSdSetNm = sdSet.getName();
-            LOG.debug( ".getList sdSetNm: " + szSdSetNm );
-
-            if ( CollectionUtils.isNotEmpty( sdSet.getMembers() ) )
-            {
-                Object[] roleNms = sdSet.getMembers().toArray();
-                String szRoleNm = (String)roleNms[0];
-                Role role = new Role( szRoleNm );
-                
-                if ( sdSet.getType().equals( SDSet.SDType.STATIC ) )
-                {
-                    sdSetList = reviewMgr.ssdRoleSets( role );
-                }
-                else
-                {
-                    sdSetList = reviewMgr.dsdRoleSets( role );
-                }
-            }
-            else
-            {
-                if ( sdSet.getType().equals( SDSet.SDType.STATIC ) )
-                {
-                    sdSetList = reviewMgr.ssdSets( sdSet );
-                }
-                else
-                {
-                    sdSetList = reviewMgr.dsdSets( sdSet );
-                }
-            }
-            // sort list by set name:
-            if( CollectionUtils.isNotEmpty( sdSetList ))
-            {
-                Collections.sort( sdSetList, new Comparator<SDSet>()
-                {
-                    @Override
-                    public int compare(SDSet s1, SDSet s2)
-                    {
-                        return s1.getName().compareToIgnoreCase( s2.getName() );
-                    }
-                } );
-            }
+            LOG.debug( ".getList sdSetNm: " + sdSet.getName() );
+            // answered from memory, by member role or by name, sorted by set name:
+            sdSetList = SDSetIndex.get( reviewMgr, session ).search( sdSet );
         }
         catch ( SecurityException se )
         {
@@ -0,0 +1,384 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+package org.apache.directory.fortress.web.model;
+
+import org.apache.directory.fortress.web.control.AsyncSearch;
+import org.apache.log4j.Logger;
+import org.apache.wicket.core.util.lang.PropertyResolver;
+import org.apache.wicket.extensions.markup.html.repeater.util.SortParam;
+import org.apache.wicket.extensions.markup.html.repeater.util.SortableDataProvider;
+import org.apache.wicket.model.IModel;
+import org.apache.wicket.model.Model;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Sortable, paged data provider for the list panels.  Unlike the list models it does not keep the search results in
+ * page state.  The page only holds the search criteria (held by subclass), the sort state and a token that locates
+ * the results in {@link SearchResultCache}.  Grids ask for one window of rows at a time.
+ * <p>
+ * Subclasses that provide {@link #newSearchTask()} may also run the search in the background, see
+ * {@link #searchAsync()}.  The grid then shows the rows received so far each time the page calls {@link #poll()}.
+ *
+ * @param <T> type of entity returned by the search.
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ * @version $Rev$
+ */
+public abstract class SearchDataProvider<T extends Serializable> extends SortableDataProvider<T, String>
+{
+    /** Default serialVersionUID */
+    private static final long serialVersionUID = 1L;
+    private static final Logger LOG = Logger.getLogger( SearchDataProvider.class.getName() );
+    private String token = newToken();
+    private SortParam<String> sortedBy;
+    private String asyncId;
+    private int received;
+    private String searchError;
+    private transient List<T> results;
+
+    /**
+     * Run the search against fortress.  Called at most once per token unless the results have been evicted.
+     *
+     * @return list of matching entities, may be null.
+     */
+    protected abstract List<T> search();
+
+    /**
+     * Return the key used to match an entity to its row, e.g. on update or delete.
+     *
+     * @param object entity.
+     * @return key that uniquely identifies the entity within the result set.
+     */
+    protected abstract String getId( T object );
+
+    /**
+     * Prepare the search to run on a background thread.  Called on the request thread, so it may inject models and
+     * initialize managers, but the task it returns must not use the request, session or components.
+     *
+     * @return the task or null if this provider only searches on the request thread.
+     */
+    protected AsyncSearch.Task<T> newSearchTask()
+    {
+        return null;
+    }
+
+    /**
+     * Discard the current results and start the search in the background.  Results start out empty and fill in as
+     * the page calls {@link #poll()}.  Any search still running for this provider is cancelled.
+     *
+     * @return true if the search was started, false if it could not be, in which case the next access runs it on the
+     * request thread.
+     */
+    public boolean searchAsync()
+    {
+        refresh();
+        AsyncSearch.Task<T> task = newSearchTask();
+        if ( task == null )
+        {
+            return false;
+        }
+        try
+        {
+            asyncId = AsyncSearch.start( task ).getId();
+        }
+        catch ( RejectedExecutionException ree )
+        {
+            LOG.warn( ".searchAsync rejected, searching on the request thread" );
+            return false;
+        }
+        results = new ArrayList<>();
+        SearchResultCache.put( token, results );
+        return true;
+    }
+
+    /**
+     * Add the rows found by the background search since the last call.
+     *
+     * @return true while the search is still running.
+     */
+    @SuppressWarnings("unchecked")
+    public boolean poll()
+    {
+        AsyncSearch<T> search = ( AsyncSearch<T> ) AsyncSearch.get( asyncId );
+        if ( search == null )
+        {
+            if ( asyncId != null )
+            {
+                // evicted before the rest of its rows were taken:
+                searchError = "search results were lost after " + received + " rows";
+                LOG.warn( ".poll search id: " + asyncId + " lost after rows: " + received );
+            }
+            asyncId = null;
+            return false;
+        }
+        // read before taking the rows so none published in between are missed:
+        boolean isDone = search.isDone();
+        List<T> rows = search.poll( received );
+        if ( !rows.isEmpty() )
+        {
+            received += rows.size();
+            getResults().addAll( rows );
+            sortedBy = null;
+            // weighed again:
+            SearchResultCache.put( token, results );
+        }
+        if ( isDone )
+        {
+            if ( search.getError() != null )
+            {
+                searchError = search.getError();
+                LOG.warn( ".poll search failed: " + search.getError() );
+            }
+            asyncId = null;
+        }
+        return asyncId != null;
+    }
+
+    /**
+     * @return why the last background search ended without all of its rows, or null if it did not.
+     */
+    public String getSearchError()
+    {
+        return searchError;
+    }
+
+    /**
+     * @return true while a background search is running.
+     */
+    public boolean isSearching()
+    {
+        return asyncId != null;
+    }
+
+    /**
+     * Stop the background search, if any.  Rows received so far are kept.
+     */
+    public void cancelSearch()
+    {
+        AsyncSearch<?> search = AsyncSearch.get( asyncId );
+        if ( search != null )
+        {
+            search.cancel();
+        }
+        asyncId = null;
+    }
+
+    /**
+     * Discard the current results.  Next access will call {@link #search()}.
+     */
+    public void refresh()
+    {
+        cancelSearch();
+        received = 0;
+        searchError = null;
+        SearchResultCache.remove( token );
+        token = newToken();
+        results = null;
+        sortedBy = null;
+    }
+
+    @Override
+    public Iterator<? extends T> iterator( long first, long count )
+    {
+        List<T> list = getResults();
+        int from = ( int ) Math.min( first, list.size() );
+        int to = ( int ) Math.min( first + count, list.size() );
+        return new ArrayList<>( list.subList( from, to ) ).iterator();
+    }
+
+    @Override
+    public long size()
+    {
+        return getResults().size();
+    }
+
+    @Override
+    public IModel<T> model( T object )
+    {
+        return Model.of( object );
+    }
+
+    @Override
+    public void detach()
+    {
+        results = null;
+    }
+
+    /**
+     * Append a new entity to the end of the results.
+     *
+     * @param object entity that was added.
+     */
+    public void add( T object )
+    {
+        getResults().add( object );
+        SearchResultCache.put( token, results );
+    }
+
+    /**
+     * Append entities to the end of the results, e.g. the records of a live tail, and drop the first ones if the
+     * results hold more than maxRows.
+     *
+     * @param objects entities to append.
+     * @param maxRows max number of entities to keep.
+     */
+    public void append( List<T> objects, int maxRows )
+    {
+        List<T> list = getResults();
+        list.addAll( objects );
+        if ( list.size() > maxRows )
+        {
+            list.subList( 0, list.size() - maxRows ).clear();
+        }
+        sortedBy = null;
+        SearchResultCache.put( token, list );
+    }
+
+    /**
+     * Replace the entity that has the same id.
+     *
+     * @param object entity that was updated.
+     */
+    public void update( T object )
+    {
+        List<T> list = getResults();
+        int index = indexOf( list, getId( object ) );
+        if ( index != -1 )
+        {
+            list.set( index, object );
+        }
+    }
+
+    /**
+     * Remove the entity that has the same id.
+     *
+     * @param object entity that was deleted.
+     */
+    public void remove( T object )
+    {
+        List<T> list = getResults();
+        int index = indexOf( list, getId( object ) );
+        if ( index != -1 )
+        {
+            list.remove( index );
+        }
+    }
+
+    /**
+     * Return all rows of the current search, in the order they are shown, e.g. to export them.
+     *
+     * @return unmodifiable list of entities, never null.
+     */
+    public List<T> getAll()
+    {
+        return Collections.unmodifiableList( getResults() );
+    }
+
+    /**
+     * Return the results of the current search, sorted per the current sort state.
+     *
+     * @return list of entities, never null.
+     */
+    protected List<T> getResults()
+    {
+        if ( results == null )
+        {
+            results = SearchResultCache.get( token );
+            if ( results == null && asyncId != null )
+            {
+                // evicted while the background search runs, poll takes all of its rows again:
+                results = new ArrayList<>();
+                received = 0;
+                SearchResultCache.put( token, results );
+            }
+            else if ( results == null )
+            {
+                List<T> list = search();
+                results = ( list == null ) ? new ArrayList<T>() : new ArrayList<>( list );
+                sortedBy = null;
+                SearchResultCache.put( token, results );
+                LOG.debug( ".getResults search returned: " + results.size() );
+            }
+        }
+        SortParam<String> sort = getSort();
+        if ( sort != null && !sort.equals( sortedBy ) )
+        {
+            sort( results, sort );
+            sortedBy = sort;
+        }
+        return results;
+    }
+
+    private void sort( List<T> list, SortParam<String> sort )
+    {
+        final String property = sort.getProperty();
+        final int direction = sort.isAscending() ? 1 : -1;
+        Collections.sort( list, new Comparator<T>()
+        {
+            @Override
+            public int compare( T o1, T o2 )
+            {
+                return direction * compareValues( PropertyResolver.getValue( property, o1 ), PropertyResolver
+                    .getValue( property, o2 ) );
+            }
+        } );
+    }
+
+    private static int compareValues( Object v1, Object v2 )
+    {
+        if ( v1 == v2 )
+        {
+            return 0;
+        }
+        if ( v1 == null )
+        {
+            return -1;
+        }
+        if ( v2 == null )
+        {
+            return 1;
+        }
+        return v1.toString().compareToIgnoreCase( v2.toString() );
+    }
+
+    private int indexOf( List<T> list, String id )
+    {
+        for ( int i = 0; i < list.size(); i++ )
+        {
+            if ( id != null && id.equalsIgnoreCase( getId( list.get( i ) ) ) )
+            {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static String newToken()
+    {
+        return UUID.randomUUID().toString();
+    }
+}
@@ -0,0 +1,80 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+package org.apache.directory.fortress.web.model;
+
+import org.apache.directory.fortress.web.common.BoundedCache;
+import org.apache.directory.fortress.web.common.ConfigUtils;
+
+import java.util.List;
+import java.util.function.ToLongFunction;
+
+/**
+ * Holds recent search results on the server, keyed by the token of the {@link SearchDataProvider} that ran the
+ * search, so results are not serialized into page state and paging through them does not repeat the search.
+ * <p>
+ * The cache is bounded by number of entries (search.cache.size, default 32), by the total number of rows they hold
+ * (search.cache.max.rows, default 200000) and by age (search.cache.ttl.seconds, default 300).  Least recently used
+ * entries are evicted first, so one admin's large search pushes out the older result sets rather than adding to the
+ * heap.  A provider whose entry has been evicted simply runs its search again.  Results that grow after they were
+ * put, e.g. by a background search, are put again so they are weighed again.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ * @version $Rev$
+ */
+final class SearchResultCache
+{
+    private static final BoundedCache<String, List<?>> CACHE = new BoundedCache<>( "searchResults", ConfigUtils
+        .getInt( "search.cache.size", 32 ), ConfigUtils.getLong( "search.cache.ttl.seconds", 300 ), ConfigUtils
+        .getLong( "search.cache.max.rows", 200000 ), new ToLongFunction<List<?>>()
+        {
+            @Override
+            public long applyAsLong( List<?> results )
+            {
+                return results.size();
+            }
+        } );
+
+    private SearchResultCache()
+    {
+    }
+
+    /**
+     * Return the results stored for token or null if none or expired.
+     *
+     * @param token identifies the search.
+     * @return search results or null.
+     */
+    @SuppressWarnings("unchecked")
+    static <T> List<T> get( String token )
+    {
+        return ( List<T> ) CACHE.get( token );
+    }
+
+    static void put( String token, List<?> results )
+    {
+        CACHE.evictExpired();
+        CACHE.put( token, results );
+    }
+
+    static void remove( String token )
+    {
+        CACHE.remove( token );
+    }
+}
@@ -0,0 +1,127 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+package org.apache.directory.fortress.web.model;
+
+import org.apache.directory.fortress.core.SecurityException;
+import org.apache.directory.fortress.core.model.Permission;
+import org.apache.directory.fortress.core.model.Session;
+import org.apache.directory.fortress.core.model.User;
+import org.apache.directory.fortress.web.control.AsyncSearch;
+import org.apache.directory.fortress.web.control.ExportResource;
+import org.apache.log4j.Logger;
+
+import java.util.List;
+
+/**
+ * Paged provider of users for {@link org.apache.directory.fortress.web.panel.UserListPanel}.  Search criteria are
+ * the same as {@link UserListModel}, which runs the actual search.  Holds {@link UserRow}s rather than users so the
+ * rows the grid keeps in page state stay small.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ * @version $Rev$
+ */
+public class UserDataProvider extends SearchDataProvider<UserRow>
+{
+    /** Default serialVersionUID */
+    private static final long serialVersionUID = 1L;
+    private static final Logger LOG = Logger.getLogger( UserDataProvider.class.getName() );
+    private final Session session;
+    private User user;
+    private Permission perm;
+
+    /**
+     * Create an empty provider.  Call one of the search methods to load it.
+     *
+     * @param session of the administrator running the search.
+     */
+    public UserDataProvider( Session session )
+    {
+        this.session = session;
+    }
+
+    /**
+     * Search users by userId, ou, role or admin role.
+     *
+     * @param user contains the search arguments.
+     */
+    public void search( User user )
+    {
+        this.user = user;
+        this.perm = null;
+        refresh();
+    }
+
+    /**
+     * Search users authorized for a permission.
+     *
+     * @param perm contains the search arguments.
+     */
+    public void search( Permission perm )
+    {
+        this.user = null;
+        this.perm = perm;
+        refresh();
+    }
+
+    @Override
+    protected List<UserRow> search()
+    {
+        if ( user == null && perm == null )
+        {
+            return null;
+        }
+        LOG.debug( ".search user: " + ( user != null ? user.getUserId() : null ) + " perm: " + perm );
+        UserListModel model = perm != null ? new UserListModel( perm, session ) : new UserListModel( user, session );
+        return model.getRows();
+    }
+
+    /**
+     * Run the current search again for an export, a page at a time, see {@link UserListModel#getPages()}.
+     *
+     * @return pages of rows sorted by userId.
+     * @throws SecurityException thrown by fortress when the search fails.
+     */
+    public ExportResource.Pages<UserRow> getPages() throws SecurityException
+    {
+        if ( user == null && perm == null )
+        {
+            return ExportResource.Pages.of( null );
+        }
+        UserListModel model = perm != null ? new UserListModel( perm, session ) : new UserListModel( user, session );
+        return model.getPages();
+    }
+
+    @Override
+    protected AsyncSearch.Task<UserRow> newSearchTask()
+    {
+        if ( user == null && perm == null )
+        {
+            return null;
+        }
+        UserListModel model = perm != null ? new UserListModel( perm, session ) : new UserListModel( user, session );
+        return model.newSearchTask();
+    }
+
+    @Override
+    protected String getId( UserRow object )
+    {
+        return object.getUserId();
+    }
+}
@@ -25,6 +25,10 @@ import org.apache.log4j.Logger;
 import org.apache.wicket.injection.Injector;
 import org.apache.wicket.model.Model;
 import org.apache.wicket.spring.injection.annot.SpringBean;
+import org.apache.directory.fortress.web.common.ConfigUtils;
+import org.apache.directory.fortress.web.control.AsyncSearch;
+import org.apache.directory.fortress.web.control.ExportResource;
+import org.apache.directory.fortress.web.control.UserBatchReader;
 import org.apache.directory.fortress.web.panel.UserListPanel;
 import org.apache.directory.fortress.core.DelReviewMgr;
 import org.apache.directory.fortress.core.ReviewMgr;
@@ -37,6 +41,7 @@ import org.apache.directory.fortress.core.model.User;
 import org.apache.directory.fortress.core.SecurityException;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.List;
@@ -56,8 +61,10 @@ public class UserListModel extends Model<SerializableList<User>>
     @SpringBean
     private DelReviewMgr delReviewMgr;
     private static final Logger log = Logger.getLogger(UserListModel.class.getName());
+    private static final int CHUNK_SIZE = Math.max( 1, ConfigUtils.getInt( "search.async.chunk", 100 ) );
     private User user;
     private Permission perm;
+    private Session session;
     private SerializableList<User> users = null;
 
     /**
@@ -93,6 +100,7 @@ public class UserListModel extends Model<SerializableList<User>>
     private void init( Session session )
     {
         Injector.get().inject( this );
+        this.session = session;
         reviewMgr.setAdmin( session );
     }
     
@@ -157,13 +165,7 @@ public class UserListModel extends Model<SerializableList<User>>
                 
                 if ( CollectionUtils.isNotEmpty( users ) )
                 {
-                    usersList = new ArrayList<>();
-                    
-                    for(String userId : users)
-                    {
-                        User user1 = reviewMgr.readUser( new User( userId ) );
-                        usersList.add( user1 );
-                    }
+                    usersList = UserBatchReader.readUsers( reviewMgr, users );
                 }
             }
             else if( StringUtils.isNotEmpty( user.getOu() ) )
@@ -183,17 +185,7 @@ public class UserListModel extends Model<SerializableList<User>>
                 usersList = reviewMgr.findUsers( user );
             }
             // sort list by userId:
-            if( CollectionUtils.isNotEmpty( usersList ))
-            {
-                Collections.sort( usersList, new Comparator<User>()
-                {
-                    @Override
-                    public int compare(User u1, User u2)
-                    {
-                        return u1.getUserId().compareToIgnoreCase( u2.getUserId() );
-                    }
-                } );
-            }
+            sortByUserId( usersList );
         }
         catch ( SecurityException se )
         {
@@ -203,4 +195,207 @@ public class UserListModel extends Model<SerializableList<User>>
         
         return usersList;
     }
+
+
+    /**
+     * Run the search for a list view.  Returns only the columns of each user, see {@link UserRow}.  Users authorized
+     * for a permission are reduced to rows as they are read, the others as soon as fortress returns them, so the
+     * photos and other bulky attributes of the hits are never held by the page.
+     *
+     * @return rows sorted by userId, never null.
+     */
+    public List<UserRow> getRows()
+    {
+        if ( user == null && perm == null )
+        {
+            return new ArrayList<>();
+        }
+        if ( perm != null )
+        {
+            try
+            {
+                return sortRowsByUserId( UserBatchReader.readUserRows( reviewMgr, session,
+                    reviewMgr.authorizedPermissionUsers( perm ) ) );
+            }
+            catch ( SecurityException se )
+            {
+                String error = ".getRows caught SecurityException=" + se;
+                log.warn( error );
+                return new ArrayList<>();
+            }
+        }
+        return UserRow.of( getList( user ) );
+    }
+
+
+    /**
+     * Run the search for an export, a page at a time, see {@link ExportResource.Pages}.  Users authorized for a
+     * permission or assigned a role are listed by userId first and read export.page.size at a time, users found by
+     * userId are searched by longer prefixes of it.  The users of an OU or an admin role are read at once.
+     *
+     * @return pages of rows sorted by userId.
+     * @throws SecurityException thrown by fortress when the userIds can't be listed.
+     */
+    public ExportResource.Pages<UserRow> getPages() throws SecurityException
+    {
+        if ( user == null && perm == null )
+        {
+            return ExportResource.Pages.of( null );
+        }
+        if ( perm != null )
+        {
+            return newBatchPages( reviewMgr.authorizedPermissionUsers( perm ) );
+        }
+        if ( StringUtils.isNotEmpty( user.getOu() ) )
+        {
+            return ExportResource.Pages.of( UserRow.of( getList( user ) ) );
+        }
+        if ( CollectionUtils.isNotEmpty( user.getRoles() ) )
+        {
+            return newBatchPages( reviewMgr.assignedUsers( new Role( user.getRoles().get( 0 ).getName() ),
+                ExportResource.MAX_ROWS ) );
+        }
+        if ( CollectionUtils.isNotEmpty( user.getAdminRoles() ) )
+        {
+            return ExportResource.Pages.of( UserRow.of( getList( user ) ) );
+        }
+        String userId = StringUtils.isNotEmpty( user.getUserId() ) ? user.getUserId() : "";
+        // userIds only, not the users:
+        List<String> userIds = reviewMgr.findUsers( new User( userId ), ExportResource.MAX_ROWS );
+        return new ExportResource.PrefixPages<UserRow>( userId, userIds )
+        {
+            @Override
+            protected List<UserRow> search( String prefix ) throws SecurityException
+            {
+                return UserRow.of( reviewMgr.findUsers( new User( prefix ) ) );
+            }
+
+
+            @Override
+            protected String getName( UserRow row )
+            {
+                return row.getUserId();
+            }
+        };
+    }
+
+
+    /**
+     * Read the users export.page.size at a time, in order of userId.
+     */
+    private ExportResource.Pages<UserRow> newBatchPages( Collection<String> userIds )
+    {
+        final List<String> sorted = userIds != null ? new ArrayList<>( userIds ) : new ArrayList<String>();
+        Collections.sort( sorted, String.CASE_INSENSITIVE_ORDER );
+        return new ExportResource.Pages<UserRow>()
+        {
+            private int from;
+
+
+            @Override
+            protected List<UserRow> next() throws SecurityException
+            {
+                if ( from >= sorted.size() )
+                {
+                    return null;
+                }
+                int to = Math.min( sorted.size(), from + ExportResource.PAGE_SIZE );
+                List<String> page = sorted.subList( from, to );
+                from = to;
+                return sortRowsByUserId( UserBatchReader.readUserRows( reviewMgr, session, page ) );
+            }
+        };
+    }
+
+
+    /**
+     * Prepare this search to run on a background thread, see {@link AsyncSearch}.  Users are published as grid rows.
+     * Users authorized for a permission are published a chunk at a time, as they are read.  The other searches are single queries and publish all of
+     * their users at once.
+     *
+     * @return task or null if the search must run on the request thread.
+     */
+    public AsyncSearch.Task<UserRow> newSearchTask()
+    {
+        final User srchUser = user;
+        final Permission srchPerm = perm;
+        if ( srchPerm == null && ( srchUser == null || isAdminRoleSearch( srchUser ) ) )
+        {
+            // delReviewMgr is looked up on first use, which needs the request thread:
+            return null;
+        }
+        return new AsyncSearch.Task<UserRow>()
+        {
+            @Override
+            public void run( AsyncSearch<UserRow> search ) throws SecurityException
+            {
+                if ( srchPerm == null )
+                {
+                    search.publish( UserRow.of( getList( srchUser ) ) );
+                    return;
+                }
+                Set<String> userIds = reviewMgr.authorizedPermissionUsers( srchPerm );
+                if ( CollectionUtils.isEmpty( userIds ) )
+                {
+                    return;
+                }
+                List<String> chunk = new ArrayList<>( CHUNK_SIZE );
+                for ( String userId : userIds )
+                {
+                    chunk.add( userId );
+                    if ( chunk.size() == CHUNK_SIZE )
+                    {
+                        if ( search.isCancelled() )
+                        {
+                            return;
+                        }
+                        search.publish( sortRowsByUserId( UserBatchReader.readUserRows( reviewMgr, session, chunk ) ) );
+                        chunk = new ArrayList<>( CHUNK_SIZE );
+                    }
+                }
+                if ( !chunk.isEmpty() && !search.isCancelled() )
+                {
+                    search.publish( sortRowsByUserId( UserBatchReader.readUserRows( reviewMgr, session, chunk ) ) );
+                }
+            }
+        };
+    }
+
+
+    private static boolean isAdminRoleSearch( User user )
+    {
+        return StringUtils.isEmpty( user.getOu() ) && CollectionUtils.isEmpty( user.getRoles() ) && CollectionUtils
+            .isNotEmpty( user.getAdminRoles() );
+    }
+
+
+    static List<User> sortByUserId( List<User> users )
+    {
+        if( CollectionUtils.isNotEmpty( users ))
+        {
+            Collections.sort( users, new Comparator<User>()
+            {
+                @Override
+                public int compare(User u1, User u2)
+                {
+                    return u1.getUserId().compareToIgnoreCase( u2.getUserId() );
+                }
+            } );
+        }
+        return users;
+    }
+
+
+    static List<UserRow> sortRowsByUserId( List<UserRow> rows )
+    {
+        Collections.sort( rows, new Comparator<UserRow>()
+        {
+            @Override
+            public int compare( UserRow r1, UserRow r2 )
+            {
+                return r1.getUserId().compareToIgnoreCase( r2.getUserId() );
+            }
+        } );
+        return rows;
+    }
 }
@@ -0,0 +1,224 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+package org.apache.directory.fortress.web.model;
+
+import org.apache.directory.fortress.core.model.Address;
+import org.apache.directory.fortress.core.model.User;
+import org.apache.directory.fortress.core.model.UserAdminRole;
+import org.apache.directory.fortress.core.model.UserRole;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * The columns of one row of {@link org.apache.directory.fortress.web.panel.UserListPanel}.  Holds only what the grid
+ * shows, not the photo, properties and constraints of the user, so it is cheap to keep in page state.  The full user
+ * is read again when the row is selected.  Rows are immutable, so they can be shared.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ * @version $Rev$
+ */
+public class UserRow implements Serializable
+{
+    /** Default serialVersionUID */
+    private static final long serialVersionUID = 1L;
+    private final String userId;
+    private final String internalId;
+    private final String ou;
+    private final String description;
+    private final List<String> addresses;
+    private final String city;
+    private final String state;
+    private final List<String> roles = new ArrayList<>();
+    private final List<String> adminRoles = new ArrayList<>();
+
+    private UserRow( User user )
+    {
+        userId = user.getUserId();
+        internalId = user.getInternalId();
+        ou = user.getOu();
+        description = user.getDescription();
+        Address address = user.getAddress();
+        addresses = address != null && address.getAddresses() != null ? new ArrayList<>( address.getAddresses() )
+            : new ArrayList<String>();
+        city = address != null ? address.getCity() : null;
+        state = address != null ? address.getState() : null;
+        if ( user.getRoles() != null )
+        {
+            for ( UserRole role : user.getRoles() )
+            {
+                roles.add( role.getName() );
+            }
+        }
+        if ( user.getAdminRoles() != null )
+        {
+            for ( UserAdminRole adminRole : user.getAdminRoles() )
+            {
+                adminRoles.add( adminRole.getName() );
+            }
+        }
+    }
+
+    private UserRow( UserRow row )
+    {
+        userId = row.userId;
+        internalId = row.internalId;
+        ou = row.ou;
+        description = row.description;
+        addresses = row.addresses;
+        city = row.city;
+        state = row.state;
+        roles.addAll( row.roles );
+        adminRoles.addAll( row.adminRoles );
+    }
+
+    /**
+     * @param user to show.
+     * @return row with the columns of user.
+     */
+    public static UserRow of( User user )
+    {
+        return new UserRow( user );
+    }
+
+    /**
+     * @param users to show, may be null.
+     * @return rows in the same order, never null.
+     */
+    public static List<UserRow> of( Collection<User> users )
+    {
+        List<UserRow> rows = new ArrayList<>( users != null ? users.size() : 0 );
+        if ( users != null )
+        {
+            for ( User user : users )
+            {
+                rows.add( new UserRow( user ) );
+            }
+        }
+        return rows;
+    }
+
+    public String getUserId()
+    {
+        return userId;
+    }
+
+    public String getInternalId()
+    {
+        return internalId;
+    }
+
+    public String getOu()
+    {
+        return ou;
+    }
+
+    public String getDescription()
+    {
+        return description;
+    }
+
+    public List<String> getAddresses()
+    {
+        return Collections.unmodifiableList( addresses );
+    }
+
+    public String getCity()
+    {
+        return city;
+    }
+
+    public String getState()
+    {
+        return state;
+    }
+
+    public List<String> getRoles()
+    {
+        return Collections.unmodifiableList( roles );
+    }
+
+    public List<String> getAdminRoles()
+    {
+        return Collections.unmodifiableList( adminRoles );
+    }
+
+    /**
+     * Return a copy of this row with a role added or removed, e.g. after a bulk assignment, so the user need not be
+     * read again.
+     *
+     * @param roleName name of RBAC or Admin role.
+     * @param isAdminRole true if roleName is an Admin role.
+     * @param isAssign true if the role was assigned, false if deassigned.
+     * @return new row.
+     */
+    public UserRow withRole( String roleName, boolean isAdminRole, boolean isAssign )
+    {
+        UserRow row = new UserRow( this );
+        List<String> names = isAdminRole ? row.adminRoles : row.roles;
+        if ( isAssign && !contains( names, roleName ) )
+        {
+            names.add( roleName );
+        }
+        else if ( !isAssign )
+        {
+            for ( Iterator<String> iterator = names.iterator(); iterator.hasNext(); )
+            {
+                if ( iterator.next().equalsIgnoreCase( roleName ) )
+                {
+                    iterator.remove();
+                }
+            }
+        }
+        return row;
+    }
+
+    /**
+     * @param roleName name of RBAC or Admin role.
+     * @param isAdminRole true if roleName is an Admin role.
+     * @return true if the user is assigned the role, ignoring case.
+     */
+    public boolean hasRole( String roleName, boolean isAdminRole )
+    {
+        return contains( isAdminRole ? adminRoles : roles, roleName );
+    }
+
+    private static boolean contains( List<String> names, String name )
+    {
+        for ( String element : names )
+        {
+            if ( element.equalsIgnoreCase( name ) )
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public String toString()
+    {
+        return userId;
+    }
+}
@@ -22,17 +22,18 @@ package org.apache.directory.fortress.web.panel;
 
 
 import com.googlecode.wicket.kendo.ui.form.datetime.DatePicker;
+import com.inmethod.grid.DataProviderAdapter;
 import com.inmethod.grid.IGridColumn;
 import com.inmethod.grid.column.PropertyColumn;
-import com.inmethod.grid.treegrid.TreeGrid;
+import com.inmethod.grid.datagrid.DataGrid;
 import org.apache.commons.lang.StringUtils;
-import org.apache.directory.fortress.core.util.time.TUtil;
 import org.apache.log4j.Logger;
 import org.apache.wicket.Component;
 import org.apache.wicket.ajax.AjaxRequestTarget;
 import org.apache.wicket.ajax.attributes.AjaxCallListener;
 import org.apache.wicket.ajax.attributes.AjaxRequestAttributes;
 import org.apache.wicket.ajax.form.AjaxFormComponentUpdatingBehavior;
+import org.apache.wicket.ajax.markup.html.form.AjaxCheckBox;
 import org.apache.wicket.ajax.markup.html.form.AjaxSubmitLink;
 import org.apache.wicket.extensions.ajax.markup.html.modal.ModalWindow;
 import org.apache.wicket.markup.html.form.CheckBox;
@@ -42,11 +43,18 @@ import org.apache.wicket.model.CompoundPropertyModel;
 import org.apache.wicket.model.IModel;
 import org.apache.directory.fortress.web.model.AuditAuthzListModel;
 import org.apache.directory.fortress.web.AuditAuthzPage;
+import org.apache.directory.fortress.web.common.ConfigUtils;
 import org.apache.directory.fortress.web.common.GlobalIds;
+import org.apache.directory.fortress.web.control.AuditTail;
+import org.apache.directory.fortress.web.control.AuditTailBehavior;
+import org.apache.directory.fortress.web.control.AuditPages;
+import org.apache.directory.fortress.web.control.ExportResource;
 import org.apache.directory.fortress.web.control.SecUtils;
+import org.apache.directory.fortress.web.control.SecureResourceLink;
 import org.apache.directory.fortress.web.control.SecureIndicatingAjaxButton;
 import org.apache.directory.fortress.web.control.SecureIndicatingAjaxLink;
 import org.apache.directory.fortress.web.event.SelectModelEvent;
+import org.apache.directory.fortress.web.model.AuditDataProvider;
 import org.apache.directory.fortress.core.model.AuthZ;
 import org.apache.wicket.markup.html.form.Form;
 import org.apache.wicket.model.Model;
@@ -54,12 +62,7 @@ import org.apache.directory.fortress.core.model.Permission;
 import org.apache.directory.fortress.core.model.User;
 import org.apache.directory.fortress.core.model.UserAudit;
 
-import javax.swing.tree.DefaultMutableTreeNode;
-import javax.swing.tree.DefaultTreeModel;
-import java.text.ParseException;
-import java.text.SimpleDateFormat;
 import java.util.ArrayList;
-import java.util.Date;
 import java.util.List;
 
 
@@ -73,10 +76,10 @@ public class AuditAuthzListPanel extends FormComponentPanel
     /** Default serialVersionUID */
     private static final long serialVersionUID = 1L;
     private static final Logger LOG = Logger.getLogger( AuditAuthzListPanel.class.getName() );
+    private static final int ROWS_PER_PAGE = ConfigUtils.getInt( "list.rows.per.page", 50 );
     private Form listForm;
-    private DefaultMutableTreeNode node;
-    private TreeGrid<DefaultTreeModel, DefaultMutableTreeNode, String> grid;
-    private DefaultMutableTreeNode rootNode;
+    private AuthZDataProvider dataProvider;
+    private DataGrid<DataProviderAdapter<AuthZ, String>, AuthZ, String> grid;
     private TextField userFld;
     private TextField objFld;
     private TextField opFld;
@@ -94,14 +97,14 @@ public class AuditAuthzListPanel extends FormComponentPanel
 
     private void init( UserAudit userAudit )
     {
-        AuditAuthzListModel pageModel = new AuditAuthzListModel( userAudit, SecUtils.getSession( this ) );
-        setDefaultModel( pageModel );
+        dataProvider = new AuthZDataProvider( userAudit );
         createAndLoadGrid();
         this.listForm = new Form( "authzform" );
         this.listForm.addOrReplace( grid );
         this.listForm.setModel( new CompoundPropertyModel<>( userAudit ) );
         addEditFields();
         addButtons();
+        addLiveTail();
         add( this.listForm );
     }
 
@@ -242,6 +245,10 @@ public class AuditAuthzListPanel extends FormComponentPanel
 
     private void addButtons()
     {
+        this.listForm.add( new SecureResourceLink( GlobalIds.EXPORT_CSV,
+            new AuditAuthzExport( ExportResource.Format.CSV ), GlobalIds.AUDIT_MGR, GlobalIds.GET_USER_AUTHZS ) );
+        this.listForm.add( new SecureResourceLink( GlobalIds.EXPORT_JSON,
+            new AuditAuthzExport( ExportResource.Format.JSON ), GlobalIds.AUDIT_MGR, GlobalIds.GET_USER_AUTHZS ) );
         this.listForm.add( new SecureIndicatingAjaxButton( GlobalIds.SEARCH, GlobalIds.AUDIT_MGR,
             GlobalIds.GET_USER_AUTHZS )
         {
@@ -337,75 +344,74 @@ public class AuditAuthzListPanel extends FormComponentPanel
 
     private void createAndLoadGrid()
     {
-        List<IGridColumn<DefaultTreeModel, DefaultMutableTreeNode, String>> columns =
-            new ArrayList<>();
-        PropertyColumn reqStart = new PropertyColumn<>(
-            Model.of( "Timestamp" ), "userObject.reqStart" );
+        List<IGridColumn<DataProviderAdapter<AuthZ, String>, AuthZ, String>> columns = new ArrayList<>();
+        PropertyColumn<DataProviderAdapter<AuthZ, String>, AuthZ, String, String> reqStart = new PropertyColumn<>(
+            Model.of( "Timestamp" ), "reqStart", "reqStart" );
         reqStart.setInitialSize( 200 );
         columns.add( reqStart );
 
-        PropertyColumn requAuthzId = new PropertyColumn<>(
-            Model.of( "User ID" ), "userObject.reqAuthzID" );
+        PropertyColumn<DataProviderAdapter<AuthZ, String>, AuthZ, String, String> requAuthzId = new PropertyColumn<>(
+            Model.of( "User ID" ), "reqAuthzID", "reqAuthzID" );
         requAuthzId.setInitialSize( 200 );
         columns.add( requAuthzId );
 
-        PropertyColumn reqAttr = new PropertyColumn<>(
-            Model.of( "Object Name" ), "userObject.reqAttr" );
+        PropertyColumn<DataProviderAdapter<AuthZ, String>, AuthZ, String, String> reqAttr = new PropertyColumn<>(
+            Model.of( "Object Name" ), "reqAttr", "reqAttr" );
         reqAttr.setInitialSize( 300 );
         columns.add( reqAttr );
 
-        PropertyColumn reqDerefAliases = new PropertyColumn<>(
-            Model.of( "Object ID" ), "userObject.reqDerefAliases" );
+        PropertyColumn<DataProviderAdapter<AuthZ, String>, AuthZ, String, String> reqDerefAliases =
+            new PropertyColumn<>( Model.of( "Object ID" ), "reqDerefAliases", "reqDerefAliases" );
         reqDerefAliases.setInitialSize( 100 );
         columns.add( reqDerefAliases );
 
-        PropertyColumn reqAttrsOnly = new PropertyColumn<>(
-            Model.of( "Operation" ), "userObject.reqAttrsOnly" );
+        PropertyColumn<DataProviderAdapter<AuthZ, String>, AuthZ, String, String> reqAttrsOnly = new PropertyColumn<>(
+            Model.of( "Operation" ), "reqAttrsOnly", "reqAttrsOnly" );
         reqAttrsOnly.setInitialSize( 120 );
         columns.add( reqAttrsOnly );
 
-        PropertyColumn reqResult = new PropertyColumn<>(
-            Model.of( "Result" ), "userObject.reqResult" );
+        PropertyColumn<DataProviderAdapter<AuthZ, String>, AuthZ, String, String> reqResult = new PropertyColumn<>(
+            Model.of( "Result" ), "reqResult", "reqResult" );
         reqResult.setInitialSize( 80 );
         columns.add( reqResult );
 
-        List<AuthZ> authZs = ( List<AuthZ> ) getDefaultModel().getObject();
-        DefaultTreeModel treeModel = createTreeModel( authZs );
-        grid = new TreeGrid<DefaultTreeModel, DefaultMutableTreeNode, String>( "authztreegrid", treeModel, columns )
+        long size = dataProvider.size();
+        LOG.debug( "AuthZs found:" + size );
+        if ( size > 0 )
+        {
+            info( "Loading " + size + " objects into list panel" );
+        }
+        grid = new DataGrid<DataProviderAdapter<AuthZ, String>, AuthZ, String>( "authztreegrid",
+            new DataProviderAdapter<>( dataProvider ), columns )
         {
             /** Default serialVersionUID */
             private static final long serialVersionUID = 1L;
 
 
             @Override
-            public void selectItem( IModel itemModel, boolean selected )
+            public void selectItem( IModel<AuthZ> itemModel, boolean selected )
             {
-                node = ( DefaultMutableTreeNode ) itemModel.getObject();
-                if ( !node.isRoot() )
+                AuthZ authZ = itemModel.getObject();
+                LOG.debug( "DataGrid.addGrid.selectItem selected authZ =" + authZ.getReqAuthzID() );
+                if ( super.isItemSelected( itemModel ) )
                 {
-                    AuthZ authZ = ( AuthZ ) node.getUserObject();
-                    LOG.debug( "TreeGrid.addGrid.selectItem selected authZ =" + authZ.getReqAuthzID() );
-                    if ( super.isItemSelected( itemModel ) )
-                    {
-                        LOG.debug( "TreeGrid.addGrid.selectItem item is selected" );
-                        super.selectItem( itemModel, false );
-                    }
-                    else
-                    {
-                        super.selectItem( itemModel, true );
-                        SelectModelEvent.send( getPage(), this, authZ );
-                    }
+                    LOG.debug( "DataGrid.addGrid.selectItem item is selected" );
+                    super.selectItem( itemModel, false );
+                }
+                else
+                {
+                    super.selectItem( itemModel, true );
+                    SelectModelEvent.send( getPage(), this, authZ );
                 }
             }
         };
 
         //grid.setContentHeight( 50, SizeUnit.EM );
+        grid.setRowsPerPage( ROWS_PER_PAGE );
         grid.setAllowSelectMultiple( false );
         grid.setClickRowToSelect( true );
         grid.setClickRowToDeselect( false );
         grid.setSelectToEdit( false );
-        // expand the root node
-        grid.getTreeState().expandAll();
         grid.setOutputMarkupId( true );
     }
 
@@ -561,57 +567,113 @@ public class AuditAuthzListPanel extends FormComponentPanel
     }
 
 
-    private DefaultTreeModel createTreeModel( List<AuthZ> authZs )
+    private void addLiveTail()
     {
-        DefaultTreeModel model;
-        rootNode = new DefaultMutableTreeNode( null );
-        model = new DefaultTreeModel( rootNode );
-        if ( authZs == null )
-            LOG.debug( "no Authorizations found" );
-        else
+        AuditTailBehavior<AuthZ> liveTail = new AuditTailBehavior<>( new AuthZTail(), dataProvider,
+            listForm.getModel() );
+        grid.add( liveTail );
+        AjaxCheckBox liveCB = liveTail.newCheckBox( GlobalIds.LIVE );
+        liveCB.setVisible( SecUtils.isFound( new Permission( GlobalIds.AUDIT_MGR, GlobalIds.GET_USER_AUTHZS ), this ) );
+        this.listForm.add( liveCB );
+    }
+
+
+    /**
+     * Searches the records of the view.  Records are mapped by the model, see AuditRecordParser.
+     */
+    private class AuthZDataProvider extends AuditDataProvider<AuthZ>
+    {
+        /** Default serialVersionUID */
+        private static final long serialVersionUID = 1L;
+
+
+        private AuthZDataProvider( UserAudit userAudit )
+        {
+            super( userAudit );
+        }
+
+
+        @Override
+        protected List<AuthZ> search( UserAudit userAudit )
+        {
+            return new AuditAuthzListModel( userAudit, SecUtils.getSession( AuditAuthzListPanel.this ) ).getObject();
+        }
+
+
+        @Override
+        protected String getId( AuthZ authZ )
         {
-            LOG.debug( "AuthZ found:" + authZs.size() );
-            info( "Loading " + authZs.size() + " objects into list panel" );
-            loadTree( authZs );
+            return authZ.getReqStart() + "|" + authZ.getReqAuthzID() + "|" + authZ.getReqDN() + "|" + authZ
+                .getReqResult();
         }
-        return model;
     }
 
 
-    private void loadTree( List<AuthZ> authZs )
+    /**
+     * Runs the current search again and writes the results straight to the response.
+     */
+    private class AuditAuthzExport extends ExportResource<AuthZ>
     {
-        for ( AuthZ authZ : authZs )
+        /** Default serialVersionUID */
+        private static final long serialVersionUID = 1L;
+
+
+        private AuditAuthzExport( Format format )
         {
-            Date start = null;
-            try
-            {
-                start = TUtil.decodeGeneralizedTime( authZ.getReqStart() );
-            }
-            catch ( ParseException pe )
-            {
-                LOG.warn( "ParseException=" + pe.getMessage() );
-            }
-            if ( start != null )
+            super( "authorizations", format, "reqStart", "reqAuthzID", "reqDN", "reqResult", "reqType" );
+        }
+
+
+        @Override
+        protected Iterable<? extends AuthZ> load()
+        {
+            UserAudit userAudit = ( UserAudit ) listForm.getModelObject();
+            return new AuditPages<AuthZ>( userAudit )
             {
-                SimpleDateFormat formatter = new SimpleDateFormat( GlobalIds.AUDIT_TIMESTAMP_FORMAT );
-                String formattedDate = formatter.format( start );
-                authZ.setReqStart( formattedDate );
-            }
-            authZ.setReqResult( GlobalIds.FAILURE );
-            /*
-                        TODO: On RC40 - Replace above line with the following:
-                        if(StringUtils.isNotEmpty( authZ.getReqAssertion() ) && (authZ.getReqAssertion().equals( org.apache.directory.fortress.core.GlobalIds.AUTH_Z_FAILED_VALUE ) ) )
-                        {
-                            authZ.setReqResult( GlobalIds.FAILURE );
-                        }
-                        else
-                        {
-                            authZ.setReqResult( GlobalIds.SUCCESS );
-                        }
-            */
-            authZ.setReqAuthzID( AuditUtils.getAuthZId( authZ.getReqAuthzID() ) );
-            AuditUtils.mapAuthZPerm( authZ );
-            rootNode.add( new DefaultMutableTreeNode( authZ ) );
+                @Override
+                protected List<AuthZ> search( UserAudit criteria )
+                {
+                    return new AuditAuthzListModel( criteria, SecUtils.getSession( AuditAuthzListPanel.this ) ).getObject();
+                }
+
+
+                @Override
+                protected String getStart( AuthZ record )
+                {
+                    return record.getReqStart();
+                }
+            };
+        }
+    }
+
+
+    /**
+     * Searches the records of the current search written since the last poll.
+     */
+    private class AuthZTail extends AuditTail<AuthZ>
+    {
+        /** Default serialVersionUID */
+        private static final long serialVersionUID = 1L;
+
+
+        @Override
+        protected List<AuthZ> search( UserAudit userAudit )
+        {
+            return new AuditAuthzListModel( userAudit, SecUtils.getSession( AuditAuthzListPanel.this ) ).getObject();
+        }
+
+
+        @Override
+        protected String getStart( AuthZ authZ )
+        {
+            return authZ.getReqStart();
+        }
+
+
+        @Override
+        protected String getKey( AuthZ authZ )
+        {
+            return authZ.getReqAuthzID() + "|" + authZ.getReqDN() + "|" + authZ.getReqResult();
         }
     }
 }
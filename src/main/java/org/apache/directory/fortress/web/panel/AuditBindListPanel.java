@@ -22,18 +22,19 @@ package org.apache.directory.fortress.web.panel;
 
 
 import com.googlecode.wicket.kendo.ui.form.datetime.DatePicker;
+import com.inmethod.grid.DataProviderAdapter;
 import com.inmethod.grid.IGridColumn;
 import com.inmethod.grid.column.PropertyColumn;
-import com.inmethod.grid.treegrid.TreeGrid;
+import com.inmethod.grid.datagrid.DataGrid;
 
 import org.apache.commons.lang.StringUtils;
-import org.apache.directory.fortress.core.util.time.TUtil;
 import org.apache.log4j.Logger;
 import org.apache.wicket.Component;
 import org.apache.wicket.ajax.AjaxRequestTarget;
 import org.apache.wicket.ajax.attributes.AjaxCallListener;
 import org.apache.wicket.ajax.attributes.AjaxRequestAttributes;
 import org.apache.wicket.ajax.form.AjaxFormComponentUpdatingBehavior;
+import org.apache.wicket.ajax.markup.html.form.AjaxCheckBox;
 import org.apache.wicket.ajax.markup.html.form.AjaxSubmitLink;
 import org.apache.wicket.extensions.ajax.markup.html.modal.ModalWindow;
 import org.apache.wicket.markup.html.form.CheckBox;
@@ -43,25 +44,26 @@ import org.apache.wicket.model.CompoundPropertyModel;
 import org.apache.wicket.model.IModel;
 import org.apache.directory.fortress.web.model.AuditBindListModel;
 import org.apache.directory.fortress.web.AuditBindPage;
+import org.apache.directory.fortress.web.common.ConfigUtils;
 import org.apache.directory.fortress.web.common.GlobalIds;
+import org.apache.directory.fortress.web.control.AuditTail;
+import org.apache.directory.fortress.web.control.AuditTailBehavior;
+import org.apache.directory.fortress.web.control.AuditPages;
+import org.apache.directory.fortress.web.control.ExportResource;
 import org.apache.directory.fortress.web.control.SecUtils;
+import org.apache.directory.fortress.web.control.SecureResourceLink;
 import org.apache.directory.fortress.web.control.SecureIndicatingAjaxButton;
 import org.apache.directory.fortress.web.control.SecureIndicatingAjaxLink;
 import org.apache.directory.fortress.web.event.SelectModelEvent;
-import org.apache.directory.fortress.web.model.SerializableList;
+import org.apache.directory.fortress.web.model.AuditDataProvider;
 import org.apache.wicket.markup.html.form.Form;
 import org.apache.wicket.model.Model;
 import org.apache.directory.fortress.core.model.Bind;
+import org.apache.directory.fortress.core.model.Permission;
 import org.apache.directory.fortress.core.model.User;
 import org.apache.directory.fortress.core.model.UserAudit;
 
-import javax.swing.tree.DefaultMutableTreeNode;
-import javax.swing.tree.DefaultTreeModel;
-
-import java.text.ParseException;
-import java.text.SimpleDateFormat;
 import java.util.ArrayList;
-import java.util.Date;
 import java.util.List;
 
 
@@ -75,10 +77,10 @@ public class AuditBindListPanel extends FormComponentPanel
     /** Default serialVersionUID */
     private static final long serialVersionUID = 1L;
     private static final Logger LOG = Logger.getLogger( AuditBindListPanel.class.getName() );
+    private static final int ROWS_PER_PAGE = ConfigUtils.getInt( "list.rows.per.page", 50 );
     private Form listForm;
-    private DefaultMutableTreeNode node;
-    private TreeGrid<DefaultTreeModel, DefaultMutableTreeNode, String> grid;
-    private DefaultMutableTreeNode rootNode;
+    private BindDataProvider dataProvider;
+    private DataGrid<DataProviderAdapter<Bind, String>, Bind, String> grid;
     private TextField userFld;
     protected DatePicker beginDateDP;
     protected DatePicker endDateDP;
@@ -94,14 +96,14 @@ public class AuditBindListPanel extends FormComponentPanel
     @SuppressWarnings( "Convert2Diamond" )
     private void init( UserAudit userAudit )
     {
-        IModel<SerializableList<Bind>> pageModel = new AuditBindListModel( userAudit, SecUtils.getSession( this ) );
-        setDefaultModel( pageModel );
+        dataProvider = new BindDataProvider( userAudit );
         createAndLoadGrid();
         this.listForm = new Form( "bindform" );
         this.listForm.addOrReplace( grid );
         this.listForm.setModel( new CompoundPropertyModel<UserAudit>( userAudit ) );
         addEditFields();
         addButtons();
+        addLiveTail();
         add( this.listForm );
     }
 
@@ -186,6 +188,10 @@ public class AuditBindListPanel extends FormComponentPanel
 
     private void addButtons()
     {
+        this.listForm.add( new SecureResourceLink( GlobalIds.EXPORT_CSV,
+            new AuditBindExport( ExportResource.Format.CSV ), GlobalIds.AUDIT_MGR, GlobalIds.GET_USER_BINDS ) );
+        this.listForm.add( new SecureResourceLink( GlobalIds.EXPORT_JSON,
+            new AuditBindExport( ExportResource.Format.JSON ), GlobalIds.AUDIT_MGR, GlobalIds.GET_USER_BINDS ) );
         this.listForm.add( new SecureIndicatingAjaxButton( GlobalIds.SEARCH, GlobalIds.AUDIT_MGR,
             GlobalIds.GET_USER_BINDS )
         {
@@ -278,59 +284,59 @@ public class AuditBindListPanel extends FormComponentPanel
     @SuppressWarnings( "Convert2Diamond" )
     private void createAndLoadGrid()
     {
-        List<IGridColumn<DefaultTreeModel, DefaultMutableTreeNode, String>> columns =
-            new ArrayList<IGridColumn<DefaultTreeModel, DefaultMutableTreeNode, String>>();
-        PropertyColumn reqStart = new PropertyColumn<DefaultTreeModel, DefaultMutableTreeNode, String, String>(
-            Model.of( "Timestamp" ), "userObject.reqStart" );
+        List<IGridColumn<DataProviderAdapter<Bind, String>, Bind, String>> columns =
+            new ArrayList<IGridColumn<DataProviderAdapter<Bind, String>, Bind, String>>();
+        PropertyColumn<DataProviderAdapter<Bind, String>, Bind, String, String> reqStart = new PropertyColumn<>(
+            Model.of( "Timestamp" ), "reqStart", "reqStart" );
         reqStart.setInitialSize( 200 );
         columns.add( reqStart );
 
-        PropertyColumn requAuthzId = new PropertyColumn<DefaultTreeModel, DefaultMutableTreeNode, String, String>(
-            Model.of( "User ID" ), "userObject.reqDN" );
+        PropertyColumn<DataProviderAdapter<Bind, String>, Bind, String, String> requAuthzId = new PropertyColumn<>(
+            Model.of( "User ID" ), "reqDN", "reqDN" );
         requAuthzId.setInitialSize( 200 );
         columns.add( requAuthzId );
 
-        PropertyColumn reqResult = new PropertyColumn<DefaultTreeModel, DefaultMutableTreeNode, String, String>(
-            Model.of( "Result" ), "userObject.reqResult" );
+        PropertyColumn<DataProviderAdapter<Bind, String>, Bind, String, String> reqResult = new PropertyColumn<>(
+            Model.of( "Result" ), "reqResult", "reqResult" );
         reqResult.setInitialSize( 80 );
         columns.add( reqResult );
 
-        List<Bind> binds = ( List<Bind> ) getDefaultModel().getObject();
-        DefaultTreeModel treeModel = createTreeModel( binds );
-        grid = new TreeGrid<DefaultTreeModel, DefaultMutableTreeNode, String>( "bindtreegrid", treeModel, columns )
+        long size = dataProvider.size();
+        LOG.debug( "Binds found:" + size );
+        if ( size > 0 )
+        {
+            info( "Loading " + size + " objects into list panel" );
+        }
+        grid = new DataGrid<DataProviderAdapter<Bind, String>, Bind, String>( "bindtreegrid",
+            new DataProviderAdapter<>( dataProvider ), columns )
         {
             /** Default serialVersionUID */
             private static final long serialVersionUID = 1L;
 
 
             @Override
-            public void selectItem( IModel itemModel, boolean selected )
+            public void selectItem( IModel<Bind> itemModel, boolean selected )
             {
-                node = ( DefaultMutableTreeNode ) itemModel.getObject();
-                if ( !node.isRoot() )
+                Bind bind = itemModel.getObject();
+                LOG.debug( "DataGrid.addGrid.selectItem selected bind =" + bind.getReqDN() );
+                if ( super.isItemSelected( itemModel ) )
                 {
-                    Bind bind = ( Bind ) node.getUserObject();
-                    LOG.debug( "TreeGrid.addGrid.selectItem selected bind =" + bind.getReqDN() );
-                    if ( super.isItemSelected( itemModel ) )
-                    {
-                        LOG.debug( "TreeGrid.addGrid.selectItem item is selected" );
-                        super.selectItem( itemModel, false );
-                    }
-                    else
-                    {
-                        super.selectItem( itemModel, true );
-                        SelectModelEvent.send( getPage(), this, bind );
-                    }
+                    LOG.debug( "DataGrid.addGrid.selectItem item is selected" );
+                    super.selectItem( itemModel, false );
+                }
+                else
+                {
+                    super.selectItem( itemModel, true );
+                    SelectModelEvent.send( getPage(), this, bind );
                 }
             }
         };
         //grid.setContentHeight( 50, SizeUnit.EM );
+        grid.setRowsPerPage( ROWS_PER_PAGE );
         grid.setAllowSelectMultiple( false );
         grid.setClickRowToSelect( true );
         grid.setClickRowToDeselect( false );
         grid.setSelectToEdit( false );
-        // expand the root node
-        grid.getTreeState().expandAll();
         grid.setOutputMarkupId( true );
     }
 
@@ -405,52 +411,111 @@ public class AuditBindListPanel extends FormComponentPanel
     }
 
 
-    private DefaultTreeModel createTreeModel( List<Bind> binds )
+    private void addLiveTail()
     {
-        DefaultTreeModel model;
-        rootNode = new DefaultMutableTreeNode( null );
-        model = new DefaultTreeModel( rootNode );
-        if ( binds == null )
-            LOG.debug( "no Authentications found" );
-        else
+        AuditTailBehavior<Bind> liveTail = new AuditTailBehavior<>( new BindTail(), dataProvider, listForm.getModel() );
+        grid.add( liveTail );
+        AjaxCheckBox liveCB = liveTail.newCheckBox( GlobalIds.LIVE );
+        liveCB.setVisible( SecUtils.isFound( new Permission( GlobalIds.AUDIT_MGR, GlobalIds.GET_USER_BINDS ), this ) );
+        this.listForm.add( liveCB );
+    }
+
+
+    /**
+     * Searches the records of the view.  Records are mapped by the model, see AuditRecordParser.
+     */
+    private class BindDataProvider extends AuditDataProvider<Bind>
+    {
+        /** Default serialVersionUID */
+        private static final long serialVersionUID = 1L;
+
+
+        private BindDataProvider( UserAudit userAudit )
         {
-            LOG.debug( "Binds found:" + binds.size() );
-            info( "Loading " + binds.size() + " objects into list panel" );
-            loadTree( binds );
+            super( userAudit );
+        }
+
+
+        @Override
+        protected List<Bind> search( UserAudit userAudit )
+        {
+            return new AuditBindListModel( userAudit, SecUtils.getSession( AuditBindListPanel.this ) ).getObject();
+        }
+
+
+        @Override
+        protected String getId( Bind bind )
+        {
+            return bind.getReqStart() + "|" + bind.getReqDN() + "|" + bind.getReqSession();
         }
-        return model;
     }
 
 
-    private void loadTree( List<Bind> binds )
+    /**
+     * Runs the current search again and writes the results straight to the response.
+     */
+    private class AuditBindExport extends ExportResource<Bind>
     {
-        for ( Bind bind : binds )
+        /** Default serialVersionUID */
+        private static final long serialVersionUID = 1L;
+
+
+        private AuditBindExport( Format format )
         {
-            Date start = null;
-            try
-            {
-                start = TUtil.decodeGeneralizedTime( bind.getReqStart() );
-            }
-            catch ( ParseException pe )
-            {
-                LOG.warn( "ParseException=" + pe.getMessage() );
-            }
-            if ( start != null )
-            {
-                SimpleDateFormat formatter = new SimpleDateFormat( GlobalIds.AUDIT_TIMESTAMP_FORMAT );
-                String formattedDate = formatter.format( start );
-                bind.setReqStart( formattedDate );
-            }
-            if ( bind.getReqResult().equals( GlobalIds.BIND_SUCCESS_CODE ) )
-            {
-                bind.setReqResult( GlobalIds.SUCCESS );
-            }
-            else
+            super( "binds", format, "reqStart", "reqDN", "reqResult", "reqType", "reqSession" );
+        }
+
+
+        @Override
+        protected Iterable<? extends Bind> load()
+        {
+            UserAudit userAudit = ( UserAudit ) listForm.getModelObject();
+            return new AuditPages<Bind>( userAudit )
             {
-                bind.setReqResult( GlobalIds.FAILURE );
-            }
-            bind.setReqDN( AuditUtils.getAuthZId( bind.getReqDN() ) );
-            rootNode.add( new DefaultMutableTreeNode( bind ) );
+                @Override
+                protected List<Bind> search( UserAudit criteria )
+                {
+                    return new AuditBindListModel( criteria, SecUtils.getSession( AuditBindListPanel.this ) ).getObject();
+                }
+
+
+                @Override
+                protected String getStart( Bind record )
+                {
+                    return record.getReqStart();
+                }
+            };
+        }
+    }
+
+
+    /**
+     * Searches the records of the current search written since the last poll.
+     */
+    private class BindTail extends AuditTail<Bind>
+    {
+        /** Default serialVersionUID */
+        private static final long serialVersionUID = 1L;
+
+
+        @Override
+        protected List<Bind> search( UserAudit userAudit )
+        {
+            return new AuditBindListModel( userAudit, SecUtils.getSession( AuditBindListPanel.this ) ).getObject();
+        }
+
+
+        @Override
+        protected String getStart( Bind bind )
+        {
+            return bind.getReqStart();
+        }
+
+
+        @Override
+        protected String getKey( Bind bind )
+        {
+            return bind.getReqDN() + "|" + bind.getReqResult() + "|" + bind.getReqSession();
         }
     }
 }
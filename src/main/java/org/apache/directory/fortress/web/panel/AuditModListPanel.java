@@ -22,18 +22,19 @@ package org.apache.directory.fortress.web.panel;
 
 
 import com.googlecode.wicket.kendo.ui.form.datetime.DatePicker;
+import com.inmethod.grid.DataProviderAdapter;
 import com.inmethod.grid.IGridColumn;
 import com.inmethod.grid.column.PropertyColumn;
-import com.inmethod.grid.treegrid.TreeGrid;
+import com.inmethod.grid.datagrid.DataGrid;
 
 import org.apache.commons.lang.StringUtils;
-import org.apache.directory.fortress.core.util.time.TUtil;
 import org.apache.log4j.Logger;
 import org.apache.wicket.Component;
 import org.apache.wicket.ajax.AjaxRequestTarget;
 import org.apache.wicket.ajax.attributes.AjaxCallListener;
 import org.apache.wicket.ajax.attributes.AjaxRequestAttributes;
 import org.apache.wicket.ajax.form.AjaxFormComponentUpdatingBehavior;
+import org.apache.wicket.ajax.markup.html.form.AjaxCheckBox;
 import org.apache.wicket.ajax.markup.html.form.AjaxSubmitLink;
 import org.apache.wicket.extensions.ajax.markup.html.modal.ModalWindow;
 import org.apache.wicket.markup.html.form.FormComponentPanel;
@@ -42,12 +43,18 @@ import org.apache.wicket.model.CompoundPropertyModel;
 import org.apache.wicket.model.IModel;
 import org.apache.directory.fortress.web.model.AuditModListModel;
 import org.apache.directory.fortress.web.AuditModPage;
+import org.apache.directory.fortress.web.common.ConfigUtils;
 import org.apache.directory.fortress.web.common.GlobalIds;
+import org.apache.directory.fortress.web.control.AuditTail;
+import org.apache.directory.fortress.web.control.AuditTailBehavior;
+import org.apache.directory.fortress.web.control.AuditPages;
+import org.apache.directory.fortress.web.control.ExportResource;
 import org.apache.directory.fortress.web.control.SecUtils;
+import org.apache.directory.fortress.web.control.SecureResourceLink;
 import org.apache.directory.fortress.web.control.SecureIndicatingAjaxButton;
 import org.apache.directory.fortress.web.control.SecureIndicatingAjaxLink;
 import org.apache.directory.fortress.web.event.SelectModelEvent;
-import org.apache.directory.fortress.web.model.SerializableList;
+import org.apache.directory.fortress.web.model.AuditDataProvider;
 import org.apache.wicket.markup.html.form.Form;
 import org.apache.wicket.model.Model;
 import org.apache.directory.fortress.core.model.Mod;
@@ -55,13 +62,7 @@ import org.apache.directory.fortress.core.model.Permission;
 import org.apache.directory.fortress.core.model.User;
 import org.apache.directory.fortress.core.model.UserAudit;
 
-import javax.swing.tree.DefaultMutableTreeNode;
-import javax.swing.tree.DefaultTreeModel;
-
-import java.text.ParseException;
-import java.text.SimpleDateFormat;
 import java.util.ArrayList;
-import java.util.Date;
 import java.util.List;
 
 
@@ -75,10 +76,10 @@ public class AuditModListPanel extends FormComponentPanel
     /** Default serialVersionUID */
     private static final long serialVersionUID = 1L;
     private static final Logger LOG = Logger.getLogger( AuditModListPanel.class.getName() );
+    private static final int ROWS_PER_PAGE = ConfigUtils.getInt( "list.rows.per.page", 50 );
     private Form listForm;
-    private DefaultMutableTreeNode node;
-    private TreeGrid<DefaultTreeModel, DefaultMutableTreeNode, String> grid;
-    private DefaultMutableTreeNode rootNode;
+    private ModDataProvider dataProvider;
+    private DataGrid<DataProviderAdapter<Mod, String>, Mod, String> grid;
     private TextField userFld;
     private TextField objFld;
     private TextField opFld;
@@ -96,14 +97,14 @@ public class AuditModListPanel extends FormComponentPanel
 
     private void init( UserAudit userAudit )
     {
-        IModel<SerializableList<Mod>> pageModel = new AuditModListModel( userAudit, SecUtils.getSession( this ) );
-        setDefaultModel( pageModel );
+        dataProvider = new ModDataProvider( userAudit );
         createAndLoadGrid();
         this.listForm = new Form( "modform" );
         this.listForm.addOrReplace( grid );
         this.listForm.setModel( new CompoundPropertyModel<>( userAudit ) );
         addFormFields();
         addButtons();
+        addLiveTail();
         add( this.listForm );
     }
 
@@ -205,6 +206,10 @@ public class AuditModListPanel extends FormComponentPanel
 
     private void addButtons()
     {
+        this.listForm.add( new SecureResourceLink( GlobalIds.EXPORT_CSV,
+            new AuditModExport( ExportResource.Format.CSV ), GlobalIds.AUDIT_MGR, "searchAdminMods" ) );
+        this.listForm.add( new SecureResourceLink( GlobalIds.EXPORT_JSON,
+            new AuditModExport( ExportResource.Format.JSON ), GlobalIds.AUDIT_MGR, "searchAdminMods" ) );
         this.listForm.add( new SecureIndicatingAjaxButton( GlobalIds.SEARCH, GlobalIds.AUDIT_MGR, "searchAdminMods" )
         {
             /** Default serialVersionUID */
@@ -299,59 +304,59 @@ public class AuditModListPanel extends FormComponentPanel
 
     private void createAndLoadGrid()
     {
-        List<IGridColumn<DefaultTreeModel, DefaultMutableTreeNode, String>> columns =
-            new ArrayList<>();
-        PropertyColumn reqStart = new PropertyColumn<>(
-            Model.of( "Timestamp" ), "userObject.reqStart" );
+        List<IGridColumn<DataProviderAdapter<Mod, String>, Mod, String>> columns = new ArrayList<>();
+        PropertyColumn<DataProviderAdapter<Mod, String>, Mod, String, String> reqStart = new PropertyColumn<>(
+            Model.of( "Timestamp" ), "reqStart", "reqStart" );
         reqStart.setInitialSize( 200 );
         columns.add( reqStart );
-        PropertyColumn reqAttr = new PropertyColumn<>(
-            Model.of( "LDAP Operation" ), "userObject.reqType" );
+
+        PropertyColumn<DataProviderAdapter<Mod, String>, Mod, String, String> reqAttr = new PropertyColumn<>(
+            Model.of( "LDAP Operation" ), "reqType", "reqType" );
         reqAttr.setInitialSize( 150 );
         columns.add( reqAttr );
 
-        PropertyColumn reqAttrsOnly = new PropertyColumn<>(
-            Model.of( "Target Location" ), "userObject.reqDN" );
+        PropertyColumn<DataProviderAdapter<Mod, String>, Mod, String, String> reqAttrsOnly = new PropertyColumn<>(
+            Model.of( "Target Location" ), "reqDN", "reqDN" );
         reqAttrsOnly.setInitialSize( 500 );
         columns.add( reqAttrsOnly );
 
-        List<Mod> mods = ( List<Mod> ) getDefaultModel().getObject();
-        DefaultTreeModel treeModel = createTreeModel( mods );
-        grid = new TreeGrid<DefaultTreeModel, DefaultMutableTreeNode, String>( "modtreegrid", treeModel, columns )
+        long size = dataProvider.size();
+        LOG.debug( "Mods found:" + size );
+        if ( size > 0 )
+        {
+            info( "Loading " + size + " objects into list panel" );
+        }
+        grid = new DataGrid<DataProviderAdapter<Mod, String>, Mod, String>( "modtreegrid",
+            new DataProviderAdapter<>( dataProvider ), columns )
         {
             /** Default serialVersionUID */
             private static final long serialVersionUID = 1L;
 
 
             @Override
-            public void selectItem( IModel itemModel, boolean selected )
+            public void selectItem( IModel<Mod> itemModel, boolean selected )
             {
-                node = ( DefaultMutableTreeNode ) itemModel.getObject();
-                if ( !node.isRoot() )
+                Mod mod = itemModel.getObject();
+                LOG.debug( "DataGrid.addGrid.selectItem selected mod =" + mod.getReqAuthzID() );
+                if ( super.isItemSelected( itemModel ) )
                 {
-                    Mod mod = ( Mod ) node.getUserObject();
-                    LOG.debug( "TreeGrid.addGrid.selectItem selected mod =" + mod.getReqAuthzID() );
-                    if ( super.isItemSelected( itemModel ) )
-                    {
-                        LOG.debug( "TreeGrid.addGrid.selectItem item is selected" );
-                        super.selectItem( itemModel, false );
-                    }
-                    else
-                    {
-                        super.selectItem( itemModel, true );
-                        SelectModelEvent.send( getPage(), this, mod );
-                    }
+                    LOG.debug( "DataGrid.addGrid.selectItem item is selected" );
+                    super.selectItem( itemModel, false );
+                }
+                else
+                {
+                    super.selectItem( itemModel, true );
+                    SelectModelEvent.send( getPage(), this, mod );
                 }
             }
         };
 
         //grid.setContentHeight( 50, SizeUnit.EM );
+        grid.setRowsPerPage( ROWS_PER_PAGE );
         grid.setAllowSelectMultiple( false );
         grid.setClickRowToSelect( true );
         grid.setClickRowToDeselect( false );
         grid.setSelectToEdit( false );
-        // expand the root node
-        grid.getTreeState().expandAll();
         grid.setOutputMarkupId( true );
     }
 
@@ -501,43 +506,111 @@ public class AuditModListPanel extends FormComponentPanel
     }
 
 
-    private DefaultTreeModel createTreeModel( List<Mod> mods )
+    private void addLiveTail()
     {
-        DefaultTreeModel model;
-        rootNode = new DefaultMutableTreeNode( null );
-        model = new DefaultTreeModel( rootNode );
-        if ( mods == null )
-            LOG.debug( "no Modifications found" );
-        else
+        AuditTailBehavior<Mod> liveTail = new AuditTailBehavior<>( new ModTail(), dataProvider, listForm.getModel() );
+        grid.add( liveTail );
+        AjaxCheckBox liveCB = liveTail.newCheckBox( GlobalIds.LIVE );
+        liveCB.setVisible( SecUtils.isFound( new Permission( GlobalIds.AUDIT_MGR, "searchAdminMods" ), this ) );
+        this.listForm.add( liveCB );
+    }
+
+
+    /**
+     * Searches the records of the view.  Records are mapped by the model, see AuditRecordParser.
+     */
+    private class ModDataProvider extends AuditDataProvider<Mod>
+    {
+        /** Default serialVersionUID */
+        private static final long serialVersionUID = 1L;
+
+
+        private ModDataProvider( UserAudit userAudit )
+        {
+            super( userAudit );
+        }
+
+
+        @Override
+        protected List<Mod> search( UserAudit userAudit )
+        {
+            return new AuditModListModel( userAudit, SecUtils.getSession( AuditModListPanel.this ) ).getObject();
+        }
+
+
+        @Override
+        protected String getId( Mod mod )
         {
-            LOG.debug( "AuthZ found:" + mods.size() );
-            info( "Loading " + mods.size() + " objects into list panel" );
-            loadTree( mods );
+            return mod.getReqStart() + "|" + mod.getReqAuthzID() + "|" + mod.getReqType() + "|" + mod.getReqDN();
         }
-        return model;
     }
 
 
-    private void loadTree( List<Mod> mods )
+    /**
+     * Runs the current search again and writes the results straight to the response.
+     */
+    private class AuditModExport extends ExportResource<Mod>
     {
-        for ( Mod mod : mods )
+        /** Default serialVersionUID */
+        private static final long serialVersionUID = 1L;
+
+
+        private AuditModExport( Format format )
         {
-            Date start = null;
-            try
-            {
-                start = TUtil.decodeGeneralizedTime( mod.getReqStart() );
-            }
-            catch ( ParseException pe )
-            {
-                LOG.warn( "ParseException=" + pe.getMessage() );
-            }
-            if ( start != null )
+            super( "modifications", format, "reqStart", "reqType", "reqDN", "reqAuthzID", "reqMod" );
+        }
+
+
+        @Override
+        protected Iterable<? extends Mod> load()
+        {
+            UserAudit userAudit = ( UserAudit ) listForm.getModelObject();
+            return new AuditPages<Mod>( userAudit )
             {
-                SimpleDateFormat formatter = new SimpleDateFormat( GlobalIds.AUDIT_TIMESTAMP_FORMAT );
-                String formattedDate = formatter.format( start );
-                mod.setReqStart( formattedDate );
-            }
-            rootNode.add( new DefaultMutableTreeNode( mod ) );
+                @Override
+                protected List<Mod> search( UserAudit criteria )
+                {
+                    return new AuditModListModel( criteria, SecUtils.getSession( AuditModListPanel.this ) ).getObject();
+                }
+
+
+                @Override
+                protected String getStart( Mod record )
+                {
+                    return record.getReqStart();
+                }
+            };
+        }
+    }
+
+
+    /**
+     * Searches the records of the current search written since the last poll.
+     */
+    private class ModTail extends AuditTail<Mod>
+    {
+        /** Default serialVersionUID */
+        private static final long serialVersionUID = 1L;
+
+
+        @Override
+        protected List<Mod> search( UserAudit userAudit )
+        {
+            return new AuditModListModel( userAudit, SecUtils.getSession( AuditModListPanel.this ) ).getObject();
+        }
+
+
+        @Override
+        protected String getStart( Mod mod )
+        {
+            return mod.getReqStart();
+        }
+
+
+        @Override
+        protected String getKey( Mod mod )
+        {
+            return mod.getReqAuthzID() + "|" + mod.getReqType() + "|" + mod.getReqDN();
         }
     }
 }
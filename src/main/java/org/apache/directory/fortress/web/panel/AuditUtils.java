@@ -22,15 +22,13 @@ package org.apache.directory.fortress.web.panel;
 
 import org.apache.commons.collections.CollectionUtils;
 import org.apache.directory.fortress.core.ReviewMgr;
-import org.apache.directory.fortress.core.model.AuthZ;
+import org.apache.directory.fortress.core.model.Mod;
 import org.apache.directory.fortress.core.model.Permission;
 import org.apache.directory.fortress.core.model.User;
-import org.apache.directory.fortress.core.GlobalIds;
+import org.apache.directory.fortress.web.control.AuditRecordParser;
+import org.apache.directory.fortress.web.control.UserBatchReader;
 import org.apache.log4j.Logger;
 
-import java.util.List;
-import java.util.StringTokenizer;
-
 /**
  * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
  * @version $Rev$
@@ -51,169 +49,54 @@ final class AuditUtils
      */
     static Permission getAuthZPerm( String raw )
     {
-        //// ftOpNm=addUser,ftObjNm=org.apache.directory.fortress.core.model.AdminMgrImpl,ou=AdminPerms,ou=ARBAC,dc=jts,dc=us
-        // ftObjId=006+ftOpNm=TOP1_6,ftObjNm=TOB1_4,ou=Permissions,ou=RBAC,dc=jts,dc=us
-        Permission perm = new Permission();
-        int bindx = raw.indexOf( GlobalIds.POBJ_ID );
-        if ( bindx != -1 )
-        {
-            int eindx = raw.indexOf( '+' );
-            if ( eindx != -1 )
-            {
-                perm.setObjId( raw.substring( bindx + GlobalIds.POBJ_ID.length() + 1, eindx ) );
-            }
-        }
-        bindx = raw.indexOf( GlobalIds.POBJ_NAME );
-        if ( bindx != -1 )
-        {
-            int eindx = raw.substring( bindx ).indexOf( "," );
-            if ( eindx != -1 )
-            {
-                eindx += bindx;
-                perm.setObjName( raw.substring( bindx + GlobalIds.POBJ_NAME.length() + 1, eindx ) );
-            }
-        }
-        bindx = raw.indexOf( GlobalIds.POP_NAME );
-        if ( bindx != -1 )
-        {
-            int eindx = raw.substring( bindx ).indexOf( ',' );
-            if ( eindx != -1 )
-            {
-                eindx += bindx;
-                perm.setOpName( raw.substring( bindx + GlobalIds.POP_NAME.length() + 1, eindx ) );
-            }
-        }
-        return perm;
+        return new AuditRecordParser().getPermission( raw );
     }
 
     /**
      *
-     * @param authZ
-     */
-    static void mapAuthZPerm( AuthZ authZ )
-    {
-        //// ftOpNm=addUser,ftObjNm=org.apache.directory.fortress.core.impl.AdminMgrImpl,ou=AdminPerms,ou=ARBAC,dc=jts,dc=us
-        // ftObjId=006+ftOpNm=TOP1_6,ftObjNm=TOB1_4,ou=Permissions,ou=RBAC,dc=jts,dc=us
-        String raw = authZ.getReqDN();
-
-        // TODO: fix this mapping:
-        //reqDerefAliases
-        //reqAttr
-        //reqAttrsOnly
-
-        //Permission perm = new Permission();
-        int bindx = raw.indexOf( GlobalIds.POBJ_ID );
-        if ( bindx != -1 )
-        {
-            int eindx = raw.indexOf( '+' );
-            if ( eindx != -1 )
-            {
-                authZ.setReqDerefAliases( raw.substring( bindx + GlobalIds.POBJ_ID.length() + 1, eindx ) );
-            }
-        }
-        bindx = raw.indexOf( GlobalIds.POBJ_NAME );
-        if ( bindx != -1 )
-        {
-            int eindx = raw.substring( bindx ).indexOf( ',' );
-            if ( eindx != -1 )
-            {
-                eindx += bindx;
-                authZ.setReqAttr( raw.substring( bindx + GlobalIds.POBJ_NAME.length() + 1, eindx ) );
-            }
-        }
-        bindx = raw.indexOf( GlobalIds.POP_NAME );
-        if ( bindx != -1 )
-        {
-            int eindx = raw.substring( bindx ).indexOf( ',' );
-            if ( eindx != -1 )
-            {
-                eindx += bindx;
-                authZ.setReqAttrsOnly( raw.substring( bindx + GlobalIds.POP_NAME.length() + 1, eindx ) );
-            }
-        }
-    }
-
-    /**
-     *
-     * @param inputString
+     * @param reviewMgr
+     * @param userId
      * @return
      */
-    static String getAuthZId( String inputString )
+    static User getUser( ReviewMgr reviewMgr, String userId )
     {
-        //reqAuthzID: uid=fttu3user4,ou=people,dc=jts,dc=com
-        String userId = null;
-        if ( inputString != null && inputString.length() > 0 )
-        {
-            StringTokenizer maxTkn = new StringTokenizer( inputString, "," );
-            if ( maxTkn.countTokens() > 0 )
-            {
-                String val = maxTkn.nextToken();
-                int indx = val.indexOf( '=' );
-                if ( indx >= 1 )
-                {
-                    userId = val.substring( indx + 1 );
-                }
-            }
-        }
-        return userId;
+        return UserBatchReader.readUser( reviewMgr, userId );
     }
 
     /**
      *
      * @param reviewMgr
-     * @param userId
+     * @param internalId
      * @return
      */
-    static User getUser( ReviewMgr reviewMgr, String userId )
+    static User getUserByInternalId( ReviewMgr reviewMgr, String internalId )
     {
-        User user = null;
-        try
-        {
-            user = reviewMgr.readUser( new User( userId ) );
-        }
-        catch ( org.apache.directory.fortress.core.SecurityException se )
-        {
-            String error = "SecurityException=" + se;
-            LOG.warn( error );
-
-        }
-        return user;
+        return UserBatchReader.readUserByInternalId( reviewMgr, internalId );
     }
 
     /**
+     * Return the internalId of the user that made an admin modification, taken from the ftModifier of the record.
      *
-     * @param reviewMgr
-     * @param internalId
-     * @return
+     * @param mod contains the raw request mods.
+     * @return internalId or null if not recorded.
      */
-    static User getUserByInternalId( ReviewMgr reviewMgr, String internalId )
+    static String getModifier( Mod mod )
     {
-        User user = null;
-        try
+        // ftModifier:+ 3a1f9b4c-...
+        String modifier = null;
+        if ( CollectionUtils.isNotEmpty( mod.getReqMod() ) )
         {
-            User inUser = new User();
-            inUser.setInternalId( internalId );
-            List<User> users = reviewMgr.findUsers( inUser );
-            if ( CollectionUtils.isNotEmpty( users ) )
+            for ( String szMod : mod.getReqMod() )
             {
-                if ( users.size() > 1 )
+                int indx = szMod.indexOf( ':' );
+                if ( indx != -1 && szMod.length() > indx + AuditModDetailPanel.MOD_OFFSET && szMod.substring( 0,
+                    indx ).equalsIgnoreCase( org.apache.directory.fortress.web.common.GlobalIds.FT_MODIFIER ) )
                 {
-                    String error = "Found: " + users.size() + " users matching internalId: " + internalId;
-                    LOG.warn( error );
+                    modifier = szMod.substring( indx + AuditModDetailPanel.MOD_OFFSET );
+                    break;
                 }
-                user = users.get( 0 );
             }
-            else
-            {
-                String error = "Can't find user matching internalId: " + internalId;
-                LOG.warn( error );
-            }
-        }
-        catch ( org.apache.directory.fortress.core.SecurityException se )
-        {
-            String error = "SecurityException=" + se;
-            LOG.warn( error );
         }
-        return user;
+        return modifier;
     }
 }
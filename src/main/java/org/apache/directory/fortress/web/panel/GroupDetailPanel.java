@@ -38,6 +38,7 @@ import org.apache.wicket.ajax.attributes.AjaxRequestAttributes;
 import org.apache.wicket.ajax.markup.html.AjaxFallbackLink;
 import org.apache.wicket.ajax.markup.html.form.AjaxSubmitLink;
 import org.apache.wicket.event.IEvent;
+import org.apache.wicket.extensions.markup.html.repeater.data.sort.OrderByBorder;
 import org.apache.wicket.extensions.ajax.markup.html.modal.ModalWindow;
 import org.apache.wicket.markup.html.basic.Label;
 import org.apache.wicket.markup.html.form.Form;
@@ -46,8 +47,6 @@ import org.apache.wicket.markup.html.form.TextField;
 import org.apache.wicket.markup.html.navigation.paging.PagingNavigator;
 import org.apache.wicket.markup.repeater.Item;
 import org.apache.wicket.markup.repeater.data.DataView;
-import org.apache.wicket.markup.repeater.data.IDataProvider;
-import org.apache.wicket.markup.repeater.data.ListDataProvider;
 import org.apache.wicket.model.AbstractReadOnlyModel;
 import org.apache.wicket.model.CompoundPropertyModel;
 import org.apache.wicket.model.IModel;
@@ -62,8 +61,6 @@ import org.apache.directory.fortress.core.model.Group;
 import org.apache.directory.fortress.core.model.User;
 
 import java.util.ArrayList;
-import java.util.Collections;
-import java.util.Comparator;
 import java.util.List;
 
 
@@ -109,6 +106,7 @@ public class GroupDetailPanel extends FormComponentPanel
         private TextField memberAssignTF;
         private ComboBox<String> memberPropsCB;
         private String memberPropsSelection;
+        private GroupMemberDataProvider memberProvider;
 
         public GroupDetailForm( String id, final IModel<Group> model )
         {
@@ -138,12 +136,13 @@ public class GroupDetailPanel extends FormComponentPanel
             memberAssignTF.setOutputMarkupId( true );
             add( memberAssignTF );
             addUserSearchModal();
-            createDataTable( null );
+            createDataTable();
         }
 
-        private void createDataTable( List<String> members )
+        private void createDataTable()
         {
-            DataView< Member > view = new DataView<Member>("members", createDataProvider( members ) )
+            memberProvider = new GroupMemberDataProvider( SecUtils.getSession( this ) );
+            DataView< Member > view = new DataView<Member>("members", memberProvider )
             {
                 private static final long serialVersionUID = 1L;
 
@@ -153,6 +152,7 @@ public class GroupDetailPanel extends FormComponentPanel
                     Member member = item.getModelObject();
                     item.add( new Label( "index", member.getIndex() ) );
                     item.add( new Label( "userDn", member.getUserDn() ) );
+                    item.add( new Label( "name", member.getName() ) );
                     item.add( AttributeModifier.replace( "class", new AbstractReadOnlyModel<String>()
                     {
                         private static final long serialVersionUID = 1L;
@@ -174,13 +174,12 @@ public class GroupDetailPanel extends FormComponentPanel
                             try
                             {
                                 String memberId = getUserId( member.getUserDn() );
-                                Group newGroup = groupMgr.deassign( group, memberId );
-                                group.setMembers( newGroup.getMembers() );
+                                groupMgr.deassign( group, memberId );
                                 String msg = "Group: " + group.getName() + ", member: " + memberId
                                     + ", has been deassigned";
                                 display.setMessage( msg );
                                 component = editForm;
-                                createDataTable( newGroup.getMembers() );
+                                memberProvider.remove( member );
                             }
                             catch( SecurityException se )
                             {
@@ -195,9 +194,10 @@ public class GroupDetailPanel extends FormComponentPanel
                     item.add(removeLink);
                 }
             };
-            view.setItemsPerPage( 5L );
-            addOrReplace( view );
-            addOrReplace( new PagingNavigator( "navigator", view ) );
+            view.setItemsPerPage( ROWS );
+            add( view );
+            add( new PagingNavigator( "navigator", view ) );
+            add( new OrderByBorder<String>( "orderByDn", GroupMemberDataProvider.USER_DN, memberProvider ) );
         }
 
         private void addGroupButtons()
@@ -214,6 +214,11 @@ public class GroupDetailPanel extends FormComponentPanel
                     log.debug( ".onSubmit Add" );
                     Group group = ( Group ) form.getModel().getObject();
                     String msg = null;
+                    if ( !CollectionUtils.isNotEmpty( group.getMembers() ) && memberProvider.size() > 0 )
+                    {
+                        // the members of a selected group are held by the provider, see onEvent:
+                        group.setMembers( memberProvider.getUserDns() );
+                    }
                     if ( !StringUtils.isNotBlank( memberAssign ) && !CollectionUtils.isNotEmpty( group.getMembers() ) )
                     {
                         msg = "Group name: " + group.getName() + " cannot be added without a member";
@@ -228,6 +233,7 @@ public class GroupDetailPanel extends FormComponentPanel
                             }
                             group.setMemberDn( true );
                             group = groupMgr.add( group );
+                            memberProvider.show( group.getName(), group.getMembers() );
                             component = editForm;
                             SaveModelEvent.send( getPage(), this, group, target, SaveModelEvent.Operations.ADD );
                             msg = "Group name: " + group.getName() + " has been added";
@@ -573,8 +579,8 @@ public class GroupDetailPanel extends FormComponentPanel
                             String userId = getUserId( memberAssign );
                             if( userId != null )
                             {
-                                Group newGroup = groupMgr.assign( group, userId );
-                                group.setMembers( newGroup.getMembers() );
+                                groupMgr.assign( group, userId );
+                                memberProvider.add( memberAssign );
 
                                 String msg = "Group: " + group.getName() + ", member: " + memberAssign
                                     + ", has been assigned";
@@ -582,7 +588,6 @@ public class GroupDetailPanel extends FormComponentPanel
                                 form.add( memberAssignTF );
                                 display.setMessage( msg );
                                 log.debug( msg );
-                                createDataTable( newGroup.getMembers() );
                             }
                         }
                         catch ( org.apache.directory.fortress.core.SecurityException se )
@@ -636,19 +641,17 @@ public class GroupDetailPanel extends FormComponentPanel
                     {
                         try
                         {
-                            // TODO: figure out how to get the table to refresh its values here:
                             String userId = getUserId( memberAssign );
                             if( userId != null )
                             {
-                                Group newGroup = groupMgr.deassign( group, userId );
-                                group.setMembers( newGroup.getMembers() );
+                                groupMgr.deassign( group, userId );
+                                memberProvider.remove( memberAssign );
                                 String msg = "Group: " + group.getName() + ", member: " + memberAssign
                                     + ", has been deassigned";
                                 memberAssign = "";
                                 form.add( memberAssignTF );
                                 display.setMessage( msg );
                                 log.debug( msg );
-                                createDataTable( newGroup.getMembers() );
                             }
                         }
                         catch ( org.apache.directory.fortress.core.SecurityException se )
@@ -698,45 +701,12 @@ public class GroupDetailPanel extends FormComponentPanel
             memberPropsCB = new ComboBox<>( "memberProps", new PropertyModel<String>( form,
                 "memberPropsSelection" ), new ArrayList<String>() );
             editForm.addOrReplace( memberPropsCB );
-            createDataTable( null );
+            memberProvider.show( null, null );
             modelChanged();
             component = editForm;
             display.setMessage( msg );
         }
 
-        private IDataProvider<Member> createDataProvider( List<String> members )
-        {
-            ListDataProvider<Member> results;
-            if ( CollectionUtils.isNotEmpty( members ) )
-            {
-                Collections.sort( members, new Comparator<String>()
-                {
-                    @Override
-                    public int compare(String m1, String m2)
-                    {
-                        return m1.compareToIgnoreCase( m2 );
-                    }
-                } );
-
-                int ctr = 0;
-                List<Member> tableMembers = new ArrayList<>();
-                for ( String member : members )
-                {
-                    Member tableMember = new Member();
-                    tableMember.setUserDn( member );
-                    tableMember.setIndex( ++ctr );
-                    tableMembers.add( tableMember );
-                }
-                results = new ListDataProvider<>( tableMembers );
-            }
-            else
-            {
-                results = new ListDataProvider<>( new ArrayList<Member>() );
-            }
-            return results;
-        }
-
-
         private void addUserSearchModal()
         {
             final ModalWindow membersModalWindow;
@@ -824,7 +794,10 @@ public class GroupDetailPanel extends FormComponentPanel
                         "memberPropsSelection" ), group.getPropList() );
                     editForm.addOrReplace( memberPropsCB );
                 }
-                createDataTable( group.getMembers() );
+                // held by the provider, out of page state:
+                List<String> members = group.getMembers();
+                group.setMembers( null );
+                memberProvider.show( group.getName(), members );
                 String msg = "Group Name: " + group.getName() + " has been selected";
                 display.setMessage( msg );
                 log.debug( msg );
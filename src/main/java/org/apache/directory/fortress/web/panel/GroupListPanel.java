@@ -21,10 +21,10 @@
 package org.apache.directory.fortress.web.panel;
 
 
+import com.inmethod.grid.DataProviderAdapter;
 import com.inmethod.grid.IGridColumn;
 import com.inmethod.grid.column.PropertyColumn;
-import com.inmethod.grid.treegrid.TreeGrid;
-import org.apache.commons.collections.CollectionUtils;
+import com.inmethod.grid.datagrid.DataGrid;
 import org.apache.commons.lang.StringUtils;
 import org.apache.log4j.Logger;
 import org.apache.wicket.Component;
@@ -40,21 +40,26 @@ import org.apache.wicket.markup.html.form.RadioGroup;
 import org.apache.wicket.markup.html.form.TextField;
 import org.apache.wicket.model.IModel;
 import org.apache.wicket.model.PropertyModel;
+import org.apache.directory.fortress.web.common.ConfigUtils;
 import org.apache.directory.fortress.web.common.GlobalIds;
+import org.apache.directory.fortress.web.control.ExportResource;
 import org.apache.directory.fortress.web.control.SecUtils;
+import org.apache.directory.fortress.web.control.SecureResourceLink;
+import org.apache.directory.fortress.web.model.GroupDataProvider;
 import org.apache.directory.fortress.web.model.GroupListModel;
+import org.apache.directory.fortress.web.model.GroupRow;
 import org.apache.directory.fortress.web.event.SaveModelEvent;
 import org.apache.directory.fortress.web.control.SecureIndicatingAjaxButton;
 import org.apache.directory.fortress.web.control.SecureIndicatingAjaxLink;
 import org.apache.directory.fortress.web.event.SelectModelEvent;
+import org.apache.directory.fortress.core.GroupMgr;
 import org.apache.directory.fortress.core.model.Group;
 import org.apache.directory.fortress.core.model.FortEntity;
 import org.apache.wicket.markup.html.form.Form;
 import org.apache.wicket.model.Model;
+import org.apache.wicket.spring.injection.annot.SpringBean;
 import org.apache.directory.fortress.core.model.User;
 
-import javax.swing.tree.DefaultMutableTreeNode;
-import javax.swing.tree.DefaultTreeModel;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
@@ -70,11 +75,12 @@ public class GroupListPanel extends FormComponentPanel
     /** Default serialVersionUID */
     private static final long serialVersionUID = 1L;
     private static final Logger log = Logger.getLogger( GroupListPanel.class.getName() );
+    @SpringBean
+    private GroupMgr groupMgr;
+    private static final int ROWS_PER_PAGE = ConfigUtils.getInt( "list.rows.per.page", 50 );
     private Form listForm;
-    private DefaultTreeModel treeModel;
-    private DefaultMutableTreeNode node;
-    private TreeGrid<DefaultTreeModel, DefaultMutableTreeNode, String> grid;
-    private DefaultMutableTreeNode rootNode;
+    private GroupDataProvider dataProvider;
+    private DataGrid<DataProviderAdapter<GroupRow, String>, GroupRow, String> grid;
     private TextField searchValFld;
     private RadioGroup radioGroup;
     private String searchVal;
@@ -86,8 +92,9 @@ public class GroupListPanel extends FormComponentPanel
     public GroupListPanel( String id )
     {
         super( id );
-        GroupListModel groupListModel = new GroupListModel( new Group( "" ), SecUtils.getSession( this ) );
-        setDefaultModel( groupListModel );
+        this.groupMgr.setAdmin( SecUtils.getSession( this ) );
+        dataProvider = new GroupDataProvider( SecUtils.getSession( this ) );
+        dataProvider.search( new Group( "" ) );
         addGrid();
         radioGroup = new RadioGroup( "searchOptions", new PropertyModel( this, "selectedRadioButton" ) );
         add( radioGroup );
@@ -118,6 +125,10 @@ public class GroupListPanel extends FormComponentPanel
         this.listForm.add( radioGroup );
         selectedRadioButton = NAMES;
 
+        this.listForm.add( new SecureResourceLink( GlobalIds.EXPORT_CSV,
+            new GroupExport( ExportResource.Format.CSV ), GlobalIds.GROUP_MGR, "find" ) );
+        this.listForm.add( new SecureResourceLink( GlobalIds.EXPORT_JSON,
+            new GroupExport( ExportResource.Format.JSON ), GlobalIds.GROUP_MGR, "find" ) );
         this.listForm.add( new SecureIndicatingAjaxButton( GlobalIds.SEARCH, GlobalIds.GROUP_MGR, "find" )
         {
             /** Default serialVersionUID */
@@ -133,27 +144,14 @@ public class GroupListPanel extends FormComponentPanel
                 {
                     searchVal = "";
                 }
-                Group srchObject = new Group();
-                switch ( selectedRadioButton )
+                Group srchObject = createSearchObject();
+                dataProvider.search( srchObject );
+                grid.resetSelection();
+                grid.setCurrentPage( 0 );
+                long size = dataProvider.size();
+                if ( size > 0 )
                 {
-                    case NAMES:
-                        log.debug( ".onSubmit GROUP RB selected" );
-                        srchObject.setName( searchVal );
-                        break;
-                    case MEMBERS:
-                        log.debug( ".onSubmit MEMBERS RB selected" );
-                        srchObject.setMember( searchVal );
-                        break;
-                }
-                setDefaultModel( new GroupListModel( srchObject, SecUtils.getSession( this ) ) );
-                treeModel.reload();
-                rootNode.removeAllChildren();
-                List<Group> groups = ( List<Group> ) getDefaultModelObject();
-                if ( CollectionUtils.isNotEmpty( groups ) )
-                {
-                    for ( Group group : groups )
-                        rootNode.add( new DefaultMutableTreeNode( group ) );
-                    info( "Search returned " + groups.size() + " matching objects" );
+                    info( "Search returned " + size + " matching objects" );
                 }
                 else
                 {
@@ -205,8 +203,7 @@ public class GroupListPanel extends FormComponentPanel
                     add( modelEvent.getEntity() );
                     break;
                 case UPDATE:
-                    //modelEvent.
-                    modelChanged();
+                    update( ( Group ) modelEvent.getEntity() );
                     break;
                 case DELETE:
                     prune();
@@ -221,95 +218,94 @@ public class GroupListPanel extends FormComponentPanel
     }
 
 
-    private void removeSelectedItems( TreeGrid<DefaultTreeModel, DefaultMutableTreeNode, String> grid )
+    private void removeSelectedItems( DataGrid<DataProviderAdapter<GroupRow, String>, GroupRow, String> grid )
     {
-        Collection<IModel<DefaultMutableTreeNode>> selected = grid.getSelectedItems();
-        for ( IModel<DefaultMutableTreeNode> model : selected )
+        Collection<IModel<GroupRow>> selected = grid.getSelectedItems();
+        for ( IModel<GroupRow> model : selected )
         {
-            DefaultMutableTreeNode node = model.getObject();
-            treeModel.removeNodeFromParent( node );
-            Group group = ( Group ) node.getUserObject();
-            log.debug( ".removeSelectedItems user node: " + group.getName() );
-            //List<Group> groups = ((List<Group>) getDefaultModel().getObject());
-            //groups.remove(group.getName());
+            GroupRow row = model.getObject();
+            log.debug( ".removeSelectedItems group: " + row.getName() );
+            dataProvider.remove( row );
         }
+        grid.resetSelection();
     }
 
 
-    private DefaultTreeModel createTreeModel( List<Group> groups )
+    private Group createSearchObject()
     {
-        DefaultTreeModel model;
-        rootNode = new DefaultMutableTreeNode( null );
-        model = new DefaultTreeModel( rootNode );
-        if ( groups == null )
-            log.debug( "no Groups found" );
-        else
+        Group srchObject = new Group();
+        String val = StringUtils.isNotEmpty( searchVal ) ? searchVal : "";
+        switch ( selectedRadioButton )
         {
-            log.debug( ".createTreeModel Groups found:" + groups.size() );
-            for ( Group group : groups )
-                rootNode.add( new DefaultMutableTreeNode( group ) );
+            case NAMES:
+                log.debug( ".createSearchObject GROUP RB selected" );
+                srchObject.setName( val );
+                break;
+            case MEMBERS:
+                log.debug( ".createSearchObject MEMBERS RB selected" );
+                srchObject.setMember( val );
+                break;
         }
-        return model;
+        return srchObject;
     }
 
 
     private void addGrid()
     {
-        List<IGridColumn<DefaultTreeModel, DefaultMutableTreeNode, String>> columns =
+        List<IGridColumn<DataProviderAdapter<GroupRow, String>, GroupRow, String>> columns =
             new ArrayList<>();
 
-        PropertyColumn groupName = new PropertyColumn<>(
-            Model.of( "Group Name" ), "userObject.Name" );
+        PropertyColumn<DataProviderAdapter<GroupRow, String>, GroupRow, String, String> groupName =
+            new PropertyColumn<>( Model.of( "Group Name" ), "name", "name" );
         groupName.setInitialSize( 250 );
         columns.add( groupName );
 
-        PropertyColumn description = new PropertyColumn<>(
-            Model.of( "Description" ), "userObject.Description" );
+        PropertyColumn<DataProviderAdapter<GroupRow, String>, GroupRow, String, String> description =
+            new PropertyColumn<>( Model.of( "Description" ), "description", "description" );
         description.setInitialSize( 300 );
         columns.add( description );
 
 /*
-        PropertyColumn protocol = new PropertyColumn( new Model( "Protocol" ), "userObject.Protocol" );
+        PropertyColumn protocol = new PropertyColumn( new Model( "Protocol" ), "protocol" );
         protocol.setInitialSize( 400 );
         columns.add( protocol );
 */
 
-        List<Group> groups = ( List<Group> ) getDefaultModel().getObject();
-        treeModel = createTreeModel( groups );
-        grid = new TreeGrid<DefaultTreeModel, DefaultMutableTreeNode, String>( "grouptreegrid", treeModel, columns )
+        grid = new DataGrid<DataProviderAdapter<GroupRow, String>, GroupRow, String>( "grouptreegrid",
+            new DataProviderAdapter<>( dataProvider ), columns )
         {
             /** Default serialVersionUID */
             private static final long serialVersionUID = 1L;
 
 
             @Override
-            public void selectItem( IModel itemModel, boolean selected )
+            public void selectItem( IModel<GroupRow> itemModel, boolean selected )
             {
-                node = ( DefaultMutableTreeNode ) itemModel.getObject();
-                if ( !node.isRoot() )
+                GroupRow row = itemModel.getObject();
+                log.debug( "DataGrid.addGrid.selectItem selected group =" + row.getName() );
+                if ( super.isItemSelected( itemModel ) )
                 {
-                    Group group = ( Group ) node.getUserObject();
-                    log.debug( "TreeGrid.addGrid.selectItem selected group =" + group.getName() );
-                    if ( super.isItemSelected( itemModel ) )
-                    {
-                        log.debug( "TreeGrid.addGrid.selectItem item is selected" );
-                        super.selectItem( itemModel, false );
-                    }
-                    else
+                    log.debug( "DataGrid.addGrid.selectItem item is selected" );
+                    super.selectItem( itemModel, false );
+                }
+                else
+                {
+                    super.selectItem( itemModel, true );
+                    // the grid holds just the columns, the detail panel needs the whole group:
+                    Group group = readGroup( row.getName() );
+                    if ( group != null )
                     {
-                        super.selectItem( itemModel, true );
                         SelectModelEvent.send( getPage(), this, group );
                     }
                 }
             }
         };
         //grid.setContentHeight( 50, SizeUnit.EM );
+        grid.setRowsPerPage( ROWS_PER_PAGE );
         grid.setAllowSelectMultiple( false );
         grid.setClickRowToSelect( true );
         grid.setClickRowToDeselect( false );
         grid.setSelectToEdit( false );
-        // expand the root node
-        grid.getTreeState().expandAll();
         this.listForm = new Form( "grouplistform" );
         this.listForm.add( grid );
         add( this.listForm );
@@ -389,12 +385,30 @@ public class GroupListPanel extends FormComponentPanel
 
     public void add( FortEntity entity )
     {
-        if ( getDefaultModelObject() != null )
+        dataProvider.add( GroupRow.of( ( Group ) entity ) );
+    }
+
+
+    private void update( Group group )
+    {
+        dataProvider.update( GroupRow.of( group ) );
+    }
+
+
+    private Group readGroup( String name )
+    {
+        Group group = null;
+        try
         {
-            //List<Group> groups = ((List<Group>) getDefaultModelObject());
-            //groups.add( ( Group ) entity );
-            treeModel.insertNodeInto( new DefaultMutableTreeNode( entity ), rootNode, 0 );
+            group = groupMgr.read( new Group( name ) );
         }
+        catch ( org.apache.directory.fortress.core.SecurityException se )
+        {
+            String error = ".readGroup name: " + name + " caught SecurityException=" + se;
+            log.warn( error );
+            error( "Could not read group: " + name );
+        }
+        return group;
     }
 
 
@@ -402,4 +416,27 @@ public class GroupListPanel extends FormComponentPanel
     {
         removeSelectedItems( grid );
     }
-}
\ No newline at end of file
+
+
+    /**
+     * Runs the current search again and writes the results straight to the response.
+     */
+    private class GroupExport extends ExportResource<Group>
+    {
+        /** Default serialVersionUID */
+        private static final long serialVersionUID = 1L;
+
+
+        private GroupExport( Format format )
+        {
+            super( "groups", format, "name", "description", "protocol", "members" );
+        }
+
+
+        @Override
+        protected Iterable<? extends Group> load()
+        {
+            return new GroupListModel( createSearchObject(), SecUtils.getSession( GroupListPanel.this ) ).getObject();
+        }
+    }
+}
@@ -0,0 +1,251 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+
+package org.apache.directory.fortress.web.panel;
+
+
+import org.apache.commons.lang.StringUtils;
+import org.apache.directory.fortress.core.GroupMgr;
+import org.apache.directory.fortress.core.ReviewMgr;
+import org.apache.directory.fortress.core.SecurityException;
+import org.apache.directory.fortress.core.model.Group;
+import org.apache.directory.fortress.core.model.Session;
+import org.apache.directory.fortress.core.model.User;
+import org.apache.directory.fortress.web.control.AuditRecordParser;
+import org.apache.directory.fortress.web.control.UserBatchReader;
+import org.apache.directory.fortress.web.model.SearchDataProvider;
+import org.apache.log4j.Logger;
+import org.apache.wicket.extensions.markup.html.repeater.data.sort.SortOrder;
+import org.apache.wicket.injection.Injector;
+import org.apache.wicket.spring.injection.annot.SpringBean;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+
+/**
+ * Paged, sortable provider of the members of a group for {@link GroupDetailPanel}.  The members are held by
+ * {@link SearchDataProvider} on the server, out of page state, and only the page of members shown is put in the
+ * table.  The users of the members shown are read in one batch, per page, for their display names.  Assigned and
+ * deassigned members are added to or removed from the members held rather than reading the group again.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ * @version $Rev$
+ */
+final class GroupMemberDataProvider extends SearchDataProvider<Member>
+{
+    /** Default serialVersionUID */
+    private static final long serialVersionUID = 1L;
+    private static final Logger LOG = Logger.getLogger( GroupMemberDataProvider.class.getName() );
+    static final String USER_DN = "userDn";
+    @SpringBean
+    private GroupMgr groupMgr;
+    @SpringBean
+    private ReviewMgr reviewMgr;
+    private String groupName;
+    // members of the group as selected, so it is not read again for them:
+    private transient List<String> selected;
+
+
+    /**
+     * Create an empty provider.  Call {@link #show(String, List)} to load it.
+     *
+     * @param session of the administrator.
+     */
+    GroupMemberDataProvider( Session session )
+    {
+        Injector.get().inject( this );
+        groupMgr.setAdmin( session );
+        reviewMgr.setAdmin( session );
+        setSort( USER_DN, SortOrder.ASCENDING );
+    }
+
+
+    /**
+     * Show the members of a group.
+     *
+     * @param groupName name of group, null for none.
+     * @param members DNs of the members, if at hand, otherwise the group is read when they are needed.
+     */
+    void show( String groupName, List<String> members )
+    {
+        this.groupName = groupName;
+        this.selected = members;
+        refresh();
+    }
+
+
+    /**
+     * @param userDn of member that was assigned.
+     */
+    void add( String userDn )
+    {
+        Member member = new Member();
+        member.setUserDn( userDn );
+        add( member );
+    }
+
+
+    /**
+     * @param userDn of member that was deassigned.
+     */
+    void remove( String userDn )
+    {
+        Member member = new Member();
+        member.setUserDn( userDn );
+        remove( member );
+    }
+
+
+    /**
+     * @return DNs of all of the members, in the order shown.
+     */
+    List<String> getUserDns()
+    {
+        List<Member> members = getAll();
+        List<String> userDns = new ArrayList<>( members.size() );
+        for ( Member member : members )
+        {
+            userDns.add( member.getUserDn() );
+        }
+        return userDns;
+    }
+
+
+    @Override
+    protected List<Member> search()
+    {
+        List<String> userDns = selected;
+        selected = null;
+        if ( userDns == null && StringUtils.isNotEmpty( groupName ) )
+        {
+            try
+            {
+                userDns = groupMgr.read( new Group( groupName ) ).getMembers();
+            }
+            catch ( SecurityException se )
+            {
+                String error = ".search group: " + groupName + " caught SecurityException=" + se;
+                LOG.warn( error );
+            }
+        }
+        if ( userDns == null )
+        {
+            return null;
+        }
+        List<Member> members = new ArrayList<>( userDns.size() );
+        for ( String userDn : userDns )
+        {
+            Member member = new Member();
+            member.setUserDn( userDn );
+            members.add( member );
+        }
+        return members;
+    }
+
+
+    @Override
+    public Iterator<? extends Member> iterator( long first, long count )
+    {
+        List<Member> page = new ArrayList<>( ( int ) Math.min( count, 100 ) );
+        Iterator<? extends Member> members = super.iterator( first, count );
+        while ( members.hasNext() )
+        {
+            Member member = members.next();
+            member.setIndex( ( int ) first + page.size() + 1 );
+            page.add( member );
+        }
+        resolveNames( page );
+        return page.iterator();
+    }
+
+
+    @Override
+    protected String getId( Member object )
+    {
+        return object.getUserDn();
+    }
+
+
+    /**
+     * Read the users of the members not yet resolved, in one batch.  Names are kept with the members, so a page is
+     * resolved once.
+     */
+    private void resolveNames( List<Member> page )
+    {
+        AuditRecordParser parser = new AuditRecordParser();
+        Map<String, List<Member>> byUserId = new HashMap<>();
+        List<String> userIds = new ArrayList<>();
+        for ( Member member : page )
+        {
+            String userId = member.getName() == null ? parser.getUserId( member.getUserDn() ) : null;
+            if ( userId == null )
+            {
+                continue;
+            }
+            String key = userId.toLowerCase( Locale.ENGLISH );
+            List<Member> members = byUserId.get( key );
+            if ( members == null )
+            {
+                members = new ArrayList<>( 1 );
+                byUserId.put( key, members );
+                userIds.add( userId );
+            }
+            members.add( member );
+        }
+        if ( userIds.isEmpty() )
+        {
+            return;
+        }
+        try
+        {
+            for ( User user : UserBatchReader.readUsers( reviewMgr, userIds ) )
+            {
+                List<Member> members = byUserId.get( user.getUserId().toLowerCase( Locale.ENGLISH ) );
+                if ( members != null )
+                {
+                    String name = StringUtils.isNotEmpty( user.getDisplayName() ) ? user.getDisplayName() : user
+                        .getCn();
+                    for ( Member member : members )
+                    {
+                        member.setName( name != null ? name : "" );
+                    }
+                }
+            }
+        }
+        catch ( SecurityException se )
+        {
+            String error = ".resolveNames caught SecurityException=" + se;
+            LOG.warn( error );
+        }
+        for ( Member member : page )
+        {
+            // not a user, or can't be read, don't try again:
+            if ( member.getName() == null )
+            {
+                member.setName( "" );
+            }
+        }
+    }
+}
@@ -21,12 +21,25 @@
 package org.apache.directory.fortress.web.panel;
 
 
+import org.apache.directory.fortress.web.common.ConfigUtils;
+import org.apache.directory.fortress.web.control.PhotoCache;
+import org.apache.wicket.markup.ComponentTag;
 import org.apache.wicket.markup.html.image.Image;
-import org.apache.wicket.request.resource.DynamicImageResource;
-import org.apache.wicket.request.resource.IResource;
+import org.apache.wicket.request.http.WebRequest;
+import org.apache.wicket.request.http.WebResponse;
+import org.apache.wicket.request.resource.AbstractResource;
+import org.apache.wicket.util.time.Duration;
+import org.apache.wicket.util.time.Time;
+
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
 
 
 /**
+ * Shows a user photo, scaled down to the size it is displayed at by {@link PhotoCache}.  Responses carry an ETag
+ * and may be cached privately by the browser for photo.cache.seconds (default 3600).  The src changes with the photo,
+ * so a new photo is fetched at once and an unchanged one is not fetched again on AJAX repaints.  The photo at full
+ * size is only sent on request, e.g. when the admin clicks a thumbnail set up with {@link #setFullSizeOnClick}.
  *
  * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
  * @version $Rev$
@@ -35,24 +48,144 @@ public abstract class JpegImage extends Image
 {
     /** Default serialVersionUID */
     private static final long serialVersionUID = 1L;
+    private static final String FULL = "full";
+    private static final Duration CACHE_DURATION = Duration.seconds( ConfigUtils.getLong( "photo.cache.seconds",
+        3600 ) );
+    private final int size;
+    private boolean isFullSizeOnClick;
+    // hash of the last photo seen, so it is not recomputed on every render:
+    private transient byte[] hashedPhoto;
+    private transient String hash;
 
 
+    /**
+     * Show the photo as is.
+     *
+     * @param id
+     */
     public JpegImage( String id )
+    {
+        this( id, 0 );
+    }
+
+
+    /**
+     * @param id
+     * @param size max width and height, in pixels, of the photo sent to the browser, 0 for the photo as is.
+     */
+    public JpegImage( String id, int size )
     {
         super( id );
-        setImageResource( new DynamicImageResource()
-        {
-            /** Default serialVersionUID */
-            private static final long serialVersionUID = 1L;
+        this.size = Math.max( 0, size );
+        setImageResource( new PhotoResource() );
+    }
+
 
+    /**
+     * Open the photo at full size in a new window when the thumbnail is clicked.
+     *
+     * @param isFullSizeOnClick
+     * @return this
+     */
+    public JpegImage setFullSizeOnClick( boolean isFullSizeOnClick )
+    {
+        this.isFullSizeOnClick = isFullSizeOnClick;
+        return this;
+    }
 
-            protected byte[] getImageData( IResource.Attributes attributes )
+
+    protected abstract byte[] getPhoto();
+
+
+    @Override
+    protected boolean shouldAddAntiCacheParameter()
+    {
+        // the photo hash, added to the src below, changes only when the photo does:
+        return false;
+    }
+
+
+    @Override
+    protected void onComponentTag( ComponentTag tag )
+    {
+        super.onComponentTag( tag );
+        String src = tag.getAttribute( "src" );
+        String photoHash = getHash( getPhoto() );
+        if ( src != null && photoHash != null )
+        {
+            src += ( src.indexOf( '?' ) < 0 ? "?" : "&" ) + "v=" + photoHash;
+            tag.put( "src", src );
+            if ( isFullSizeOnClick && size > 0 )
             {
-                return getPhoto();
+                tag.put( "style", "cursor:pointer" );
+                tag.put( "onclick", "window.open('" + src + "&" + FULL + "=true');" );
             }
-        } );
+        }
     }
 
 
-    protected abstract byte[] getPhoto();
+    private String getHash( byte[] photo )
+    {
+        if ( photo == null || photo.length == 0 )
+        {
+            return null;
+        }
+        if ( photo != hashedPhoto )
+        {
+            hash = PhotoCache.hash( photo );
+            hashedPhoto = photo;
+        }
+        return hash;
+    }
+
+
+    private class PhotoResource extends AbstractResource
+    {
+        /** Default serialVersionUID */
+        private static final long serialVersionUID = 1L;
+
+
+        @Override
+        protected ResourceResponse newResourceResponse( Attributes attributes )
+        {
+            ResourceResponse response = new ResourceResponse();
+            byte[] photo = getPhoto();
+            String photoHash = getHash( photo );
+            if ( photoHash == null )
+            {
+                response.setError( HttpServletResponse.SC_NOT_FOUND );
+                return response;
+            }
+            boolean isFull = attributes.getParameters().get( FULL ).toBoolean( false );
+            final PhotoCache.Photo scaled = PhotoCache.get( photo, photoHash, isFull ? 0 : size );
+            response.setCacheScope( WebResponse.CacheScope.PRIVATE );
+            response.setCacheDuration( CACHE_DURATION );
+            response.getHeaders().addHeader( "ETag", scaled.getETag() );
+            String ifNoneMatch = ( ( WebRequest ) attributes.getRequest() ).getHeader( "If-None-Match" );
+            if ( scaled.getETag().equals( ifNoneMatch ) )
+            {
+                response.setStatusCode( HttpServletResponse.SC_NOT_MODIFIED );
+                response.setWriteCallback( new WriteCallback()
+                {
+                    @Override
+                    public void writeData( Attributes attributes )
+                    {
+                    }
+                } );
+                return response;
+            }
+            response.setContentType( "image/jpeg" );
+            response.setContentLength( scaled.getData().length );
+            response.setLastModified( Time.millis( scaled.getLastModified() ) );
+            response.setWriteCallback( new WriteCallback()
+            {
+                @Override
+                public void writeData( Attributes attributes ) throws IOException
+                {
+                    attributes.getResponse().write( scaled.getData() );
+                }
+            } );
+            return response;
+        }
+    }
 }
@@ -36,6 +36,7 @@ public class Member implements Serializable
     /** Default serialVersionUID */
     private static final long serialVersionUID = 1L;
     private String userDn;
+    private String name;
     private int index;
 
 
@@ -51,6 +52,21 @@ public class Member implements Serializable
     }
 
 
+    /**
+     * @return display name of the user, empty if the member is not a user, null until resolved.
+     */
+    public String getName()
+    {
+        return name;
+    }
+
+
+    public void setName( String name )
+    {
+        this.name = name;
+    }
+
+
     public int getIndex()
     {
         return index;
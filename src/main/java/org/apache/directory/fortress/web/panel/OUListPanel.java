@@ -37,10 +37,12 @@ import org.apache.wicket.markup.html.form.TextField;
 import org.apache.wicket.model.IModel;
 import org.apache.wicket.model.PropertyModel;
 import org.apache.directory.fortress.web.common.GlobalIds;
+import org.apache.directory.fortress.web.control.IdIndex;
 import org.apache.directory.fortress.web.control.SecUtils;
 import org.apache.directory.fortress.web.model.OUListModel;
 import org.apache.directory.fortress.web.event.SaveModelEvent;
 import org.apache.directory.fortress.web.control.SecureIndicatingAjaxButton;
+import org.apache.directory.fortress.web.control.TypeAheadField;
 import org.apache.directory.fortress.web.event.SelectModelEvent;
 import org.apache.directory.fortress.core.model.FortEntity;
 import org.apache.wicket.markup.html.form.Form;
@@ -143,8 +145,8 @@ public class OUListPanel extends FormComponentPanel
         Form listForm = new Form( "form" );
         listForm.add( grid );
         grid.setOutputMarkupId( true );
-        TextField searchValFld = new TextField( GlobalIds.SEARCH_VAL, new PropertyModel<String>( this,
-            GlobalIds.SEARCH_VAL ) );
+        TextField searchValFld = new TypeAheadField( GlobalIds.SEARCH_VAL, new PropertyModel<String>( this,
+            GlobalIds.SEARCH_VAL ), isUser ? IdIndex.Type.USER_OUS : IdIndex.Type.PERM_OUS );
         listForm.add( searchValFld );
 
         //this.listForm.add( new AjaxSubmitLink( "search" )
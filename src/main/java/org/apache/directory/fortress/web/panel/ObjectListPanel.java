@@ -21,10 +21,10 @@
 package org.apache.directory.fortress.web.panel;
 
 
+import com.inmethod.grid.DataProviderAdapter;
 import com.inmethod.grid.IGridColumn;
 import com.inmethod.grid.column.PropertyColumn;
-import com.inmethod.grid.treegrid.TreeGrid;
-import org.apache.commons.collections.CollectionUtils;
+import com.inmethod.grid.datagrid.DataGrid;
 import org.apache.commons.lang.StringUtils;
 import org.apache.log4j.Logger;
 import org.apache.wicket.Component;
@@ -40,12 +40,18 @@ import org.apache.wicket.markup.html.form.RadioGroup;
 import org.apache.wicket.markup.html.form.TextField;
 import org.apache.wicket.model.IModel;
 import org.apache.wicket.model.PropertyModel;
+import org.apache.directory.fortress.web.common.ConfigUtils;
 import org.apache.directory.fortress.web.common.GlobalIds;
+import org.apache.directory.fortress.web.control.ExportResource;
+import org.apache.directory.fortress.web.control.IdIndex;
 import org.apache.directory.fortress.web.control.SecUtils;
+import org.apache.directory.fortress.web.control.SecureResourceLink;
+import org.apache.directory.fortress.web.model.ObjectDataProvider;
 import org.apache.directory.fortress.web.model.ObjectListModel;
 import org.apache.directory.fortress.web.event.SaveModelEvent;
 import org.apache.directory.fortress.web.control.SecureIndicatingAjaxButton;
 import org.apache.directory.fortress.web.control.SecureIndicatingAjaxLink;
+import org.apache.directory.fortress.web.control.TypeAheadField;
 import org.apache.directory.fortress.web.event.SelectModelEvent;
 import org.apache.directory.fortress.core.model.FortEntity;
 import org.apache.wicket.markup.html.form.Form;
@@ -53,8 +59,6 @@ import org.apache.wicket.model.Model;
 import org.apache.directory.fortress.core.model.OrgUnit;
 import org.apache.directory.fortress.core.model.PermObj;
 
-import javax.swing.tree.DefaultMutableTreeNode;
-import javax.swing.tree.DefaultTreeModel;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
@@ -70,25 +74,25 @@ public class ObjectListPanel extends FormComponentPanel
     /** Default serialVersionUID */
     private static final long serialVersionUID = 1L;
     private static final Logger log = Logger.getLogger( ObjectListPanel.class.getName() );
+    private static final int ROWS_PER_PAGE = ConfigUtils.getInt( "list.rows.per.page", 50 );
     private Form listForm;
-    private DefaultTreeModel treeModel;
-    private DefaultMutableTreeNode node;
-    private TreeGrid<DefaultTreeModel, DefaultMutableTreeNode, String> grid;
-    private DefaultMutableTreeNode rootNode;
+    private ObjectDataProvider dataProvider;
+    private DataGrid<DataProviderAdapter<PermObj, String>, PermObj, String> grid;
     private TextField searchValFld;
     private RadioGroup radioGroup;
     private String searchVal;
     private char selectedRadioButton;
     private static final char NAMES = 'N';
     private static final char OUS = 'O';
+    private boolean isAdmin;
 
 
     public ObjectListPanel( String id, final boolean isAdmin )
     {
         super( id );
-        ObjectListModel objectListModel = new ObjectListModel( new PermObj( "" ), isAdmin,
-            SecUtils.getSession( this ) );
-        setDefaultModel( objectListModel );
+        this.isAdmin = isAdmin;
+        dataProvider = new ObjectDataProvider( isAdmin, SecUtils.getSession( this ) );
+        dataProvider.search( new PermObj( "" ) );
         addGrid();
         radioGroup = new RadioGroup( "searchOptions", new PropertyModel( this, "selectedRadioButton" ) );
         add( radioGroup );
@@ -99,7 +103,19 @@ public class ObjectListPanel extends FormComponentPanel
         addOUSearchModal( ouRb );
         radioGroup.setOutputMarkupId( true );
         radioGroup.setRenderBodyOnly( false );
-        searchValFld = new TextField( GlobalIds.SEARCH_VAL, new PropertyModel<String>( this, GlobalIds.SEARCH_VAL ) );
+        searchValFld = new TypeAheadField( GlobalIds.SEARCH_VAL, new PropertyModel<String>( this, GlobalIds.SEARCH_VAL ),
+            null )
+        {
+            /** Default serialVersionUID */
+            private static final long serialVersionUID = 1L;
+
+
+            @Override
+            protected IdIndex.Type getType()
+            {
+                return selectedRadioButton == OUS ? IdIndex.Type.PERM_OUS : IdIndex.Type.PERM_OBJS;
+            }
+        };
         searchValFld.setOutputMarkupId( true );
         AjaxFormComponentUpdatingBehavior ajaxUpdater = new AjaxFormComponentUpdatingBehavior( GlobalIds.ONBLUR )
         {
@@ -119,6 +135,10 @@ public class ObjectListPanel extends FormComponentPanel
         this.listForm.add( radioGroup );
         selectedRadioButton = NAMES;
 
+        this.listForm.add( new SecureResourceLink( GlobalIds.EXPORT_CSV,
+            new ObjectExport( ExportResource.Format.CSV ), GlobalIds.REVIEW_MGR, "findPermObjs" ) );
+        this.listForm.add( new SecureResourceLink( GlobalIds.EXPORT_JSON,
+            new ObjectExport( ExportResource.Format.JSON ), GlobalIds.REVIEW_MGR, "findPermObjs" ) );
         this.listForm.add( new SecureIndicatingAjaxButton( GlobalIds.SEARCH, GlobalIds.REVIEW_MGR, "findPermObjs" )
         {
             /** Default serialVersionUID */
@@ -134,28 +154,14 @@ public class ObjectListPanel extends FormComponentPanel
                 {
                     searchVal = "";
                 }
-                PermObj srchObject = new PermObj();
-                switch ( selectedRadioButton )
-                {
-                    case NAMES:
-                        log.debug( ".onSubmit OBJECT RB selected" );
-                        srchObject.setObjName( searchVal );
-                        break;
-                    case OUS:
-                        log.debug( ".onSubmit OUS RB selected" );
-                        srchObject.setOu( searchVal );
-                        break;
-                }
-                setDefaultModel( new ObjectListModel( srchObject, isAdmin,
-                    SecUtils.getSession( this ) ) );
-                treeModel.reload();
-                rootNode.removeAllChildren();
-                List<PermObj> permObjs = ( List<PermObj> ) getDefaultModelObject();
-                if ( CollectionUtils.isNotEmpty( permObjs ) )
+                PermObj srchObject = createSearchObject();
+                dataProvider.search( srchObject );
+                grid.resetSelection();
+                grid.setCurrentPage( 0 );
+                long size = dataProvider.size();
+                if ( size > 0 )
                 {
-                    for ( PermObj permObj : permObjs )
-                        rootNode.add( new DefaultMutableTreeNode( permObj ) );
-                    info( "Search returned " + permObjs.size() + " matching objects" );
+                    info( "Search returned " + size + " matching objects" );
                 }
                 else
                 {
@@ -207,7 +213,7 @@ public class ObjectListPanel extends FormComponentPanel
                     add( modelEvent.getEntity() );
                     break;
                 case UPDATE:
-                    modelChanged();
+                    dataProvider.update( ( PermObj ) modelEvent.getEntity() );
                     break;
                 case DELETE:
                     prune();
@@ -222,98 +228,93 @@ public class ObjectListPanel extends FormComponentPanel
     }
 
 
-    private void removeSelectedItems( TreeGrid<DefaultTreeModel, DefaultMutableTreeNode, String> grid )
+    private void removeSelectedItems( DataGrid<DataProviderAdapter<PermObj, String>, PermObj, String> grid )
     {
-        Collection<IModel<DefaultMutableTreeNode>> selected = grid.getSelectedItems();
-        for ( IModel<DefaultMutableTreeNode> model : selected )
+        Collection<IModel<PermObj>> selected = grid.getSelectedItems();
+        for ( IModel<PermObj> model : selected )
         {
-            DefaultMutableTreeNode node = model.getObject();
-            treeModel.removeNodeFromParent( node );
-            PermObj permObj = ( PermObj ) node.getUserObject();
-            log.debug( ".removeSelectedItems user node: " + permObj.getObjName() );
-            List<PermObj> permObjs = ( ( List<PermObj> ) getDefaultModel().getObject() );
-            permObjs.remove( permObj );
+            PermObj permObj = model.getObject();
+            log.debug( ".removeSelectedItems permission object: " + permObj.getObjName() );
+            dataProvider.remove( permObj );
         }
+        grid.resetSelection();
     }
 
 
-    private DefaultTreeModel createTreeModel( List<PermObj> permObjs )
+    private PermObj createSearchObject()
     {
-        DefaultTreeModel model;
-        rootNode = new DefaultMutableTreeNode( null );
-        model = new DefaultTreeModel( rootNode );
-        if ( permObjs == null )
-            log.debug( "no Permission Objects found" );
-        else
+        PermObj srchObject = new PermObj();
+        String val = StringUtils.isNotEmpty( searchVal ) ? searchVal : "";
+        switch ( selectedRadioButton )
         {
-            log.debug( ".createTreeModel Permission Objects found:" + permObjs.size() );
-            for ( PermObj permObj : permObjs )
-                rootNode.add( new DefaultMutableTreeNode( permObj ) );
+            case NAMES:
+                log.debug( ".createSearchObject OBJECT RB selected" );
+                srchObject.setObjName( val );
+                break;
+            case OUS:
+                log.debug( ".createSearchObject OUS RB selected" );
+                srchObject.setOu( val );
+                break;
         }
-        return model;
+        return srchObject;
     }
 
 
     private void addGrid()
     {
-        List<IGridColumn<DefaultTreeModel, DefaultMutableTreeNode, String>> columns =
+        List<IGridColumn<DataProviderAdapter<PermObj, String>, PermObj, String>> columns =
             new ArrayList<>();
 
-        PropertyColumn objName = new PropertyColumn<>(
-            Model.of( "Object Name" ), "userObject.ObjName" );
+        PropertyColumn<DataProviderAdapter<PermObj, String>, PermObj, String, String> objName = new PropertyColumn<>(
+            Model.of( "Object Name" ), "objName", "objName" );
         objName.setInitialSize( 300 );
         columns.add( objName );
 
-        PropertyColumn ou = new PropertyColumn<>(
-            Model.of( "Perm Organization" ), "userObject.Ou" );
+        PropertyColumn<DataProviderAdapter<PermObj, String>, PermObj, String, String> ou = new PropertyColumn<>(
+            Model.of( "Perm Organization" ), "ou", "ou" );
         ou.setInitialSize( 200 );
         columns.add( ou );
 
-        PropertyColumn description = new PropertyColumn<>(
-            Model.of( "Description" ), "userObject.Description" );
+        PropertyColumn<DataProviderAdapter<PermObj, String>, PermObj, String, String> description =
+            new PropertyColumn<>( Model.of( "Description" ), "description", "description" );
         description.setInitialSize( 500 );
         columns.add( description );
 
-        PropertyColumn type = new PropertyColumn( new Model( "Type" ), "userObject.Type" );
+        PropertyColumn<DataProviderAdapter<PermObj, String>, PermObj, String, String> type = new PropertyColumn<>(
+            Model.of( "Type" ), "type", "type" );
         type.setInitialSize( 200 );
         columns.add( type );
 
-        List<PermObj> permObjs = ( List<PermObj> ) getDefaultModel().getObject();
-        treeModel = createTreeModel( permObjs );
-        grid = new TreeGrid<DefaultTreeModel, DefaultMutableTreeNode, String>( "objecttreegrid", treeModel, columns )
+        grid = new DataGrid<DataProviderAdapter<PermObj, String>, PermObj, String>( "objecttreegrid",
+            new DataProviderAdapter<>( dataProvider ), columns )
         {
             /** Default serialVersionUID */
             private static final long serialVersionUID = 1L;
 
 
             @Override
-            public void selectItem( IModel itemModel, boolean selected )
+            public void selectItem( IModel<PermObj> itemModel, boolean selected )
             {
-                node = ( DefaultMutableTreeNode ) itemModel.getObject();
-                if ( !node.isRoot() )
+                PermObj permObj = itemModel.getObject();
+                log.debug( "DataGrid.addGrid.selectItem selected permission object =" + permObj.getObjName() );
+                if ( super.isItemSelected( itemModel ) )
                 {
-                    PermObj permObj = ( PermObj ) node.getUserObject();
-                    log.debug( "TreeGrid.addGrid.selectItem selected permission object =" + permObj.getObjName() );
-                    if ( super.isItemSelected( itemModel ) )
-                    {
-                        log.debug( "TreeGrid.addGrid.selectItem item is selected" );
-                        super.selectItem( itemModel, false );
-                    }
-                    else
-                    {
-                        super.selectItem( itemModel, true );
-                        SelectModelEvent.send( getPage(), this, permObj );
-                    }
+                    log.debug( "DataGrid.addGrid.selectItem item is selected" );
+                    super.selectItem( itemModel, false );
+                }
+                else
+                {
+                    super.selectItem( itemModel, true );
+                    SelectModelEvent.send( getPage(), this, permObj );
                 }
             }
         };
         //grid.setContentHeight( 50, SizeUnit.EM );
+        grid.setRowsPerPage( ROWS_PER_PAGE );
         grid.setAllowSelectMultiple( false );
         grid.setClickRowToSelect( true );
         grid.setClickRowToDeselect( false );
         grid.setSelectToEdit( false );
-        // expand the root node
-        grid.getTreeState().expandAll();
         this.listForm = new Form( "objectlistform" );
         this.listForm.add( grid );
         add( this.listForm );
@@ -393,13 +394,7 @@ public class ObjectListPanel extends FormComponentPanel
 
     public void add( FortEntity entity )
     {
-        if ( getDefaultModelObject() != null )
-        {
-            List<PermObj> permObjs = ( ( List<PermObj> ) getDefaultModelObject() );
-            permObjs.add( ( PermObj ) entity );
-            treeModel.insertNodeInto( new DefaultMutableTreeNode( entity ), rootNode, 0 );
-            //treeModel.insertNodeInto(new DefaultMutableTreeNode(entity), rootNode, permObjs.size());
-        }
+        dataProvider.add( ( PermObj ) entity );
     }
 
 
@@ -407,4 +402,27 @@ public class ObjectListPanel extends FormComponentPanel
     {
         removeSelectedItems( grid );
     }
-}
\ No newline at end of file
+
+
+    /**
+     * Runs the current search again and writes the results straight to the response.
+     */
+    private class ObjectExport extends ExportResource<PermObj>
+    {
+        /** Default serialVersionUID */
+        private static final long serialVersionUID = 1L;
+
+
+        private ObjectExport( Format format )
+        {
+            super( isAdmin ? "adminobjects" : "objects", format, "objName", "ou", "description", "type" );
+        }
+
+
+        @Override
+        protected Iterable<? extends PermObj> load()
+        {
+            return new ObjectListModel( createSearchObject(), isAdmin, SecUtils.getSession( ObjectListPanel.this ) ).getObject();
+        }
+    }
+}
@@ -21,10 +21,10 @@
 package org.apache.directory.fortress.web.panel;
 
 
+import com.inmethod.grid.DataProviderAdapter;
 import com.inmethod.grid.IGridColumn;
 import com.inmethod.grid.column.PropertyColumn;
-import com.inmethod.grid.treegrid.TreeGrid;
-import org.apache.commons.collections.CollectionUtils;
+import com.inmethod.grid.datagrid.DataGrid;
 import org.apache.commons.lang.StringUtils;
 import org.apache.log4j.Logger;
 import org.apache.wicket.Component;
@@ -38,21 +38,28 @@ import org.apache.wicket.markup.html.form.FormComponentPanel;
 import org.apache.wicket.markup.html.form.TextField;
 import org.apache.wicket.model.IModel;
 import org.apache.wicket.model.PropertyModel;
+import org.apache.directory.fortress.web.common.ConfigUtils;
 import org.apache.directory.fortress.web.common.GlobalIds;
+import org.apache.directory.fortress.web.control.ExportResource;
+import org.apache.directory.fortress.web.control.IdIndex;
 import org.apache.directory.fortress.web.control.SecUtils;
+import org.apache.directory.fortress.web.control.SecureResourceLink;
+import org.apache.directory.fortress.web.model.PermDataProvider;
 import org.apache.directory.fortress.web.model.PermListModel;
+import org.apache.directory.fortress.web.model.PermRow;
 import org.apache.directory.fortress.web.event.SaveModelEvent;
 import org.apache.directory.fortress.web.control.SecureIndicatingAjaxButton;
 import org.apache.directory.fortress.web.control.SecureIndicatingAjaxLink;
+import org.apache.directory.fortress.web.control.TypeAheadField;
 import org.apache.directory.fortress.web.event.SelectModelEvent;
+import org.apache.directory.fortress.core.ReviewMgr;
 import org.apache.directory.fortress.core.model.FortEntity;
 import org.apache.directory.fortress.core.model.PermObj;
 import org.apache.directory.fortress.core.model.Permission;
 import org.apache.wicket.markup.html.form.Form;
 import org.apache.wicket.model.Model;
+import org.apache.wicket.spring.injection.annot.SpringBean;
 
-import javax.swing.tree.DefaultMutableTreeNode;
-import javax.swing.tree.DefaultTreeModel;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
@@ -68,11 +75,12 @@ public class PermListPanel extends FormComponentPanel
     /** Default serialVersionUID */
     private static final long serialVersionUID = 1L;
     private static final Logger log = Logger.getLogger( PermListPanel.class.getName() );
+    private static final int ROWS_PER_PAGE = ConfigUtils.getInt( "list.rows.per.page", 50 );
+    @SpringBean
+    private ReviewMgr reviewMgr;
     private Form<?> listForm;
-    private DefaultTreeModel treeModel;
-    private DefaultMutableTreeNode node;
-    private TreeGrid<DefaultTreeModel, DefaultMutableTreeNode, String> grid;
-    private DefaultMutableTreeNode rootNode;
+    private PermDataProvider dataProvider;
+    private DataGrid<DataProviderAdapter<PermRow, String>, PermRow, String> grid;
     private String permOperation;
     private String permObject;
     private TextField permObjectFld;
@@ -84,19 +92,21 @@ public class PermListPanel extends FormComponentPanel
         super( id );
 
         this.isAdmin = isAdmin;
-        PermListModel permListModel = new PermListModel( new Permission( "", "" ),
-            isAdmin, SecUtils.getSession( this ) );
-        setDefaultModel( permListModel );
-        List<IGridColumn<DefaultTreeModel, DefaultMutableTreeNode, String>> columns =
-            new ArrayList<>();
-        PropertyColumn objName = new PropertyColumn( new Model( "Object Name" ), "userObject.ObjName" );
+        this.reviewMgr.setAdmin( SecUtils.getSession( this ) );
+        dataProvider = new PermDataProvider( isAdmin, SecUtils.getSession( this ) );
+        dataProvider.search( new Permission( "", "" ) );
+        List<IGridColumn<DataProviderAdapter<PermRow, String>, PermRow, String>> columns = new ArrayList<>();
+        PropertyColumn<DataProviderAdapter<PermRow, String>, PermRow, String, String> objName = new PropertyColumn<>(
+            Model.of( "Object Name" ), "objName", "objName" );
         objName.setInitialSize( 350 );
         columns.add( objName );
-        columns.add( new PropertyColumn( new Model( "Object Id" ), "userObject.ObjId" ) );
-        columns.add( new PropertyColumn( new Model( "Operation Name" ), "userObject.OpName" ) );
+        columns.add( new PropertyColumn<DataProviderAdapter<PermRow, String>, PermRow, String, String>( Model.of(
+            "Object Id" ), "objId", "objId" ) );
+        columns.add( new PropertyColumn<DataProviderAdapter<PermRow, String>, PermRow, String, String>( Model.of(
+            "Operation Name" ), "opName", "opName" ) );
 
-        PropertyColumn description = new PropertyColumn( new Model( "Description" ),
-            "userObject.Description" );
+        PropertyColumn<DataProviderAdapter<PermRow, String>, PermRow, String, String> description =
+            new PropertyColumn<>( Model.of( "Description" ), "description", "description" );
         description.setInitialSize( 300 );
         columns.add( description );
 
@@ -109,38 +119,38 @@ public class PermListPanel extends FormComponentPanel
         {
             roleAssignLabel = "RBAC Role Assignments";
         }
-        PropertyColumn roles = new PropertyColumn( new Model( roleAssignLabel ), "userObject.Roles" );
+        PropertyColumn<DataProviderAdapter<PermRow, String>, PermRow, String, String> roles = new PropertyColumn<>(
+            Model.of( roleAssignLabel ), "roles" );
         roles.setInitialSize( 500 );
         columns.add( roles );
 
-        List<Permission> perms = ( List<Permission> ) getDefaultModel().getObject();
-        treeModel = createTreeModel( perms );
-
-        grid = new TreeGrid<DefaultTreeModel, DefaultMutableTreeNode, String>( "permtreegrid", treeModel, columns )
+        grid = new DataGrid<DataProviderAdapter<PermRow, String>, PermRow, String>( "permtreegrid",
+            new DataProviderAdapter<>( dataProvider ), columns )
         {
             /** Default serialVersionUID */
             private static final long serialVersionUID = 1L;
 
 
             @Override
-            public void selectItem( IModel itemModel, boolean selected )
+            public void selectItem( IModel<PermRow> itemModel, boolean selected )
             {
-                node = ( DefaultMutableTreeNode ) itemModel.getObject();
+                PermRow row = itemModel.getObject();
+                log.debug( "DataGrid.addGrid.selectItem selected perm objNm: " + row.getObjName() + " opNm: "
+                    + row.getOpName() );
 
-                if ( !node.isRoot() )
+                if ( super.isItemSelected( itemModel ) )
+                {
+                    log.debug( "DataGrid.addGrid.selectItem item is selected" );
+                    super.selectItem( itemModel, false );
+                }
+                else
                 {
-                    Permission perm = ( Permission ) node.getUserObject();
-                    log.debug( "TreeGrid.addGrid.selectItem selected perm objNm: " + perm.getObjName() + " opNm: "
-                        + perm.getOpName() );
+                    super.selectItem( itemModel, true );
+                    // the grid holds just the columns, the detail panel needs the whole permission:
+                    Permission perm = readPermission( row );
 
-                    if ( super.isItemSelected( itemModel ) )
-                    {
-                        log.debug( "TreeGrid.addGrid.selectItem item is selected" );
-                        super.selectItem( itemModel, false );
-                    }
-                    else
+                    if ( perm != null )
                     {
-                        super.selectItem( itemModel, true );
                         SelectModelEvent.send( getPage(), this, perm );
                     }
                 }
@@ -148,17 +158,17 @@ public class PermListPanel extends FormComponentPanel
         };
 
         //grid.setContentHeight( 50, SizeUnit.EM );
+        grid.setRowsPerPage( ROWS_PER_PAGE );
         grid.setAllowSelectMultiple( false );
         grid.setClickRowToSelect( true );
         grid.setClickRowToDeselect( false );
         grid.setSelectToEdit( false );
-        // expand the root node
-        grid.getTreeState().expandAll();
         listForm = new Form( "form" );
         listForm.add( grid );
         grid.setOutputMarkupId( true );
         add( listForm );
-        permObjectFld = new TextField( "permObject", new PropertyModel<String>( this, "permObject" ) );
+        permObjectFld = new TypeAheadField( "permObject", new PropertyModel<String>( this, "permObject" ),
+            IdIndex.Type.PERM_OBJS );
         permObjectFld.setOutputMarkupId( true );
 
         AjaxFormComponentUpdatingBehavior ajaxUpdater = new AjaxFormComponentUpdatingBehavior( GlobalIds.ONBLUR )
@@ -180,6 +190,10 @@ public class PermListPanel extends FormComponentPanel
         this.listForm.add( permOperationFld );
         addObjectSearchModal();
 
+        this.listForm.add( new SecureResourceLink( GlobalIds.EXPORT_CSV,
+            new PermExport( ExportResource.Format.CSV ), GlobalIds.REVIEW_MGR, GlobalIds.FIND_PERMISSIONS ) );
+        this.listForm.add( new SecureResourceLink( GlobalIds.EXPORT_JSON,
+            new PermExport( ExportResource.Format.JSON ), GlobalIds.REVIEW_MGR, GlobalIds.FIND_PERMISSIONS ) );
         this.listForm.add( new SecureIndicatingAjaxButton( GlobalIds.SEARCH, GlobalIds.REVIEW_MGR,
             GlobalIds.FIND_PERMISSIONS )
         {
@@ -204,19 +218,14 @@ public class PermListPanel extends FormComponentPanel
                 }
 
                 Permission srchPerm = new Permission( permObject, permOperation );
-                setDefaultModel( new PermListModel( srchPerm, isAdmin, SecUtils.getSession( this ) ) );
-                treeModel.reload();
-                rootNode.removeAllChildren();
-                List<Permission> perms = ( List<Permission> ) getDefaultModelObject();
+                dataProvider.search( srchPerm );
+                grid.resetSelection();
+                grid.setCurrentPage( 0 );
+                long size = dataProvider.size();
 
-                if ( CollectionUtils.isNotEmpty( perms ) )
+                if ( size > 0 )
                 {
-                    for ( Permission perm : perms )
-                    {
-                        rootNode.add( new DefaultMutableTreeNode( perm ) );
-                    }
-
-                    info( "Search returned " + perms.size() + " matching objects" );
+                    info( "Search returned " + size + " matching objects" );
                 }
                 else
                 {
@@ -358,11 +367,7 @@ public class PermListPanel extends FormComponentPanel
                     break;
 
                 case UPDATE:
-                    /*
-                    grid.markItemDirty(itemThatHasChanged);
-                    grid.update();
-                     */
-                    modelChanged();
+                    update( ( Permission ) modelEvent.getEntity() );
                     break;
 
                 case DELETE:
@@ -370,16 +375,9 @@ public class PermListPanel extends FormComponentPanel
                     break;
 
                 case SEARCH:
-                    setDefaultModel( new PermListModel( ( Permission ) modelEvent.getEntity(), isAdmin,
-                        SecUtils.getSession( this ) ) );
-                    treeModel.reload();
-                    rootNode.removeAllChildren();
-
-                    for ( Permission perm : ( List<Permission> ) getDefaultModelObject() )
-                    {
-                        rootNode.add( new DefaultMutableTreeNode( perm ) );
-                    }
-
+                    dataProvider.search( ( Permission ) modelEvent.getEntity() );
+                    grid.resetSelection();
+                    grid.setCurrentPage( 0 );
                     break;
 
                 default:
@@ -393,54 +391,49 @@ public class PermListPanel extends FormComponentPanel
     }
 
 
-    private void removeSelectedItems( TreeGrid<DefaultTreeModel, DefaultMutableTreeNode, String> grid )
+    private void removeSelectedItems( DataGrid<DataProviderAdapter<PermRow, String>, PermRow, String> grid )
     {
-        Collection<IModel<DefaultMutableTreeNode>> selected = grid.getSelectedItems();
+        Collection<IModel<PermRow>> selected = grid.getSelectedItems();
 
-        for ( IModel<DefaultMutableTreeNode> model : selected )
+        for ( IModel<PermRow> model : selected )
         {
-            DefaultMutableTreeNode node = model.getObject();
-            treeModel.removeNodeFromParent( node );
-            Permission perm = ( Permission ) node.getUserObject();
-            log.debug( ".removeSelectedItems perm objNm: " + perm.getObjName() + " opNm: " + perm.getOpName() );
-            List<Permission> perms = ( ( List<Permission> ) getDefaultModel().getObject() );
-            perms.remove( perm );
+            PermRow row = model.getObject();
+            dataProvider.remove( row );
+            log.debug( ".removeSelectedItems perm objNm: " + row.getObjName() + " opNm: " + row.getOpName() );
         }
+
+        grid.resetSelection();
     }
 
 
-    private DefaultTreeModel createTreeModel( List<Permission> perms )
+    public void add( FortEntity entity )
     {
-        DefaultTreeModel model;
-        rootNode = new DefaultMutableTreeNode( null );
-        model = new DefaultTreeModel( rootNode );
-
-        if ( perms == null )
-        {
-            log.debug( ".createTreeModel no Perms found" );
-        }
-        else
-        {
-            log.debug( ".createTreeModel Perms found:" + perms.size() );
+        dataProvider.add( PermRow.of( ( Permission ) entity ) );
+    }
 
-            for ( Permission perm : perms )
-            {
-                rootNode.add( new DefaultMutableTreeNode( perm ) );
-            }
-        }
 
-        return model;
+    private void update( Permission perm )
+    {
+        dataProvider.update( PermRow.of( perm ) );
     }
 
 
-    public void add( FortEntity entity )
+    private Permission readPermission( PermRow row )
     {
-        if ( getDefaultModelObject() != null )
+        Permission perm = null;
+
+        try
         {
-            List<Permission> perms = ( ( List<Permission> ) getDefaultModelObject() );
-            perms.add( ( Permission ) entity );
-            treeModel.insertNodeInto( new DefaultMutableTreeNode( entity ), rootNode, 0 );
+            perm = reviewMgr.readPermission( row.toPermission() );
         }
+        catch ( org.apache.directory.fortress.core.SecurityException se )
+        {
+            String error = ".readPermission perm: " + row + " caught SecurityException=" + se;
+            log.warn( error );
+            error( "Could not read permission: " + row );
+        }
+
+        return perm;
     }
 
 
@@ -448,4 +441,29 @@ public class PermListPanel extends FormComponentPanel
     {
         removeSelectedItems( grid );
     }
-}
\ No newline at end of file
+
+
+    /**
+     * Runs the current search again and writes the results straight to the response, a page at a time.
+     */
+    private class PermExport extends ExportResource<Permission>
+    {
+        /** Default serialVersionUID */
+        private static final long serialVersionUID = 1L;
+
+
+        private PermExport( Format format )
+        {
+            super( isAdmin ? "adminperms" : "perms", format, "objName", "objId", "opName", "description", "roles" );
+        }
+
+
+        @Override
+        protected Iterable<? extends Permission> load() throws org.apache.directory.fortress.core.SecurityException
+        {
+            Permission srchPerm = new Permission( StringUtils.isNotEmpty( permObject ) ? permObject : "", StringUtils
+                .isNotEmpty( permOperation ) ? permOperation : "" );
+            return new PermListModel( srchPerm, isAdmin, SecUtils.getSession( PermListPanel.this ) ).getPages();
+        }
+    }
+}
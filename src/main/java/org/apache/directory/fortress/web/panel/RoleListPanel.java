@@ -24,35 +24,53 @@ package org.apache.directory.fortress.web.panel;
 import com.inmethod.grid.IGridColumn;
 import com.inmethod.grid.column.PropertyColumn;
 import com.inmethod.grid.treegrid.TreeGrid;
-import org.apache.commons.collections.CollectionUtils;
 import org.apache.commons.lang.StringUtils;
 import org.apache.log4j.Logger;
 import org.apache.wicket.Component;
 import org.apache.wicket.ajax.AjaxRequestTarget;
 import org.apache.wicket.ajax.attributes.AjaxCallListener;
 import org.apache.wicket.ajax.attributes.AjaxRequestAttributes;
+import org.apache.wicket.ajax.markup.html.AjaxLink;
 import org.apache.wicket.event.IEvent;
+import org.apache.wicket.markup.html.WebMarkupContainer;
+import org.apache.wicket.markup.html.basic.Label;
 import org.apache.wicket.markup.html.form.FormComponentPanel;
 import org.apache.wicket.markup.html.form.TextField;
+import org.apache.wicket.model.AbstractReadOnlyModel;
 import org.apache.wicket.model.IModel;
 import org.apache.wicket.model.PropertyModel;
+import org.apache.directory.fortress.web.common.ConfigUtils;
 import org.apache.directory.fortress.web.common.GlobalIds;
+import org.apache.directory.fortress.web.control.ExportResource;
+import org.apache.directory.fortress.web.control.IdIndex;
 import org.apache.directory.fortress.web.control.SecUtils;
+import org.apache.directory.fortress.web.control.SecureResourceLink;
+import org.apache.directory.fortress.web.control.RoleGraph;
+import org.apache.directory.fortress.web.model.RoleDataProvider;
 import org.apache.directory.fortress.web.model.RoleListModel;
+import org.apache.directory.fortress.web.model.RoleRow;
 import org.apache.directory.fortress.web.event.SaveModelEvent;
 import org.apache.directory.fortress.web.control.SecureIndicatingAjaxButton;
+import org.apache.directory.fortress.web.control.TypeAheadField;
 import org.apache.directory.fortress.web.event.SelectModelEvent;
+import org.apache.directory.fortress.core.DelReviewMgr;
+import org.apache.directory.fortress.core.ReviewMgr;
 import org.apache.directory.fortress.core.model.AdminRole;
 import org.apache.directory.fortress.core.model.FortEntity;
 import org.apache.directory.fortress.core.model.Role;
+import org.apache.directory.fortress.core.model.Session;
 import org.apache.wicket.markup.html.form.Form;
 import org.apache.wicket.model.Model;
+import org.apache.wicket.spring.injection.annot.SpringBean;
 
 import javax.swing.tree.DefaultMutableTreeNode;
 import javax.swing.tree.DefaultTreeModel;
+import javax.swing.tree.TreeNode;
 import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Enumeration;
+import java.util.Iterator;
 import java.util.List;
 
 
@@ -66,20 +84,31 @@ public class RoleListPanel<T extends Serializable> extends FormComponentPanel
     /** Default serialVersionUID */
     private static final long serialVersionUID = 1L;
     private static final Logger log = Logger.getLogger( RoleListPanel.class.getName() );
+    private static final int ROWS_PER_PAGE = ConfigUtils.getInt( "list.rows.per.page", 50 );
+    @SpringBean
+    private ReviewMgr reviewMgr;
+    @SpringBean
+    private DelReviewMgr delReviewMgr;
+    private RoleDataProvider dataProvider;
     private DefaultTreeModel treeModel;
     private DefaultMutableTreeNode node;
     private TreeGrid<DefaultTreeModel, DefaultMutableTreeNode, String> grid;
     private DefaultMutableTreeNode rootNode;
+    private WebMarkupContainer pager;
     private String searchVal;
     private boolean isAdmin;
+    // of the top level roles, the tree holds one page of them:
+    private int page;
 
 
     public RoleListPanel( String id, final boolean isAdmin )
     {
         super( id );
         this.isAdmin = isAdmin;
-        RoleListModel roleListModel = new RoleListModel( createRole( "" ), isAdmin, SecUtils.getSession( this ) );
-        setDefaultModel( roleListModel );
+        this.reviewMgr.setAdmin( SecUtils.getSession( this ) );
+        this.delReviewMgr.setAdmin( SecUtils.getSession( this ) );
+        dataProvider = new RoleDataProvider( isAdmin, SecUtils.getSession( this ) );
+        dataProvider.search( createRole( "" ) );
         List<IGridColumn<DefaultTreeModel, DefaultMutableTreeNode, String>> columns =
             new ArrayList<>();
         columns.add( new PropertyColumn<DefaultTreeModel, DefaultMutableTreeNode, String, String>(
@@ -130,8 +159,7 @@ public class RoleListPanel<T extends Serializable> extends FormComponentPanel
         parents.setInitialSize( 250 );
         columns.add( parents );
 
-        List<T> roles = ( List<T> ) getDefaultModel().getObject();
-        treeModel = createTreeModel( roles );
+        treeModel = createTreeModel();
         grid = new TreeGrid<DefaultTreeModel, DefaultMutableTreeNode, String>( "roletreegrid", treeModel, columns )
         {
             /** Default serialVersionUID */
@@ -144,7 +172,7 @@ public class RoleListPanel<T extends Serializable> extends FormComponentPanel
                 node = ( DefaultMutableTreeNode ) itemModel.getObject();
                 if ( !node.isRoot() )
                 {
-                    T role = ( T ) node.getUserObject();
+                    RoleRow row = ( RoleRow ) node.getUserObject();
                     if ( super.isItemSelected( itemModel ) )
                     {
                         log.debug( "TreeGrid.addGrid.selectItem item is selected" );
@@ -153,7 +181,12 @@ public class RoleListPanel<T extends Serializable> extends FormComponentPanel
                     else
                     {
                         super.selectItem( itemModel, true );
-                        SelectModelEvent.send( getPage(), this, ( FortEntity ) role );
+                        // the tree holds just the columns, the detail panel needs the whole role:
+                        Role role = readRole( row.getName() );
+                        if ( role != null )
+                        {
+                            SelectModelEvent.send( getPage(), this, role );
+                        }
                     }
                 }
             }
@@ -163,15 +196,20 @@ public class RoleListPanel<T extends Serializable> extends FormComponentPanel
         grid.setClickRowToSelect( true );
         grid.setClickRowToDeselect( false );
         grid.setSelectToEdit( false );
-        // expand the root node
-        grid.getTreeState().expandAll();
+        // expand the root node only, the roles below the search results are added as their parents are expanded:
+        grid.getTreeState().expandNode( rootNode );
         Form listForm = new Form( "form" );
         listForm.add( grid );
         grid.setOutputMarkupId( true );
-        TextField searchValFld = new TextField( GlobalIds.SEARCH_VAL, new PropertyModel<String>( this,
-            GlobalIds.SEARCH_VAL ) );
+        addPager( listForm );
+        TextField searchValFld = new TypeAheadField( GlobalIds.SEARCH_VAL, new PropertyModel<String>( this,
+            GlobalIds.SEARCH_VAL ), isAdmin ? IdIndex.Type.ADMIN_ROLES : IdIndex.Type.ROLES );
         listForm.add( searchValFld );
 
+        listForm.add( new SecureResourceLink( GlobalIds.EXPORT_CSV,
+            new RoleExport( ExportResource.Format.CSV ), GlobalIds.REVIEW_MGR, "findRoles" ) );
+        listForm.add( new SecureResourceLink( GlobalIds.EXPORT_JSON,
+            new RoleExport( ExportResource.Format.JSON ), GlobalIds.REVIEW_MGR, "findRoles" ) );
         listForm.add( new SecureIndicatingAjaxButton( GlobalIds.SEARCH, GlobalIds.REVIEW_MGR, "findRoles" )
         {
             /** Default serialVersionUID */
@@ -189,21 +227,19 @@ public class RoleListPanel<T extends Serializable> extends FormComponentPanel
                 }
 
                 Role srchRole = createRole( searchVal );
-                setDefaultModel( new RoleListModel( srchRole, isAdmin, SecUtils.getSession( this ) ) );
-                treeModel.reload();
-                rootNode.removeAllChildren();
-                List<Role> roles = ( List<Role> ) getDefaultModelObject();
-                if ( CollectionUtils.isNotEmpty( roles ) )
+                dataProvider.search( srchRole );
+                page = 0;
+                loadPage();
+                if ( dataProvider.getMatched() > 0 )
                 {
-                    for ( T role : ( List<T> ) roles )
-                        rootNode.add( new DefaultMutableTreeNode( role ) );
-                    info( "Search returned " + roles.size() + " matching objects" );
+                    info( "Search returned " + dataProvider.getMatched() + " matching objects" );
                 }
                 else
                 {
                     info( "No matching objects found" );
                 }
                 target.add( grid );
+                target.add( pager );
             }
 
 
@@ -250,7 +286,7 @@ public class RoleListPanel<T extends Serializable> extends FormComponentPanel
                     add( modelEvent.getEntity() );
                     break;
                 case UPDATE:
-                    modelChanged();
+                    update( ( Role ) modelEvent.getEntity() );
                     break;
                 case DELETE:
                     prune();
@@ -260,6 +296,7 @@ public class RoleListPanel<T extends Serializable> extends FormComponentPanel
             }
             AjaxRequestTarget target = ( ( SaveModelEvent ) event.getPayload() ).getAjaxRequestTarget();
             target.add( grid );
+            target.add( pager );
             log.debug( ".onEvent SaveModelEvent: " + target.toString() );
         }
     }
@@ -267,12 +304,152 @@ public class RoleListPanel<T extends Serializable> extends FormComponentPanel
 
     public void add( FortEntity entity )
     {
-        if ( getDefaultModelObject() != null )
+        dataProvider.add( RoleRow.of( ( Role ) entity ) );
+        // the new role is last:
+        page = getLastPage();
+        loadPage();
+    }
+
+
+    private void update( Role role )
+    {
+        dataProvider.update( RoleRow.of( role ) );
+        // the parents of role may have changed, so may the children shown under any role:
+        refreshChildren();
+        for ( int i = 0; i < rootNode.getChildCount(); i++ )
+        {
+            DefaultMutableTreeNode child = ( DefaultMutableTreeNode ) rootNode.getChildAt( i );
+            if ( ( ( RoleRow ) child.getUserObject() ).matches( role ) )
+            {
+                child.setUserObject( RoleRow.of( role ) );
+                treeModel.nodeChanged( child );
+            }
+        }
+    }
+
+
+    /**
+     * Drop the roles shown below the top level, they are added again, from the updated graph, as they are shown.
+     */
+    private void refreshChildren()
+    {
+        for ( int i = 0; i < rootNode.getChildCount(); i++ )
+        {
+            ( ( RoleNode ) rootNode.getChildAt( i ) ).reset();
+        }
+        treeModel.reload();
+    }
+
+
+    /**
+     * Show the current page of the top level roles, the roles below them are added as their parents are expanded.
+     */
+    private void loadPage()
+    {
+        page = Math.max( 0, Math.min( page, getLastPage() ) );
+        rootNode.removeAllChildren();
+        Session admin = SecUtils.getSession( this );
+        Iterator<? extends RoleRow> rows = dataProvider.iterator( ( long ) page * ROWS_PER_PAGE, ROWS_PER_PAGE );
+        while ( rows.hasNext() )
+        {
+            rootNode.add( new RoleNode( rows.next(), isAdmin, admin ) );
+        }
+        treeModel.reload();
+        grid.resetSelection();
+    }
+
+
+    private int getLastPage()
+    {
+        return Math.max( 0, ( int ) ( ( dataProvider.size() - 1 ) / ROWS_PER_PAGE ) );
+    }
+
+
+    private void addPager( Form listForm )
+    {
+        pager = new WebMarkupContainer( "rolepager" );
+        pager.setOutputMarkupId( true );
+        pager.add( new AjaxLink<Void>( "prevpage" )
+        {
+            /** Default serialVersionUID */
+            private static final long serialVersionUID = 1L;
+
+
+            @Override
+            public void onClick( AjaxRequestTarget target )
+            {
+                page--;
+                loadPage();
+                target.add( grid );
+                target.add( pager );
+            }
+
+
+            @Override
+            public boolean isEnabled()
+            {
+                return page > 0;
+            }
+        } );
+        pager.add( new Label( "pagelabel", new AbstractReadOnlyModel<String>()
+        {
+            /** Default serialVersionUID */
+            private static final long serialVersionUID = 1L;
+
+
+            @Override
+            public String getObject()
+            {
+                return "Page " + ( page + 1 ) + " of " + ( getLastPage() + 1 );
+            }
+        } ) );
+        pager.add( new AjaxLink<Void>( "nextpage" )
+        {
+            /** Default serialVersionUID */
+            private static final long serialVersionUID = 1L;
+
+
+            @Override
+            public void onClick( AjaxRequestTarget target )
+            {
+                page++;
+                loadPage();
+                target.add( grid );
+                target.add( pager );
+            }
+
+
+            @Override
+            public boolean isEnabled()
+            {
+                return page < getLastPage();
+            }
+        } );
+        listForm.add( pager );
+    }
+
+
+    private Role readRole( String name )
+    {
+        Role role = null;
+        try
+        {
+            if ( isAdmin )
+            {
+                role = delReviewMgr.readRole( new AdminRole( name ) );
+            }
+            else
+            {
+                role = reviewMgr.readRole( new Role( name ) );
+            }
+        }
+        catch ( org.apache.directory.fortress.core.SecurityException se )
         {
-            List<Role> roles = ( ( List<Role> ) getDefaultModelObject() );
-            roles.add( ( Role ) entity );
-            treeModel.insertNodeInto( new DefaultMutableTreeNode( entity ), rootNode, roles.size() );
+            String error = ".readRole name: " + name + " caught SecurityException=" + se;
+            log.warn( error );
+            error( "Could not read role: " + name );
         }
+        return role;
     }
 
 
@@ -288,28 +465,30 @@ public class RoleListPanel<T extends Serializable> extends FormComponentPanel
         for ( IModel<DefaultMutableTreeNode> model : selected )
         {
             DefaultMutableTreeNode node = model.getObject();
-            treeModel.removeNodeFromParent( node );
-            Role role = ( Role ) node.getUserObject();
-            log.debug( ".removeSelectedItems role node: " + role.getName() );
-            List<Role> roles = ( ( List<Role> ) getDefaultModel().getObject() );
-            roles.remove( role );
+            RoleRow row = ( RoleRow ) node.getUserObject();
+            if ( node.getParent() == rootNode )
+            {
+                dataProvider.remove( row );
+            }
+            log.debug( ".removeSelectedItems role node: " + row.getName() );
         }
+        // the role may also be shown under its parents, the page is built again from the updated graph:
+        loadPage();
     }
 
 
-    private DefaultTreeModel createTreeModel( List<T> roles )
+    private DefaultTreeModel createTreeModel()
     {
-        DefaultTreeModel model;
         rootNode = new DefaultMutableTreeNode( null );
-        model = new DefaultTreeModel( rootNode );
-        if ( roles == null )
-            log.debug( "no Roles found" );
-        else
+        // leaves are known from the graph, without loading the children of each role:
+        DefaultTreeModel model = new DefaultTreeModel( rootNode, true );
+        Session admin = SecUtils.getSession( this );
+        Iterator<? extends RoleRow> rows = dataProvider.iterator( 0, ROWS_PER_PAGE );
+        while ( rows.hasNext() )
         {
-            log.debug( "Roles found:" + roles.size() );
-            for ( T role : roles )
-                rootNode.add( new DefaultMutableTreeNode( role ) );
+            rootNode.add( new RoleNode( rows.next(), isAdmin, admin ) );
         }
+        log.debug( "Roles found:" + dataProvider.getMatched() );
         return model;
     }
 
@@ -329,4 +508,151 @@ public class RoleListPanel<T extends Serializable> extends FormComponentPanel
 
         return role;
     }
-}
\ No newline at end of file
+
+
+    /**
+     * A role in the tree.  Its children are read from the {@link RoleGraph} the first time the tree asks for them,
+     * which is when the role is expanded.
+     */
+    private static class RoleNode extends DefaultMutableTreeNode
+    {
+        /** Default serialVersionUID */
+        private static final long serialVersionUID = 1L;
+        private final boolean isAdmin;
+        // whose graph the children are read from:
+        private final Session admin;
+        private boolean hasChildren;
+        private boolean isLoaded;
+
+
+        private RoleNode( Role role, boolean isAdmin, Session admin )
+        {
+            this( RoleRow.of( role ), isAdmin, admin );
+        }
+
+
+        private RoleNode( RoleRow row, boolean isAdmin, Session admin )
+        {
+            super( row );
+            this.isAdmin = isAdmin;
+            this.admin = admin;
+            RoleGraph graph = RoleGraph.peek( isAdmin, admin );
+            hasChildren = graph != null && graph.hasChildren( row.getName() );
+        }
+
+
+        @Override
+        public boolean getAllowsChildren()
+        {
+            // tells the tree whether to show the expand junction, without loading the children:
+            return hasChildren;
+        }
+
+
+        @Override
+        public int getChildCount()
+        {
+            load();
+            return super.getChildCount();
+        }
+
+
+        @Override
+        public TreeNode getChildAt( int index )
+        {
+            load();
+            return super.getChildAt( index );
+        }
+
+
+        @Override
+        public Enumeration children()
+        {
+            load();
+            return super.children();
+        }
+
+
+        private void reset()
+        {
+            if ( isLoaded )
+            {
+                for ( int i = 0; i < super.getChildCount(); i++ )
+                {
+                    ( ( RoleNode ) super.getChildAt( i ) ).reset();
+                }
+                super.removeAllChildren();
+                isLoaded = false;
+            }
+            RoleGraph graph = RoleGraph.peek( isAdmin, admin );
+            hasChildren = graph != null && graph.hasChildren( getRow().getName() );
+        }
+
+
+        private void load()
+        {
+            if ( isLoaded )
+            {
+                return;
+            }
+            isLoaded = true;
+            RoleGraph graph = RoleGraph.peek( isAdmin, admin );
+            if ( graph == null || !hasChildren )
+            {
+                return;
+            }
+            for ( Role child : graph.getChildren( getRow().getName() ) )
+            {
+                // guards against a cycle in the hierarchy:
+                if ( !isOnPath( child.getName() ) )
+                {
+                    insert( new RoleNode( child, isAdmin, admin ), super.getChildCount() );
+                }
+            }
+        }
+
+
+        private boolean isOnPath( String name )
+        {
+            for ( TreeNode node = this; node instanceof RoleNode; node = node.getParent() )
+            {
+                if ( ( ( RoleNode ) node ).getRow().getName().equalsIgnoreCase( name ) )
+                {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+
+        private RoleRow getRow()
+        {
+            return ( RoleRow ) getUserObject();
+        }
+    }
+
+
+    /**
+     * Runs the current search again and writes the results straight to the response, a page at a time.
+     */
+    private class RoleExport extends ExportResource<Role>
+    {
+        /** Default serialVersionUID */
+        private static final long serialVersionUID = 1L;
+
+
+        private RoleExport( Format format )
+        {
+            super( isAdmin ? "adminroles" : "roles", format, "name", "description", "beginDate", "endDate",
+                "beginLockDate", "endLockDate", "beginTime", "endTime", "dayMask", "parents" );
+        }
+
+
+        @Override
+        protected Iterable<? extends Role> load() throws org.apache.directory.fortress.core.SecurityException
+        {
+            return new RoleListModel( createRole( StringUtils.isNotEmpty( searchVal ) ? searchVal : "" ), isAdmin, SecUtils
+                .getSession( RoleListPanel.this ) ).getPages();
+        }
+    }
+}
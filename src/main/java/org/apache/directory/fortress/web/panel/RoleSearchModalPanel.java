@@ -27,6 +27,7 @@ import java.util.Comparator;
 import java.util.List;
 
 import org.apache.commons.collections.CollectionUtils;
+import org.apache.commons.lang.SerializationUtils;
 import org.apache.log4j.Logger;
 import org.apache.wicket.ajax.AjaxRequestTarget;
 import org.apache.wicket.ajax.markup.html.AjaxLink;
@@ -39,10 +40,13 @@ import org.apache.wicket.markup.html.panel.Panel;
 import org.apache.wicket.model.LoadableDetachableModel;
 import org.apache.wicket.model.PropertyModel;
 import org.apache.wicket.spring.injection.annot.SpringBean;
+import org.apache.directory.fortress.web.control.ReviewMgrCache;
+import org.apache.directory.fortress.web.control.RoleGraph;
 import org.apache.directory.fortress.web.control.SecUtils;
 import org.apache.directory.fortress.core.DelReviewMgr;
 import org.apache.directory.fortress.core.ReviewMgr;
 import org.apache.directory.fortress.core.model.Role;
+import org.apache.directory.fortress.core.model.Session;
 import org.apache.directory.fortress.core.model.UserAdminRole;
 import org.apache.directory.fortress.core.model.UserRole;
 import org.apache.directory.fortress.core.model.ConstraintUtil;
@@ -151,17 +155,16 @@ public class RoleSearchModalPanel extends Panel
 
                     if ( isParentSearch )
                     {
-                        Role childRole = reviewMgr.readRole( new Role( roleSearchVal ) );
-                        if ( childRole != null )
+                        // copied, the graph's roles are shared:
+                        Session admin = SecUtils.getSession( RoleSearchModalPanel.this );
+                        RoleGraph graph = isAdmin ? RoleGraph.get( delReviewMgr, admin ) : RoleGraph.get( reviewMgr,
+                            admin );
+                        List<Role> parentRoles = new ArrayList<>();
+                        for ( Role parent : graph.getParents( roleSearchVal ) )
                         {
-                            List<Role> parentRoles = new ArrayList<>();
-                            for ( String role : childRole.getParents() )
-                            {
-                                Role parent = reviewMgr.readRole( new Role( role ) );
-                                parentRoles.add( parent );
-                            }
-                            roles = parentRoles;
+                            parentRoles.add( ( Role ) SerializationUtils.clone( parent ) );
                         }
+                        roles = parentRoles;
                     }
                     else if ( isAdmin )
                     {
@@ -169,7 +172,8 @@ public class RoleSearchModalPanel extends Panel
                     }
 
                     else
-                        roles = reviewMgr.findRoles( roleSearchVal );
+                        roles = ReviewMgrCache.findRoles( reviewMgr, SecUtils.getSession( RoleSearchModalPanel.this ),
+                            roleSearchVal );
                 }
                 catch ( org.apache.directory.fortress.core.SecurityException se )
                 {
@@ -53,7 +53,7 @@ public class UserAuditDetailPanel extends FormComponentPanel
         add( new Label( GlobalIds.ADDRESS_CITY ) );
         add( new Label( GlobalIds.ADDRESS_STATE ) );
         add( new Label( GlobalIds.ADDRESS_COUNTRY ) );
-        add( new JpegImage( GlobalIds.JPEGPHOTO )
+        add( new JpegImage( GlobalIds.JPEGPHOTO, 125 )
         {
             /** Default serialVersionUID */
             private static final long serialVersionUID = 1L;
@@ -51,13 +51,16 @@ import org.apache.wicket.model.PropertyModel;
 import org.apache.wicket.spring.injection.annot.SpringBean;
 import org.apache.directory.fortress.web.common.GlobalIds;
 import org.apache.directory.fortress.web.control.SecUtils;
+import org.apache.directory.fortress.web.control.SDSetIndex;
 import org.apache.directory.fortress.web.event.SaveModelEvent;
 import org.apache.directory.fortress.web.control.SecureIndicatingAjaxButton;
 import org.apache.directory.fortress.web.event.SelectModelEvent;
 import org.apache.directory.fortress.core.AdminMgr;
 import org.apache.directory.fortress.core.DelAdminMgr;
+import org.apache.directory.fortress.core.ReviewMgr;
 import org.apache.directory.fortress.core.model.OrgUnit;
 import org.apache.directory.fortress.core.model.PwPolicy;
+import org.apache.directory.fortress.core.model.SDSet;
 import org.apache.directory.fortress.core.model.User;
 import org.apache.directory.fortress.core.model.UserAdminRole;
 import org.apache.directory.fortress.core.model.UserRole;
@@ -68,6 +71,7 @@ import java.io.IOException;
 import java.net.URISyntaxException;
 import java.net.URL;
 import java.util.ArrayList;
+import java.util.List;
 
 
 /**
@@ -82,6 +86,8 @@ public class UserDetailPanel extends FormComponentPanel
     private AdminMgr adminMgr;
     @SpringBean
     private DelAdminMgr delAdminMgr;
+    @SpringBean
+    private ReviewMgr reviewMgr;
     private static final Logger log = Logger.getLogger( UserDetailPanel.class.getName() );
     private Form editForm;
     private Displayable display;
@@ -93,6 +99,7 @@ public class UserDetailPanel extends FormComponentPanel
         this.display = display;
         this.adminMgr.setAdmin( SecUtils.getSession( this ) );
         this.delAdminMgr.setAdmin( SecUtils.getSession( this ) );
+        this.reviewMgr.setAdmin( SecUtils.getSession( this ) );
         add( editForm );
     }
 
@@ -1171,6 +1178,13 @@ public class UserDetailPanel extends FormComponentPanel
                     newUserRole = roleConstraint.getName();
                     target.add( roleConstraintPanel );
                     target.add( newUserRoleTF );
+                    // flag separation of duty conflicts now, not after assign is clicked:
+                    String conflict = checkSod( ( User ) editForm.getModelObject(), newUserRole );
+                    if ( conflict != null )
+                    {
+                        display.setMessage( conflict );
+                        display.display( target );
+                    }
                 }
             } );
 
@@ -1500,7 +1514,7 @@ public class UserDetailPanel extends FormComponentPanel
         {
             this.defaultImage = readJpegFile( DEFAULT_JPG );
             // Add the photograph controls:
-            add( new JpegImage( GlobalIds.JPEGPHOTO )
+            add( new JpegImage( GlobalIds.JPEGPHOTO, 25 )
             {
                 /** Default serialVersionUID */
                 private static final long serialVersionUID = 1L;
@@ -1519,7 +1533,7 @@ public class UserDetailPanel extends FormComponentPanel
                     return photo;
                 }
             } );
-            add( new JpegImage( GlobalIds.JPEGPHOTO + "2" )
+            add( new JpegImage( GlobalIds.JPEGPHOTO + "2", 125 )
             {
                 /** Default serialVersionUID */
                 private static final long serialVersionUID = 1L;
@@ -1537,7 +1551,7 @@ public class UserDetailPanel extends FormComponentPanel
                     }
                     return photo;
                 }
-            } );
+            }.setFullSizeOnClick( true ) );
             upload = new FileUploadField( UPLOAD, new Model( UPLOAD ) );
             add( upload );
         }
@@ -1572,6 +1586,7 @@ public class UserDetailPanel extends FormComponentPanel
                 UserRole userRole = roleConstraint;
                 userRole.setUserId( user.getUserId() );
                 userRole.setName( szRoleName );
+                // separation of duty is left to fortress, checkSod only warns as the index may be stale:
                 if ( !user.getRoles().contains( userRole ) )
                 {
                     try
@@ -1601,6 +1616,55 @@ public class UserDetailPanel extends FormComponentPanel
         }
 
 
+        /**
+         * @return warning naming the SSD sets assigning roleName to user would violate, and the DSD sets that would
+         * limit the roles activated together, or null if none.  The index may be stale, fortress decides on assign.
+         */
+        private String checkSod( User user, String roleName )
+        {
+            if ( user == null || StringUtils.isEmpty( roleName ) )
+            {
+                return null;
+            }
+            try
+            {
+                SDSetIndex index = SDSetIndex.get( reviewMgr, SecUtils.getSession( UserDetailPanel.this ) );
+                List<SDSet> violated = index.getSsdViolations( getRoleNames( user ), roleName );
+                if ( !violated.isEmpty() )
+                {
+                    return "Warning: role: " + roleName + " may violate static separation of duty set: "
+                        + SDSetIndex.format( violated );
+                }
+                List<SDSet> conflicts = index.getDsdConflicts( getRoleNames( user ), roleName );
+                if ( !conflicts.isEmpty() )
+                {
+                    return "Warning: role: " + roleName + " may not be activated with the other roles of dynamic"
+                        + " separation of duty set: " + SDSetIndex.format( conflicts );
+                }
+            }
+            catch ( org.apache.directory.fortress.core.SecurityException se )
+            {
+                String warning = ".checkSod caught SecurityException=" + se;
+                log.warn( warning );
+            }
+            return null;
+        }
+
+
+        private List<String> getRoleNames( User user )
+        {
+            List<String> roleNames = new ArrayList<>();
+            if ( user.getRoles() != null )
+            {
+                for ( UserRole userRole : user.getRoles() )
+                {
+                    roleNames.add( userRole.getName() );
+                }
+            }
+            return roleNames;
+        }
+
+
         private boolean deassignRole( User user, UserRole userRole )
         {
             boolean success = false;
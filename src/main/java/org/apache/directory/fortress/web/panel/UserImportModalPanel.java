@@ -0,0 +1,304 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+
+package org.apache.directory.fortress.web.panel;
+
+
+import org.apache.directory.fortress.core.AdminMgr;
+import org.apache.directory.fortress.core.DelReviewMgr;
+import org.apache.directory.fortress.core.PwPolicyMgr;
+import org.apache.directory.fortress.core.ReviewMgr;
+import org.apache.directory.fortress.core.model.OrgUnit;
+import org.apache.directory.fortress.core.model.PwPolicy;
+import org.apache.directory.fortress.core.model.Role;
+import org.apache.directory.fortress.web.common.GlobalIds;
+import org.apache.directory.fortress.web.control.SecUtils;
+import org.apache.directory.fortress.web.control.SecureIndicatingAjaxButton;
+import org.apache.directory.fortress.web.control.UserImport;
+import org.apache.log4j.Logger;
+import org.apache.wicket.ajax.AjaxRequestTarget;
+import org.apache.wicket.ajax.AjaxSelfUpdatingTimerBehavior;
+import org.apache.wicket.ajax.markup.html.AjaxLink;
+import org.apache.wicket.extensions.ajax.markup.html.modal.ModalWindow;
+import org.apache.wicket.markup.html.WebMarkupContainer;
+import org.apache.wicket.markup.html.basic.Label;
+import org.apache.wicket.markup.html.form.Form;
+import org.apache.wicket.markup.html.form.upload.FileUpload;
+import org.apache.wicket.markup.html.form.upload.FileUploadField;
+import org.apache.wicket.markup.html.list.ListItem;
+import org.apache.wicket.markup.html.list.ListView;
+import org.apache.wicket.markup.html.panel.FeedbackPanel;
+import org.apache.wicket.markup.html.panel.Panel;
+import org.apache.wicket.model.AbstractReadOnlyModel;
+import org.apache.wicket.model.LoadableDetachableModel;
+import org.apache.wicket.model.PropertyModel;
+import org.apache.wicket.spring.injection.annot.SpringBean;
+import org.apache.wicket.util.time.Duration;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
+
+
+/**
+ * Uploads a CSV or LDIF file of users and shows the progress of the import, along with the rows that failed.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ * @version $Rev$
+ */
+public class UserImportModalPanel extends Panel
+{
+    /** Default serialVersionUID */
+    private static final long serialVersionUID = 1L;
+    private static final Logger LOG = Logger.getLogger( UserImportModalPanel.class.getName() );
+    private static final int MAX_ERRORS_SHOWN = 100;
+    @SpringBean
+    private AdminMgr adminMgr;
+    @SpringBean
+    private ReviewMgr reviewMgr;
+    @SpringBean
+    private DelReviewMgr delReviewMgr;
+    @SpringBean
+    private PwPolicyMgr pwPolicyMgr;
+    private ModalWindow window;
+    private FileUploadField upload;
+    private WebMarkupContainer progress;
+    private String importId;
+
+
+    /**
+     * @param id
+     * @param window
+     */
+    public UserImportModalPanel( String id, ModalWindow window )
+    {
+        super( id );
+        this.adminMgr.setAdmin( SecUtils.getSession( this ) );
+        this.reviewMgr.setAdmin( SecUtils.getSession( this ) );
+        this.delReviewMgr.setAdmin( SecUtils.getSession( this ) );
+        this.window = window;
+        loadPanel();
+    }
+
+
+    private void loadPanel()
+    {
+        Form importForm = new Form( "importform" );
+        importForm.setMultiPart( true );
+        add( importForm );
+        importForm.add( new FeedbackPanel( "feedback" ).setOutputMarkupId( true ) );
+        upload = new FileUploadField( "importfile" );
+        importForm.add( upload );
+        importForm.add( new SecureIndicatingAjaxButton( "import", GlobalIds.ADMIN_MGR, GlobalIds.ADD_USER )
+        {
+            /** Default serialVersionUID */
+            private static final long serialVersionUID = 1L;
+
+
+            @Override
+            protected void onSubmit( AjaxRequestTarget target, Form form )
+            {
+                startImport();
+                target.add( form );
+            }
+
+
+            @Override
+            public void onError( AjaxRequestTarget target, Form form )
+            {
+                LOG.warn( "import.onError" );
+                target.add( form );
+            }
+        } );
+        importForm.add( new AjaxLink<Void>( "cancel" )
+        {
+            /** Default serialVersionUID */
+            private static final long serialVersionUID = 1L;
+
+
+            @Override
+            public void onClick( AjaxRequestTarget target )
+            {
+                UserImport userImport = UserImport.get( importId );
+                if ( userImport != null && userImport.isRunning() )
+                {
+                    userImport.cancel();
+                    target.add( progress );
+                }
+                else
+                {
+                    window.close( target );
+                }
+            }
+        } );
+        progress = new WebMarkupContainer( "progress" );
+        progress.setOutputMarkupId( true );
+        progress.add( new AjaxSelfUpdatingTimerBehavior( Duration.seconds( 2 ) )
+        {
+            /** Default serialVersionUID */
+            private static final long serialVersionUID = 1L;
+
+
+            @Override
+            protected boolean shouldTrigger()
+            {
+                UserImport userImport = UserImport.get( importId );
+                return userImport != null && userImport.isRunning();
+            }
+        } );
+        progress.add( new Label( "status", new AbstractReadOnlyModel<String>()
+        {
+            /** Default serialVersionUID */
+            private static final long serialVersionUID = 1L;
+
+
+            @Override
+            public String getObject()
+            {
+                UserImport userImport = UserImport.get( importId );
+                if ( userImport == null )
+                {
+                    return "";
+                }
+                return userImport.getFileName() + ": " + userImport.getState() + ", read: " + userImport.getRead()
+                    + ", added: " + userImport.getAdded() + ", failed: " + userImport.getFailed() + ", users/sec: "
+                    + String.format( "%.1f", userImport.getUsersPerSecond() );
+            }
+        } ) );
+        progress.add( new ListView<UserImport.RowError>( "errors", getErrorsModel() )
+        {
+            /** Default serialVersionUID */
+            private static final long serialVersionUID = 1L;
+
+
+            @Override
+            protected void populateItem( ListItem<UserImport.RowError> item )
+            {
+                item.add( new Label( "line", new PropertyModel( item.getModel(), "line" ) ) );
+                item.add( new Label( "userId", new PropertyModel( item.getModel(), "userId" ) ) );
+                item.add( new Label( "message", new PropertyModel( item.getModel(), "message" ) ) );
+            }
+        } );
+        importForm.add( progress );
+        importForm.setOutputMarkupId( true );
+    }
+
+
+    private LoadableDetachableModel<List<UserImport.RowError>> getErrorsModel()
+    {
+        return new LoadableDetachableModel<List<UserImport.RowError>>()
+        {
+            /** Default serialVersionUID */
+            private static final long serialVersionUID = 1L;
+
+
+            @Override
+            protected List<UserImport.RowError> load()
+            {
+                UserImport userImport = UserImport.get( importId );
+                if ( userImport == null )
+                {
+                    return Collections.emptyList();
+                }
+                List<UserImport.RowError> errors = userImport.getErrors();
+                return errors.size() > MAX_ERRORS_SHOWN ? new ArrayList<>( errors.subList( 0, MAX_ERRORS_SHOWN ) )
+                    : errors;
+            }
+        };
+    }
+
+
+    private void startImport()
+    {
+        UserImport running = UserImport.get( importId );
+        if ( running != null && running.isRunning() )
+        {
+            warn( "Import of " + running.getFileName() + " is still running" );
+            return;
+        }
+        FileUpload fileUpload = upload.getFileUpload();
+        if ( fileUpload == null )
+        {
+            warn( "Select a CSV or LDIF file to import" );
+            return;
+        }
+        File file = null;
+        try
+        {
+            // loaded once per import, on this thread, so the writers need not search:
+            List<String> ous = new ArrayList<>();
+            for ( OrgUnit ou : delReviewMgr.search( OrgUnit.Type.USER, "" ) )
+            {
+                ous.add( ou.getName() );
+            }
+            List<String> roles = new ArrayList<>();
+            for ( Role role : reviewMgr.findRoles( "" ) )
+            {
+                roles.add( role.getName() );
+            }
+            List<String> policies = new ArrayList<>();
+            for ( PwPolicy policy : pwPolicyMgr.search( "" ) )
+            {
+                policies.add( policy.getName() );
+            }
+            file = fileUpload.writeToTempFile();
+            UserImport userImport = UserImport.start( file, fileUpload.getClientFileName(), adminMgr, ous, roles,
+                policies );
+            importId = userImport.getId();
+            info( "Importing " + fileUpload.getClientFileName() );
+        }
+        catch ( org.apache.directory.fortress.core.SecurityException se )
+        {
+            String error = ".startImport caught SecurityException=" + se;
+            LOG.error( error );
+            error( "Could not load the OUs, roles and policies to validate against: " + se.getMessage() );
+            deleteFile( file );
+        }
+        catch ( IOException ioe )
+        {
+            String error = ".startImport caught IOException=" + ioe;
+            LOG.error( error );
+            error( "Could not save the uploaded file" );
+            deleteFile( file );
+        }
+        catch ( RejectedExecutionException ree )
+        {
+            LOG.warn( ".startImport rejected, too many imports running" );
+            warn( "Too many imports are running, try again later" );
+            deleteFile( file );
+        }
+        finally
+        {
+            fileUpload.closeStreams();
+        }
+    }
+
+
+    private static void deleteFile( File file )
+    {
+        if ( file != null && !file.delete() )
+        {
+            LOG.warn( ".deleteFile could not delete file: " + file );
+        }
+    }
+}
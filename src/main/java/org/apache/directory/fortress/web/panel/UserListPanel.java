@@ -21,21 +21,29 @@
 package org.apache.directory.fortress.web.panel;
 
 
+import com.inmethod.grid.DataProviderAdapter;
 import com.inmethod.grid.IGridColumn;
+import com.inmethod.grid.column.CheckBoxColumn;
 import com.inmethod.grid.column.PropertyColumn;
-import com.inmethod.grid.treegrid.TreeGrid;
-import org.apache.commons.collections.CollectionUtils;
+import com.inmethod.grid.datagrid.DataGrid;
 import org.apache.commons.lang.StringUtils;
+import org.apache.directory.fortress.web.common.ConfigUtils;
 import org.apache.directory.fortress.web.common.GlobalIds;
+import org.apache.directory.fortress.web.control.ExportResource;
+import org.apache.directory.fortress.web.control.IdIndex;
+import org.apache.directory.fortress.web.control.TypeAheadField;
 import org.apache.directory.fortress.web.control.SecUtils;
+import org.apache.directory.fortress.web.control.SecureResourceLink;
 import org.apache.directory.fortress.web.control.SecureIndicatingAjaxButton;
 import org.apache.directory.fortress.web.control.SecureIndicatingAjaxLink;
 import org.apache.directory.fortress.web.event.SaveModelEvent;
 import org.apache.directory.fortress.web.event.SelectModelEvent;
-import org.apache.directory.fortress.web.model.UserListModel;
+import org.apache.directory.fortress.web.model.UserDataProvider;
+import org.apache.directory.fortress.web.model.UserRow;
 import org.apache.log4j.Logger;
 import org.apache.wicket.Component;
 import org.apache.wicket.ajax.AjaxRequestTarget;
+import org.apache.wicket.ajax.AjaxSelfUpdatingTimerBehavior;
 import org.apache.wicket.ajax.attributes.AjaxCallListener;
 import org.apache.wicket.ajax.attributes.AjaxRequestAttributes;
 import org.apache.wicket.ajax.form.AjaxFormChoiceComponentUpdatingBehavior;
@@ -43,6 +51,7 @@ import org.apache.wicket.ajax.form.AjaxFormComponentUpdatingBehavior;
 import org.apache.wicket.ajax.markup.html.form.AjaxSubmitLink;
 import org.apache.wicket.event.IEvent;
 import org.apache.wicket.extensions.ajax.markup.html.modal.ModalWindow;
+import org.apache.wicket.markup.head.IHeaderResponse;
 import org.apache.wicket.markup.html.WebMarkupContainer;
 import org.apache.wicket.markup.html.basic.Label;
 import org.apache.wicket.markup.html.form.FormComponentPanel;
@@ -53,15 +62,16 @@ import org.apache.wicket.model.IModel;
 import org.apache.wicket.model.PropertyModel;
 import org.apache.wicket.markup.html.form.Form;
 import org.apache.wicket.model.Model;
+import org.apache.wicket.spring.injection.annot.SpringBean;
+import org.apache.wicket.util.time.Duration;
 import org.apache.directory.fortress.web.UserPage;
+import org.apache.directory.fortress.core.ReviewMgr;
 import org.apache.directory.fortress.core.model.FortEntity;
 import org.apache.directory.fortress.core.model.OrgUnit;
 import org.apache.directory.fortress.core.model.Permission;
 import org.apache.directory.fortress.core.model.User;
 import org.apache.directory.fortress.core.model.UserRole;
 
-import javax.swing.tree.DefaultMutableTreeNode;
-import javax.swing.tree.DefaultTreeModel;
 import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.Collection;
@@ -78,13 +88,15 @@ public class UserListPanel<T extends Serializable> extends FormComponentPanel
     /** Default serialVersionUID */
     private static final long serialVersionUID = 1L;
     private static final Logger LOG = Logger.getLogger( UserListPanel.class.getName() );
+    private static final int ROWS_PER_PAGE = ConfigUtils.getInt( "list.rows.per.page", 50 );
+    private static final boolean ASYNC_SEARCH = ConfigUtils.getBoolean( "search.async.enabled", true );
+    @SpringBean
+    private ReviewMgr reviewMgr;
     private Form listForm;
-    private DefaultTreeModel treeModel;
-    private DefaultMutableTreeNode node;
-    private TreeGrid<DefaultTreeModel, DefaultMutableTreeNode, String> grid;
-    private DefaultMutableTreeNode rootNode;
+    private UserDataProvider dataProvider;
+    private DataGrid<DataProviderAdapter<UserRow, String>, UserRow, String> grid;
     private String selectedRadioButton;
-    private TextField f1Fld;
+    private TypeAheadField f1Fld;
     private TextField f2Fld;
     private Label f1Lbl;
     private Label f2Lbl;
@@ -109,8 +121,8 @@ public class UserListPanel<T extends Serializable> extends FormComponentPanel
     public UserListPanel( String id )
     {
         super( id );
-        UserListModel userListModel = new UserListModel( new User(), SecUtils.getSession( this ) );
-        setDefaultModel( userListModel );
+        this.reviewMgr.setAdmin( SecUtils.getSession( this ) );
+        dataProvider = new UserDataProvider( SecUtils.getSession( this ) );
         addGrid();
         userformsearchfields = new WebMarkupContainer( "userformsearchfields" );
         userformsearchfields.setOutputMarkupId( true );
@@ -171,7 +183,39 @@ public class UserListPanel<T extends Serializable> extends FormComponentPanel
         f2Lbl = new Label( "field2label", new PropertyModel<String>( this, "field2Label" ) );
         searchFields.add( f2Lbl );
 
-        f1Fld = new TextField( GlobalIds.FIELD_1, new PropertyModel<String>( this, "searchData.field1" ) );
+        f1Fld = new TypeAheadField( GlobalIds.FIELD_1, new PropertyModel<String>( this, "searchData.field1" ), null )
+        {
+            /** Default serialVersionUID */
+            private static final long serialVersionUID = 1L;
+
+
+            @Override
+            protected IdIndex.Type getType()
+            {
+                // field 1 holds whatever the selected search is on:
+                if ( USERS.equals( selectedRadioButton ) )
+                {
+                    return IdIndex.Type.USER_IDS;
+                }
+                else if ( ROLES.equals( selectedRadioButton ) )
+                {
+                    return IdIndex.Type.ROLES;
+                }
+                else if ( ADMIN_ROLES.equals( selectedRadioButton ) )
+                {
+                    return IdIndex.Type.ADMIN_ROLES;
+                }
+                else if ( OUS.equals( selectedRadioButton ) )
+                {
+                    return IdIndex.Type.USER_OUS;
+                }
+                else if ( PERMS.equals( selectedRadioButton ) )
+                {
+                    return IdIndex.Type.PERM_OBJS;
+                }
+                return null;
+            }
+        };
         f1Fld.setOutputMarkupId( true );
         AjaxFormComponentUpdatingBehavior ajaxUpdater = new AjaxFormComponentUpdatingBehavior( GlobalIds.ONBLUR )
         {
@@ -212,6 +256,12 @@ public class UserListPanel<T extends Serializable> extends FormComponentPanel
 
     private void addButtons()
     {
+        userformsearchfields.add( new SecureResourceLink( GlobalIds.EXPORT_CSV,
+            new UserExport( ExportResource.Format.CSV ), GlobalIds.REVIEW_MGR, GlobalIds.FIND_USERS ) );
+        userformsearchfields.add( new SecureResourceLink( GlobalIds.EXPORT_JSON,
+            new UserExport( ExportResource.Format.JSON ), GlobalIds.REVIEW_MGR, GlobalIds.FIND_USERS ) );
+        addImportModal();
+        addBulkModal();
         userformsearchfields.add( new SecureIndicatingAjaxButton( GlobalIds.SEARCH, GlobalIds.REVIEW_MGR,
             GlobalIds.FIND_USERS )
         {
@@ -236,7 +286,7 @@ public class UserListPanel<T extends Serializable> extends FormComponentPanel
                     Permission srchPerm = new Permission();
                     srchPerm.setObjName( searchData.getField1() );
                     srchPerm.setOpName( searchData.getField2() );
-                    setDefaultModel( new UserListModel( srchPerm, SecUtils.getSession( this ) ) );
+                    dataProvider.search( srchPerm );
                 }
                 else
                 {
@@ -265,23 +315,14 @@ public class UserListPanel<T extends Serializable> extends FormComponentPanel
                     {
                         LOG.debug( ".onSubmit PERMS RB selected" );
                     }
-                    setDefaultModel( new UserListModel( srchUser, SecUtils.getSession( this ) ) );
+                    dataProvider.search( srchUser );
                 }
 
-                treeModel.reload();
-                rootNode.removeAllChildren();
-                List<User> users = ( List<User> ) getDefaultModelObject();
-                if ( CollectionUtils.isNotEmpty( users ) )
+                grid.resetSelection();
+                grid.setCurrentPage( 0 );
+                if ( !ASYNC_SEARCH || !dataProvider.searchAsync() )
                 {
-                    for ( User user : users )
-                    {
-                        rootNode.add( new DefaultMutableTreeNode( user ) );
-                    }
-                    info( "Search returned " + users.size() + " matching objects" );
-                }
-                else
-                {
-                    info( "No matching objects found" );
+                    infoSize();
                 }
                 target.add( grid );
             }
@@ -303,6 +344,7 @@ public class UserListPanel<T extends Serializable> extends FormComponentPanel
             @Override
             protected void onSubmit( AjaxRequestTarget target, Form form )
             {
+                dataProvider.cancelSearch();
                 setResponsePage( new UserPage() );
             }
 
@@ -543,6 +585,119 @@ public class UserListPanel<T extends Serializable> extends FormComponentPanel
     }
 
 
+    private void addImportModal()
+    {
+        final ModalWindow importModalWindow;
+        userformsearchfields.add( importModalWindow = new ModalWindow( "userimportmodal" ) );
+        importModalWindow.setContent( new UserImportModalPanel( importModalWindow.getContentId(),
+            importModalWindow ) );
+        userformsearchfields.add( new SecureIndicatingAjaxLink( "importusers", GlobalIds.ADMIN_MGR,
+            GlobalIds.ADD_USER )
+        {
+            /** Default serialVersionUID */
+            private static final long serialVersionUID = 1L;
+
+
+            public void onClick( AjaxRequestTarget target )
+            {
+                target.prependJavaScript( GlobalIds.WICKET_WINDOW_UNLOAD_CONFIRMATION_FALSE );
+                importModalWindow.show( target );
+            }
+
+
+            @Override
+            protected void updateAjaxAttributes( AjaxRequestAttributes attributes )
+            {
+                super.updateAjaxAttributes( attributes );
+                AjaxCallListener ajaxCallListener = new AjaxCallListener()
+                {
+                    /** Default serialVersionUID */
+                    private static final long serialVersionUID = 1L;
+
+
+                    @Override
+                    public CharSequence getFailureHandler( Component component )
+                    {
+                        return GlobalIds.WINDOW_LOCATION_REPLACE_COMMANDER_HOME_HTML;
+                    }
+                };
+                attributes.getAjaxCallListeners().add( ajaxCallListener );
+            }
+        } );
+        importModalWindow.setTitle( "User Import Modal" );
+        importModalWindow.setInitialWidth( 700 );
+        importModalWindow.setInitialHeight( 500 );
+        importModalWindow.setCookieName( "user-import-modal" );
+    }
+
+
+    private void addBulkModal()
+    {
+        final ModalWindow bulkModalWindow;
+        userformsearchfields.add( bulkModalWindow = new ModalWindow( "userbulkmodal" ) );
+        final UserRoleBulkModalPanel bulkModalPanel = new UserRoleBulkModalPanel( bulkModalWindow.getContentId(),
+            bulkModalWindow, dataProvider );
+        bulkModalWindow.setContent( bulkModalPanel );
+        bulkModalWindow.setWindowClosedCallback( new ModalWindow.WindowClosedCallback()
+        {
+            /** Default serialVersionUID */
+            private static final long serialVersionUID = 1L;
+
+
+            @Override
+            public void onClose( AjaxRequestTarget target )
+            {
+                // show the assignments written so far, the job may still be running:
+                bulkModalPanel.updateRows();
+                target.add( grid );
+            }
+        } );
+        userformsearchfields.add( new SecureIndicatingAjaxLink( "bulkroles", GlobalIds.ADMIN_MGR,
+            GlobalIds.ASSIGN_USER )
+        {
+            /** Default serialVersionUID */
+            private static final long serialVersionUID = 1L;
+
+
+            public void onClick( AjaxRequestTarget target )
+            {
+                List<UserRow> rows = new ArrayList<>();
+                for ( IModel<UserRow> model : grid.getSelectedItems() )
+                {
+                    rows.add( model.getObject() );
+                }
+                bulkModalPanel.setSelected( rows );
+                target.prependJavaScript( GlobalIds.WICKET_WINDOW_UNLOAD_CONFIRMATION_FALSE );
+                bulkModalWindow.show( target );
+            }
+
+
+            @Override
+            protected void updateAjaxAttributes( AjaxRequestAttributes attributes )
+            {
+                super.updateAjaxAttributes( attributes );
+                AjaxCallListener ajaxCallListener = new AjaxCallListener()
+                {
+                    /** Default serialVersionUID */
+                    private static final long serialVersionUID = 1L;
+
+
+                    @Override
+                    public CharSequence getFailureHandler( Component component )
+                    {
+                        return GlobalIds.WINDOW_LOCATION_REPLACE_COMMANDER_HOME_HTML;
+                    }
+                };
+                attributes.getAjaxCallListeners().add( ajaxCallListener );
+            }
+        } );
+        bulkModalWindow.setTitle( "Bulk Role Assignment Modal" );
+        bulkModalWindow.setInitialWidth( 700 );
+        bulkModalWindow.setInitialHeight( 500 );
+        bulkModalWindow.setCookieName( "user-bulk-modal" );
+    }
+
+
     @Override
     public void onEvent( IEvent event )
     {
@@ -555,10 +710,10 @@ public class UserListPanel<T extends Serializable> extends FormComponentPanel
                     add( modelEvent.getEntity() );
                     break;
                 case UPDATE:
-                    modelChanged();
+                    dataProvider.update( UserRow.of( ( User ) modelEvent.getEntity() ) );
                     break;
                 case DELETE:
-                    prune();
+                    remove( ( User ) modelEvent.getEntity() );
                     break;
                 default:
                     LOG.error( "onEvent caught invalid operation" );
@@ -647,117 +802,125 @@ public class UserListPanel<T extends Serializable> extends FormComponentPanel
     }
 
 
-    private void removeSelectedItems( TreeGrid<DefaultTreeModel, DefaultMutableTreeNode, String> grid )
+    private void removeSelectedItems( DataGrid<DataProviderAdapter<UserRow, String>, UserRow, String> grid )
     {
-        Collection<IModel<DefaultMutableTreeNode>> selected = grid.getSelectedItems();
-        for ( IModel<DefaultMutableTreeNode> model : selected )
-        {
-            DefaultMutableTreeNode node = model.getObject();
-            treeModel.removeNodeFromParent( node );
-            User user = ( User ) node.getUserObject();
-            LOG.debug( ".removeSelectedItems user node: " + user.getUserId() );
-            List<User> users = ( ( List<User> ) getDefaultModel().getObject() );
-            users.remove( user );
+        Collection<IModel<UserRow>> selected = grid.getSelectedItems();
+        for ( IModel<UserRow> model : selected )
+        {
+            UserRow row = model.getObject();
+            LOG.debug( ".removeSelectedItems user: " + row.getUserId() );
+            dataProvider.remove( row );
         }
+        grid.resetSelection();
     }
 
 
-    private DefaultTreeModel createTreeModel( List<T> users )
+    private void remove( User user )
     {
-        DefaultTreeModel model;
-        rootNode = new DefaultMutableTreeNode( null );
-        model = new DefaultTreeModel( rootNode );
-        if ( users == null )
+        // other users may be selected for a bulk assignment:
+        for ( IModel<UserRow> model : new ArrayList<>( grid.getSelectedItems() ) )
         {
-            LOG.debug( "no Users found" );
-        }
-        else
-        {
-            LOG.debug( ".createTreeModel Users found:" + users.size() );
-            for ( T user : users )
+            if ( model.getObject().getUserId().equals( user.getUserId() ) )
             {
-                rootNode.add( new DefaultMutableTreeNode( user ) );
+                grid.selectItem( model, false );
             }
         }
-        return model;
+        dataProvider.remove( UserRow.of( user ) );
     }
 
 
     private void addGrid()
     {
-        List<IGridColumn<DefaultTreeModel, DefaultMutableTreeNode, String>> columns = new ArrayList<>();
-        columns.add( new PropertyColumn<DefaultTreeModel, DefaultMutableTreeNode, String,
-            String>( Model.of( "UserId" ), "userObject.UserId" ) );
-        /*
-                columns.add( new PropertyColumn<DefaultTreeModel, DefaultMutableTreeNode, String,
-                    String>( Model.of( "Name" ), "userObject.Name" ) );
-        */
-        PropertyColumn ou = new PropertyColumn<>( Model.of( "User Organization" ), "userObject.Ou" );
+        List<IGridColumn<DataProviderAdapter<UserRow, String>, UserRow, String>> columns = new ArrayList<>();
+        // selects users for a bulk role assignment, the only way to select them, a click on the row shows its detail:
+        CheckBoxColumn<DataProviderAdapter<UserRow, String>, UserRow, String> select = new CheckBoxColumn<>(
+            "select" );
+        select.setInitialSize( 30 );
+        columns.add( select );
+        columns.add( new PropertyColumn<DataProviderAdapter<UserRow, String>, UserRow, String, String>( Model.of( "UserId" ),
+            "userId", "userId" ) );
+        PropertyColumn<DataProviderAdapter<UserRow, String>, UserRow, String, String> ou = new PropertyColumn<>( Model.of(
+            "User Organization" ), "ou", "ou" );
         ou.setInitialSize( 150 );
         columns.add( ou );
-        columns.add( new PropertyColumn<DefaultTreeModel, DefaultMutableTreeNode, String,
-            String>( Model.of( "Description" ), "userObject.Description" ) );
-        columns.add( new PropertyColumn<DefaultTreeModel, DefaultMutableTreeNode, String,
-            String>( Model.of( "Address" ), "userObject.Address.Addresses" ) );
-        columns.add( new PropertyColumn<DefaultTreeModel, DefaultMutableTreeNode, String,
-            String>( Model.of( "City" ), "userObject.Address.City" ) );
-        PropertyColumn state = new PropertyColumn<>( Model.of( "State" ), "userObject.Address.State" );
+        columns.add( new PropertyColumn<DataProviderAdapter<UserRow, String>, UserRow, String, String>( Model.of(
+            "Description" ), "description", "description" ) );
+        columns.add( new PropertyColumn<DataProviderAdapter<UserRow, String>, UserRow, String, String>( Model.of(
+            "Address" ), "addresses" ) );
+        columns.add( new PropertyColumn<DataProviderAdapter<UserRow, String>, UserRow, String, String>( Model.of( "City" ),
+            "city", "city" ) );
+        PropertyColumn<DataProviderAdapter<UserRow, String>, UserRow, String, String> state = new PropertyColumn<>( Model
+            .of( "State" ), "state", "state" );
         state.setInitialSize( 50 );
         columns.add( state );
-        /*
-                PropertyColumn locked = new PropertyColumn<DefaultTreeModel, DefaultMutableTreeNode, String, String>(
-                            Model.of("Lock"), "userObject.locked");
-                locked.setInitialSize(40);
-                columns.add(locked);
-                PropertyColumn reset = new PropertyColumn<DefaultTreeModel, DefaultMutableTreeNode, String, String>(
-                            Model.of("Reset"), "userObject.reset");
-                reset.setInitialSize(40);
-                columns.add(reset);
-        */
-        PropertyColumn roles = new PropertyColumn<>( Model.of( "RBAC Role Assignments" ), "userObject.Roles" );
+        PropertyColumn<DataProviderAdapter<UserRow, String>, UserRow, String, String> roles = new PropertyColumn<>( Model
+            .of( "RBAC Role Assignments" ), "roles" );
         roles.setInitialSize( 400 );
         columns.add( roles );
-        PropertyColumn adminRoles = new PropertyColumn<>( Model.of( "Admin Role Assignments" ), "userObject.AdminRoles" );
+        PropertyColumn<DataProviderAdapter<UserRow, String>, UserRow, String, String> adminRoles = new PropertyColumn<>(
+            Model.of( "Admin Role Assignments" ), "adminRoles" );
         adminRoles.setInitialSize( 400 );
         columns.add( adminRoles );
 
-        //List<User> users = ( List<User> ) getDefaultModel().getObject();
-        List<T> users = ( List<T> ) getDefaultModel().getObject();
-
-        treeModel = createTreeModel( users );
-        grid = new TreeGrid<DefaultTreeModel, DefaultMutableTreeNode, String>( "usertreegrid", treeModel, columns )
+        grid = new DataGrid<DataProviderAdapter<UserRow, String>, UserRow, String>( "usertreegrid",
+            new DataProviderAdapter<>( dataProvider ), columns )
         {
             /** Default serialVersionUID */
             private static final long serialVersionUID = 1L;
 
             @Override
-            public void selectItem( IModel itemModel, boolean selected )
+            protected void onRowClicked( AjaxRequestTarget target, IModel<UserRow> rowModel )
             {
-                node = ( DefaultMutableTreeNode ) itemModel.getObject();
-                if ( !node.isRoot() )
+                // the selection is left to the check boxes, the row clicked is the one shown in the detail:
+                UserRow row = rowModel.getObject();
+                LOG.debug( "DataGrid.addGrid.onRowClicked user: " + row.getUserId() );
+                // the grid holds just the columns, the detail panel needs the whole user:
+                User user = readUser( row.getUserId() );
+                if ( user != null )
                 {
-                    T user = ( T ) node.getUserObject();
-                    //LOG.debug( "TreeGrid.addGrid.selectItem selected user =" + user.getUserId() );
-                    if ( super.isItemSelected( itemModel ) )
-                    {
-                        LOG.debug( "TreeGrid.addGrid.selectItem item is selected" );
-                        super.selectItem( itemModel, false );
-                    }
-                    else
-                    {
-                        super.selectItem( itemModel, true );
-                        SelectModelEvent.send( getPage(), this, ( FortEntity ) user );
-                    }
+                    SelectModelEvent.send( getPage(), this, user );
                 }
             }
         };
-        //grid.setContentHeight( 60, SizeUnit.EM );
-        grid.setAllowSelectMultiple( false );
-        grid.setClickRowToSelect( true );
+        // shows the rows of a background search as they arrive:
+        grid.add( new AjaxSelfUpdatingTimerBehavior( Duration.seconds( 1 ) )
+        {
+            /** Default serialVersionUID */
+            private static final long serialVersionUID = 1L;
+
+
+            @Override
+            public void renderHead( Component component, IHeaderResponse response )
+            {
+                if ( dataProvider.isSearching() )
+                {
+                    super.renderHead( component, response );
+                }
+            }
+
+
+            @Override
+            protected boolean shouldTrigger()
+            {
+                return dataProvider.isSearching() && super.shouldTrigger();
+            }
+
+
+            @Override
+            protected void onPostProcessTarget( AjaxRequestTarget target )
+            {
+                if ( !dataProvider.poll() )
+                {
+                    infoSize();
+                }
+            }
+        } );
+        grid.setRowsPerPage( ROWS_PER_PAGE );
+        // for the check boxes, a click on a row selects nothing:
+        grid.setAllowSelectMultiple( true );
+        grid.setClickRowToSelect( false );
         grid.setClickRowToDeselect( false );
         grid.setSelectToEdit( false );
-        // expand the root node
-        grid.getTreeState().expandAll();
         this.listForm = new Form( "userlistform" );
         this.listForm.add( grid );
         add( this.listForm );
@@ -765,16 +928,45 @@ public class UserListPanel<T extends Serializable> extends FormComponentPanel
     }
 
 
-    public void add( FortEntity entity )
+    private void infoSize()
+    {
+        long size = dataProvider.size();
+        if ( dataProvider.getSearchError() != null )
+        {
+            error( "Search ended early, " + size + " objects found: " + dataProvider.getSearchError() );
+        }
+        else if ( size > 0 )
+        {
+            info( "Search returned " + size + " matching objects" );
+        }
+        else
+        {
+            info( "No matching objects found" );
+        }
+    }
+
+
+    private User readUser( String userId )
     {
-        if ( getDefaultModelObject() != null )
+        User user = null;
+        try
         {
-            List<User> users = ( ( List<User> ) getDefaultModelObject() );
-            users.add( ( User ) entity );
-            LOG.debug( "UserListPanel.add tree depth: " + rootNode.getChildCount() );
-            treeModel.insertNodeInto( new DefaultMutableTreeNode( entity ), rootNode, rootNode.getChildCount() );
-            //treeModel.insertNodeInto(new DefaultMutableTreeNode(entity), rootNode, users.size());
+            user = reviewMgr.readUser( new User( userId ) );
         }
+        catch ( org.apache.directory.fortress.core.SecurityException se )
+        {
+            String error = ".readUser userId: " + userId + " caught SecurityException=" + se;
+            LOG.warn( error );
+            error( "Could not read user: " + userId );
+        }
+        return user;
+    }
+
+
+    public void add( FortEntity entity )
+    {
+        dataProvider.add( UserRow.of( ( User ) entity ) );
+        LOG.debug( "UserListPanel.add size: " + dataProvider.size() );
     }
 
 
@@ -910,4 +1102,28 @@ public class UserListPanel<T extends Serializable> extends FormComponentPanel
             this.field3 = field3;
         }
     }
-}
\ No newline at end of file
+
+
+    /**
+     * Runs the current search again and writes the results straight to the response, a page at a time.
+     */
+    private class UserExport extends ExportResource<UserRow>
+    {
+        /** Default serialVersionUID */
+        private static final long serialVersionUID = 1L;
+
+
+        private UserExport( Format format )
+        {
+            super( "users", format, "userId", "ou", "description", "addresses", "city", "state", "roles",
+                "adminRoles" );
+        }
+
+
+        @Override
+        protected Iterable<? extends UserRow> load() throws org.apache.directory.fortress.core.SecurityException
+        {
+            return dataProvider.getPages();
+        }
+    }
+}
@@ -0,0 +1,422 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+
+package org.apache.directory.fortress.web.panel;
+
+
+import org.apache.commons.lang.StringUtils;
+import org.apache.directory.fortress.core.AdminMgr;
+import org.apache.directory.fortress.core.DelAdminMgr;
+import org.apache.directory.fortress.core.ReviewMgr;
+import org.apache.directory.fortress.core.model.Permission;
+import org.apache.directory.fortress.web.common.GlobalIds;
+import org.apache.directory.fortress.web.control.IdIndex;
+import org.apache.directory.fortress.web.control.SDSetIndex;
+import org.apache.directory.fortress.web.control.SecUtils;
+import org.apache.directory.fortress.web.control.SecureIndicatingAjaxButton;
+import org.apache.directory.fortress.web.control.TypeAheadField;
+import org.apache.directory.fortress.web.control.UserRoleBulk;
+import org.apache.directory.fortress.web.model.UserDataProvider;
+import org.apache.directory.fortress.web.model.UserRow;
+import org.apache.log4j.Logger;
+import org.apache.wicket.ajax.AjaxRequestTarget;
+import org.apache.wicket.ajax.AjaxSelfUpdatingTimerBehavior;
+import org.apache.wicket.ajax.markup.html.AjaxLink;
+import org.apache.wicket.ajax.markup.html.form.AjaxCheckBox;
+import org.apache.wicket.extensions.ajax.markup.html.modal.ModalWindow;
+import org.apache.wicket.markup.html.WebMarkupContainer;
+import org.apache.wicket.markup.html.basic.Label;
+import org.apache.wicket.markup.html.form.Form;
+import org.apache.wicket.markup.html.list.ListItem;
+import org.apache.wicket.markup.html.list.ListView;
+import org.apache.wicket.markup.html.panel.FeedbackPanel;
+import org.apache.wicket.markup.html.panel.Panel;
+import org.apache.wicket.model.AbstractReadOnlyModel;
+import org.apache.wicket.model.LoadableDetachableModel;
+import org.apache.wicket.model.PropertyModel;
+import org.apache.wicket.spring.injection.annot.SpringBean;
+import org.apache.wicket.util.time.Duration;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.RejectedExecutionException;
+
+
+/**
+ * Assigns, or deassigns, one RBAC or Admin role to the users selected in {@link UserListPanel}, or to every user of
+ * its search result, and shows the progress of the job, along with the users that failed.  Users that already have,
+ * or do not have, the role are skipped, as are users an RBAC role would violate an SSD set for.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ * @version $Rev$
+ */
+public class UserRoleBulkModalPanel extends Panel
+{
+    /** Default serialVersionUID */
+    private static final long serialVersionUID = 1L;
+    private static final Logger LOG = Logger.getLogger( UserRoleBulkModalPanel.class.getName() );
+    private static final int MAX_ERRORS_SHOWN = 100;
+    @SpringBean
+    private AdminMgr adminMgr;
+    @SpringBean
+    private DelAdminMgr delAdminMgr;
+    @SpringBean
+    private ReviewMgr reviewMgr;
+    private ModalWindow window;
+    private UserDataProvider dataProvider;
+    private WebMarkupContainer progress;
+    private List<UserRow> selected = new ArrayList<>();
+    private String roleName;
+    private boolean adminRole;
+    private boolean allResults;
+    private String bulkId;
+    // number of the job's writes already applied to the rows of dataProvider:
+    private int rowsUpdated;
+
+
+    /**
+     * @param id
+     * @param window
+     * @param dataProvider holds the search result of the user grid.
+     */
+    public UserRoleBulkModalPanel( String id, ModalWindow window, UserDataProvider dataProvider )
+    {
+        super( id );
+        this.adminMgr.setAdmin( SecUtils.getSession( this ) );
+        this.delAdminMgr.setAdmin( SecUtils.getSession( this ) );
+        this.reviewMgr.setAdmin( SecUtils.getSession( this ) );
+        this.window = window;
+        this.dataProvider = dataProvider;
+        loadPanel();
+    }
+
+
+    /**
+     * @param rows selected in the user grid, may be null.
+     */
+    public void setSelected( List<UserRow> rows )
+    {
+        selected = rows != null ? new ArrayList<>( rows ) : new ArrayList<UserRow>();
+        allResults = selected.isEmpty();
+    }
+
+
+    private void loadPanel()
+    {
+        Form bulkForm = new Form( "bulkform" );
+        add( bulkForm );
+        bulkForm.add( new FeedbackPanel( "feedback" ).setOutputMarkupId( true ) );
+        bulkForm.add( new Label( "selected", new AbstractReadOnlyModel<String>()
+        {
+            /** Default serialVersionUID */
+            private static final long serialVersionUID = 1L;
+
+
+            @Override
+            public String getObject()
+            {
+                return "Selected users: " + selected.size() + ", search result: " + dataProvider.size();
+            }
+        } ) );
+        bulkForm.add( new CheckBox( "allresults", new PropertyModel<Boolean>( this, "allResults" ) ) );
+        // updated as soon as it is clicked, so the role field suggests the right names:
+        bulkForm.add( new AjaxCheckBox( "adminrole", new PropertyModel<Boolean>( this, "adminRole" ) )
+        {
+            /** Default serialVersionUID */
+            private static final long serialVersionUID = 1L;
+
+
+            @Override
+            protected void onUpdate( AjaxRequestTarget target )
+            {
+            }
+        } );
+        bulkForm.add( new TypeAheadField( "rolename", new PropertyModel<String>( this, "roleName" ), null )
+        {
+            /** Default serialVersionUID */
+            private static final long serialVersionUID = 1L;
+
+
+            @Override
+            protected IdIndex.Type getType()
+            {
+                return adminRole ? IdIndex.Type.ADMIN_ROLES : IdIndex.Type.ROLES;
+            }
+        } );
+        bulkForm.add( new SecureIndicatingAjaxButton( "assign", GlobalIds.ADMIN_MGR, GlobalIds.ASSIGN_USER )
+        {
+            /** Default serialVersionUID */
+            private static final long serialVersionUID = 1L;
+
+
+            @Override
+            protected void onSubmit( AjaxRequestTarget target, Form form )
+            {
+                startBulk( true );
+                target.add( form );
+            }
+
+
+            @Override
+            public void onError( AjaxRequestTarget target, Form form )
+            {
+                LOG.warn( "assign.onError" );
+                target.add( form );
+            }
+        } );
+        bulkForm.add( new SecureIndicatingAjaxButton( "deassign", GlobalIds.ADMIN_MGR, GlobalIds.DEASSIGN_USER )
+        {
+            /** Default serialVersionUID */
+            private static final long serialVersionUID = 1L;
+
+
+            @Override
+            protected void onSubmit( AjaxRequestTarget target, Form form )
+            {
+                startBulk( false );
+                target.add( form );
+            }
+
+
+            @Override
+            public void onError( AjaxRequestTarget target, Form form )
+            {
+                LOG.warn( "deassign.onError" );
+                target.add( form );
+            }
+        } );
+        bulkForm.add( new AjaxLink<Void>( "cancel" )
+        {
+            /** Default serialVersionUID */
+            private static final long serialVersionUID = 1L;
+
+
+            @Override
+            public void onClick( AjaxRequestTarget target )
+            {
+                UserRoleBulk bulk = UserRoleBulk.get( bulkId );
+                if ( bulk != null && bulk.isRunning() )
+                {
+                    bulk.cancel();
+                    target.add( progress );
+                }
+                else
+                {
+                    window.close( target );
+                }
+            }
+        } );
+        progress = new WebMarkupContainer( "progress" );
+        progress.setOutputMarkupId( true );
+        progress.add( new AjaxSelfUpdatingTimerBehavior( Duration.seconds( 2 ) )
+        {
+            /** Default serialVersionUID */
+            private static final long serialVersionUID = 1L;
+
+
+            @Override
+            protected boolean shouldTrigger()
+            {
+                UserRoleBulk bulk = UserRoleBulk.get( bulkId );
+                return bulk != null && bulk.isRunning();
+            }
+        } );
+        progress.add( new Label( "status", new AbstractReadOnlyModel<String>()
+        {
+            /** Default serialVersionUID */
+            private static final long serialVersionUID = 1L;
+
+
+            @Override
+            public String getObject()
+            {
+                UserRoleBulk bulk = UserRoleBulk.get( bulkId );
+                if ( bulk == null )
+                {
+                    return "";
+                }
+                return bulk.getOperation() + ": " + bulk.getState() + ", users: " + bulk.getTotal() + ", written: "
+                    + bulk.getWritten() + ", failed: " + bulk.getFailed() + ", users/sec: " + String.format( "%.1f",
+                    bulk.getUsersPerSecond() );
+            }
+        } ) );
+        progress.add( new ListView<UserRoleBulk.UserError>( "errors", getErrorsModel() )
+        {
+            /** Default serialVersionUID */
+            private static final long serialVersionUID = 1L;
+
+
+            @Override
+            protected void populateItem( ListItem<UserRoleBulk.UserError> item )
+            {
+                item.add( new Label( "userId", new PropertyModel( item.getModel(), "userId" ) ) );
+                item.add( new Label( "message", new PropertyModel( item.getModel(), "message" ) ) );
+            }
+        } );
+        bulkForm.add( progress );
+        bulkForm.setOutputMarkupId( true );
+    }
+
+
+    private LoadableDetachableModel<List<UserRoleBulk.UserError>> getErrorsModel()
+    {
+        return new LoadableDetachableModel<List<UserRoleBulk.UserError>>()
+        {
+            /** Default serialVersionUID */
+            private static final long serialVersionUID = 1L;
+
+
+            @Override
+            protected List<UserRoleBulk.UserError> load()
+            {
+                UserRoleBulk bulk = UserRoleBulk.get( bulkId );
+                if ( bulk == null )
+                {
+                    return Collections.emptyList();
+                }
+                List<UserRoleBulk.UserError> errors = bulk.getErrors();
+                return errors.size() > MAX_ERRORS_SHOWN ? new ArrayList<>( errors.subList( 0, MAX_ERRORS_SHOWN ) )
+                    : errors;
+            }
+        };
+    }
+
+
+    private void startBulk( boolean isAssign )
+    {
+        UserRoleBulk running = UserRoleBulk.get( bulkId );
+        if ( running != null && running.isRunning() )
+        {
+            warn( "Bulk " + running.getOperation() + " is still running" );
+            return;
+        }
+        if ( StringUtils.isBlank( roleName ) )
+        {
+            warn( "Enter the name of the role to " + ( isAssign ? "assign" : "deassign" ) );
+            return;
+        }
+        if ( adminRole && !SecUtils.isFound( new Permission( GlobalIds.DEL_ADMIN_MGR, isAssign ? GlobalIds
+            .ASSIGN_USER : GlobalIds.DEASSIGN_USER ), this ) )
+        {
+            warn( "Not authorized to " + ( isAssign ? "assign" : "deassign" ) + " admin roles" );
+            return;
+        }
+        updateRows();
+        String name = roleName.trim();
+        SDSetIndex sdSetIndex = isAssign && !adminRole ? getSDSetIndex() : null;
+        List<String> userIds = new ArrayList<>();
+        List<String> violators = new ArrayList<>();
+        int skipped = 0;
+        for ( UserRow row : allResults ? dataProvider.getAll() : selected )
+        {
+            // no need to write the users that already are as asked:
+            if ( row.hasRole( name, adminRole ) == isAssign )
+            {
+                skipped++;
+            }
+            // nor those fortress would refuse for static separation of duty:
+            else if ( sdSetIndex != null && !sdSetIndex.getSsdViolations( row.getRoles(), name ).isEmpty() )
+            {
+                violators.add( row.getUserId() );
+            }
+            else
+            {
+                userIds.add( row.getUserId() );
+            }
+        }
+        if ( !violators.isEmpty() )
+        {
+            warn( "Skipped " + violators.size() + " users that would violate static separation of duty, e.g. "
+                + violators.subList( 0, Math.min( 10, violators.size() ) ) );
+        }
+        if ( userIds.isEmpty() )
+        {
+            warn( "No users to " + ( isAssign ? "assign" : "deassign" ) + ", skipped: " + skipped );
+            return;
+        }
+        try
+        {
+            UserRoleBulk bulk = UserRoleBulk.start( userIds, name, adminRole, isAssign, adminMgr, delAdminMgr );
+            bulkId = bulk.getId();
+            rowsUpdated = 0;
+            info( "Started " + bulk.getOperation() + " for " + userIds.size() + " users, skipped: " + skipped );
+        }
+        catch ( RejectedExecutionException ree )
+        {
+            LOG.warn( ".startBulk rejected, too many bulk jobs running" );
+            warn( "Too many bulk jobs are running, try again later" );
+        }
+    }
+
+
+    /**
+     * @return index of the SSD sets, or null if it cannot be read, fortress checks them on assign anyway.
+     */
+    private SDSetIndex getSDSetIndex()
+    {
+        try
+        {
+            return SDSetIndex.get( reviewMgr, SecUtils.getSession( this ) );
+        }
+        catch ( org.apache.directory.fortress.core.SecurityException se )
+        {
+            String error = ".getSDSetIndex caught SecurityException=" + se;
+            LOG.warn( error );
+            return null;
+        }
+    }
+
+
+    /**
+     * Apply the writes made by the job since the last call to the rows of the grid's search result, so they show the
+     * new role assignments without being read again.
+     */
+    public void updateRows()
+    {
+        UserRoleBulk bulk = UserRoleBulk.get( bulkId );
+        if ( bulk == null )
+        {
+            return;
+        }
+        List<String> succeeded = bulk.getSucceeded();
+        if ( succeeded.size() <= rowsUpdated )
+        {
+            return;
+        }
+        Set<String> userIds = new HashSet<>( succeeded.subList( rowsUpdated, succeeded.size() ) );
+        rowsUpdated = succeeded.size();
+        List<UserRow> rows = new ArrayList<>();
+        for ( UserRow row : dataProvider.getAll() )
+        {
+            if ( userIds.contains( row.getUserId() ) )
+            {
+                rows.add( row.withRole( bulk.getRoleName(), bulk.isAdminRole(), bulk.isAssign() ) );
+            }
+        }
+        for ( UserRow row : rows )
+        {
+            dataProvider.update( row );
+        }
+        LOG.debug( ".updateRows rows: " + rows.size() );
+    }
+}
@@ -112,7 +112,7 @@ public class UserSearchModalPanel extends Panel
                 item.add( new Label( GlobalIds.NAME, new PropertyModel( item.getModel(), GlobalIds.NAME ) ) );
                 item.add( new Label( GlobalIds.OU, new PropertyModel( item.getModel(), GlobalIds.OU ) ) );
                 item.add( new Label( GlobalIds.TITLE, new PropertyModel( item.getModel(), GlobalIds.TITLE ) ) );
-                item.add( new JpegImage( GlobalIds.JPEGPHOTO )
+                item.add( new JpegImage( GlobalIds.JPEGPHOTO, 50 )
                 {
                     /** Default serialVersionUID */
                     private static final long serialVersionUID = 1L;
@@ -0,0 +1,213 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+package org.apache.directory.fortress.web.common;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Predicate;
+import java.util.function.ToLongFunction;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+/**
+ * Eviction, expiry, weight and counters of {@link BoundedCache}.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ * @version $Rev$
+ */
+public class BoundedCacheTest
+{
+    private static final ToLongFunction<List<String>> ROWS = new ToLongFunction<List<String>>()
+    {
+        @Override
+        public long applyAsLong( List<String> rows )
+        {
+            return rows.size();
+        }
+    };
+
+
+    @Test
+    public void evictsLeastRecentlyUsed()
+    {
+        BoundedCache<String, String> cache = new BoundedCache<>( "test", 2, 0 );
+        cache.put( "a", "1" );
+        cache.put( "b", "2" );
+        // a is used after b, so b is the one to go:
+        assertEquals( "1", cache.get( "a" ) );
+        cache.put( "c", "3" );
+        assertEquals( 2, cache.size() );
+        assertEquals( "1", cache.get( "a" ) );
+        assertNull( cache.get( "b" ) );
+        assertEquals( "3", cache.get( "c" ) );
+        assertEquals( 1, cache.getEvictions() );
+    }
+
+
+    @Test
+    public void countsHitsAndMisses()
+    {
+        BoundedCache<String, String> cache = new BoundedCache<>( "test", 10, 0 );
+        cache.put( "a", "1" );
+        cache.get( "a" );
+        cache.get( "a" );
+        cache.get( "b" );
+        assertEquals( 2, cache.getHits() );
+        assertEquals( 1, cache.getMisses() );
+        assertEquals( 0, cache.getEvictions() );
+    }
+
+
+    @Test
+    public void expiresAfterTimeToLive() throws InterruptedException
+    {
+        BoundedCache<String, String> cache = new BoundedCache<>( "test", 10, 1 );
+        cache.put( "a", "1" );
+        assertEquals( "1", cache.get( "a" ) );
+        Thread.sleep( 1100 );
+        assertNull( cache.get( "a" ) );
+        assertEquals( 0, cache.size() );
+        assertEquals( 1, cache.getEvictions() );
+        assertEquals( 1, cache.getMisses() );
+    }
+
+
+    @Test
+    public void evictExpiredRemovesOnlyOldEntries() throws InterruptedException
+    {
+        BoundedCache<String, String> cache = new BoundedCache<>( "test", 10, 1 );
+        cache.put( "old", "1" );
+        Thread.sleep( 1100 );
+        cache.put( "new", "2" );
+        cache.evictExpired();
+        assertEquals( 1, cache.size() );
+        assertEquals( "2", cache.get( "new" ) );
+    }
+
+
+    @Test
+    public void neverExpiresWithoutTimeToLive()
+    {
+        BoundedCache<String, String> cache = new BoundedCache<>( "test", 10, 0 );
+        cache.put( "a", "1" );
+        cache.evictExpired();
+        assertEquals( "1", cache.get( "a" ) );
+    }
+
+
+    @Test
+    public void removeIfAndClear()
+    {
+        BoundedCache<String, String> cache = new BoundedCache<>( "test", 10, 0 );
+        cache.put( "tenant1:a", "1" );
+        cache.put( "tenant1:b", "2" );
+        cache.put( "tenant2:a", "3" );
+        cache.removeIf( new Predicate<String>()
+        {
+            @Override
+            public boolean test( String key )
+            {
+                return key.startsWith( "tenant1:" );
+            }
+        } );
+        assertEquals( 1, cache.size() );
+        assertEquals( "3", cache.get( "tenant2:a" ) );
+        assertEquals( "3", cache.remove( "tenant2:a" ) );
+        assertNull( cache.remove( "tenant2:a" ) );
+        cache.put( "a", "1" );
+        cache.clear();
+        assertEquals( 0, cache.size() );
+        // neither one is an eviction:
+        assertEquals( 0, cache.getEvictions() );
+    }
+
+
+    @Test
+    public void evictsByWeight()
+    {
+        BoundedCache<String, List<String>> cache = new BoundedCache<>( "test", 10, 0, 5, ROWS );
+        cache.put( "a", Arrays.asList( "1", "2" ) );
+        cache.put( "b", Arrays.asList( "1", "2" ) );
+        assertEquals( 4, cache.getWeight() );
+        // a is used after b, so b is the one to go:
+        cache.get( "a" );
+        cache.put( "c", Arrays.asList( "1", "2" ) );
+        assertEquals( 2, cache.size() );
+        assertNull( cache.get( "b" ) );
+        assertEquals( 4, cache.getWeight() );
+        assertEquals( 1, cache.getEvictions() );
+    }
+
+
+    @Test
+    public void keepsAnEntryHeavierThanTheMax()
+    {
+        BoundedCache<String, List<String>> cache = new BoundedCache<>( "test", 10, 0, 3, ROWS );
+        cache.put( "a", Arrays.asList( "1" ) );
+        cache.put( "b", Arrays.asList( "1", "2", "3", "4", "5" ) );
+        assertEquals( 1, cache.size() );
+        assertEquals( 5, cache.get( "b" ).size() );
+        assertEquals( 5, cache.getWeight() );
+    }
+
+
+    @Test
+    public void weightFollowsReplaceRemoveAndClear()
+    {
+        BoundedCache<String, List<String>> cache = new BoundedCache<>( "test", 10, 0, 100, ROWS );
+        cache.put( "a", Arrays.asList( "1", "2", "3" ) );
+        cache.put( "b", Arrays.asList( "1" ) );
+        assertEquals( 4, cache.getWeight() );
+        // weighed again when put again:
+        cache.put( "a", Arrays.asList( "1" ) );
+        assertEquals( 2, cache.getWeight() );
+        cache.remove( "b" );
+        assertEquals( 1, cache.getWeight() );
+        cache.clear();
+        assertEquals( 0, cache.getWeight() );
+    }
+
+
+    @Test
+    public void weightFollowsEvictionBySize()
+    {
+        BoundedCache<String, List<String>> cache = new BoundedCache<>( "test", 2, 0, 100, ROWS );
+        cache.put( "a", Arrays.asList( "1", "2", "3" ) );
+        cache.put( "b", Arrays.asList( "1" ) );
+        cache.put( "c", Arrays.asList( "1", "2" ) );
+        assertNull( cache.get( "a" ) );
+        assertEquals( 3, cache.getWeight() );
+    }
+
+
+    @Test
+    public void noWeightWithoutWeigher()
+    {
+        BoundedCache<String, String> cache = new BoundedCache<>( "test", 10, 0, 1, null );
+        cache.put( "a", "1" );
+        cache.put( "b", "2" );
+        assertEquals( 0, cache.getMaxWeight() );
+        assertEquals( 0, cache.getWeight() );
+        assertEquals( 2, cache.size() );
+    }
+}
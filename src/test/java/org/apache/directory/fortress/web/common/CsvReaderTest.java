@@ -0,0 +1,109 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+package org.apache.directory.fortress.web.common;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+/**
+ * Records read by {@link CsvReader}, quoting and line numbers.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ * @version $Rev$
+ */
+public class CsvReaderTest
+{
+    @Test
+    public void readsRecordsUntilEndOfStream() throws IOException
+    {
+        CsvReader reader = new CsvReader( new StringReader( "userId,ou\r\njsmith,dev\r\n" ) );
+        assertEquals( Arrays.asList( "userId", "ou" ), reader.readRecord() );
+        assertEquals( Arrays.asList( "jsmith", "dev" ), reader.readRecord() );
+        assertNull( reader.readRecord() );
+        assertNull( reader.readRecord() );
+    }
+
+
+    @Test
+    public void lastRecordWithoutLineBreak() throws IOException
+    {
+        CsvReader reader = new CsvReader( new StringReader( "a,b\nc,d" ) );
+        assertEquals( Arrays.asList( "a", "b" ), reader.readRecord() );
+        assertEquals( Arrays.asList( "c", "d" ), reader.readRecord() );
+        assertNull( reader.readRecord() );
+    }
+
+
+    @Test
+    public void emptyFields() throws IOException
+    {
+        CsvReader reader = new CsvReader( new StringReader( ",a,,\n\n" ) );
+        assertEquals( Arrays.asList( "", "a", "", "" ), reader.readRecord() );
+        // an empty line is one empty field:
+        assertEquals( Arrays.asList( "" ), reader.readRecord() );
+        assertNull( reader.readRecord() );
+    }
+
+
+    @Test
+    public void quotedFields() throws IOException
+    {
+        CsvReader reader = new CsvReader( new StringReader(
+            "\"Smith, John\",\"says \"\"hi\"\"\",\"\"\r\n\"two\r\nlines\",x\n" ) );
+        assertEquals( Arrays.asList( "Smith, John", "says \"hi\"", "" ), reader.readRecord() );
+        assertEquals( Arrays.asList( "two\r\nlines", "x" ), reader.readRecord() );
+        assertNull( reader.readRecord() );
+    }
+
+
+    @Test
+    public void quoteInsideUnquotedFieldIsKept() throws IOException
+    {
+        CsvReader reader = new CsvReader( new StringReader( "5\" disk,a\n" ) );
+        assertEquals( Arrays.asList( "5\" disk", "a" ), reader.readRecord() );
+    }
+
+
+    @Test( expected = IOException.class )
+    public void unterminatedQuote() throws IOException
+    {
+        new CsvReader( new StringReader( "a,\"b\nc\n" ) ).readRecord();
+    }
+
+
+    @Test
+    public void lineNumbersCountLinesInsideQuotes() throws IOException
+    {
+        CsvReader reader = new CsvReader( new StringReader( "a\r\n\"b\nc\"\nd\n" ) );
+        assertEquals( 1, reader.getLineNumber() );
+        reader.readRecord();
+        assertEquals( 2, reader.getLineNumber() );
+        reader.readRecord();
+        // the record took two lines:
+        assertEquals( 4, reader.getLineNumber() );
+        assertEquals( Arrays.asList( "d" ), reader.readRecord() );
+    }
+}
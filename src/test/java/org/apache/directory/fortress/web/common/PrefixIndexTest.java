@@ -0,0 +1,178 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+package org.apache.directory.fortress.web.common;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.function.Predicate;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Names found by {@link PrefixIndex}, changes to an index, and the prefixes an export is split by.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ * @version $Rev$
+ */
+public class PrefixIndexTest
+{
+    private static final PrefixIndex INDEX = PrefixIndex.of( Arrays.asList( "jsmith", "JDoe", "jdoe2", "admin",
+        "Jones", null, "" ) );
+
+
+    @Test
+    public void findIgnoresCaseAndKeepsOrder()
+    {
+        assertEquals( Arrays.asList( "JDoe", "jdoe2", "Jones", "jsmith" ), INDEX.find( "J", 10 ) );
+        assertEquals( Arrays.asList( "JDoe", "jdoe2" ), INDEX.find( "jdo", 10 ) );
+        assertEquals( Arrays.asList( "jsmith" ), INDEX.find( "JSMITH", 10 ) );
+        assertTrue( INDEX.find( "x", 10 ).isEmpty() );
+        assertTrue( INDEX.find( "jsmiths", 10 ).isEmpty() );
+    }
+
+
+    @Test
+    public void findStopsAtMax()
+    {
+        assertEquals( Arrays.asList( "JDoe", "jdoe2" ), INDEX.find( "j", 2 ) );
+        assertTrue( INDEX.find( "j", 0 ).isEmpty() );
+        // an empty prefix matches every name:
+        assertEquals( 5, INDEX.find( "", 10 ).size() );
+        assertEquals( 5, INDEX.find( null, 10 ).size() );
+    }
+
+
+    @Test
+    public void findWithFilter()
+    {
+        Predicate<String> isLowerCase = new Predicate<String>()
+        {
+            @Override
+            public boolean test( String name )
+            {
+                return name.equals( name.toLowerCase() );
+            }
+        };
+        assertEquals( Arrays.asList( "jdoe2", "jsmith" ), INDEX.find( "j", 10, isLowerCase ) );
+        assertEquals( Arrays.asList( "jdoe2" ), INDEX.find( "j", 1, isLowerCase ) );
+    }
+
+
+    @Test
+    public void ofDropsDuplicatesAndEmptyNames()
+    {
+        assertEquals( 5, INDEX.size() );
+        assertEquals( 1, PrefixIndex.of( Arrays.asList( "a", "A" ) ).size() );
+        assertEquals( 0, PrefixIndex.of( null ).size() );
+        assertEquals( 0, PrefixIndex.of( Collections.<String>emptyList() ).size() );
+    }
+
+
+    @Test
+    public void contains()
+    {
+        assertTrue( INDEX.contains( "JSMITH" ) );
+        assertTrue( INDEX.contains( "jones" ) );
+        assertFalse( INDEX.contains( "jon" ) );
+        assertFalse( INDEX.contains( null ) );
+    }
+
+
+    @Test
+    public void withAddsName()
+    {
+        PrefixIndex index = INDEX.with( "JBrown" );
+        assertEquals( 6, index.size() );
+        assertEquals( Arrays.asList( "JBrown", "JDoe" ), index.find( "j", 2 ) );
+        // the index changed is left as it was:
+        assertEquals( 5, INDEX.size() );
+        assertFalse( INDEX.contains( "jbrown" ) );
+        assertSame( INDEX, INDEX.with( "JSMITH" ) );
+        assertSame( INDEX, INDEX.with( null ) );
+        assertSame( INDEX, INDEX.with( "" ) );
+        assertEquals( Arrays.asList( "zed" ), INDEX.with( "zed" ).find( "z", 10 ) );
+    }
+
+
+    @Test
+    public void withoutRemovesName()
+    {
+        PrefixIndex index = INDEX.without( "JSMITH" );
+        assertEquals( 4, index.size() );
+        assertFalse( index.contains( "jsmith" ) );
+        assertEquals( Arrays.asList( "JDoe", "jdoe2", "Jones" ), index.find( "j", 10 ) );
+        assertTrue( INDEX.contains( "jsmith" ) );
+        assertSame( INDEX, INDEX.without( "nobody" ) );
+        assertSame( INDEX, INDEX.without( null ) );
+        assertEquals( 0, PrefixIndex.of( Arrays.asList( "a" ) ).without( "a" ).size() );
+    }
+
+
+    @Test
+    public void toPrefixesSplitsLargeGroups()
+    {
+        List<String> names = Arrays.asList( "Aa1", "ab1", "ab2", "ab3", "b1", "B2" );
+        assertEquals( new TreeSet<>( Arrays.asList( "a", "b" ) ), PrefixIndex.toPrefixes( names, 1, 4 ) );
+        assertEquals( new TreeSet<>( Arrays.asList( "aa", "ab", "b" ) ), PrefixIndex.toPrefixes( names, 1, 3 ) );
+        assertEquals( new TreeSet<>( Arrays.asList( "aa", "ab1", "ab2", "ab3", "b1", "b2" ) ),
+            PrefixIndex.toPrefixes( names, 1, 1 ) );
+    }
+
+
+    @Test
+    public void toPrefixesKeepsNamesSharedByLongerOnes()
+    {
+        List<String> names = new ArrayList<>();
+        names.add( "a" );
+        for ( int i = 0; i < 3; i++ )
+        {
+            names.add( "a" + i );
+        }
+        Set<String> prefixes = PrefixIndex.toPrefixes( names, 1, 2 );
+        assertEquals( new TreeSet<>( Arrays.asList( "a", "a0", "a1", "a2" ) ), prefixes );
+        assertEquals( "a", PrefixIndex.prefixOf( "A", prefixes ) );
+        assertEquals( "a1", PrefixIndex.prefixOf( "A1", prefixes ) );
+        // names that can't be split further stay together, however many:
+        assertEquals( new TreeSet<>( Arrays.asList( "x" ) ), PrefixIndex.toPrefixes( Arrays.asList( "x", "X", "x" ),
+            1, 1 ) );
+    }
+
+
+    @Test
+    public void prefixOfIsLongestMatch()
+    {
+        Set<String> prefixes = new TreeSet<>( Arrays.asList( "a", "ab", "abc" ) );
+        assertEquals( "abc", PrefixIndex.prefixOf( "ABCD", prefixes ) );
+        assertEquals( "ab", PrefixIndex.prefixOf( "abd", prefixes ) );
+        assertEquals( "a", PrefixIndex.prefixOf( "a", prefixes ) );
+        assertNull( PrefixIndex.prefixOf( "b", prefixes ) );
+        assertNull( PrefixIndex.prefixOf( "", prefixes ) );
+    }
+}
@@ -0,0 +1,171 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+package org.apache.directory.fortress.web.control;
+
+import org.apache.directory.fortress.core.SecurityException;
+import org.apache.directory.fortress.core.model.UserAudit;
+import org.apache.directory.fortress.web.common.GlobalIds;
+import org.junit.Test;
+
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+/**
+ * Windows of time an audit export is read by, see {@link AuditPages}, and the records kept by each.  Runs with the
+ * default window of a day.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ * @version $Rev$
+ */
+public class AuditPagesTest
+{
+    private static final long DAY = 24 * 60 * 60000L;
+    private static final long OVERLAP = 5 * 60000L;
+    private static final Date BEGIN = new Date( 1420070400000L );
+
+
+    @Test
+    public void withoutBeginDateIsOnePage() throws SecurityException
+    {
+        UserAudit userAudit = new UserAudit();
+        Pages pages = new Pages( userAudit, Arrays.asList( "a", "b" ) );
+        assertEquals( Arrays.asList( "a", "b" ), pages.next() );
+        assertNull( pages.next() );
+        assertEquals( 1, pages.searched.size() );
+        assertSame( userAudit, pages.searched.get( 0 ) );
+    }
+
+
+    @Test
+    public void splitIntoWindows() throws SecurityException
+    {
+        UserAudit userAudit = new UserAudit();
+        userAudit.setBeginDate( BEGIN );
+        Date end = new Date( BEGIN.getTime() + 2 * DAY + DAY / 2 );
+        userAudit.setEndDate( end );
+        Pages pages = new Pages( userAudit, Collections.<String>emptyList() );
+        int count = 0;
+        while ( pages.next() != null )
+        {
+            count++;
+        }
+        assertEquals( 3, count );
+        assertEquals( BEGIN, pages.searched.get( 0 ).getBeginDate() );
+        assertEquals( new Date( BEGIN.getTime() + DAY + OVERLAP ), pages.searched.get( 0 ).getEndDate() );
+        assertEquals( new Date( BEGIN.getTime() + DAY ), pages.searched.get( 1 ).getBeginDate() );
+        assertEquals( new Date( BEGIN.getTime() + 2 * DAY + OVERLAP ), pages.searched.get( 1 ).getEndDate() );
+        // the last window ends where the view does:
+        assertEquals( new Date( BEGIN.getTime() + 2 * DAY ), pages.searched.get( 2 ).getBeginDate() );
+        assertEquals( end, pages.searched.get( 2 ).getEndDate() );
+        // the criteria of the view are left as they were:
+        assertEquals( BEGIN, userAudit.getBeginDate() );
+        assertEquals( end, userAudit.getEndDate() );
+    }
+
+
+    @Test
+    public void recordsAreKeptByWindowStarted() throws SecurityException
+    {
+        UserAudit userAudit = new UserAudit();
+        userAudit.setBeginDate( BEGIN );
+        userAudit.setEndDate( new Date( BEGIN.getTime() + 2 * DAY ) );
+        String inWindow = format( BEGIN.getTime() + DAY - 1000 );
+        String inOverlap = format( BEGIN.getTime() + DAY + 1000 );
+        Pages pages = new Pages( userAudit, Arrays.asList( inWindow, inOverlap, "not a time", null ) );
+        // one that can't be placed in time is kept where it was found:
+        assertEquals( Arrays.asList( inWindow, "not a time", null ), pages.next() );
+        assertEquals( Arrays.asList( inWindow, inOverlap, "not a time", null ), pages.next() );
+        assertNull( pages.next() );
+    }
+
+
+    @Test
+    public void withoutEndDateEndsNow() throws SecurityException
+    {
+        UserAudit userAudit = new UserAudit();
+        Date begin = new Date( System.currentTimeMillis() - DAY / 2 );
+        userAudit.setBeginDate( begin );
+        Pages pages = new Pages( userAudit, null );
+        assertNull( pages.next() );
+        assertNull( pages.next() );
+        assertEquals( 1, pages.searched.size() );
+        assertEquals( begin, pages.searched.get( 0 ).getBeginDate() );
+        assertNull( pages.searched.get( 0 ).getEndDate() );
+    }
+
+
+    @Test
+    public void nullRecordsAreAnEmptyPage() throws SecurityException
+    {
+        UserAudit userAudit = new UserAudit();
+        userAudit.setBeginDate( BEGIN );
+        userAudit.setEndDate( new Date( BEGIN.getTime() + 2 * DAY ) );
+        Pages pages = new Pages( userAudit, null );
+        assertEquals( Collections.emptyList(), pages.next() );
+        assertNull( pages.next() );
+        assertNull( pages.next() );
+    }
+
+
+    private static String format( long time )
+    {
+        return new SimpleDateFormat( GlobalIds.AUDIT_TIMESTAMP_FORMAT ).format( new Date( time ) );
+    }
+
+
+    /**
+     * Returns the same records for every window, each record is its start time.
+     */
+    private static class Pages extends AuditPages<String>
+    {
+        private final List<String> records;
+        private final List<UserAudit> searched = new ArrayList<>();
+
+
+        private Pages( UserAudit userAudit, List<String> records )
+        {
+            super( userAudit );
+            this.records = records;
+        }
+
+
+        @Override
+        protected List<String> search( UserAudit userAudit )
+        {
+            searched.add( userAudit );
+            return records;
+        }
+
+
+        @Override
+        protected String getStart( String record )
+        {
+            return record;
+        }
+    }
+}
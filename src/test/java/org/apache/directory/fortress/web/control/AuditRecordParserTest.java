@@ -0,0 +1,209 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+package org.apache.directory.fortress.web.control;
+
+import org.apache.directory.fortress.core.model.AuthZ;
+import org.apache.directory.fortress.core.model.Bind;
+import org.apache.directory.fortress.core.model.Permission;
+import org.apache.directory.fortress.web.common.GlobalIds;
+import org.junit.Test;
+
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.Arrays;
+import java.util.TimeZone;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+/**
+ * UserIds, permissions and start times read by {@link AuditRecordParser} from raw audit records.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ * @version $Rev$
+ */
+public class AuditRecordParserTest
+{
+    private static final String PERM_DN = "ftObjId=006+ftOpNm=TOP1_6,ftObjNm=TOB1_4,ou=Permissions,ou=RBAC,"
+        + "dc=example,dc=com";
+
+
+    @Test
+    public void userIdIsValueOfFirstRdn()
+    {
+        AuditRecordParser parser = new AuditRecordParser();
+        assertEquals( "fttu3user4", parser.getUserId( "uid=fttu3user4,ou=people,dc=example,dc=com" ) );
+        assertEquals( "jsmith", parser.getUserId( "uid=jsmith" ) );
+        assertEquals( "a=b", parser.getUserId( "uid=a=b,ou=people" ) );
+        // an escaped comma is part of the value:
+        assertEquals( "smith\\, john", parser.getUserId( "cn=smith\\, john,ou=people" ) );
+    }
+
+
+    @Test
+    public void userIdOfEmptyDn()
+    {
+        AuditRecordParser parser = new AuditRecordParser();
+        assertNull( parser.getUserId( null ) );
+        assertNull( parser.getUserId( "" ) );
+        assertNull( parser.getUserId( "jsmith" ) );
+        assertNull( parser.getUserId( "=jsmith,ou=people" ) );
+        assertEquals( "", parser.getUserId( "uid=,ou=people" ) );
+    }
+
+
+    @Test
+    public void permissionOfDn()
+    {
+        Permission permission = new AuditRecordParser().getPermission( PERM_DN );
+        assertEquals( "006", permission.getObjId() );
+        assertEquals( "TOP1_6", permission.getOpName() );
+        assertEquals( "TOB1_4", permission.getObjName() );
+    }
+
+
+    @Test
+    public void permissionTypesIgnoreCase()
+    {
+        Permission permission = new AuditRecordParser().getPermission( "FTOPNM=read,ftobjnm=Doc\\,s,dc=example" );
+        assertNull( permission.getObjId() );
+        assertEquals( "read", permission.getOpName() );
+        assertEquals( "Doc\\,s", permission.getObjName() );
+    }
+
+
+    @Test
+    public void permissionOfOtherDn()
+    {
+        AuditRecordParser parser = new AuditRecordParser();
+        Permission permission = parser.getPermission( "uid=jsmith,ou=people,dc=example,dc=com" );
+        assertNull( permission.getObjId() );
+        assertNull( permission.getObjName() );
+        assertNull( permission.getOpName() );
+        // nothing is left over from the dn parsed before:
+        parser.getPermission( PERM_DN );
+        assertNull( parser.getPermission( "ou=Permissions" ).getObjName() );
+        assertNull( parser.getPermission( null ).getObjName() );
+    }
+
+
+    @Test
+    public void valuesAreInterned()
+    {
+        AuditRecordParser parser = new AuditRecordParser();
+        String userId = parser.getUserId( "uid=jsmith,ou=people" );
+        assertSame( userId, parser.getUserId( new String( "uid=jsmith,ou=people,dc=example" ) ) );
+        Permission p1 = parser.getPermission( PERM_DN );
+        Permission p2 = parser.getPermission( new String( PERM_DN ) );
+        assertSame( p1.getObjName(), p2.getObjName() );
+        assertSame( p1.getOpName(), p2.getOpName() );
+    }
+
+
+    @Test
+    public void valuesIgnoreCase()
+    {
+        AuditRecordParser parser = new AuditRecordParser();
+        String userId = parser.getUserId( "uid=JSmith,ou=people" );
+        // kept as first seen:
+        assertSame( userId, parser.getUserId( "uid=jsmith,ou=people" ) );
+        assertSame( userId, parser.getUserId( "uid=JSMITH,ou=people" ) );
+        assertEquals( "JSmith", userId );
+        assertEquals( "jdoe", parser.getUserId( "uid=jdoe,ou=people" ) );
+        Permission permission = parser.getPermission( "ftOpNm=Read,ftObjNm=Docs,dc=example" );
+        assertSame( permission.getOpName(), parser.getPermission( "ftOpNm=READ,ftObjNm=docs,dc=example" )
+            .getOpName() );
+        assertEquals( "Docs", parser.getPermission( "ftOpNm=read,ftObjNm=DOCS,dc=example" ).getObjName() );
+    }
+
+
+    @Test
+    public void manyDistinctValues()
+    {
+        AuditRecordParser parser = new AuditRecordParser();
+        // more than are kept, so the values start over along the way:
+        for ( int i = 0; i < 100000; i++ )
+        {
+            assertEquals( "user" + i, parser.getUserId( "uid=user" + i + ",ou=people" ) );
+        }
+        assertEquals( "user7", parser.getUserId( "uid=user7,ou=people" ) );
+    }
+
+
+    @Test
+    public void formatStart() throws ParseException
+    {
+        AuditRecordParser parser = new AuditRecordParser();
+        String start = parser.formatStart( "20150102030405Z" );
+        assertEquals( format( "20150102030405Z" ), start );
+        assertSame( start, parser.formatStart( new String( "20150102030405Z" ) ) );
+        assertEquals( format( "20150102030406Z" ), parser.formatStart( "20150102030406Z" ) );
+        assertEquals( "not a time", parser.formatStart( "not a time" ) );
+        assertNull( parser.formatStart( null ) );
+    }
+
+
+    @Test
+    public void mapAuthZ()
+    {
+        AuthZ success = new AuthZ();
+        success.setReqAuthzID( "uid=jsmith,ou=people,dc=example,dc=com" );
+        success.setReqDN( PERM_DN );
+        AuthZ failure = new AuthZ();
+        failure.setReqAuthzID( "uid=jdoe,ou=people,dc=example,dc=com" );
+        failure.setReqDN( PERM_DN );
+        failure.setReqAssertion( org.apache.directory.fortress.core.GlobalIds.AUTH_Z_FAILED_VALUE );
+        AuditRecordParser.mapAuthZs( Arrays.asList( success, failure ) );
+        assertEquals( "jsmith", success.getReqAuthzID() );
+        assertEquals( "006", success.getReqDerefAliases() );
+        assertEquals( "TOB1_4", success.getReqAttr() );
+        assertEquals( "TOP1_6", success.getReqAttrsOnly() );
+        assertEquals( GlobalIds.SUCCESS, success.getReqResult() );
+        assertEquals( "jdoe", failure.getReqAuthzID() );
+        assertEquals( GlobalIds.FAILURE, failure.getReqResult() );
+    }
+
+
+    @Test
+    public void mapBind()
+    {
+        Bind success = new Bind();
+        success.setReqDN( "uid=jsmith,ou=people,dc=example,dc=com" );
+        success.setReqResult( GlobalIds.BIND_SUCCESS_CODE );
+        Bind failure = new Bind();
+        failure.setReqDN( "uid=jdoe,ou=people,dc=example,dc=com" );
+        failure.setReqResult( "49" );
+        AuditRecordParser.mapBinds( Arrays.asList( success, failure ) );
+        assertEquals( "jsmith", success.getReqDN() );
+        assertEquals( GlobalIds.SUCCESS, success.getReqResult() );
+        assertEquals( "jdoe", failure.getReqDN() );
+        assertEquals( GlobalIds.FAILURE, failure.getReqResult() );
+        AuditRecordParser.mapBinds( null );
+    }
+
+
+    private static String format( String generalizedTime ) throws ParseException
+    {
+        SimpleDateFormat parser = new SimpleDateFormat( "yyyyMMddHHmmss'Z'" );
+        parser.setTimeZone( TimeZone.getTimeZone( "UTC" ) );
+        return new SimpleDateFormat( GlobalIds.AUDIT_TIMESTAMP_FORMAT ).format( parser.parse( generalizedTime ) );
+    }
+}
@@ -0,0 +1,157 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+package org.apache.directory.fortress.web.control;
+
+import org.apache.directory.fortress.core.AuditMgr;
+import org.apache.directory.fortress.core.model.AuthZ;
+import org.apache.directory.fortress.core.model.Bind;
+import org.apache.directory.fortress.core.model.UserAudit;
+import org.apache.directory.fortress.web.common.GlobalIds;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.TimeZone;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Counts of the current hour by {@link AuditStats}, successes told apart from failures.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ * @version $Rev$
+ */
+public class AuditStatsTest
+{
+    private static final String DOC_READ = "ftOpNm=read,ftObjNm=Doc,ou=Permissions,dc=example,dc=com";
+    private static final String DOC_WRITE = "ftOpNm=write,ftObjNm=Doc,ou=Permissions,dc=example,dc=com";
+    private AuditMgr auditMgr;
+
+
+    @Before
+    public void setUp()
+    {
+        auditMgr = ( AuditMgr ) Proxy.newProxyInstance( AuditMgr.class.getClassLoader(), new Class<?>[]
+            { AuditMgr.class }, new InvocationHandler()
+            {
+                @Override
+                public Object invoke( Object proxy, Method method, Object[] args )
+                {
+                    // records start in the hour searched:
+                    String start = format( ( ( UserAudit ) args[0] ).getBeginDate() );
+                    switch ( method.getName() )
+                    {
+                        case "getUserAuthZs":
+                            return Arrays.asList( newAuthZ( "jsmith", DOC_READ, null, start ), newAuthZ( "jdoe",
+                                DOC_READ, failed(), start ), newAuthZ( "JDoe", DOC_WRITE, failed(), start ),
+                                newAuthZ( "jdoe", DOC_WRITE, null, start ) );
+                        case "searchBinds":
+                            return Arrays.asList( newBind( "jsmith", GlobalIds.BIND_SUCCESS_CODE, start ), newBind(
+                                "jdoe", "49", start ) );
+                        default:
+                            throw new UnsupportedOperationException( method.getName() );
+                    }
+                }
+            } );
+    }
+
+
+    @Test
+    public void authZFailuresAreCounted()
+    {
+        AuditStats stats = AuditStats.get( auditMgr, 1 );
+        assertEquals( 4, stats.getAuthZs().getTotal() );
+        assertEquals( 2, stats.getAuthZs().getFailed() );
+        assertEquals( 50.0, stats.getAuthZs().getFailedPercent(), 0.001 );
+        List<AuditStats.Count> users = stats.getTopAuthZUsers( 10 );
+        assertEquals( Arrays.asList( "jdoe", "jsmith" ), names( users ) );
+        assertEquals( 3, users.get( 0 ).getTotal() );
+        assertEquals( 2, users.get( 0 ).getFailed() );
+        assertEquals( 0, users.get( 1 ).getFailed() );
+        List<AuditStats.Count> permissions = stats.getTopPermissions( 1 );
+        assertEquals( Arrays.asList( "Doc.read" ), names( permissions ) );
+        assertEquals( 1, permissions.get( 0 ).getFailed() );
+    }
+
+
+    @Test
+    public void bindFailuresAreCounted()
+    {
+        AuditStats stats = AuditStats.get( auditMgr, 1 );
+        assertEquals( 2, stats.getBinds().getTotal() );
+        assertEquals( 1, stats.getBinds().getFailed() );
+        assertEquals( Arrays.asList( "jdoe", "jsmith" ), names( stats.getTopBindUsers( 10 ) ) );
+        assertEquals( 1, stats.getHours().size() );
+        assertEquals( 1, stats.getHours().get( 0 ).getBinds().getFailed() );
+    }
+
+
+    private static String failed()
+    {
+        return org.apache.directory.fortress.core.GlobalIds.AUTH_Z_FAILED_VALUE;
+    }
+
+
+    private static AuthZ newAuthZ( String userId, String dn, String assertion, String start )
+    {
+        AuthZ authZ = new AuthZ();
+        authZ.setReqAuthzID( "uid=" + userId + ",ou=people,dc=example,dc=com" );
+        authZ.setReqDN( dn );
+        authZ.setReqAssertion( assertion );
+        authZ.setReqStart( start );
+        return authZ;
+    }
+
+
+    private static Bind newBind( String userId, String result, String start )
+    {
+        Bind bind = new Bind();
+        bind.setReqDN( "uid=" + userId + ",ou=people,dc=example,dc=com" );
+        bind.setReqResult( result );
+        bind.setReqStart( start );
+        return bind;
+    }
+
+
+    private static String format( Date date )
+    {
+        SimpleDateFormat formatter = new SimpleDateFormat( "yyyyMMddHHmmss'Z'" );
+        formatter.setTimeZone( TimeZone.getTimeZone( "UTC" ) );
+        return formatter.format( date );
+    }
+
+
+    private static List<String> names( List<AuditStats.Count> counts )
+    {
+        List<String> names = new ArrayList<>();
+        for ( AuditStats.Count count : counts )
+        {
+            names.add( count.getName() );
+        }
+        return names;
+    }
+}
@@ -0,0 +1,141 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+package org.apache.directory.fortress.web.control;
+
+import org.apache.directory.fortress.core.model.UserAudit;
+import org.apache.directory.fortress.web.common.GlobalIds;
+import org.junit.Test;
+
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Records appended by the live tail of an audit view, see {@link AuditTail}, and the watermark each poll searches
+ * from.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ * @version $Rev$
+ */
+public class AuditTailTest
+{
+    private static final long BEGIN = 1420070400000L;
+    private static final String FIRST = format( BEGIN );
+    private static final String SECOND = format( BEGIN + 1000 );
+
+
+    @Test
+    public void recordsShownAreSkipped()
+    {
+        Tail tail = new Tail();
+        tail.start( new UserAudit(), Arrays.asList( FIRST + "|a", FIRST + "|b" ) );
+        tail.records = Arrays.asList( FIRST + "|a", FIRST + "|b", FIRST + "|c", SECOND + "|a" );
+        assertEquals( Arrays.asList( FIRST + "|c", SECOND + "|a" ), tail.poll( new UserAudit() ) );
+        assertEquals( new Date( BEGIN ), tail.searched.get( 0 ).getBeginDate() );
+        assertNull( tail.searched.get( 0 ).getEndDate() );
+        // the next poll reads the second of the new watermark again:
+        tail.records = Arrays.asList( SECOND + "|a", SECOND + "|b" );
+        assertEquals( Arrays.asList( SECOND + "|b" ), tail.poll( new UserAudit() ) );
+        assertEquals( new Date( BEGIN + 1000 ), tail.searched.get( 1 ).getBeginDate() );
+    }
+
+
+    @Test
+    public void failedSearchKeepsWatermark()
+    {
+        Tail tail = new Tail();
+        tail.start( new UserAudit(), Arrays.asList( FIRST + "|a" ) );
+        tail.records = null;
+        assertTrue( tail.poll( new UserAudit() ).isEmpty() );
+        tail.records = Collections.emptyList();
+        assertTrue( tail.poll( new UserAudit() ).isEmpty() );
+        // the records written meanwhile are read by the next poll that succeeds:
+        tail.records = Arrays.asList( FIRST + "|a", SECOND + "|b" );
+        assertEquals( Arrays.asList( SECOND + "|b" ), tail.poll( new UserAudit() ) );
+        for ( int i = 0; i < 3; i++ )
+        {
+            assertEquals( new Date( BEGIN ), tail.searched.get( i ).getBeginDate() );
+        }
+    }
+
+
+    @Test
+    public void viewWithEndDateIsTailedFromNow()
+    {
+        Tail tail = new Tail();
+        UserAudit userAudit = new UserAudit();
+        userAudit.setBeginDate( new Date( BEGIN ) );
+        userAudit.setEndDate( new Date( BEGIN + 1000 ) );
+        long now = System.currentTimeMillis() / 1000 * 1000;
+        tail.start( userAudit, Arrays.asList( FIRST + "|a" ) );
+        tail.records = Collections.emptyList();
+        tail.poll( userAudit );
+        assertFalse( tail.searched.get( 0 ).getBeginDate().before( new Date( now ) ) );
+        assertNull( tail.searched.get( 0 ).getEndDate() );
+        // the criteria of the view are left as they were:
+        assertEquals( new Date( BEGIN + 1000 ), userAudit.getEndDate() );
+    }
+
+
+    private static String format( long time )
+    {
+        return new SimpleDateFormat( GlobalIds.AUDIT_TIMESTAMP_FORMAT ).format( new Date( time ) );
+    }
+
+
+    /**
+     * Returns the records set by the test, each record is its start time and key.
+     */
+    private static class Tail extends AuditTail<String>
+    {
+        private List<String> records;
+        private final List<UserAudit> searched = new ArrayList<>();
+
+
+        @Override
+        protected List<String> search( UserAudit userAudit )
+        {
+            searched.add( userAudit );
+            return records;
+        }
+
+
+        @Override
+        protected String getStart( String record )
+        {
+            return record.substring( 0, record.indexOf( '|' ) );
+        }
+
+
+        @Override
+        protected String getKey( String record )
+        {
+            return record.substring( record.indexOf( '|' ) + 1 );
+        }
+    }
+}
@@ -0,0 +1,224 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+package org.apache.directory.fortress.web.control;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+/**
+ * Rows written by {@link ExportResource}, CSV and JSON escaping, and the rows read from {@link ExportResource.Pages}.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ * @version $Rev$
+ */
+public class ExportResourceTest
+{
+    @Test
+    public void csvHeaderAndRows() throws IOException
+    {
+        StringWriter writer = new StringWriter();
+        long count = newExport( ExportResource.Format.CSV ).write( Arrays.asList( new Row( "jsmith", "dev", "a",
+            "b" ), new Row( "jdoe", null ) ).iterator(), writer );
+        assertEquals( 2, count );
+        assertEquals( "name,description,roles\r\njsmith,dev,a;b\r\njdoe,,\r\n", writer.toString() );
+    }
+
+
+    @Test
+    public void csvQuotesSpecialCharacters() throws IOException
+    {
+        StringWriter writer = new StringWriter();
+        newExport( ExportResource.Format.CSV ).write( Arrays.asList( new Row( "Smith, John", "says \"hi\"" ),
+            new Row( "two\r\nlines", "one\nline" ) ).iterator(), writer );
+        assertEquals( "name,description,roles\r\n\"Smith, John\",\"says \"\"hi\"\"\",\r\n"
+            + "\"two\r\nlines\",\"one\nline\",\r\n", writer.toString() );
+    }
+
+
+    @Test
+    public void csvNeutralizesFormulas() throws IOException
+    {
+        StringWriter writer = new StringWriter();
+        newExport( ExportResource.Format.CSV ).write( Arrays.asList( new Row( "=HYPERLINK(\"x\")", "+1", "-1",
+            "@SUM(A1)" ), new Row( "a=b", "\tx", "" ) ).iterator(), writer );
+        assertEquals( "name,description,roles\r\n\"'=HYPERLINK(\"\"x\"\")\",'+1,'-1;@SUM(A1)\r\n"
+            + "a=b,'\tx,\r\n", writer.toString() );
+    }
+
+
+    @Test
+    public void csvNullRowsWritesHeaderOnly() throws IOException
+    {
+        StringWriter writer = new StringWriter();
+        assertEquals( 0, newExport( ExportResource.Format.CSV ).write( null, writer ) );
+        assertEquals( "name,description,roles\r\n", writer.toString() );
+    }
+
+
+    @Test
+    public void jsonRows() throws IOException
+    {
+        StringWriter writer = new StringWriter();
+        long count = newExport( ExportResource.Format.JSON ).write( Arrays.asList( new Row( "jsmith", "dev", "a",
+            "b" ), new Row( "jdoe", null ) ).iterator(), writer );
+        assertEquals( 2, count );
+        assertEquals( "[{\"name\":\"jsmith\",\"description\":\"dev\",\"roles\":\"a;b\"},"
+            + "{\"name\":\"jdoe\",\"description\":null,\"roles\":\"\"}]\n", writer.toString() );
+    }
+
+
+    @Test
+    public void jsonEscapesSpecialCharacters() throws IOException
+    {
+        StringWriter writer = new StringWriter();
+        newExport( ExportResource.Format.JSON ).write( Collections.singletonList( new Row( "a\"b\\c",
+            "1\n2\r3\t4\u00015" ) ).iterator(), writer );
+        assertEquals( "[{\"name\":\"a\\\"b\\\\c\",\"description\":\"1\\n2\\r3\\t4\\u00015\",\"roles\":\"\"}]\n",
+            writer.toString() );
+    }
+
+
+    @Test
+    public void jsonNullRowsWritesEmptyArray() throws IOException
+    {
+        StringWriter writer = new StringWriter();
+        assertEquals( 0, newExport( ExportResource.Format.JSON ).write( null, writer ) );
+        assertEquals( "[]\n", writer.toString() );
+    }
+
+
+    @Test
+    public void pagesOfOneList()
+    {
+        assertEquals( Arrays.asList( "a", "b" ), toList( ExportResource.Pages.of( Arrays.asList( "a", "b" ) ) ) );
+        assertEquals( Collections.emptyList(), toList( ExportResource.Pages.<String>of( null ) ) );
+    }
+
+
+    @Test
+    public void pagesSkipEmptyPagesAndEndOnNull()
+    {
+        final Iterator<List<String>> pages = Arrays.asList( Arrays.asList( "a" ), Collections.<String>emptyList(),
+            Arrays.asList( "b", "c" ), Collections.<String>emptyList(), null, Arrays.asList( "d" ) ).iterator();
+        ExportResource.Pages<String> rows = new ExportResource.Pages<String>()
+        {
+            @Override
+            protected List<String> next()
+            {
+                return pages.next();
+            }
+        };
+        Iterator<String> iterator = rows.iterator();
+        assertEquals( Arrays.asList( "a", "b", "c" ), toList( iterator ) );
+        // the page after the null one is never read:
+        assertFalse( iterator.hasNext() );
+        assertEquals( Arrays.asList( "d" ), pages.next() );
+    }
+
+
+    @Test(expected = NoSuchElementException.class)
+    public void nextPastLastPage()
+    {
+        Iterator<String> iterator = ExportResource.Pages.of( Arrays.asList( "a" ) ).iterator();
+        iterator.next();
+        iterator.next();
+    }
+
+
+    private static ExportResource<Row> newExport( ExportResource.Format format )
+    {
+        return new ExportResource<Row>( "rows", format, "name", "description", "roles" )
+        {
+            /** Default serialVersionUID */
+            private static final long serialVersionUID = 1L;
+
+
+            @Override
+            protected Iterable<? extends Row> load()
+            {
+                return null;
+            }
+        };
+    }
+
+
+    private static List<String> toList( Iterable<String> rows )
+    {
+        return toList( rows.iterator() );
+    }
+
+
+    private static List<String> toList( Iterator<String> iterator )
+    {
+        List<String> list = new ArrayList<>();
+        while ( iterator.hasNext() )
+        {
+            list.add( iterator.next() );
+        }
+        return list;
+    }
+
+
+    public static class Row
+    {
+        private final String name;
+        private final String description;
+        private final Set<String> roles = new LinkedHashSet<>();
+
+
+        Row( String name, String description, String... roles )
+        {
+            this.name = name;
+            this.description = description;
+            this.roles.addAll( Arrays.asList( roles ) );
+        }
+
+
+        public String getName()
+        {
+            return name;
+        }
+
+
+        public String getDescription()
+        {
+            return description;
+        }
+
+
+        public Set<String> getRoles()
+        {
+            return roles;
+        }
+    }
+}
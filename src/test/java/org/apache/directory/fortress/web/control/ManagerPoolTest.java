@@ -0,0 +1,243 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+package org.apache.directory.fortress.web.control;
+
+import org.apache.directory.fortress.core.Manageable;
+import org.apache.directory.fortress.core.SecurityException;
+import org.apache.directory.fortress.core.model.Session;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.beans.factory.BeanFactory;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Managers borrowed through the handles of {@link ManagerPool}: reuse, the admin and tenant set per call, and
+ * managers kept apart while in use.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ * @version $Rev$
+ */
+public class ManagerPoolTest
+{
+    private static final String BEAN_NAME = "testManager";
+    private ManagerPool managerPool;
+    private int created;
+
+
+    public interface TestManager extends Manageable
+    {
+        int getId();
+
+
+        Session getAdmin();
+
+
+        String getContextId();
+
+
+        int getIdOf( TestManager other );
+
+
+        void fail() throws SecurityException;
+    }
+
+
+    @Before
+    public void setUp()
+    {
+        managerPool = new ManagerPool();
+        managerPool.setBeanFactory( ( BeanFactory ) Proxy.newProxyInstance( BeanFactory.class.getClassLoader(),
+            new Class<?>[]
+            { BeanFactory.class }, new InvocationHandler()
+            {
+                @Override
+                public Object invoke( Object proxy, Method method, Object[] args )
+                {
+                    if ( !method.getName().equals( "getBean" ) || !BEAN_NAME.equals( args[0] ) )
+                    {
+                        throw new UnsupportedOperationException( method.getName() );
+                    }
+                    return new Manager( ++created );
+                }
+            } ) );
+    }
+
+
+    @Test
+    public void managerIsReused()
+    {
+        TestManager handle = managerPool.create( TestManager.class, BEAN_NAME );
+        assertEquals( 1, handle.getId() );
+        assertEquals( 1, handle.getId() );
+        assertEquals( 1, managerPool.create( TestManager.class, BEAN_NAME ).getId() );
+        assertEquals( 1, created );
+        assertEquals( 1, managerPool.getIdle() );
+    }
+
+
+    @Test
+    public void adminIsSetPerCall()
+    {
+        Session admin = new Session();
+        TestManager handle1 = managerPool.create( TestManager.class, BEAN_NAME );
+        TestManager handle2 = managerPool.create( TestManager.class, BEAN_NAME );
+        handle1.setAdmin( admin );
+        assertSame( admin, handle1.getAdmin() );
+        // the same manager, its admin cleared when returned:
+        assertNull( handle2.getAdmin() );
+        assertSame( admin, handle1.getAdmin() );
+        assertEquals( 1, created );
+    }
+
+
+    @Test
+    public void managerInUseIsNotShared()
+    {
+        TestManager handle = managerPool.create( TestManager.class, BEAN_NAME );
+        assertEquals( 2, handle.getIdOf( handle ) );
+        assertEquals( 2, created );
+        assertEquals( 2, managerPool.getIdle() );
+    }
+
+
+    @Test
+    public void tenantsArePooledApart()
+    {
+        TestManager acme = managerPool.create( TestManager.class, BEAN_NAME );
+        acme.setContextId( "acme" );
+        TestManager home = managerPool.create( TestManager.class, BEAN_NAME );
+        assertEquals( "acme", acme.getContextId() );
+        // a manager of the default tenant keeps the contextId of the prototype bean:
+        assertNull( home.getContextId() );
+        assertNotEquals( acme.getId(), home.getId() );
+        assertEquals( 2, created );
+        Map<String, Integer> expected = new HashMap<>();
+        expected.put( "acme", 1 );
+        expected.put( TenantContext.getDefault(), 1 );
+        assertEquals( expected, new HashMap<>( managerPool.getIdleByTenant() ) );
+    }
+
+
+    @Test
+    public void exceptionIsThrownAsIs()
+    {
+        TestManager handle = managerPool.create( TestManager.class, BEAN_NAME );
+        try
+        {
+            handle.fail();
+            fail( "expected SecurityException" );
+        }
+        catch ( SecurityException se )
+        {
+            assertEquals( "failed", se.getMessage() );
+        }
+        // returned to the pool all the same:
+        assertEquals( 1, managerPool.getIdle() );
+        assertEquals( 1, handle.getId() );
+    }
+
+
+    @Test
+    public void objectMethodsAreAnsweredByHandle()
+    {
+        TestManager handle = managerPool.create( TestManager.class, BEAN_NAME );
+        assertTrue( handle.equals( handle ) );
+        assertFalse( handle.equals( managerPool.create( TestManager.class, BEAN_NAME ) ) );
+        assertEquals( System.identityHashCode( handle ), handle.hashCode() );
+        assertTrue( handle.toString().contains( BEAN_NAME ) );
+        assertEquals( 0, created );
+    }
+
+
+    private static class Manager implements TestManager
+    {
+        private final int id;
+        private Session admin;
+        private String contextId;
+
+
+        private Manager( int id )
+        {
+            this.id = id;
+        }
+
+
+        @Override
+        public void setAdmin( Session admin )
+        {
+            this.admin = admin;
+        }
+
+
+        @Override
+        public void setContextId( String contextId )
+        {
+            this.contextId = contextId;
+        }
+
+
+        @Override
+        public int getId()
+        {
+            return id;
+        }
+
+
+        @Override
+        public Session getAdmin()
+        {
+            return admin;
+        }
+
+
+        @Override
+        public String getContextId()
+        {
+            return contextId;
+        }
+
+
+        @Override
+        public int getIdOf( TestManager other )
+        {
+            return other.getId();
+        }
+
+
+        @Override
+        public void fail() throws SecurityException
+        {
+            throw new SecurityException( 0, "failed" );
+        }
+    }
+}
@@ -0,0 +1,157 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+package org.apache.directory.fortress.web.control;
+
+import org.apache.directory.fortress.core.model.Permission;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Lookups of {@link PermissionIndex}, which must match the way {@link Permission#equals(Object)} compares
+ * permissions, and its serialized form.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ * @version $Rev$
+ */
+public class PermissionIndexTest
+{
+    private static final String USER_MGR = "org.apache.directory.fortress.core.impl.UserMgrImpl";
+
+
+    @Test
+    public void containsIgnoresCase()
+    {
+        PermissionIndex index = PermissionIndex.of( Arrays.asList( new Permission( USER_MGR, "addUser" ) ) );
+        assertTrue( index.contains( new Permission( USER_MGR.toUpperCase(), "ADDUSER" ) ) );
+        assertTrue( index.contains( new Permission( USER_MGR, "addUser" ) ) );
+    }
+
+
+    @Test
+    public void containsMatchesEveryKeyField()
+    {
+        PermissionIndex index = PermissionIndex.of( Arrays.asList( new Permission( "account", "read", "123" ),
+            new Permission( "account", "write" ) ) );
+        assertTrue( index.contains( new Permission( "account", "read", "123" ) ) );
+        // objId is part of the key, missing is not the same as any value:
+        assertFalse( index.contains( new Permission( "account", "read" ) ) );
+        assertFalse( index.contains( new Permission( "account", "read", "456" ) ) );
+        assertTrue( index.contains( new Permission( "account", "write" ) ) );
+        assertFalse( index.contains( new Permission( "account", "write", "123" ) ) );
+        assertFalse( index.contains( new Permission( "account", "delete" ) ) );
+        assertFalse( index.contains( new Permission( "ledger", "read", "123" ) ) );
+    }
+
+
+    @Test
+    public void fieldsDoNotRunTogether()
+    {
+        // same characters split differently between objName and opName:
+        PermissionIndex index = PermissionIndex.of( Arrays.asList( new Permission( "ab", "c" ) ) );
+        assertFalse( index.contains( new Permission( "a", "bc" ) ) );
+    }
+
+
+    @Test
+    public void containsNull()
+    {
+        PermissionIndex index = PermissionIndex.of( Arrays.asList( new Permission( "account", "read" ) ) );
+        assertFalse( index.contains( null ) );
+    }
+
+
+    @Test
+    public void emptyIndex()
+    {
+        PermissionIndex empty = PermissionIndex.of( null );
+        assertTrue( empty.isEmpty() );
+        assertEquals( 0, empty.size() );
+        assertFalse( empty.contains( new Permission( "account", "read" ) ) );
+        assertTrue( empty.toList().isEmpty() );
+        assertSame( empty, PermissionIndex.of( new ArrayList<Permission>() ) );
+    }
+
+
+    @Test
+    public void toListKeepsOrderAndKeyFields()
+    {
+        List<Permission> permissions = new ArrayList<>();
+        for ( int i = 0; i < 10; i++ )
+        {
+            Permission permission = new Permission( "obj" + i, "op" + i, i % 2 == 0 ? "id" + i : null );
+            permission.setDescription( "not indexed" );
+            permissions.add( permission );
+        }
+        PermissionIndex index = PermissionIndex.of( permissions );
+        assertEquals( 10, index.size() );
+        List<Permission> list = index.toList();
+        assertEquals( 10, list.size() );
+        for ( int i = 0; i < 10; i++ )
+        {
+            assertEquals( "obj" + i, list.get( i ).getObjName() );
+            assertEquals( "op" + i, list.get( i ).getOpName() );
+            assertEquals( i % 2 == 0 ? "id" + i : null, list.get( i ).getObjId() );
+            assertNull( list.get( i ).getDescription() );
+        }
+    }
+
+
+    @Test( expected = UnsupportedOperationException.class )
+    public void toListIsUnmodifiable()
+    {
+        PermissionIndex.of( Arrays.asList( new Permission( "account", "read" ) ) ).toList().clear();
+    }
+
+
+    @Test
+    public void serializedIndexFindsTheSamePermissions() throws IOException, ClassNotFoundException
+    {
+        PermissionIndex index = PermissionIndex.of( Arrays.asList( new Permission( "account", "read", "123" ),
+            new Permission( USER_MGR, "addUser" ) ) );
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try ( ObjectOutputStream out = new ObjectOutputStream( bytes ) )
+        {
+            out.writeObject( index );
+        }
+        PermissionIndex read;
+        try ( ObjectInputStream in = new ObjectInputStream( new ByteArrayInputStream( bytes.toByteArray() ) ) )
+        {
+            read = ( PermissionIndex ) in.readObject();
+        }
+        assertEquals( 2, read.size() );
+        assertTrue( read.contains( new Permission( "ACCOUNT", "read", "123" ) ) );
+        assertTrue( read.contains( new Permission( USER_MGR, "addUser" ) ) );
+        assertFalse( read.contains( new Permission( "account", "read" ) ) );
+    }
+}
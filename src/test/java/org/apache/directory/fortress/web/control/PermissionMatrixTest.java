@@ -0,0 +1,336 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+package org.apache.directory.fortress.web.control;
+
+import org.apache.directory.fortress.core.ReviewMgr;
+import org.apache.directory.fortress.core.SecurityException;
+import org.apache.directory.fortress.core.model.PermObj;
+import org.apache.directory.fortress.core.model.Permission;
+import org.apache.directory.fortress.core.model.Role;
+import org.apache.directory.fortress.core.model.User;
+import org.apache.directory.fortress.core.model.UserRole;
+import org.apache.directory.fortress.web.event.SaveModelEvent;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Effective permissions of users and roles computed by {@link PermissionMatrix}, through the role hierarchy, and
+ * the updates applied on save.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ * @version $Rev$
+ */
+public class PermissionMatrixTest
+{
+    private final List<Role> roles = new ArrayList<>();
+    private final List<Permission> permissions = new ArrayList<>();
+    private final List<User> users = new ArrayList<>();
+    private int loads;
+    private ReviewMgr reviewMgr;
+
+
+    @Before
+    public void setUp()
+    {
+        RoleGraph.clear();
+        PermissionMatrix.clear();
+        reviewMgr = ( ReviewMgr ) Proxy.newProxyInstance( ReviewMgr.class.getClassLoader(), new Class<?>[]
+            { ReviewMgr.class }, new InvocationHandler()
+            {
+                @Override
+                public Object invoke( Object proxy, Method method, Object[] args )
+                {
+                    switch ( method.getName() )
+                    {
+                        case "findRoles":
+                            return new ArrayList<>( roles );
+                        case "findPermissions":
+                            loads++;
+                            return new ArrayList<>( permissions );
+                        case "findUsers":
+                            return findUsers( ( ( User ) args[0] ).getUserId(), args.length > 1 );
+                        default:
+                            throw new UnsupportedOperationException( method.getName() );
+                    }
+                }
+            } );
+        roles.add( newRole( "root" ) );
+        roles.add( newRole( "child", "root" ) );
+        roles.add( newRole( "other" ) );
+        permissions.add( newPermission( "Doc", "read", "root" ) );
+        permissions.add( newPermission( "Doc", "write", "Child" ) );
+        permissions.add( newPermission( "App", "run", "other", "child" ) );
+        permissions.add( newPermission( "App", "stop" ) );
+        users.add( newUser( "jsmith", "Child" ) );
+        users.add( newUser( "JDoe", "root" ) );
+        users.add( newUser( "jones", "root", "other" ) );
+        users.add( newUser( "admin" ) );
+    }
+
+
+    @After
+    public void tearDown()
+    {
+        RoleGraph.clear();
+        PermissionMatrix.clear();
+    }
+
+
+    @Test
+    public void columnsAreSortedAndFiltered() throws SecurityException
+    {
+        PermissionMatrix matrix = PermissionMatrix.get( reviewMgr, null );
+        List<String> names = new ArrayList<>();
+        for ( int column : matrix.getColumns( "" ) )
+        {
+            names.add( matrix.getPermission( column ).getObjName() + "." + matrix.getPermission( column )
+                .getOpName() );
+        }
+        assertEquals( Arrays.asList( "App.run", "App.stop", "Doc.read", "Doc.write" ), names );
+        assertEquals( 2, matrix.getColumns( "do" ).size() );
+        assertTrue( matrix.getColumns( "x" ).isEmpty() );
+        assertNull( matrix.getPermission( -1 ) );
+        assertNull( matrix.getPermission( 4 ) );
+    }
+
+
+    @Test
+    public void usersAndTheirRoles() throws SecurityException
+    {
+        PermissionMatrix matrix = PermissionMatrix.get( reviewMgr, null );
+        assertEquals( 4, matrix.getUserCount() );
+        assertFalse( matrix.isTruncated() );
+        assertEquals( Arrays.asList( "admin", "JDoe", "jones", "jsmith" ), matrix.getUserIds( null ) );
+        assertEquals( Arrays.asList( "JDoe", "jones", "jsmith" ), matrix.getUserIds( "J" ) );
+        assertEquals( Arrays.asList( "jones" ), matrix.getUserIds( "JO" ) );
+        assertEquals( Arrays.asList( "child" ), matrix.getUserRoles( "JSMITH" ) );
+        assertEquals( Arrays.asList( "other", "root" ), matrix.getUserRoles( "jones" ) );
+        assertTrue( matrix.getUserRoles( "admin" ).isEmpty() );
+        assertTrue( matrix.getUserRoles( "nobody" ).isEmpty() );
+    }
+
+
+    @Test
+    public void permissionsAreInherited() throws SecurityException
+    {
+        PermissionMatrix matrix = PermissionMatrix.get( reviewMgr, null );
+        assertEquals( bits( matrix, "Doc.read" ), matrix.getRolePermissions( "root" ) );
+        assertEquals( bits( matrix, "App.run", "Doc.read", "Doc.write" ), matrix.getRolePermissions( "CHILD" ) );
+        assertEquals( bits( matrix, "App.run", "Doc.read", "Doc.write" ), matrix.getUserPermissions( "jsmith" ) );
+        assertEquals( bits( matrix, "App.run", "Doc.read" ), matrix.getUserPermissions( "jones" ) );
+        assertTrue( matrix.getUserPermissions( "admin" ).isEmpty() );
+        assertTrue( matrix.getUserPermissions( "nobody" ).isEmpty() );
+        assertTrue( matrix.getRolePermissions( "nobody" ).isEmpty() );
+    }
+
+
+    @Test
+    public void permissionsReturnedAreCopies() throws SecurityException
+    {
+        PermissionMatrix matrix = PermissionMatrix.get( reviewMgr, null );
+        matrix.getRolePermissions( "root" ).set( column( matrix, "App.stop" ) );
+        matrix.getUserPermissions( "JDoe" ).set( column( matrix, "App.stop" ) );
+        assertEquals( bits( matrix, "Doc.read" ), matrix.getRolePermissions( "root" ) );
+        assertEquals( bits( matrix, "Doc.read" ), matrix.getUserPermissions( "JDoe" ) );
+    }
+
+
+    @Test
+    public void grantedByNearestRole() throws SecurityException
+    {
+        PermissionMatrix matrix = PermissionMatrix.get( reviewMgr, null );
+        assertEquals( "root", matrix.getGrantedBy( "child", column( matrix, "Doc.read" ) ) );
+        assertEquals( "child", matrix.getGrantedBy( "child", column( matrix, "Doc.write" ) ) );
+        assertEquals( "child", matrix.getGrantedBy( "child", column( matrix, "App.run" ) ) );
+        assertNull( matrix.getGrantedBy( "root", column( matrix, "Doc.write" ) ) );
+        assertNull( matrix.getGrantedBy( "child", column( matrix, "App.stop" ) ) );
+    }
+
+
+    @Test
+    public void countUsers() throws SecurityException
+    {
+        PermissionMatrix matrix = PermissionMatrix.get( reviewMgr, null );
+        List<Integer> columns = Arrays.asList( column( matrix, "Doc.read" ), column( matrix, "Doc.write" ),
+            column( matrix, "App.run" ), column( matrix, "App.stop" ) );
+        assertArrayEquals( new int[]
+            { 3, 1, 2, 0 }, matrix.countUsers( columns ) );
+    }
+
+
+    @Test
+    public void loadedOnce() throws SecurityException
+    {
+        PermissionMatrix matrix = PermissionMatrix.get( reviewMgr, null );
+        assertSame( matrix, PermissionMatrix.get( reviewMgr, null ) );
+        assertEquals( 1, loads );
+        PermissionMatrix.load( reviewMgr, null );
+        assertEquals( 2, loads );
+    }
+
+
+    @Test
+    public void bulkAssignmentIsApplied() throws SecurityException
+    {
+        PermissionMatrix.get( reviewMgr, null );
+        PermissionMatrix.update( "JDOE", "Other", true );
+        PermissionMatrix.update( "jones", "root", false );
+        PermissionMatrix.update( "nobody", "root", true );
+        PermissionMatrix matrix = PermissionMatrix.get( reviewMgr, null );
+        assertEquals( 1, loads );
+        assertEquals( Arrays.asList( "other", "root" ), matrix.getUserRoles( "jdoe" ) );
+        assertEquals( Arrays.asList( "other" ), matrix.getUserRoles( "jones" ) );
+        assertEquals( 4, matrix.getUserCount() );
+        assertEquals( bits( matrix, "App.run" ), matrix.getUserPermissions( "jones" ) );
+    }
+
+
+    @Test
+    public void savedUserIsApplied() throws SecurityException
+    {
+        PermissionMatrix.get( reviewMgr, null );
+        PermissionMatrix.update( newUser( "admin", "child" ), SaveModelEvent.Operations.UPDATE );
+        PermissionMatrix.update( newUser( "jsmith" ), SaveModelEvent.Operations.DELETE );
+        PermissionMatrix matrix = PermissionMatrix.get( reviewMgr, null );
+        assertEquals( 1, loads );
+        assertEquals( Arrays.asList( "admin", "JDoe", "jones" ), matrix.getUserIds( "" ) );
+        assertEquals( bits( matrix, "App.run", "Doc.read", "Doc.write" ), matrix.getUserPermissions( "admin" ) );
+        // a user not in the snapshot is read with the next load:
+        PermissionMatrix.update( newUser( "new", "root" ), SaveModelEvent.Operations.ADD );
+        PermissionMatrix.get( reviewMgr, null );
+        assertEquals( 2, loads );
+    }
+
+
+    @Test
+    public void savedPermissionIsApplied() throws SecurityException
+    {
+        PermissionMatrix matrix = PermissionMatrix.get( reviewMgr, null );
+        int stop = column( matrix, "App.stop" );
+        int read = column( matrix, "Doc.read" );
+        PermissionMatrix.update( newPermission( "app", "STOP", "root" ), SaveModelEvent.Operations.UPDATE );
+        PermissionMatrix.update( newPermission( "Doc", "read" ), SaveModelEvent.Operations.DELETE );
+        matrix = PermissionMatrix.get( reviewMgr, null );
+        assertEquals( 1, loads );
+        assertNull( matrix.getPermission( read ) );
+        assertEquals( 3, matrix.getColumns( "" ).size() );
+        BitSet expected = new BitSet();
+        expected.set( stop );
+        assertEquals( expected, matrix.getRolePermissions( "root" ) );
+        assertEquals( "root", matrix.getGrantedBy( "child", stop ) );
+    }
+
+
+    @Test
+    public void deletedObjectDropsItsPermissions() throws SecurityException
+    {
+        PermissionMatrix.get( reviewMgr, null );
+        PermissionMatrix.update( new PermObj( "doc" ), SaveModelEvent.Operations.DELETE );
+        PermissionMatrix matrix = PermissionMatrix.get( reviewMgr, null );
+        assertEquals( 2, matrix.getColumns( "" ).size() );
+        assertTrue( matrix.getColumns( "doc" ).isEmpty() );
+        assertEquals( bits( matrix, "App.run" ), matrix.getUserPermissions( "jsmith" ) );
+        assertEquals( 1, loads );
+    }
+
+
+    private List<Object> findUsers( String prefix, boolean isIds )
+    {
+        List<Object> found = new ArrayList<>();
+        for ( User user : users )
+        {
+            if ( user.getUserId().toLowerCase().startsWith( prefix.toLowerCase() ) )
+            {
+                found.add( isIds ? user.getUserId() : user );
+            }
+        }
+        return found;
+    }
+
+
+    private static int column( PermissionMatrix matrix, String name )
+    {
+        for ( int column : matrix.getColumns( "" ) )
+        {
+            Permission permission = matrix.getPermission( column );
+            if ( name.equals( permission.getObjName() + "." + permission.getOpName() ) )
+            {
+                return column;
+            }
+        }
+        throw new IllegalArgumentException( name );
+    }
+
+
+    private static BitSet bits( PermissionMatrix matrix, String... names )
+    {
+        BitSet bits = new BitSet();
+        for ( String name : names )
+        {
+            bits.set( column( matrix, name ) );
+        }
+        return bits;
+    }
+
+
+    private static Role newRole( String name, String... parents )
+    {
+        Role role = new Role( name );
+        role.setParents( new HashSet<>( Arrays.asList( parents ) ) );
+        return role;
+    }
+
+
+    private static Permission newPermission( String objName, String opName, String... roleNames )
+    {
+        Permission permission = new Permission( objName, opName );
+        permission.setRoles( new HashSet<>( Arrays.asList( roleNames ) ) );
+        return permission;
+    }
+
+
+    private static User newUser( String userId, String... roleNames )
+    {
+        User user = new User( userId );
+        for ( String roleName : roleNames )
+        {
+            user.setRole( new UserRole( userId, roleName ) );
+        }
+        return user;
+    }
+}
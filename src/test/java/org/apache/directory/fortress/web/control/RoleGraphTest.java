@@ -0,0 +1,236 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+package org.apache.directory.fortress.web.control;
+
+import org.apache.directory.fortress.core.ReviewMgr;
+import org.apache.directory.fortress.core.SecurityException;
+import org.apache.directory.fortress.core.model.Role;
+import org.apache.directory.fortress.web.event.SaveModelEvent;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Lookups of {@link RoleGraph}, including cyclic and dangling parent references, and the updates applied on save.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ * @version $Rev$
+ */
+public class RoleGraphTest
+{
+    private final List<Role> roles = new ArrayList<>();
+    private int loads;
+    private ReviewMgr reviewMgr;
+
+
+    @Before
+    public void setUp()
+    {
+        RoleGraph.clear();
+        reviewMgr = ( ReviewMgr ) Proxy.newProxyInstance( ReviewMgr.class.getClassLoader(), new Class<?>[]
+            { ReviewMgr.class }, new InvocationHandler()
+            {
+                @Override
+                public Object invoke( Object proxy, Method method, Object[] args )
+                {
+                    if ( !method.getName().equals( "findRoles" ) )
+                    {
+                        throw new UnsupportedOperationException( method.getName() );
+                    }
+                    loads++;
+                    return new ArrayList<>( roles );
+                }
+            } );
+    }
+
+
+    @After
+    public void tearDown()
+    {
+        RoleGraph.clear();
+    }
+
+
+    @Test
+    public void parentsAndChildren() throws SecurityException
+    {
+        roles.add( newRole( "Root" ) );
+        roles.add( newRole( "b", "root" ) );
+        roles.add( newRole( "A", "ROOT" ) );
+        roles.add( newRole( "leaf", "a", "b" ) );
+        RoleGraph graph = RoleGraph.get( reviewMgr, null );
+        assertEquals( 4, graph.size() );
+        assertEquals( "Root", graph.getRole( "root" ).getName() );
+        assertEquals( Arrays.asList( "A", "b" ), names( graph.getChildren( "root" ) ) );
+        assertEquals( Arrays.asList( "A", "b" ), names( graph.getParents( "LEAF" ) ) );
+        assertTrue( graph.hasChildren( "a" ) );
+        assertFalse( graph.hasChildren( "leaf" ) );
+        assertTrue( graph.getParents( "root" ).isEmpty() );
+    }
+
+
+    @Test
+    public void ancestorsAndDescendantsNearestFirst() throws SecurityException
+    {
+        roles.add( newRole( "root" ) );
+        roles.add( newRole( "mid", "root" ) );
+        roles.add( newRole( "leaf", "mid", "root" ) );
+        RoleGraph graph = RoleGraph.get( reviewMgr, null );
+        assertEquals( Arrays.asList( "mid", "root" ), new ArrayList<>( graph.getAncestors( "leaf" ) ) );
+        assertEquals( Arrays.asList( "leaf", "mid" ), new ArrayList<>( graph.getDescendants( "root" ) ) );
+        assertEquals( Arrays.asList( "leaf" ), new ArrayList<>( graph.getDescendants( "mid" ) ) );
+        assertTrue( graph.getAncestors( "root" ).isEmpty() );
+    }
+
+
+    @Test
+    public void cycleEndsWalk() throws SecurityException
+    {
+        roles.add( newRole( "a", "c" ) );
+        roles.add( newRole( "b", "a" ) );
+        roles.add( newRole( "c", "b" ) );
+        roles.add( newRole( "self", "self" ) );
+        RoleGraph graph = RoleGraph.get( reviewMgr, null );
+        assertEquals( Arrays.asList( "b", "a" ), new ArrayList<>( graph.getAncestors( "c" ) ) );
+        assertEquals( Arrays.asList( "b", "c" ), new ArrayList<>( graph.getDescendants( "a" ) ) );
+        assertTrue( graph.getAncestors( "self" ).isEmpty() );
+        assertEquals( Arrays.asList( "self" ), names( graph.getChildren( "self" ) ) );
+    }
+
+
+    @Test
+    public void danglingParentIsSkipped() throws SecurityException
+    {
+        roles.add( newRole( "root" ) );
+        roles.add( newRole( "child", "root", "deleted" ) );
+        RoleGraph graph = RoleGraph.get( reviewMgr, null );
+        assertEquals( Arrays.asList( "root" ), names( graph.getParents( "child" ) ) );
+        assertEquals( Arrays.asList( "root" ), new ArrayList<>( graph.getAncestors( "child" ) ) );
+        assertNull( graph.getRole( "deleted" ) );
+        assertTrue( graph.getDescendants( "deleted" ).isEmpty() );
+    }
+
+
+    @Test
+    public void unknownRole() throws SecurityException
+    {
+        RoleGraph graph = RoleGraph.get( reviewMgr, null );
+        assertEquals( 0, graph.size() );
+        assertNull( graph.getRole( "missing" ) );
+        assertNull( graph.getRole( null ) );
+        assertTrue( graph.getParents( "missing" ).isEmpty() );
+        assertTrue( graph.getChildren( "missing" ).isEmpty() );
+        assertTrue( graph.getAncestors( "missing" ).isEmpty() );
+        assertFalse( graph.hasChildren( "missing" ) );
+    }
+
+
+    @Test
+    public void loadedOnce() throws SecurityException
+    {
+        roles.add( newRole( "root" ) );
+        RoleGraph graph = RoleGraph.get( reviewMgr, null );
+        assertSame( graph, RoleGraph.get( reviewMgr, null ) );
+        assertSame( graph, RoleGraph.peek( false, null ) );
+        assertNull( RoleGraph.peek( true, null ) );
+        assertEquals( 1, loads );
+    }
+
+
+    @Test
+    public void updateAndDeleteAreApplied() throws SecurityException
+    {
+        roles.add( newRole( "root" ) );
+        roles.add( newRole( "other" ) );
+        roles.add( newRole( "child", "root" ) );
+        RoleGraph.get( reviewMgr, null );
+        Role child = newRole( "child", "other" );
+        RoleGraph.update( child, SaveModelEvent.Operations.UPDATE );
+        // the detail panel goes on editing the role it saved:
+        child.getParents().add( "root" );
+        RoleGraph graph = RoleGraph.get( reviewMgr, null );
+        assertEquals( 1, loads );
+        assertEquals( Arrays.asList( "other" ), names( graph.getParents( "child" ) ) );
+        assertFalse( graph.hasChildren( "root" ) );
+        RoleGraph.update( newRole( "other" ), SaveModelEvent.Operations.DELETE );
+        graph = RoleGraph.get( reviewMgr, null );
+        assertEquals( 1, loads );
+        assertNull( graph.getRole( "other" ) );
+        assertTrue( graph.getParents( "child" ).isEmpty() );
+    }
+
+
+    @Test
+    public void addOfNewRoleLoadsAgain() throws SecurityException
+    {
+        roles.add( newRole( "root" ) );
+        RoleGraph.get( reviewMgr, null );
+        Role role = newRole( "child", "root" );
+        roles.add( role );
+        RoleGraph.update( role, SaveModelEvent.Operations.ADD );
+        RoleGraph graph = RoleGraph.get( reviewMgr, null );
+        assertEquals( 2, loads );
+        assertEquals( Arrays.asList( "child" ), names( graph.getChildren( "root" ) ) );
+    }
+
+
+    @Test
+    public void searchAndOtherEntitiesAreIgnored() throws SecurityException
+    {
+        roles.add( newRole( "root" ) );
+        RoleGraph graph = RoleGraph.get( reviewMgr, null );
+        RoleGraph.update( newRole( "root", "other" ), SaveModelEvent.Operations.SEARCH );
+        RoleGraph.update( null, SaveModelEvent.Operations.UPDATE );
+        assertSame( graph, RoleGraph.get( reviewMgr, null ) );
+    }
+
+
+    private static Role newRole( String name, String... parents )
+    {
+        Role role = new Role( name );
+        role.setParents( new HashSet<>( Arrays.asList( parents ) ) );
+        return role;
+    }
+
+
+    private static List<String> names( List<Role> roles )
+    {
+        List<String> names = new ArrayList<>();
+        for ( Role role : roles )
+        {
+            names.add( role.getName() );
+        }
+        return names;
+    }
+}
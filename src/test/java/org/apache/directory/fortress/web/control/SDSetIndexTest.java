@@ -0,0 +1,314 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+package org.apache.directory.fortress.web.control;
+
+import org.apache.directory.fortress.core.ReviewMgr;
+import org.apache.directory.fortress.core.SecurityException;
+import org.apache.directory.fortress.core.model.Role;
+import org.apache.directory.fortress.core.model.SDSet;
+import org.apache.directory.fortress.core.model.Session;
+import org.apache.directory.fortress.core.model.User;
+import org.apache.directory.fortress.web.event.SaveModelEvent;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * SSD violations and DSD conflicts found by {@link SDSetIndex}, by cardinality and through inherited roles, set
+ * searches and the updates applied on save.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ * @version $Rev$
+ */
+public class SDSetIndexTest
+{
+    private final List<Role> roles = new ArrayList<>();
+    private final List<SDSet> ssdSets = new ArrayList<>();
+    private final List<SDSet> dsdSets = new ArrayList<>();
+    private int loads;
+    private ReviewMgr reviewMgr;
+
+
+    @Before
+    public void setUp()
+    {
+        RoleGraph.clear();
+        SDSetIndex.clear();
+        reviewMgr = ( ReviewMgr ) Proxy.newProxyInstance( ReviewMgr.class.getClassLoader(), new Class<?>[]
+            { ReviewMgr.class }, new InvocationHandler()
+            {
+                @Override
+                public Object invoke( Object proxy, Method method, Object[] args )
+                {
+                    switch ( method.getName() )
+                    {
+                        case "findRoles":
+                            return new ArrayList<>( roles );
+                        case "ssdSets":
+                            loads++;
+                            return new ArrayList<>( ssdSets );
+                        case "dsdSets":
+                            return new ArrayList<>( dsdSets );
+                        default:
+                            throw new UnsupportedOperationException( method.getName() );
+                    }
+                }
+            } );
+    }
+
+
+    @After
+    public void tearDown()
+    {
+        RoleGraph.clear();
+        SDSetIndex.clear();
+    }
+
+
+    @Test
+    public void ssdViolatedAtCardinality() throws SecurityException
+    {
+        ssdSets.add( newSet( "pair", SDSet.SDType.STATIC, 2, "a", "b", "c" ) );
+        ssdSets.add( newSet( "triple", SDSet.SDType.STATIC, 3, "a", "b", "c" ) );
+        SDSetIndex index = SDSetIndex.get( reviewMgr, null );
+        assertEquals( Arrays.asList( "pair" ), names( index.getSsdViolations( Arrays.asList( "A" ), "b" ) ) );
+        assertEquals( Arrays.asList( "pair", "triple" ), names( index.getSsdViolations( Arrays.asList( "a", "b" ),
+            "C" ) ) );
+        assertTrue( index.getSsdViolations( Collections.<String>emptyList(), "a" ).isEmpty() );
+        assertTrue( index.getSsdViolations( Arrays.asList( "a" ), "d" ).isEmpty() );
+        assertTrue( index.getSsdViolations( Arrays.asList( "a" ), null ).isEmpty() );
+    }
+
+
+    @Test
+    public void cardinalityDefaultsToTwo() throws SecurityException
+    {
+        ssdSets.add( newSet( "set", SDSet.SDType.STATIC, null, "a", "b" ) );
+        SDSetIndex index = SDSetIndex.get( reviewMgr, null );
+        assertEquals( Arrays.asList( "set" ), names( index.getSsdViolations( Arrays.asList( "a" ), "b" ) ) );
+        assertTrue( index.getSsdViolations( null, "b" ).isEmpty() );
+    }
+
+
+    @Test
+    public void roleAlreadyAuthorizedChangesNothing() throws SecurityException
+    {
+        roles.add( newRole( "a" ) );
+        roles.add( newRole( "senior", "a" ) );
+        ssdSets.add( newSet( "set", SDSet.SDType.STATIC, 2, "a", "b" ) );
+        SDSetIndex index = SDSetIndex.get( reviewMgr, null );
+        assertTrue( index.getSsdViolations( Arrays.asList( "a", "b" ), "a" ).isEmpty() );
+        assertTrue( index.getSsdViolations( Arrays.asList( "senior", "b" ), "a" ).isEmpty() );
+    }
+
+
+    @Test
+    public void inheritedRolesCount() throws SecurityException
+    {
+        roles.add( newRole( "a" ) );
+        roles.add( newRole( "b" ) );
+        roles.add( newRole( "seniorA", "a" ) );
+        roles.add( newRole( "seniorB", "b" ) );
+        ssdSets.add( newSet( "set", SDSet.SDType.STATIC, 2, "a", "b" ) );
+        SDSetIndex index = SDSetIndex.get( reviewMgr, null );
+        // the assigned role inherits a member:
+        assertEquals( Arrays.asList( "set" ), names( index.getSsdViolations( Arrays.asList( "seniorA" ), "b" ) ) );
+        // the role to assign inherits a member:
+        assertEquals( Arrays.asList( "set" ), names( index.getSsdViolations( Arrays.asList( "a" ), "seniorB" ) ) );
+        assertEquals( Arrays.asList( "set" ), names( index.getSsdViolations( Arrays.asList( "seniorA" ),
+            "seniorB" ) ) );
+    }
+
+
+    @Test
+    public void dsdConflictsAreKeptApart() throws SecurityException
+    {
+        ssdSets.add( newSet( "ssd", SDSet.SDType.STATIC, 2, "a", "b" ) );
+        dsdSets.add( newSet( "dsd", SDSet.SDType.DYNAMIC, 2, "b", "c" ) );
+        SDSetIndex index = SDSetIndex.get( reviewMgr, null );
+        assertTrue( index.getSsdViolations( Arrays.asList( "b" ), "c" ).isEmpty() );
+        assertEquals( Arrays.asList( "dsd" ), names( index.getDsdConflicts( Arrays.asList( "b" ), "c" ) ) );
+        assertTrue( index.getDsdConflicts( Arrays.asList( "a" ), "b" ).isEmpty() );
+    }
+
+
+    @Test
+    public void searchByNameAndMember() throws SecurityException
+    {
+        ssdSets.add( newSet( "Payroll", SDSet.SDType.STATIC, 2, "a", "b" ) );
+        ssdSets.add( newSet( "payments", SDSet.SDType.STATIC, 2, "b", "c" ) );
+        ssdSets.add( newSet( "other", SDSet.SDType.STATIC, 2, "c", "d" ) );
+        dsdSets.add( newSet( "paydsd", SDSet.SDType.DYNAMIC, 2, "a", "b" ) );
+        SDSetIndex index = SDSetIndex.get( reviewMgr, null );
+        assertEquals( Arrays.asList( "payments", "Payroll" ), names( index.search( newSet( "PAY",
+            SDSet.SDType.STATIC, null ) ) ) );
+        assertEquals( Arrays.asList( "other", "payments", "Payroll" ), names( index.search( newSet( "", null,
+            null ) ) ) );
+        assertEquals( Arrays.asList( "paydsd" ), names( index.search( newSet( "pay", SDSet.SDType.DYNAMIC,
+            null ) ) ) );
+        assertEquals( Arrays.asList( "payments", "Payroll" ), names( index.search( newSet( null,
+            SDSet.SDType.STATIC, null, "B" ) ) ) );
+    }
+
+
+    @Test
+    public void searchReturnsCopies() throws SecurityException
+    {
+        ssdSets.add( newSet( "set", SDSet.SDType.STATIC, 2, "a", "b" ) );
+        SDSetIndex index = SDSetIndex.get( reviewMgr, null );
+        SDSet found = index.search( newSet( "set", SDSet.SDType.STATIC, null ) ).get( 0 );
+        found.getMembers().remove( "a" );
+        found.setCardinality( 3 );
+        assertEquals( Arrays.asList( "set" ), names( index.getSsdViolations( Arrays.asList( "a" ), "b" ) ) );
+        assertEquals( 2, index.search( newSet( "set", SDSet.SDType.STATIC, null ) ).get( 0 ).getMembers()
+            .size() );
+    }
+
+
+    @Test
+    public void updatesAreApplied() throws SecurityException
+    {
+        ssdSets.add( newSet( "set", SDSet.SDType.STATIC, 2, "a", "b" ) );
+        SDSetIndex.get( reviewMgr, null );
+        SDSetIndex.update( newSet( "set", SDSet.SDType.STATIC, 3, "a", "b", "c" ), SaveModelEvent.Operations
+            .UPDATE );
+        SDSetIndex index = SDSetIndex.get( reviewMgr, null );
+        assertEquals( 1, loads );
+        assertTrue( index.getSsdViolations( Arrays.asList( "a" ), "b" ).isEmpty() );
+        assertEquals( Arrays.asList( "set" ), names( index.getSsdViolations( Arrays.asList( "a", "b" ), "c" ) ) );
+        SDSetIndex.update( newSet( "set", SDSet.SDType.STATIC, null ), SaveModelEvent.Operations.DELETE );
+        index = SDSetIndex.get( reviewMgr, null );
+        assertEquals( 1, loads );
+        assertTrue( index.search( newSet( "", SDSet.SDType.STATIC, null ) ).isEmpty() );
+    }
+
+
+    @Test
+    public void addedSetLoadsAgain() throws SecurityException
+    {
+        SDSetIndex.get( reviewMgr, null );
+        SDSet sdSet = newSet( "added", SDSet.SDType.STATIC, 2, "c", "d" );
+        ssdSets.add( sdSet );
+        // the admin of an index may not be allowed to read the new set:
+        SDSetIndex.update( sdSet, SaveModelEvent.Operations.ADD );
+        SDSetIndex index = SDSetIndex.get( reviewMgr, null );
+        assertEquals( 2, loads );
+        assertEquals( Arrays.asList( "added" ), names( index.getSsdViolations( Arrays.asList( "c" ), "d" ) ) );
+        // nor an update of a set it does not hold:
+        SDSetIndex.update( newSet( "other", SDSet.SDType.STATIC, 2, "a", "b" ), SaveModelEvent.Operations.UPDATE );
+        index = SDSetIndex.get( reviewMgr, null );
+        assertEquals( 2, loads );
+        assertTrue( index.getSsdViolations( Arrays.asList( "a" ), "b" ).isEmpty() );
+    }
+
+
+    @Test
+    public void indexIsKeptPerAdmin() throws SecurityException
+    {
+        Session admin1 = newSession( "admin1" );
+        Session admin2 = newSession( "admin2" );
+        SDSetIndex.get( reviewMgr, admin1 );
+        SDSetIndex.get( reviewMgr, admin2 );
+        assertEquals( 2, loads );
+        SDSetIndex.get( reviewMgr, admin1 );
+        assertEquals( 2, loads );
+        // an update reaches the indexes of every admin of the tenant:
+        SDSetIndex.update( newRole( "a" ), SaveModelEvent.Operations.DELETE );
+        SDSetIndex.get( reviewMgr, admin1 );
+        SDSetIndex.get( reviewMgr, admin2 );
+        assertEquals( 4, loads );
+        SDSetIndex.evict( ReviewMgrCache.getContextId() );
+        SDSetIndex.get( reviewMgr, admin2 );
+        assertEquals( 5, loads );
+    }
+
+
+    @Test
+    public void deletedRoleLoadsAgain() throws SecurityException
+    {
+        ssdSets.add( newSet( "set", SDSet.SDType.STATIC, 2, "a", "b" ) );
+        SDSetIndex.get( reviewMgr, null );
+        SDSetIndex.update( newRole( "a" ), SaveModelEvent.Operations.UPDATE );
+        SDSetIndex.get( reviewMgr, null );
+        assertEquals( 1, loads );
+        SDSetIndex.update( newRole( "a" ), SaveModelEvent.Operations.DELETE );
+        SDSetIndex.get( reviewMgr, null );
+        assertEquals( 2, loads );
+    }
+
+
+    @Test
+    public void format()
+    {
+        assertEquals( "set (2 of [a, b]), other (3 of [])", SDSetIndex.format( Arrays.asList( newSet( "set",
+            SDSet.SDType.STATIC, 2, "a", "b" ), newSet( "other", SDSet.SDType.STATIC, 3 ) ) ) );
+        assertEquals( "", SDSetIndex.format( Collections.<SDSet>emptyList() ) );
+    }
+
+
+    private static SDSet newSet( String name, SDSet.SDType type, Integer cardinality, String... members )
+    {
+        SDSet sdSet = new SDSet();
+        sdSet.setName( name );
+        sdSet.setType( type );
+        sdSet.setCardinality( cardinality );
+        sdSet.setMembers( members.length > 0 ? new HashSet<>( Arrays.asList( members ) ) : null );
+        return sdSet;
+    }
+
+
+    private static Session newSession( String userId )
+    {
+        Session session = new Session();
+        session.setUser( new User( userId ) );
+        return session;
+    }
+
+
+    private static Role newRole( String name, String... parents )
+    {
+        Role role = new Role( name );
+        role.setParents( new HashSet<>( Arrays.asList( parents ) ) );
+        return role;
+    }
+
+
+    private static List<String> names( List<SDSet> sets )
+    {
+        List<String> names = new ArrayList<>();
+        for ( SDSet sdSet : sets )
+        {
+            names.add( sdSet.getName() );
+        }
+        return names;
+    }
+}
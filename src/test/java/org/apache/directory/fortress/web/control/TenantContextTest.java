@@ -0,0 +1,182 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+package org.apache.directory.fortress.web.control;
+
+import org.apache.directory.fortress.core.model.Session;
+import org.apache.directory.fortress.core.model.User;
+import org.junit.After;
+import org.junit.Test;
+
+import javax.servlet.http.HttpServletRequest;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tenants named by a request, per resolver, and the requests {@link TenantFilter} refuses, as decided by
+ * {@link TenantContext}.  Runs with tenant.multi.enabled=false, the default.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ * @version $Rev$
+ */
+public class TenantContextTest
+{
+    @After
+    public void tearDown()
+    {
+        TenantContext.set( null );
+    }
+
+
+    @Test
+    public void resolveByParam()
+    {
+        HttpServletRequest request = newRequest( "acme123.commander.example.com", "tenant", " acme123 " );
+        assertEquals( "acme123", TenantContext.resolve( request, "param" ) );
+        assertNull( TenantContext.resolve( newRequest( null, "tenant", " " ), "param" ) );
+        assertNull( TenantContext.resolve( newRequest( null ), "param" ) );
+    }
+
+
+    @Test
+    public void resolveByHeader()
+    {
+        assertEquals( "acme123", TenantContext.resolve( newRequest( null, "X-Fortress-Tenant", "acme123" ),
+            "header" ) );
+        assertNull( TenantContext.resolve( newRequest( null, "tenant", "acme123" ), "header" ) );
+    }
+
+
+    @Test
+    public void resolveByHost()
+    {
+        assertEquals( "acme123", TenantContext.resolve( newRequest( "acme123.commander.example.com" ), "host" ) );
+        assertNull( TenantContext.resolve( newRequest( "localhost" ), "host" ) );
+        assertNull( TenantContext.resolve( newRequest( ".example.com" ), "host" ) );
+        assertNull( TenantContext.resolve( newRequest( null ), "host" ) );
+    }
+
+
+    @Test
+    public void resolveByNone()
+    {
+        HttpServletRequest request = newRequest( "acme123.commander.example.com", "tenant", "acme123",
+            "X-Fortress-Tenant", "acme123" );
+        assertNull( TenantContext.resolve( request, "none" ) );
+        assertNull( TenantContext.resolve( request, "unknown" ) );
+    }
+
+
+    @Test
+    public void checkServesLoginTenant()
+    {
+        String home = TenantContext.getDefault();
+        assertEquals( home, TenantContext.check( null, home ) );
+        assertEquals( home, TenantContext.check( home, home ) );
+    }
+
+
+    @Test
+    public void checkRefusesOtherTenants()
+    {
+        String home = TenantContext.getDefault();
+        // a request may not name another tenant than the one of its login:
+        assertNull( TenantContext.check( "acme123", home ) );
+        // nor be served for a tenant this deployment does not serve:
+        assertNull( TenantContext.check( null, "acme123" ) );
+        assertNull( TenantContext.check( "acme123", "acme123" ) );
+        assertNull( TenantContext.check( null, null ) );
+        assertFalse( TenantContext.isAllowed( "acme123" ) );
+        assertFalse( TenantContext.isAllowed( null ) );
+        assertTrue( TenantContext.isAllowed( home ) );
+    }
+
+
+    @Test
+    public void loginTenant()
+    {
+        Session session = new Session();
+        assertEquals( TenantContext.getDefault(), TenantContext.getLoginTenant( session ) );
+        assertEquals( TenantContext.getDefault(), TenantContext.getLoginTenant( null ) );
+        User user = new User( "jsmith" );
+        user.setContextId( "acme123" );
+        session.setUser( user );
+        assertEquals( "acme123", TenantContext.getLoginTenant( session ) );
+        session.setContextId( " acme456 " );
+        assertEquals( "acme456", TenantContext.getLoginTenant( session ) );
+    }
+
+
+    @Test
+    public void disabledAlwaysServesDefault()
+    {
+        Runnable task = new Runnable()
+        {
+            @Override
+            public void run()
+            {
+            }
+        };
+        assertFalse( TenantContext.isEnabled() );
+        assertNull( TenantContext.set( "acme123" ) );
+        assertEquals( TenantContext.getDefault(), TenantContext.get() );
+        assertSame( task, TenantContext.wrap( task ) );
+    }
+
+
+    /**
+     * @param values names and values of the request parameters and headers, in pairs.
+     */
+    private static HttpServletRequest newRequest( final String serverName, String... values )
+    {
+        final Map<String, String> map = new HashMap<>();
+        for ( int i = 0; i + 1 < values.length; i += 2 )
+        {
+            map.put( values[i], values[i + 1] );
+        }
+        return ( HttpServletRequest ) Proxy.newProxyInstance( HttpServletRequest.class.getClassLoader(),
+            new Class<?>[]
+            { HttpServletRequest.class }, new InvocationHandler()
+            {
+                @Override
+                public Object invoke( Object proxy, Method method, Object[] args )
+                {
+                    switch ( method.getName() )
+                    {
+                        case "getServerName":
+                            return serverName;
+                        case "getHeader":
+                        case "getParameter":
+                            return map.get( args[0] );
+                        default:
+                            throw new UnsupportedOperationException( method.getName() );
+                    }
+                }
+            } );
+    }
+}